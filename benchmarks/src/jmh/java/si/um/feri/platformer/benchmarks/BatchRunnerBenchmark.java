@@ -0,0 +1,70 @@
+package si.um.feri.platformer.benchmarks;
+
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import si.um.feri.platformer.input.InputSource;
+import si.um.feri.platformer.input.ScriptedInputSource;
+import si.um.feri.platformer.map.LevelData;
+import si.um.feri.platformer.simulation.BatchRunner;
+import si.um.feri.platformer.simulation.SimulationRunner;
+
+/**
+ * Wall time of a fixed batch of sessions at different pool sizes, to check how
+ * {@link BatchRunner} scales with cores.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BatchRunnerBenchmark {
+
+    private static final int SESSIONS = 256;
+    private static final int MAX_TICKS = 1200;
+    private static final String SCRIPT = "R:90 RJ:1 R:40 -:10 L:30 LJ:1 L:20";
+
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    private ForkJoinPool pool;
+    private BatchRunner runner;
+    private final SimulationRunner.InputFactory inputs = new SimulationRunner.InputFactory() {
+        @Override
+        public InputSource create(int session) {
+            return ScriptedInputSource.fromScript(SCRIPT, true);
+        }
+    };
+
+    @Setup
+    public void setup() {
+        LevelData level = SyntheticLevel.generate(256, 64, 64, 42L).toLevelData();
+        runner = new BatchRunner(level, 1f / 60f, MAX_TICKS);
+        pool = new ForkJoinPool(threads);
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public long runBatch() {
+        return runner.run(SESSIONS, inputs, pool).ticks;
+    }
+}
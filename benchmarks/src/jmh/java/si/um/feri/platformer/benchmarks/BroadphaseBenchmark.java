@@ -0,0 +1,97 @@
+package si.um.feri.platformer.benchmarks;
+
+import com.badlogic.gdx.utils.IntArray;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import si.um.feri.platformer.ecs.Broadphase;
+import si.um.feri.platformer.ecs.EntityFactory;
+import si.um.feri.platformer.ecs.EntityStore;
+
+/**
+ * Candidate pairs for moving boxes: sweep-and-prune update plus pair search, against
+ * checking every pair. Entities drift a little each invocation, as they do between ticks,
+ * and wrap around a 512 x 128 unit level.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BroadphaseBenchmark {
+
+    private static final float LEVEL_W = 512f;
+    private static final float LEVEL_H = 128f;
+    private static final float DT = 1f / 60f;
+
+    @Param({"1000", "10000"})
+    public int entities;
+
+    private EntityStore store;
+    private final Broadphase broadphase = new Broadphase();
+    private final IntArray pairs = new IntArray();
+
+    @Setup
+    public void setup() {
+        store = new EntityStore(entities);
+        Random random = new Random(42L);
+        for (int i = 0; i < entities; i++) {
+            float x = random.nextFloat() * LEVEL_W;
+            float y = random.nextFloat() * LEVEL_H;
+            if (i % 4 == 0) {
+                EntityFactory.spawnProjectile(store, x, y, random.nextFloat() * 16f - 8f, random.nextFloat() * 16f - 8f);
+            } else {
+                EntityFactory.spawnEnemy(store, x, y, random.nextBoolean() ? 1f : -1f);
+            }
+        }
+        broadphase.update(store);
+    }
+
+    private void move() {
+        float[] x = store.x;
+        float[] y = store.y;
+        float[] vx = store.vx;
+        float[] vy = store.vy;
+        for (int i = 0, n = store.size(); i < n; i++) {
+            x[i] = (x[i] + vx[i] * DT + LEVEL_W) % LEVEL_W;
+            y[i] = (y[i] + vy[i] * DT + LEVEL_H) % LEVEL_H;
+        }
+    }
+
+    @Benchmark
+    public int sweepAndPrune() {
+        move();
+        broadphase.update(store);
+        return broadphase.findPairs(pairs);
+    }
+
+    @Benchmark
+    public int allPairs() {
+        move();
+        int found = 0;
+        float[] x = store.x;
+        float[] y = store.y;
+        float[] w = store.width;
+        float[] h = store.height;
+        for (int i = 0, n = store.size(); i < n; i++) {
+            for (int j = i + 1; j < n; j++) {
+                if (x[i] < x[j] + w[j] && x[j] < x[i] + w[i] && y[i] < y[j] + h[j] && y[j] < y[i] + h[i]) found++;
+            }
+        }
+        return found;
+    }
+}
@@ -0,0 +1,91 @@
+package si.um.feri.platformer.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import si.um.feri.platformer.entities.Player;
+import si.um.feri.platformer.map.LevelData;
+import si.um.feri.platformer.map.TileSweeper;
+import si.um.feri.platformer.simulation.GameStats;
+import si.um.feri.platformer.simulation.SimulationListener;
+import si.um.feri.platformer.systems.CollisionSystem;
+
+/**
+ * Per-call cost of the collision queries the simulation makes every tick.
+ * Probe positions are precomputed and cycled so hits, misses and level edges all show up.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CollisionBenchmark {
+
+    private static final int PROBES = 1024; // power of two, see nextProbe()
+
+    /** Damage rectangles in the level; the foreground query does not depend on it. */
+    @Param({"16", "256", "4096"})
+    public int damageObjects;
+
+    private Player player;
+    private CollisionSystem collisionSystem;
+    private final GameStats stats = new GameStats();
+    private final TileSweeper.Hit sweepHit = new TileSweeper.Hit();
+
+    private final float[] probeX = new float[PROBES];
+    private final float[] probeY = new float[PROBES];
+    private int probe;
+
+    @Setup
+    public void setup() {
+        LevelData level = SyntheticLevel.generate(512, 128, damageObjects, 42L).toLevelData();
+        player = new Player();
+        collisionSystem = new CollisionSystem(level, level.getCoins().copy(), SimulationListener.NONE);
+
+        Random random = new Random(7L);
+        for (int i = 0; i < PROBES; i++) {
+            probeX[i] = random.nextFloat() * (level.getWidth() - Player.WIDTH);
+            probeY[i] = random.nextFloat() * (level.getHeight() - Player.HEIGHT);
+        }
+    }
+
+    private int nextProbe() {
+        return probe++ & (PROBES - 1);
+    }
+
+    @Benchmark
+    public boolean collidesWithForeground() {
+        int i = nextProbe();
+        return collisionSystem.collidesWithForeground(probeX[i], probeY[i], Player.WIDTH, Player.HEIGHT);
+    }
+
+    /** A fast diagonal move (several tiles per tick) resolved with one swept query. */
+    @Benchmark
+    public float sweep() {
+        int i = nextProbe();
+        collisionSystem.sweep(probeX[i], probeY[i], Player.WIDTH, Player.HEIGHT, 6f, -6f, sweepHit);
+        return sweepHit.time;
+    }
+
+    @Benchmark
+    public int handlePlayerTileCollisions() {
+        int i = nextProbe();
+        player.setPosition(probeX[i], probeY[i]);
+        stats.reset(); // keep health from bottoming out at zero
+        collisionSystem.handlePlayerTileCollisions(player, stats);
+        return stats.getHealth();
+    }
+}
@@ -0,0 +1,97 @@
+package si.um.feri.platformer.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import si.um.feri.platformer.ecs.Broadphase;
+import si.um.feri.platformer.ecs.EntityEngine;
+import si.um.feri.platformer.ecs.EntityFactory;
+import si.um.feri.platformer.ecs.EntityStore;
+import si.um.feri.platformer.entities.Player;
+import si.um.feri.platformer.map.LevelData;
+import si.um.feri.platformer.simulation.GameStats;
+import si.um.feri.platformer.simulation.SimulationListener;
+import si.um.feri.platformer.systems.CollisionSystem;
+import si.um.feri.platformer.systems.EntityContactSystem;
+import si.um.feri.platformer.systems.EntityMovementSystem;
+import si.um.feri.platformer.systems.LifetimeSystem;
+
+/**
+ * One tick of the entity systems (movement, lifetime, entity and player contacts) over a mix of
+ * patrolling enemies, projectiles and pickups. Entities that die are respawned after the
+ * tick so the population stays at {@code entities}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EntityUpdateBenchmark {
+
+    private static final float DT = 1f / 60f;
+
+    @Param({"1000", "10000"})
+    public int entities;
+
+    private LevelData level;
+    private EntityStore store;
+    private EntityEngine engine;
+    private final GameStats stats = new GameStats();
+    private final Random random = new Random(42L);
+
+    @Setup
+    public void setup() {
+        level = SyntheticLevel.generate(512, 128, 256, 42L).toLevelData();
+        Player player = new Player();
+        player.setPosition(level.getWidth() * 0.5f, level.getHeight() * 0.5f);
+
+        store = new EntityStore(entities);
+        engine = new EntityEngine(store);
+        engine.add("entities", new EntityMovementSystem(level));
+        engine.add("lifetime", new LifetimeSystem());
+        Broadphase broadphase = new Broadphase();
+        engine.add("contacts", new EntityContactSystem(broadphase));
+        engine.add("collisions", new CollisionSystem(level, level.getCoins().copy(), SimulationListener.NONE, player, stats, broadphase));
+
+        for (int i = 0; i < entities; i++) spawn(i % 10);
+    }
+
+    /** 7 in 10 enemies, 2 projectiles, 1 pickup, each in free space. */
+    private void spawn(int slot) {
+        float x;
+        float y;
+        do {
+            x = random.nextFloat() * (level.getWidth() - 1f);
+            y = random.nextFloat() * (level.getHeight() - 1f);
+        } while (level.getSolidity().overlaps(x, y, 1f, 1f, level.getTileWidth(), level.getTileHeight()));
+
+        if (slot < 7) {
+            EntityFactory.spawnEnemy(store, x, y, random.nextBoolean() ? 1f : -1f);
+        } else if (slot < 9) {
+            EntityFactory.spawnProjectile(store, x, y, random.nextFloat() * 16f - 8f, random.nextFloat() * 16f - 8f);
+        } else {
+            EntityFactory.spawnPickup(store, x, y);
+        }
+    }
+
+    @Benchmark
+    public int tick() {
+        stats.reset(); // keep the collision system running
+        engine.update(DT);
+        for (int i = store.size(); i < entities; i++) spawn(8 + (i & 1)); // refill with projectiles and pickups
+        return store.size();
+    }
+}
@@ -0,0 +1,115 @@
+package si.um.feri.platformer.benchmarks;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.physics.box2d.Body;
+import com.badlogic.gdx.physics.box2d.Box2D;
+import com.badlogic.gdx.physics.box2d.World;
+import com.badlogic.gdx.utils.IntArray;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import si.um.feri.platformer.map.CollisionGeometryBuilder;
+import si.um.feri.platformer.map.CompiledLevel;
+import si.um.feri.platformer.map.LevelData;
+import si.um.feri.platformer.map.SolidityGrid;
+import si.um.feri.platformer.map.TmxLevelLoader;
+
+/**
+ * Level load and collision build time on synthetic maps of increasing size.
+ *
+ * MapManager itself needs a GL context for its tileset textures, so this measures the
+ * parts of its construction that scale with the map: parsing the layers into grids and
+ * the damage index ({@link TmxLevelLoader}, same layer rules as MapManager), and the
+ * greedy merge plus Box2D body creation done by {@code MapManager.buildCollision}.
+ * {@code loadCompiledLevel} reads the same map precompiled to a {@link CompiledLevel}, which
+ * already contains the grids and the merged rectangles.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MapBuildBenchmark {
+
+    /** Map width in tiles; the height is a quarter of it. */
+    @Param({"64", "256", "1024"})
+    public int mapWidth;
+
+    private File tmxFile;
+    private FileHandle tmx;
+    private File levelFile;
+    private FileHandle compiledLevel;
+    private SolidityGrid solidity;
+    private final IntArray rects = new IntArray();
+
+    @Setup
+    public void setup() throws IOException {
+        Box2D.init();
+
+        int mapHeight = Math.max(16, mapWidth / 4);
+        SyntheticLevel level = SyntheticLevel.generate(mapWidth, mapHeight, mapWidth / 2, 42L);
+
+        tmxFile = File.createTempFile("synthetic_" + mapWidth + "_", ".tmx");
+        tmx = new FileHandle(tmxFile);
+        level.writeTmx(tmx);
+
+        levelFile = File.createTempFile("synthetic_" + mapWidth + "_", "." + CompiledLevel.EXTENSION);
+        compiledLevel = new FileHandle(levelFile);
+        TmxLevelLoader.compile(tmx).write(compiledLevel);
+
+        solidity = level.solidity;
+    }
+
+    @TearDown
+    public void tearDown() {
+        tmxFile.delete();
+        levelFile.delete();
+    }
+
+    @Benchmark
+    public LevelData loadLevel() {
+        return TmxLevelLoader.load(tmx);
+    }
+
+    @Benchmark
+    public LevelData loadCompiledLevel() {
+        return CompiledLevel.read(compiledLevel).getLevelData();
+    }
+
+    @Benchmark
+    public int mergeRectangles() {
+        rects.clear();
+        CollisionGeometryBuilder.mergeRectangles(solidity, rects);
+        return rects.size;
+    }
+
+    @Benchmark
+    public int buildCollision() {
+        World world = new World(new Vector2(0, 0), true);
+        try {
+            rects.clear();
+            CollisionGeometryBuilder.mergeRectangles(solidity, rects);
+            Body body = CollisionGeometryBuilder.createStaticBody(world, rects, 1f, 1f);
+            return body.getFixtureList().size;
+        } finally {
+            world.dispose();
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package si.um.feri.platformer.benchmarks;
+
+import com.badlogic.gdx.files.FileHandle;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import si.um.feri.platformer.entities.Player;
+import si.um.feri.platformer.input.InputLog;
+import si.um.feri.platformer.input.InputSource;
+import si.um.feri.platformer.input.ReplayInputSource;
+import si.um.feri.platformer.input.ScriptedInputSource;
+import si.um.feri.platformer.map.LevelData;
+import si.um.feri.platformer.simulation.GameSimulation;
+import si.um.feri.platformer.simulation.SimulationListener;
+
+/**
+ * One full headless simulation tick (input, player movement, entity systems, tile and damage
+ * collisions) with the same scripted input the headless runner uses, or with a session
+ * recorded in the game ({@code -Dplatformer.recordInput}) given as the {@code replay} parameter.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SimulationTickBenchmark {
+
+    private static final float STEP = 1f / 60f;
+    private static final String SCRIPT = "R:90 RJ:1 R:40 -:10 L:30 LJ:1 L:20";
+
+    /** Map width in tiles; the height is a quarter of it. */
+    @Param({"128", "1024"})
+    public int mapWidth;
+
+    /** Path of an input recording ({@code .inp}) to loop instead of the script; empty for the script. */
+    @Param({""})
+    public String replay;
+
+    private GameSimulation simulation;
+    private InputSource input;
+    private float spawnX;
+    private float spawnY;
+
+    @Setup
+    public void setup() {
+        LevelData level = SyntheticLevel.generate(mapWidth, Math.max(16, mapWidth / 4), mapWidth / 4, 42L).toLevelData();
+        simulation = new GameSimulation(level, SimulationListener.NONE);
+        input = replay.isEmpty()
+            ? ScriptedInputSource.fromScript(SCRIPT, true)
+            : new ReplayInputSource(InputLog.read(new FileHandle(replay)), true);
+
+        spawnX = simulation.getPlayer().getX();
+        spawnY = simulation.getPlayer().getY();
+    }
+
+    @TearDown
+    public void tearDown() {
+        simulation.dispose();
+    }
+
+    @Benchmark
+    public long tick() {
+        simulation.tick(input, STEP);
+
+        // keep the session running without allocating a new one: revive it after a
+        // win or loss, and put the player back if the script walked it off the level
+        if (simulation.isFinished()) simulation.getStats().reset();
+        Player player = simulation.getPlayer();
+        if (player.getY() < 0f) player.setPosition(spawnX, spawnY);
+
+        return simulation.getTick();
+    }
+}
@@ -0,0 +1,81 @@
+package si.um.feri.platformer.benchmarks;
+
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import si.um.feri.platformer.ecs.EntityFactory;
+import si.um.feri.platformer.ecs.EntityStore;
+import si.um.feri.platformer.input.ScriptedInputSource;
+import si.um.feri.platformer.map.LevelData;
+import si.um.feri.platformer.simulation.GameSimulation;
+import si.um.feri.platformer.simulation.SimulationListener;
+import si.um.feri.platformer.simulation.SimulationSnapshot;
+
+/**
+ * Saving a session into a snapshot (what rollback does every tick) and restoring it, with
+ * {@code entities} enemies, pickups and projectiles on top of the player, stats and coins.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SnapshotBenchmark {
+
+    private static final float STEP = 1f / 60f;
+
+    @Param({"0", "1000", "10000"})
+    public int entities;
+
+    private GameSimulation simulation;
+    private final SimulationSnapshot snapshot = new SimulationSnapshot();
+
+    @Setup
+    public void setup() {
+        LevelData level = SyntheticLevel.generate(512, 128, 256, 42L).toLevelData();
+        simulation = new GameSimulation(level, SimulationListener.NONE);
+
+        EntityStore store = simulation.getEntities();
+        Random random = new Random(42L);
+        for (int i = 0; i < entities; i++) {
+            EntityFactory.spawn(store, 1 + i % 3, random.nextFloat() * level.getWidth(), random.nextFloat() * level.getHeight());
+        }
+
+        // a few ticks in, so there is some history to save
+        ScriptedInputSource input = ScriptedInputSource.fromScript("R:30 RJ:1 R:30", false);
+        for (int i = 0; i < 60; i++) simulation.tick(input, STEP);
+        simulation.save(snapshot);
+    }
+
+    @TearDown
+    public void tearDown() {
+        simulation.dispose();
+    }
+
+    @Benchmark
+    public long save() {
+        simulation.save(snapshot);
+        return snapshot.getTick();
+    }
+
+    @Benchmark
+    public long restore() {
+        simulation.restore(snapshot);
+        return simulation.getTick();
+    }
+}
@@ -0,0 +1,131 @@
+package si.um.feri.platformer.benchmarks;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.FloatArray;
+
+import java.util.Random;
+
+import si.um.feri.platformer.map.LevelData;
+import si.um.feri.platformer.map.RectangleIndex;
+import si.um.feri.platformer.map.SolidityGrid;
+
+/**
+ * Deterministic platformer-like test level of any size: two rows of ground, rows of
+ * floating platforms with gaps, a coin above some platforms and spike-sized damage
+ * rectangles on walkable surfaces. The same seed always gives the same level.
+ *
+ * The spawn area used by GameSimulation (the first few columns above the ground) is
+ * kept free so sessions start standing on the ground.
+ */
+final class SyntheticLevel {
+
+    static final int TILE_PX = 32;
+
+    private static final int GROUND_ROWS = 2;
+    private static final int FIRST_PLATFORM_ROW = 8;
+    private static final int PLATFORM_ROW_SPACING = 5;
+    private static final int SPAWN_COLUMNS = 4;
+
+    final int width;
+    final int height;
+    final SolidityGrid solidity;
+    final SolidityGrid coins;
+    final FloatArray damage = new FloatArray(); // x, y, w, h in world units (1 unit = 1 tile)
+
+    private SyntheticLevel(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.solidity = new SolidityGrid(width, height);
+        this.coins = new SolidityGrid(width, height);
+    }
+
+    static SyntheticLevel generate(int width, int height, int damageObjects, long seed) {
+        Random random = new Random(seed);
+        SyntheticLevel level = new SyntheticLevel(width, height);
+
+        for (int y = 0; y < Math.min(GROUND_ROWS, height); y++) {
+            for (int x = 0; x < width; x++) level.solidity.set(x, y, true);
+        }
+
+        for (int y = FIRST_PLATFORM_ROW; y < height - 2; y += PLATFORM_ROW_SPACING) {
+            int x = SPAWN_COLUMNS + random.nextInt(6);
+            while (x < width) {
+                int length = 2 + random.nextInt(11);
+                for (int i = 0; i < length && x + i < width; i++) level.solidity.set(x + i, y, true);
+                if (random.nextInt(3) == 0) level.coins.set(x + length / 2, y + 1, true);
+                x += length + 3 + random.nextInt(8);
+            }
+        }
+
+        // damage rectangles sit on top of a random solid tile with free space above it
+        int placed = 0;
+        int attempts = 0;
+        while (placed < damageObjects && attempts++ < damageObjects * 64) {
+            int x = SPAWN_COLUMNS + random.nextInt(Math.max(1, width - SPAWN_COLUMNS));
+            int y = random.nextInt(height - 1);
+            if (!level.solidity.isSolid(x, y) || level.solidity.isSolid(x, y + 1)) continue;
+
+            level.damage.add(x);
+            level.damage.add(y + 1);
+            level.damage.add(1f);
+            level.damage.add(0.5f);
+            placed++;
+        }
+        return level;
+    }
+
+    int damageCount() { return damage.size / 4; }
+
+    /** Shared level data, built the way MapManager and TmxLevelLoader build it. */
+    LevelData toLevelData() {
+        RectangleIndex damageIndex = new RectangleIndex(
+            damage.items, damageCount(), width, height, LevelData.DAMAGE_INDEX_CELL_TILES
+        );
+        return new LevelData(width, height, TILE_PX, TILE_PX, solidity.copy(), coins.copy(), damageIndex);
+    }
+
+    /** Writes the level as a CSV-encoded TMX file with Foreground, Coin and Damage layers. */
+    void writeTmx(FileHandle file) {
+        StringBuilder xml = new StringBuilder(width * height * 2 + 1024);
+        xml.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n")
+            .append("<map version=\"1.10\" orientation=\"orthogonal\" renderorder=\"right-down\"")
+            .append(" width=\"").append(width).append("\" height=\"").append(height).append('"')
+            .append(" tilewidth=\"").append(TILE_PX).append("\" tileheight=\"").append(TILE_PX).append('"')
+            .append(" infinite=\"0\">\n");
+
+        appendLayer(xml, 1, "Foreground", solidity);
+        appendLayer(xml, 2, "Coin", coins);
+
+        xml.append(" <objectgroup id=\"3\" name=\"Damage\">\n");
+        float mapHeightPx = height * TILE_PX;
+        for (int i = 0; i < damageCount(); i++) {
+            float x = damage.get(i * 4) * TILE_PX;
+            float y = damage.get(i * 4 + 1) * TILE_PX;
+            float w = damage.get(i * 4 + 2) * TILE_PX;
+            float h = damage.get(i * 4 + 3) * TILE_PX;
+            // TMX objects are y-down from the top of the map
+            xml.append("  <object id=\"").append(i + 1).append('"')
+                .append(" x=\"").append(x).append("\" y=\"").append(mapHeightPx - y - h).append('"')
+                .append(" width=\"").append(w).append("\" height=\"").append(h).append("\"/>\n");
+        }
+        xml.append(" </objectgroup>\n</map>\n");
+
+        file.writeString(xml.toString(), false, "UTF-8");
+    }
+
+    private void appendLayer(StringBuilder xml, int id, String name, SolidityGrid grid) {
+        xml.append(" <layer id=\"").append(id).append("\" name=\"").append(name).append('"')
+            .append(" width=\"").append(width).append("\" height=\"").append(height).append("\">\n")
+            .append("  <data encoding=\"csv\">\n");
+        // TMX rows run top-down
+        for (int row = 0; row < height; row++) {
+            int y = height - 1 - row;
+            for (int x = 0; x < width; x++) {
+                xml.append(grid.isSolid(x, y) ? '1' : '0');
+                if (x < width - 1 || row < height - 1) xml.append(',');
+            }
+            xml.append('\n');
+        }
+        xml.append("  </data>\n </layer>\n");
+    }
+}
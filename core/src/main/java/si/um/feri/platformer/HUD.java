@@ -4,44 +4,112 @@ import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.graphics.g2d.BitmapFont;
 import com.badlogic.gdx.graphics.g2d.Batch;
 import com.badlogic.gdx.graphics.g2d.GlyphLayout;
+import com.badlogic.gdx.utils.StringBuilder;
+
+import si.um.feri.platformer.profiling.FrameProfiler;
+import si.um.feri.platformer.simulation.GameStats;
 
 public class HUD {
 
+    private static final String GAME_OVER_TEXT = "GAME OVER";
+    private static final String VICTORY_TEXT = "Victory!";
+
+    // percentiles sort the whole ring, so the overlay text is only rebuilt every few frames
+    private static final int OVERLAY_REFRESH_FRAMES = 30;
+
     private final BitmapFont font;
-    private int health = 100;
-    private int score = 0;
+    private final GameStats stats;
+
+    // label text is rebuilt only when the value changes, so drawing allocates nothing
+    private final StringBuilder scoreText = new StringBuilder(16);
+    private final StringBuilder healthText = new StringBuilder(16);
+    private int shownScore = Integer.MIN_VALUE;
+    private int shownHealth = Integer.MIN_VALUE;
+
+    private final GlyphLayout layout = new GlyphLayout();
 
-    public HUD() {
+    private FrameProfiler profiler;
+    private boolean overlayVisible = false;
+    private final StringBuilder overlayText = new StringBuilder(512);
+    private int overlayAge = OVERLAY_REFRESH_FRAMES;
+
+    public HUD(GameStats stats) {
+        this.stats = stats;
         font = new BitmapFont();
     }
 
     public void draw(Batch batch) {
-        if (health > 0 && score < 40) {
+        int health = stats.getHealth();
+        int score = stats.getScore();
+
+        if (stats.isPlaying()) {
             font.getData().setScale(1f);
 
-            font.draw(batch, "SCORE: " + score, 20, 30);
-            font.draw(batch, "HEALTH: " + health, 20, 60);
+            if (score != shownScore) {
+                scoreText.setLength(0);
+                scoreText.append("SCORE: ").append(score);
+                shownScore = score;
+            }
+            if (health != shownHealth) {
+                healthText.setLength(0);
+                healthText.append("HEALTH: ").append(health);
+                shownHealth = health;
+            }
+
+            font.draw(batch, scoreText, 20, 30);
+            font.draw(batch, healthText, 20, 60);
 
         } else {
-            String text = (health <= 0) ? "GAME OVER" : "Victory!";
+            String text = (health <= 0) ? GAME_OVER_TEXT : VICTORY_TEXT;
             font.getData().setScale(3f);
 
-            GlyphLayout layout = new GlyphLayout(font, text);
+            layout.setText(font, text);
 
             float x = (Gdx.graphics.getWidth() - layout.width) * 0.5f;
             float y = (Gdx.graphics.getHeight() + layout.height) * 0.5f;
 
             font.draw(batch, layout, x, y);
         }
+
+        if (overlayVisible && profiler != null) drawProfilerOverlay(batch);
     }
 
-    public int getHealth() { return health; }
-    public int getScore() { return score; }
-    public void setHealth(int h) { health = h; }
-    public void setScore(int s) { score = s; }
+    // ------------------------------
+    // Profiler overlay
+    // ------------------------------
+
+    public void setProfiler(FrameProfiler profiler) { this.profiler = profiler; }
+
+    public void toggleProfilerOverlay() {
+        overlayVisible = !overlayVisible;
+        overlayAge = OVERLAY_REFRESH_FRAMES;
+    }
+
+    public boolean isProfilerOverlayVisible() { return overlayVisible; }
+
+    private void drawProfilerOverlay(Batch batch) {
+        if (++overlayAge >= OVERLAY_REFRESH_FRAMES) {
+            overlayAge = 0;
+            rebuildOverlayText();
+        }
+        font.getData().setScale(1f);
+        font.draw(batch, overlayText, 20, Gdx.graphics.getHeight() - 20);
+    }
+
+    /** One line per series: last, p50 and p99; phases in microseconds. */
+    private void rebuildOverlayText() {
+        overlayText.setLength(0);
+        overlayText.append("phase  last / p50 / p99 (us)\n");
+        for (int i = 0; i < profiler.getSeriesCount(); i++) {
+            long divisor = profiler.isPhase(i) ? 1000L : 1L;
+            overlayText.append(profiler.getName(i)).append(": ")
+                .append(profiler.getLast(i) / divisor).append(" / ")
+                .append(profiler.percentile(i, 0.5f) / divisor).append(" / ")
+                .append(profiler.percentile(i, 0.99f) / divisor).append('\n');
+        }
+    }
 
-    public void addScore(int v) { score += v; }
-    public void decreaseHealth(int v) { health = Math.max(0, health - v); }
+    public GameStats getStats() { return stats; }
 
     public void dispose() { font.dispose(); }
 }
@@ -0,0 +1,65 @@
+package si.um.feri.platformer;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.OrthographicCamera;
+import com.badlogic.gdx.graphics.g2d.BitmapFont;
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.graphics.glutils.ShapeRenderer;
+import com.badlogic.gdx.utils.ScreenUtils;
+import com.badlogic.gdx.utils.StringBuilder;
+
+/**
+ * Progress bar shown while the AssetManager loads a level. Needs nothing from the level
+ * itself, so it can be drawn from the very first frame.
+ */
+public class LoadingScreen {
+
+    private static final float BAR_WIDTH = 0.5f;  // fraction of the screen width
+    private static final float BAR_HEIGHT = 12f;  // pixels
+
+    private final ShapeRenderer shapes = new ShapeRenderer();
+    private final SpriteBatch batch = new SpriteBatch();
+    private final BitmapFont font = new BitmapFont();
+
+    private final StringBuilder text = new StringBuilder(16);
+    private int shownPercent = -1;
+
+    public void render(float progress, OrthographicCamera uiCamera) {
+        ScreenUtils.clear(0, 0, 0, 1);
+        uiCamera.update();
+
+        float barWidth = Gdx.graphics.getWidth() * BAR_WIDTH;
+        float x = (Gdx.graphics.getWidth() - barWidth) * 0.5f;
+        float y = (Gdx.graphics.getHeight() - BAR_HEIGHT) * 0.5f;
+
+        shapes.setProjectionMatrix(uiCamera.combined);
+        shapes.begin(ShapeRenderer.ShapeType.Line);
+        shapes.setColor(Color.GRAY);
+        shapes.rect(x - 2, y - 2, barWidth + 4, BAR_HEIGHT + 4);
+        shapes.end();
+
+        shapes.begin(ShapeRenderer.ShapeType.Filled);
+        shapes.setColor(Color.WHITE);
+        shapes.rect(x, y, barWidth * progress, BAR_HEIGHT);
+        shapes.end();
+
+        int percent = (int) (progress * 100);
+        if (percent != shownPercent) {
+            text.setLength(0);
+            text.append("LOADING ").append(percent).append('%');
+            shownPercent = percent;
+        }
+
+        batch.setProjectionMatrix(uiCamera.combined);
+        batch.begin();
+        font.draw(batch, text, x, y + BAR_HEIGHT + 24);
+        batch.end();
+    }
+
+    public void dispose() {
+        shapes.dispose();
+        batch.dispose();
+        font.dispose();
+    }
+}
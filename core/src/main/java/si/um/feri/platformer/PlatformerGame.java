@@ -3,179 +3,567 @@ package si.um.feri.platformer;
 import com.badlogic.gdx.ApplicationAdapter;
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.Input;
+import com.badlogic.gdx.assets.AssetManager;
 import com.badlogic.gdx.graphics.OrthographicCamera;
-import com.badlogic.gdx.maps.tiled.renderers.OrthogonalTiledMapRenderer;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.graphics.profiling.GLProfiler;
 import com.badlogic.gdx.physics.box2d.World;
 import com.badlogic.gdx.utils.ScreenUtils;
+import com.badlogic.gdx.utils.TimeUtils;
 
+import si.um.feri.platformer.audio.AudioQueue;
+import si.um.feri.platformer.ecs.EntityRenderer;
 import si.um.feri.platformer.entities.Player;
+import si.um.feri.platformer.input.InputLog;
+import si.um.feri.platformer.input.InputSource;
+import si.um.feri.platformer.input.KeyboardInputSource;
+import si.um.feri.platformer.input.PlayerInput;
+import si.um.feri.platformer.input.RecordingInputSource;
+import si.um.feri.platformer.input.ReplayInputSource;
+import si.um.feri.platformer.managers.ChunkedMapManager;
+import si.um.feri.platformer.managers.LightQuality;
 import si.um.feri.platformer.managers.LightingManager;
 import si.um.feri.platformer.managers.MapManager;
+import si.um.feri.platformer.map.CachedTiledMapRenderer;
+import si.um.feri.platformer.map.LevelData;
+import si.um.feri.platformer.profiling.AllocationMonitor;
+import si.um.feri.platformer.profiling.FrameProfiler;
+import si.um.feri.platformer.simulation.GameSimulation;
+import si.um.feri.platformer.simulation.SimulationListener;
+import si.um.feri.platformer.simulation.SimulationSnapshot;
 import si.um.feri.platformer.systems.CameraSystem;
-import si.um.feri.platformer.systems.CollisionSystem;
+import si.um.feri.platformer.systems.FixedTimestep;
+import si.um.feri.platformer.systems.VisibilitySet;
 
 public class PlatformerGame extends ApplicationAdapter {
 
     private static final float PPM = 32f;
 
+    private static final int DEFAULT_TICKS_PER_SECOND = 60;
+    private static final int DEFAULT_MAX_STEPS_PER_FRAME = 5;
+
+    // -Dplatformer.allocBudget=<bytes per frame> turns on the allocation check,
+    // -Dplatformer.allocFrames=<n> sets how many frames it measures before reporting
+    private static final String ALLOC_BUDGET_PROPERTY = "platformer.allocBudget";
+    private static final String ALLOC_FRAMES_PROPERTY = "platformer.allocFrames";
+    private static final int ALLOC_WARMUP_FRAMES = 120;
+
+    // -Dplatformer.profile=<file.csv|file.json> writes the frame profile there on exit
+    private static final String PROFILE_PROPERTY = "platformer.profile";
+
+    // -Dplatformer.recordInput=<file.inp> records every tick's input there on exit,
+    // -Dplatformer.replayInput=<file.inp> plays such a recording instead of the keyboard and exits at its end
+    private static final String RECORD_INPUT_PROPERTY = "platformer.recordInput";
+    private static final String REPLAY_INPUT_PROPERTY = "platformer.replayInput";
+
+    // -Dplatformer.occluders=false leaves the Box2D world empty: lights cast no shadows off the tiles
+    private static final String OCCLUDERS_PROPERTY = "platformer.occluders";
+
+    // -Dplatformer.farEntityInterval=<n> moves entities far off screen only every n-th tick (default 1: off)
+    private static final String FAR_ENTITY_INTERVAL_PROPERTY = "platformer.farEntityInterval";
+
+    // -Dplatformer.chunkedLevel=<dir> plays a level split into chunk files (see ChunkedLevel), streamed around the view
+    private static final String CHUNKED_LEVEL_PROPERTY = "platformer.chunkedLevel";
+    // a chunked level can be far larger than the screen, so the view is a fixed number of tiles
+    private static final int CHUNKED_VIEW_WIDTH_TILES = 30;
+    private static final int CHUNKED_VIEW_HEIGHT_TILES = 20;
+    // chunks kept loaded around the view on each side
+    private static final int CHUNKED_VIEW_MARGIN_CHUNKS = 1;
+
+    // world units around the view still counted as near: for drawing, and for the simulation
+    private static final float VIEW_MARGIN = 2f;
+    private static final float TICK_VIEW_MARGIN = 8f;
+
+    private static final String MAP_PATH = "tiled/MyMap.tmx";
+    private static final String DAMAGE_SOUND_PATH = "sounds/damage-taken.mp3";
+    private static final String COIN_SOUND_PATH = "sounds/coin-collected.mp3";
+    private static final String PLAYER_TEXTURE_PATH = "tiled/GraveRobberNew.png";
+
+    // time the AssetManager may spend finishing loads per frame while the loading screen shows
+    private static final int LOADING_FRAME_BUDGET_MS = 12;
+
     private OrthographicCamera camera;
     private OrthographicCamera uiCamera;
 
     private World world;
     private LightingManager lightingManager;
 
-    private MapManager mapManager;
+    // --- ASSETS (level loads run asynchronously behind the loading screen) ---
+    private AssetManager assets;
+    private LoadingScreen loadingScreen;
+    private boolean loading;
+    private boolean reloadRequested;
+    private long loadStartNanos;
+    private String queuedPlayerTexturePath; // queued for the level being loaded, null if packed
+    private String playerTexturePath;       // held by the running level, null if packed
+
+    private String chunkedLevelDir;       // null: the single map at MAP_PATH
+    private MapManager mapManager;        // set for the single map
+    private ChunkedMapManager chunkedMap; // set for a chunked level
+    private GameSimulation simulation;
+    private final SimulationSnapshot levelStart = new SimulationSnapshot(); // R restarts from here
     private Player player;
-    private CollisionSystem collisionSystem;
+    private KeyboardInputSource keyboard;
+    private InputSource input;           // the keyboard, a recording of it, or a replay
+    private InputLog recording;
+    private ReplayInputSource replay;
     private HUD hud;
-    private OrthogonalTiledMapRenderer tiledMapRenderer;
+    private CachedTiledMapRenderer tiledMapRenderer;
+    private Batch batch;      // the map renderer's, shared with the player and HUD
+    private AudioQueue audio; // the level's sound effects
 
     private CameraSystem cameraSystem; // NEW
+    private EntityRenderer entityRenderer;
+
+    // what the drawn camera sees this frame
+    private VisibilitySet visibility;
+
+    private final FixedTimestep timestep;
+
+    private AllocationMonitor allocationMonitor;
+    private int allocationCheckFrames;
+    private boolean allocationReported;
+
+    // --- FRAME PROFILING (overlay toggled with F3) ---
+    private final FrameProfiler profiler = new FrameProfiler();
+    private GLProfiler glProfiler;
+    private int simulationPhase;
+    private int lightsPhase;
+    private int backgroundPhase;
+    private int coinsPhase;
+    private int foregroundPhase;
+    private int playerPhase;
+    private int hudPhase;
+    private int drawCallsCounter;
+    private int textureBindsCounter;
+    private int stepsCounter;
+    private int bodiesCounter;
+    private int fixturesCounter;
+    private int changedTilesCounter;
+
+    public PlatformerGame() {
+        this(DEFAULT_TICKS_PER_SECOND, DEFAULT_MAX_STEPS_PER_FRAME);
+    }
+
+    public PlatformerGame(int ticksPerSecond, int maxStepsPerFrame) {
+        timestep = new FixedTimestep(ticksPerSecond, maxStepsPerFrame);
+    }
 
     @Override
     public void create() {
 
-        // Physics world
-        world = new World(new com.badlogic.gdx.math.Vector2(0, 0), true);
-
-        lightingManager = new LightingManager(world);
-        lightingManager.createPlayerLight();
+        // Box2D world for the light occluders; the simulation does not use it
+        createWorld();
 
         // Cameras
         camera = new OrthographicCamera();
         uiCamera = new OrthographicCamera();
         uiCamera.setToOrtho(false, Gdx.graphics.getWidth(), Gdx.graphics.getHeight());
 
-        mapManager = new MapManager(
-            "tiled/MyMap.tmx",
-            "sounds/damage-taken.mp3",
-            "sounds/coin-collected.mp3"
-        );
+        assets = new AssetManager();
+        loadingScreen = new LoadingScreen();
+        entityRenderer = new EntityRenderer();
+        createProfiler();
+        createInput();
+        chunkedLevelDir = System.getProperty(CHUNKED_LEVEL_PROPERTY);
+
+        // nothing is decoded here; render() shows the loading screen until the level is in
+        queueLevel();
+
+        long allocBudget = Long.getLong(ALLOC_BUDGET_PROPERTY, -1L);
+        if (allocBudget >= 0) {
+            allocationMonitor = new AllocationMonitor(allocBudget, ALLOC_WARMUP_FRAMES);
+            allocationCheckFrames = Integer.getInteger(ALLOC_FRAMES_PROPERTY, 600);
+        }
+    }
+
+    private void createWorld() {
+        world = new World(new com.badlogic.gdx.math.Vector2(0, 0), true);
 
-        tiledMapRenderer = mapManager.getRenderer();
-        mapManager.buildCollision(world);
+        lightingManager = new LightingManager(world);
+        lightingManager.createPlayerLight();
+    }
 
-        camera.setToOrtho(false,
-            mapManager.getMapWidthInPx() / PPM,
-            mapManager.getMapHeightInPx() / PPM);
+    // ------------------------------
+    // Level loading
+    // ------------------------------
+
+    /** Queues the level's assets; the AssetManager loads them over the next frames. */
+    private void queueLevel() {
+        if (chunkedLevelDir != null) {
+            ChunkedMapManager.queueAssets(assets, chunkedLevelDir, DAMAGE_SOUND_PATH, COIN_SOUND_PATH);
+            queuedPlayerTexturePath = PLAYER_TEXTURE_PATH;
+        } else {
+            MapManager.queueAssets(assets, MAP_PATH, DAMAGE_SOUND_PATH, COIN_SOUND_PATH);
+            // the packed map carries the player sprite on its tileset page
+            queuedPlayerTexturePath = MapManager.preferPacked(MAP_PATH).equals(MAP_PATH) ? PLAYER_TEXTURE_PATH : null;
+        }
+        if (queuedPlayerTexturePath != null) assets.load(queuedPlayerTexturePath, Texture.class);
+
+        loading = true;
+        loadStartNanos = TimeUtils.nanoTime();
+    }
+
+    /** Builds the level from the loaded assets; runs once the AssetManager has finished. */
+    private void startLevel() {
+        boolean occluders = !"false".equals(System.getProperty(OCCLUDERS_PROPERTY));
+        LevelData level;
+        SimulationListener listener;
+        if (chunkedLevelDir != null) {
+            // chunk maps and occluders stream in around the camera from the first update; no level lights
+            chunkedMap = new ChunkedMapManager(assets, chunkedLevelDir, DAMAGE_SOUND_PATH, COIN_SOUND_PATH,
+                occluders ? world : null, CHUNKED_VIEW_MARGIN_CHUNKS);
+            level = chunkedMap.getLevelData();
+            listener = chunkedMap;
+            batch = chunkedMap.getBatch();
+            audio = chunkedMap.getAudio();
+
+            camera.setToOrtho(false,
+                CHUNKED_VIEW_WIDTH_TILES * level.getTileWidth(),
+                CHUNKED_VIEW_HEIGHT_TILES * level.getTileHeight());
+        } else {
+            mapManager = new MapManager(assets, MAP_PATH, DAMAGE_SOUND_PATH, COIN_SOUND_PATH);
+            level = mapManager.getLevelData();
+            listener = mapManager;
+
+            tiledMapRenderer = mapManager.getRenderer();
+            batch = tiledMapRenderer.getBatch();
+            audio = mapManager.getAudio();
+            if (occluders) mapManager.buildCollision(world);
+            lightingManager.createLevelLights(mapManager.getLightObjects(), PPM);
+
+            camera.setToOrtho(false,
+                mapManager.getMapWidthInPx() / PPM,
+                mapManager.getMapHeightInPx() / PPM);
+        }
 
         camera.zoom = 0.6f;
         camera.position.x = camera.viewportWidth / 2f - 50f;
         camera.position.y = camera.viewportHeight / 2f - 50f;
         camera.update();
 
-        player = new Player(world);
-
-        hud = new HUD();
-        hud.setHealth(100);
-        hud.setScore(0);
+        // the Box2D world only holds light occluders; the map manager turns simulation events into sounds and coin layer updates
+        simulation = new GameSimulation(level, listener);
+        simulation.save(levelStart);
+        // chunks loaded later show the coins this session has left
+        if (chunkedMap != null) chunkedMap.setSessionCoins(simulation.getCoins());
+
+        player = simulation.getPlayer();
+        // with the packed map the player shares the tileset page; otherwise it has its own texture
+        playerTexturePath = queuedPlayerTexturePath;
+        TextureRegion packedPlayer = (mapManager != null) ? mapManager.findSprite("GraveRobberNew") : null;
+        if (packedPlayer != null) {
+            player.setRegion(packedPlayer);
+        } else {
+            if (playerTexturePath == null) {
+                // packed map without the sprite on its page
+                playerTexturePath = PLAYER_TEXTURE_PATH;
+                assets.load(playerTexturePath, Texture.class);
+            }
+            player.setTexture(assets.finishLoadingAsset(playerTexturePath));
+        }
 
-        collisionSystem = new CollisionSystem(mapManager);
+        hud = new HUD(simulation.getStats());
+        hud.setProfiler(profiler);
+        simulation.setProfiler(profiler);  // physics / player / entity systems inside the simulation phase
 
         // ---- NEW CAMERA SYSTEM ----
-        cameraSystem = new CameraSystem(camera, player, mapManager);
+        // runs as the last entity system of every tick
+        cameraSystem = new CameraSystem(camera, player, level);
+        simulation.getEngine().add("camera", cameraSystem);
+
+        visibility = new VisibilitySet(level.getTileWidth(), level.getTileHeight(),
+            level.getWidthTiles(), level.getHeightTiles(), CachedTiledMapRenderer.CHUNK_TILES, VIEW_MARGIN);
+        int farInterval = Integer.getInteger(FAR_ENTITY_INTERVAL_PROPERTY, 1);
+        if (farInterval > 1) {
+            // follows the simulated camera, so entity tiers do not depend on the frame rate
+            VisibilitySet tickVisibility = new VisibilitySet(level.getTileWidth(), level.getTileHeight(),
+                level.getWidthTiles(), level.getHeightTiles(), CachedTiledMapRenderer.CHUNK_TILES, TICK_VIEW_MARGIN);
+            cameraSystem.setTickVisibility(tickVisibility);
+            simulation.getMovementSystem().setVisibility(tickVisibility, farInterval);
+        }
+
+        // a finished load still ran on this thread for a frame or two; restart the fixed step
+        timestep.reset();
+        loading = false;
+        Gdx.app.log("Assets", "Level ready in " + TimeUtils.nanosToMillis(TimeUtils.timeSinceNanos(loadStartNanos)) + " ms");
+    }
+
+    /**
+     * F5: reloads the level. The new level's assets are queued before the old level lets go
+     * of its references, so the map, textures and sounds they share are not decoded again.
+     */
+    private void reloadLevel() {
+        queueLevel();
+        disposeLevel();
 
-        player.setPosition(player.getWidth(), 160f / PPM);
+        // the old level's bodies and lights go with its world
+        lightingManager.dispose();
+        world.dispose();
+        createWorld();
+    }
+
+    /** Releases everything startLevel created; assets are only unloaded when no level uses them. */
+    private void disposeLevel() {
+        simulation.dispose();
+        hud.dispose();
+        if (chunkedMap != null) chunkedMap.dispose();
+        else mapManager.dispose();
+        if (playerTexturePath != null) assets.unload(playerTexturePath);
+
+        simulation = null;
+        mapManager = null;
+        chunkedMap = null;
+        tiledMapRenderer = null;
+        batch = null;
+        audio = null;
+        playerTexturePath = null;
+    }
+
+    /** The input source outlives levels, so a recording or replay spans F5 reloads. */
+    private void createInput() {
+        keyboard = new KeyboardInputSource();
+        input = keyboard;
+
+        String replayPath = System.getProperty(REPLAY_INPUT_PROPERTY);
+        if (replayPath != null) {
+            InputLog log = InputLog.read(Gdx.files.local(replayPath));
+            if (log.getTicksPerSecond() != timestep.getTicksPerSecond()) {
+                Gdx.app.error("Input", replayPath + " was recorded at " + log.getTicksPerSecond()
+                    + " Hz but the game runs at " + timestep.getTicksPerSecond() + " Hz; the replay will diverge");
+            }
+            replay = new ReplayInputSource(log, false);
+            input = replay;
+            Gdx.app.log("Input", "Replaying " + replayPath + " (" + log + ")");
+        } else if (System.getProperty(RECORD_INPUT_PROPERTY) != null) {
+            recording = new InputLog(timestep.getTicksPerSecond());
+            input = new RecordingInputSource(keyboard, recording);
+        }
+    }
+
+    private void createProfiler() {
+        glProfiler = new GLProfiler(Gdx.graphics);
+        glProfiler.enable();
+
+        simulationPhase = profiler.addPhase("simulation");
+        lightsPhase = profiler.addPhase("lights");
+        backgroundPhase = profiler.addPhase("mapBackground");
+        coinsPhase = profiler.addPhase("mapCoins");
+        foregroundPhase = profiler.addPhase("mapForeground");
+        playerPhase = profiler.addPhase("playerDraw");
+        hudPhase = profiler.addPhase("hud");
+
+        drawCallsCounter = profiler.addCounter("drawCalls");
+        textureBindsCounter = profiler.addCounter("textureBinds");
+        stepsCounter = profiler.addCounter("steps");
+        bodiesCounter = profiler.addCounter("bodies");
+        fixturesCounter = profiler.addCounter("fixtures");
+        changedTilesCounter = profiler.addCounter("changedTiles");
     }
 
     @Override
     public void render() {
+        if (reloadRequested) {
+            reloadRequested = false;
+            reloadLevel();
+        }
+        if (loading) {
+            // the AssetManager decodes on its own thread; only GL uploads use this frame budget
+            if (!assets.update(LOADING_FRAME_BUDGET_MS)) {
+                loadingScreen.render(assets.getProgress(), uiCamera);
+                return;
+            }
+            startLevel();
+        }
+
+        if (allocationMonitor != null) allocationMonitor.beginFrame();
+        profiler.beginFrame();
 
         ScreenUtils.clear(0, 0, 0, 1);
-        float dt = Gdx.graphics.getDeltaTime();
-
-        handleConfigurationInput();
-        world.step(dt, 6, 2);
-
-        // --- PLAYER UPDATE ---
-        if (hud.getHealth() > 0 && hud.getScore() < 40) {
-            player.handleInput(dt);
-            player.updatePhysics(dt);
-
-            float cx = player.getCandidateX();
-            float cy = player.getCandidateY();
-
-            boolean colX = collisionSystem.collidesWithForeground(
-                cx, player.getY(),
-                player.getWidth(), player.getHeight()
-            );
-            if (!colX) player.commitX(cx);
-
-            boolean colY = collisionSystem.collidesWithForeground(
-                player.getX(), cy,
-                player.getWidth(), player.getHeight()
-            );
-
-            if (!colY) {
-                player.commitY(cy);
-            } else {
-                if (player.getVelocityY() < 0) player.setJumping(false);
-                player.setVelocityY(0);
-            }
+        float frameDt = Gdx.graphics.getDeltaTime();
+
+        if (Gdx.input.isKeyJustPressed(Input.Keys.ESCAPE)) Gdx.app.exit();
+        if (replay == null) keyboard.pollFrame();
+
+        // --- FIXED-STEP SIMULATION ---
+        profiler.begin(simulationPhase);
+        int steps = timestep.advance(frameDt);
+        // a reload stops the frame's ticks, so no input is consumed between the request and the new level
+        for (int i = 0; i < steps && !reloadRequested; i++) {
+            tick(timestep.getStepSeconds());
+        }
+        float alpha = timestep.getAlpha();
+        profiler.end(simulationPhase);
 
-            collisionSystem.handlePlayerTileCollisions(player, hud);
+        // --- MAP CHANGES (coins, edits, rollbacks) to the render cache and occluders ---
+        if (mapManager != null) {
+            profiler.count(changedTilesCounter, mapManager.getTileChanges().getTileCount());
+            mapManager.getTileChanges().flush();
         }
 
-        // --- UPDATE LIGHT ---
+        // --- UPDATE LIGHT (interpolated) ---
+        profiler.begin(lightsPhase);
         lightingManager.updatePlayerLight(
-            player.getCenterX(),
-            player.getCenterY(),
-            dt
+            player.getInterpolatedCenterX(alpha),
+            player.getInterpolatedCenterY(alpha),
+            frameDt
         );
+        profiler.end(lightsPhase);
 
-        // --- UPDATE CAMERA ---
-        cameraSystem.update(dt);
+        // --- UPDATE CAMERA (interpolated) ---
+        cameraSystem.apply(alpha);
+        visibility.update(camera);
+        // chunks around the view: finishes loads and builds, evicts the least recently seen
+        if (chunkedMap != null) chunkedMap.update(camera);
+
+        // --- SOUNDS posted during the ticks, heard from the camera ---
+        audio.drain(frameDt, visibility);
 
         // --- RENDER BACKGROUND LAYERS (lit) ---
-        tiledMapRenderer.setView(camera);
-        tiledMapRenderer.render(mapManager.getBackgroundLayerIndices());
+        profiler.begin(backgroundPhase);
+        if (chunkedMap != null) {
+            chunkedMap.render(camera, ChunkedMapManager.BACKGROUND);
+        } else {
+            tiledMapRenderer.setView(camera);
+            tiledMapRenderer.render(mapManager.getBackgroundLayerIndices(), visibility);
+        }
+        profiler.end(backgroundPhase);
 
 
         // --- RENDER LIGHTS ---
-        lightingManager.getRayHandler().setCombinedMatrix(
-            camera.combined,
-            camera.position.x,
-            camera.position.y,
-            camera.viewportWidth * camera.zoom,
-            camera.viewportHeight * camera.zoom
-        );
+        profiler.begin(lightsPhase);
+        lightingManager.render(camera, visibility);
+        profiler.end(lightsPhase);
 
-        lightingManager.getRayHandler().updateAndRender();
-        tiledMapRenderer.render(mapManager.getCoinLayerIndex());
+        profiler.begin(coinsPhase);
+        if (chunkedMap != null) chunkedMap.render(camera, ChunkedMapManager.COINS);
+        else tiledMapRenderer.render(mapManager.getCoinLayerIndex(), visibility);
+        profiler.end(coinsPhase);
 
         // --- RENDER FOREGROUND LAYERS (unlit) ---
-        tiledMapRenderer.render(mapManager.getForegroundLayerIndices());
-
-        // --- RENDER PLAYER ---
-        tiledMapRenderer.getBatch().setProjectionMatrix(camera.combined);
-        tiledMapRenderer.getBatch().begin();
-        player.draw(tiledMapRenderer.getBatch());
-        tiledMapRenderer.getBatch().end();
+        profiler.begin(foregroundPhase);
+        if (chunkedMap != null) chunkedMap.render(camera, ChunkedMapManager.FOREGROUND);
+        else tiledMapRenderer.render(mapManager.getForegroundLayerIndices(), visibility);
+        profiler.end(foregroundPhase);
+
+        // --- RENDER ENTITIES + PLAYER ---
+        profiler.begin(playerPhase);
+        entityRenderer.render(simulation.getEntities(), camera, visibility, alpha);
+        if (visibility.isVisible(player.getInterpolatedX(alpha), player.getInterpolatedY(alpha), player.getWidth(), player.getHeight())) {
+            batch.setProjectionMatrix(camera.combined);
+            batch.begin();
+            player.draw(batch, alpha);
+            batch.end();
+        }
+        profiler.end(playerPhase);
 
         // --- HUD ---
+        profiler.begin(hudPhase);
         uiCamera.update();
-        tiledMapRenderer.getBatch().setProjectionMatrix(uiCamera.combined);
-        tiledMapRenderer.getBatch().begin();
-        hud.draw(tiledMapRenderer.getBatch());
-        tiledMapRenderer.getBatch().end();
+        batch.setProjectionMatrix(uiCamera.combined);
+        batch.begin();
+        hud.draw(batch);
+        batch.end();
+        profiler.end(hudPhase);
+
+        endProfilerFrame(steps);
+
+        if (allocationMonitor != null) checkAllocations();
+        if (replay != null && replay.isFinished()) {
+            Gdx.app.log("Input", "Replay finished after " + replay.getTicksPlayed() + " ticks");
+            replay = null;
+            input = keyboard;
+            Gdx.app.exit();
+        }
     }
 
+    private void endProfilerFrame(int steps) {
+        profiler.count(drawCallsCounter, glProfiler.getDrawCalls());
+        profiler.count(textureBindsCounter, glProfiler.getTextureBindings());
+        profiler.count(stepsCounter, steps);
+        profiler.count(bodiesCounter, world.getBodyCount());
+        profiler.count(fixturesCounter, world.getFixtureCount());
+        glProfiler.reset();
+        profiler.endFrame();
+
+        // light quality tier follows the measured CPU frame time
+        lightingManager.reportFrameTime(profiler.getLast(FrameProfiler.FRAME) / 1_000_000_000f);
+    }
 
-    private void handleConfigurationInput() {
-        if (Gdx.input.isKeyJustPressed(Input.Keys.NUM_1)) mapManager.toggleLayerVisibility("Background");
-        if (Gdx.input.isKeyJustPressed(Input.Keys.NUM_2)) mapManager.toggleLayerVisibility("Foreground");
-        if (Gdx.input.isKeyJustPressed(Input.Keys.NUM_3)) mapManager.toggleLayerVisibility("Coin");
-        if (Gdx.input.isKeyJustPressed(Input.Keys.NUM_4)) mapManager.toggleLayerVisibility("Trees");
-        if (Gdx.input.isKeyJustPressed(Input.Keys.NUM_5)) mapManager.toggleLayerVisibility("Spikes");
-        if (Gdx.input.isKeyJustPressed(Input.Keys.ESCAPE)) Gdx.app.exit();
+    private void checkAllocations() {
+        allocationMonitor.endFrame();
+        if (allocationReported || allocationMonitor.getMeasuredFrames() < allocationCheckFrames) return;
+        allocationReported = true;
+
+        if (allocationMonitor.isWithinBudget()) {
+            Gdx.app.log("Allocations", allocationMonitor.summary());
+        } else {
+            Gdx.app.error("Allocations", allocationMonitor.summary());
+        }
+        Gdx.app.exit();
+    }
+
+    /** One fixed simulation step; dt is always the configured step length. */
+    private void tick(float dt) {
+        simulation.tick(input, dt);
+        applyCommands(simulation.getLastInput());
+    }
+
+    /** Game commands arrive with the tick input, so recordings replay them on the same tick. */
+    private void applyCommands(PlayerInput tickInput) {
+        if (tickInput.getCommands() == 0) return;
+        if (tickInput.hasCommand(PlayerInput.LAYER_1)) toggleLayerVisibility("Background");
+        if (tickInput.hasCommand(PlayerInput.LAYER_2)) toggleLayerVisibility("Foreground");
+        if (tickInput.hasCommand(PlayerInput.LAYER_3)) toggleLayerVisibility("Coin");
+        if (tickInput.hasCommand(PlayerInput.LAYER_4)) toggleLayerVisibility("Trees");
+        if (tickInput.hasCommand(PlayerInput.LAYER_5)) toggleLayerVisibility("Spikes");
+        if (tickInput.hasCommand(PlayerInput.PROFILER_OVERLAY)) hud.toggleProfilerOverlay();
+        if (tickInput.hasCommand(PlayerInput.CYCLE_LIGHT_QUALITY)) cycleLightQuality();
+        if (tickInput.hasCommand(PlayerInput.RELOAD)) reloadRequested = true;
+        if (tickInput.hasCommand(PlayerInput.RESTART)) simulation.restore(levelStart);
+    }
+
+    private void toggleLayerVisibility(String name) {
+        if (chunkedMap != null) chunkedMap.toggleLayerVisibility(name);
+        else mapManager.toggleLayerVisibility(name);
+    }
+
+    /** F4: pins the light quality to the next tier (wrapping), turning off automatic changes. */
+    private void cycleLightQuality() {
+        LightQuality current = lightingManager.getQuality();
+        LightQuality next = current.higher() != null ? current.higher() : LightQuality.values()[0];
+        lightingManager.setAdaptiveQuality(false);
+        lightingManager.setQuality(next);
+        Gdx.app.log("Lighting", "Quality pinned to " + next);
     }
 
     @Override
     public void dispose() {
-        mapManager.dispose();
-        player.dispose();
-        hud.dispose();
+        String profilePath = System.getProperty(PROFILE_PROPERTY);
+        if (profilePath != null) {
+            profiler.export(Gdx.files.local(profilePath));
+            Gdx.app.log("Profiler", "Wrote " + profiler.getSampleCount() + " frames to " + profilePath);
+        }
+        glProfiler.disable();
+
+        if (recording != null) {
+            String recordPath = System.getProperty(RECORD_INPUT_PROPERTY);
+            recording.write(Gdx.files.local(recordPath));
+            Gdx.app.log("Input", "Recorded " + recording + " to " + recordPath);
+        }
+
+        if (simulation != null) disposeLevel();
+        loadingScreen.dispose();
+        entityRenderer.dispose();
+        assets.dispose();
         lightingManager.dispose();
         world.dispose();
     }
+
+    /** True if the allocation check is on (-Dplatformer.allocBudget) and the measured frames went over budget. */
+    public boolean isAllocationBudgetExceeded() {
+        return allocationMonitor != null && !allocationMonitor.isWithinBudget();
+    }
 }
@@ -0,0 +1,305 @@
+package si.um.feri.platformer.audio;
+
+import com.badlogic.gdx.audio.Sound;
+
+import java.util.Arrays;
+
+import si.um.feri.platformer.systems.VisibilitySet;
+
+/**
+ * Sound effects requested by the simulation, played once per frame instead of inline.
+ *
+ * {@link #post} only appends to a fixed-size queue, so collision code pays next to nothing
+ * per event. {@link #drain} then, per frame:
+ * <ul>
+ *   <li>keeps one event per sound (the one nearest the listener), so ten coins taken in
+ *       one frame are one coin sound;</li>
+ *   <li>drops sounds played less than their minimum interval ago, and events out of range
+ *       (or, given a {@link VisibilitySet}, far off screen);</li>
+ *   <li>plays what is left nearest first, within a voice limit per sound and overall. A
+ *       sound at its limit reuses its oldest voice slot, stopping that voice.</li>
+ * </ul>
+ * Volume falls off and pan follows the horizontal offset from the listener. Events
+ * without a position play at full volume in the centre.
+ *
+ * Playback goes through a {@link Sink}; tests and headless runs drain into their own and
+ * need no audio backend (sounds may be null). Nothing is allocated after registration.
+ */
+public class AudioQueue {
+
+    /** Plays drained events; {@link #SOUNDS} uses the registered libGDX Sounds. */
+    public interface Sink {
+        /** Starts a voice and returns its id as {@link Sound#play} does, or -1 if none started. */
+        long play(int id, Sound sound, float volume, float pan);
+
+        void stop(int id, Sound sound, long voice);
+    }
+
+    public static final Sink SOUNDS = new Sink() {
+        @Override
+        public long play(int id, Sound sound, float volume, float pan) {
+            return sound != null ? sound.play(volume, 1f, pan) : -1;
+        }
+
+        @Override
+        public void stop(int id, Sound sound, long voice) {
+            if (sound != null) sound.stop(voice);
+        }
+    };
+
+    private final Sink sink;
+    private final float range;
+    private final int maxTotalVoices;
+    private float clock;
+
+    // per registered sound
+    private int soundCount;
+    private Sound[] sounds = new Sound[4];
+    private float[] volumes = new float[4];
+    private float[] minIntervals = new float[4];
+    private float[] voiceSeconds = new float[4];
+    private float[] lastPlayed = new float[4];
+    private long[][] voiceIds = new long[4][];
+    private float[][] voiceEnds = new float[4][];
+    private int[] nearest = new int[4];       // per drain: queued event kept for the sound, or -1
+    private int[] order = new int[4];         // per drain: sounds to play, nearest first
+    private long[] played = new long[4];
+    private long[] dropped = new long[4];
+
+    // queued events, in post order
+    private final int[] eventSound;
+    private final float[] eventX;
+    private final float[] eventY;
+    private final boolean[] eventPositional;
+    private final float[] eventDistance;
+    private int eventCount;
+    private long overflowed;
+
+    /**
+     * @param capacity       events queued per frame; later ones are dropped
+     * @param range          distance in world units at which positional sounds fall silent
+     * @param maxTotalVoices voices of all sounds started by this queue that may play at once
+     */
+    public AudioQueue(Sink sink, int capacity, float range, int maxTotalVoices) {
+        if (capacity <= 0 || range <= 0f || maxTotalVoices <= 0) {
+            throw new IllegalArgumentException("capacity, range and maxTotalVoices must be positive");
+        }
+        this.sink = sink;
+        this.range = range;
+        this.maxTotalVoices = maxTotalVoices;
+        eventSound = new int[capacity];
+        eventX = new float[capacity];
+        eventY = new float[capacity];
+        eventPositional = new boolean[capacity];
+        eventDistance = new float[capacity];
+    }
+
+    /**
+     * Adds a sound and returns its id for {@link #post}. {@code voiceSeconds} is how long a
+     * voice counts against {@code maxVoices} after it starts (about the sound's length);
+     * {@code minInterval} is the shortest time between two plays of the sound.
+     */
+    public int register(Sound sound, float volume, int maxVoices, float voiceSeconds, float minInterval) {
+        if (maxVoices <= 0) throw new IllegalArgumentException("maxVoices must be positive: " + maxVoices);
+        if (soundCount == sounds.length) grow(soundCount * 2);
+
+        int id = soundCount++;
+        sounds[id] = sound;
+        volumes[id] = volume;
+        minIntervals[id] = minInterval;
+        this.voiceSeconds[id] = voiceSeconds;
+        lastPlayed[id] = Float.NEGATIVE_INFINITY;
+        voiceIds[id] = new long[maxVoices];
+        voiceEnds[id] = new float[maxVoices];
+        Arrays.fill(voiceEnds[id], Float.NEGATIVE_INFINITY);
+        nearest[id] = -1;
+        return id;
+    }
+
+    // ------------------------------
+    // Posting (any time during the frame)
+    // ------------------------------
+
+    /** Queues a sound at (x, y) in world units. */
+    public void post(int id, float x, float y) {
+        add(id, x, y, true);
+    }
+
+    /** Queues a sound without a position (the player's own feedback). */
+    public void post(int id) {
+        add(id, 0f, 0f, false);
+    }
+
+    private void add(int id, float x, float y, boolean positional) {
+        if (id < 0 || id >= soundCount) throw new IllegalArgumentException("Unknown sound id: " + id);
+        if (eventCount == eventSound.length) {
+            overflowed++;
+            dropped[id]++;
+            return;
+        }
+        int i = eventCount++;
+        eventSound[i] = id;
+        eventX[i] = x;
+        eventY[i] = y;
+        eventPositional[i] = positional;
+    }
+
+    // ------------------------------
+    // Draining (once per frame)
+    // ------------------------------
+
+    /**
+     * Plays the frame's events heard from (listenerX, listenerY) and empties the queue.
+     * {@code delta} advances the queue's clock for intervals and voice lifetimes.
+     * Returns the number of voices started.
+     */
+    public int drain(float delta, float listenerX, float listenerY) {
+        return drain(delta, listenerX, listenerY, null);
+    }
+
+    /**
+     * Like {@link #drain(float, float, float)}, heard from the centre of the view; positional
+     * events beyond the view's margin ({@link VisibilitySet#FAR}) are dropped as well.
+     */
+    public int drain(float delta, VisibilitySet visibility) {
+        return drain(delta, visibility.getCenterX(), visibility.getCenterY(), visibility);
+    }
+
+    private int drain(float delta, float listenerX, float listenerY, VisibilitySet visibility) {
+        clock += delta;
+
+        // one event per sound: the nearest, in range
+        for (int i = 0; i < eventCount; i++) {
+            int id = eventSound[i];
+            float distance = eventPositional[i] ? dst(eventX[i] - listenerX, eventY[i] - listenerY) : 0f;
+            eventDistance[i] = distance;
+            if (distance >= range
+                || (visibility != null && eventPositional[i] && visibility.tierOf(eventX[i], eventY[i]) == VisibilitySet.FAR)) {
+                dropped[id]++;
+                continue;
+            }
+            int kept = nearest[id];
+            if (kept < 0 || distance < eventDistance[kept]) {
+                if (kept >= 0) dropped[id]++;
+                nearest[id] = i;
+            } else {
+                dropped[id]++;
+            }
+        }
+
+        // sounds allowed to play again, nearest first
+        int candidates = 0;
+        for (int id = 0; id < soundCount; id++) {
+            int i = nearest[id];
+            if (i < 0) continue;
+            if (clock - lastPlayed[id] < minIntervals[id]) {
+                dropped[id]++;
+                nearest[id] = -1;
+                continue;
+            }
+            int j = candidates++;
+            while (j > 0 && eventDistance[nearest[order[j - 1]]] > eventDistance[i]) {
+                order[j] = order[j - 1];
+                j--;
+            }
+            order[j] = id;
+        }
+
+        int active = activeVoices();
+        int started = 0;
+        for (int k = 0; k < candidates; k++) {
+            int id = order[k];
+            int i = nearest[id];
+            nearest[id] = -1;
+
+            int slot = freeVoice(id);
+            // reusing a sound's own voice keeps the total; a new one needs room
+            if (voiceEnds[id][slot] <= clock && active >= maxTotalVoices) {
+                dropped[id]++;
+                continue;
+            }
+            if (voiceEnds[id][slot] > clock) {
+                sink.stop(id, sounds[id], voiceIds[id][slot]);
+            } else {
+                active++;
+            }
+
+            float volume = volumes[id];
+            float pan = 0f;
+            if (eventPositional[i]) {
+                volume *= 1f - eventDistance[i] / range;
+                pan = Math.max(-1f, Math.min(1f, (eventX[i] - listenerX) / range * 2f));
+            }
+            voiceIds[id][slot] = sink.play(id, sounds[id], volume, pan);
+            voiceEnds[id][slot] = clock + voiceSeconds[id];
+            lastPlayed[id] = clock;
+            played[id]++;
+            started++;
+        }
+
+        eventCount = 0;
+        return started;
+    }
+
+    /** Drops queued events without playing them, e.g. when the level is restarted. */
+    public void clear() {
+        for (int i = 0; i < eventCount; i++) dropped[eventSound[i]]++;
+        eventCount = 0;
+    }
+
+    // ------------------------------
+    // Helpers
+    // ------------------------------
+
+    /** A slot whose voice has ended, or else the one that started first. */
+    private int freeVoice(int id) {
+        float[] ends = voiceEnds[id];
+        int oldest = 0;
+        for (int s = 0; s < ends.length; s++) {
+            if (ends[s] <= clock) return s;
+            if (ends[s] < ends[oldest]) oldest = s;
+        }
+        return oldest;
+    }
+
+    private int activeVoices() {
+        int active = 0;
+        for (int id = 0; id < soundCount; id++) {
+            for (float end : voiceEnds[id]) if (end > clock) active++;
+        }
+        return active;
+    }
+
+    private static float dst(float dx, float dy) {
+        return (float) Math.sqrt(dx * dx + dy * dy);
+    }
+
+    private void grow(int capacity) {
+        sounds = Arrays.copyOf(sounds, capacity);
+        volumes = Arrays.copyOf(volumes, capacity);
+        minIntervals = Arrays.copyOf(minIntervals, capacity);
+        voiceSeconds = Arrays.copyOf(voiceSeconds, capacity);
+        lastPlayed = Arrays.copyOf(lastPlayed, capacity);
+        voiceIds = Arrays.copyOf(voiceIds, capacity);
+        voiceEnds = Arrays.copyOf(voiceEnds, capacity);
+        nearest = Arrays.copyOf(nearest, capacity);
+        order = Arrays.copyOf(order, capacity);
+        played = Arrays.copyOf(played, capacity);
+        dropped = Arrays.copyOf(dropped, capacity);
+    }
+
+    // ------------------------------
+    // Stats
+    // ------------------------------
+
+    public int getQueued() { return eventCount; }
+
+    /** Voices started for a sound since the queue was created. */
+    public long getPlayed(int id) { return played[id]; }
+
+    /** Events of a sound that were merged, rate-limited, out of range or over a voice limit. */
+    public long getDropped(int id) { return dropped[id]; }
+
+    /** Events dropped because the queue was full. */
+    public long getOverflowed() { return overflowed; }
+}
@@ -0,0 +1,200 @@
+package si.um.feri.platformer.ecs;
+
+import com.badlogic.gdx.utils.IntArray;
+
+import java.util.Arrays;
+
+/**
+ * Sweep-and-prune broadphase over the boxes of an {@link EntityStore}.
+ *
+ * Entities are kept sorted by their left edge between ticks. {@link #update} drops dead
+ * entities, appends new ones and re-sorts; since entities move little per tick the order is
+ * nearly sorted already and an insertion sort finishes in about linear time. Pairs are then
+ * found by sweeping along x and only testing boxes whose x ranges overlap.
+ *
+ * Which pairs are reported follows box2d's {@link com.badlogic.gdx.physics.box2d.Filter}
+ * rules on the store's categoryBits / maskBits / groupIndex columns: entities sharing a
+ * non-zero group always (positive) or never (negative) collide, otherwise each one's
+ * category must be in the other's mask.
+ *
+ * Storage grows with the entity count and is reused, so updates and queries allocate
+ * nothing in steady state. Results are slots, valid until the store is next flushed.
+ */
+public class Broadphase {
+
+    private EntityStore entities;
+    private int count;
+
+    // sorted by left edge: (sortable minX << 32 | handle)
+    private long[] keys = new long[64];
+
+    // per sorted position, gathered after sorting
+    private int[] handles = new int[64];
+    private int[] slots = new int[64];
+    private float[] minX = new float[64];
+    private float[] maxX = new float[64];
+    private float[] minY = new float[64];
+    private float[] maxY = new float[64];
+    private float maxWidth;
+
+    // entity index -> handle currently in the sweep list, to spot new entities
+    private int[] tracked = new int[0];
+
+    /** Brings the sorted list up to date with the store's live entities and their boxes. */
+    public void update(EntityStore entities) {
+        this.entities = entities;
+        if (tracked.length < entities.indexCapacity()) {
+            int old = tracked.length;
+            tracked = Arrays.copyOf(tracked, entities.indexCapacity());
+            Arrays.fill(tracked, old, tracked.length, EntityStore.NONE);
+        }
+        ensureCapacity(entities.size());
+
+        float[] x = entities.x;
+
+        // keep entities that are still alive, refreshing their keys
+        int n = 0;
+        for (int i = 0; i < count; i++) {
+            int handle = (int) keys[i];
+            int slot = entities.slotOf(handle);
+            if (slot < 0 || entities.mask[slot] == 0) {
+                int index = EntityStore.indexOf(handle);
+                if (tracked[index] == handle) tracked[index] = EntityStore.NONE;
+                continue;
+            }
+            keys[n++] = key(x[slot], handle);
+        }
+
+        // append entities created since the last update
+        int appended = 0;
+        for (int slot = 0, size = entities.size(); slot < size; slot++) {
+            if (entities.mask[slot] == 0) continue;
+            int handle = entities.handleAt(slot);
+            int index = EntityStore.indexOf(handle);
+            if (tracked[index] == handle) continue;
+            tracked[index] = handle;
+            keys[n++] = key(x[slot], handle);
+            appended++;
+        }
+        count = n;
+
+        // a batch of spawns is far from sorted; everything else is nearly sorted
+        if (appended > 32 && appended > count / 4) Arrays.sort(keys, 0, count);
+        else insertionSort(keys, count);
+
+        float[] y = entities.y;
+        float[] w = entities.width;
+        float[] h = entities.height;
+        maxWidth = 0f;
+        for (int i = 0; i < count; i++) {
+            int handle = (int) keys[i];
+            int slot = entities.slotOf(handle);
+            handles[i] = handle;
+            slots[i] = slot;
+            minX[i] = x[slot];
+            maxX[i] = x[slot] + w[slot];
+            minY[i] = y[slot];
+            maxY[i] = y[slot] + h[slot];
+            if (w[slot] > maxWidth) maxWidth = w[slot];
+        }
+    }
+
+    /**
+     * Appends the slot pairs {a, b} of overlapping entities that pass the filter to
+     * {@code out} (cleared first) and returns the number of pairs. Call right after
+     * {@link #update}, before the store is flushed.
+     */
+    public int findPairs(IntArray out) {
+        out.clear();
+        for (int i = 0; i < count; i++) {
+            float right = maxX[i];
+            float bottom = minY[i];
+            float top = maxY[i];
+            for (int j = i + 1; j < count && minX[j] < right; j++) {
+                if (minY[j] >= top || maxY[j] <= bottom) continue;
+                if (!shouldCollide(slots[i], slots[j])) continue;
+                out.add(slots[i]);
+                out.add(slots[j]);
+            }
+        }
+        return out.size / 2;
+    }
+
+    /**
+     * Collects the slots of entities overlapping the box into {@code out} (cleared first) and
+     * returns how many were found, filtered as if the box were a fixture with the given bits.
+     * Touching edges do not count. Boxes are those of the last {@link #update}; entities
+     * destroyed since are skipped.
+     */
+    public int query(float x, float y, float w, float h, short categoryBits, short maskBits, IntArray out) {
+        out.clear();
+        float right = x + w;
+        float top = y + h;
+
+        for (int i = firstAtOrAfter(x - maxWidth); i < count && minX[i] < right; i++) {
+            if (maxX[i] <= x || minY[i] >= top || maxY[i] <= y) continue;
+            int slot = entities.slotOf(handles[i]);
+            if (slot < 0 || entities.mask[slot] == 0) continue;
+            if ((entities.maskBits[slot] & categoryBits) == 0 || (entities.categoryBits[slot] & maskBits) == 0) continue;
+            out.add(slot);
+        }
+        return out.size;
+    }
+
+    /** Entities in the sweep list. */
+    public int size() { return count; }
+
+    // ------------------------------
+    // Helpers
+    // ------------------------------
+
+    private boolean shouldCollide(int a, int b) {
+        short group = entities.groupIndex[a];
+        if (group != 0 && group == entities.groupIndex[b]) return group > 0;
+        return (entities.maskBits[a] & entities.categoryBits[b]) != 0
+            && (entities.categoryBits[a] & entities.maskBits[b]) != 0;
+    }
+
+    /** First sorted position whose left edge is >= x. */
+    private int firstAtOrAfter(float x) {
+        int lo = 0;
+        int hi = count;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (minX[mid] < x) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    /** Orders by x first; the handle only breaks ties. */
+    private static long key(float x, int handle) {
+        int bits = Float.floatToIntBits(x);
+        bits ^= (bits >> 31) & 0x7FFFFFFF; // negative floats sort below positive ones as signed ints
+        return ((long) bits << 32) | (handle & 0xFFFFFFFFL);
+    }
+
+    private static void insertionSort(long[] a, int n) {
+        for (int i = 1; i < n; i++) {
+            long v = a[i];
+            int j = i - 1;
+            while (j >= 0 && a[j] > v) {
+                a[j + 1] = a[j];
+                j--;
+            }
+            a[j + 1] = v;
+        }
+    }
+
+    private void ensureCapacity(int n) {
+        if (n <= keys.length) return;
+        int capacity = Math.max(n, keys.length * 2);
+        keys = Arrays.copyOf(keys, capacity);
+        handles = new int[capacity];
+        slots = new int[capacity];
+        minX = new float[capacity];
+        maxX = new float[capacity];
+        minY = new float[capacity];
+        maxY = new float[capacity];
+    }
+}
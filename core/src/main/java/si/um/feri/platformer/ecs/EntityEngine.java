@@ -0,0 +1,60 @@
+package si.um.feri.platformer.ecs;
+
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntArray;
+
+import si.um.feri.platformer.profiling.FrameProfiler;
+
+/**
+ * Runs a fixed list of {@link EntitySystem}s over one {@link EntityStore} every tick, in the
+ * order they were added. Destroyed entities are flushed after each system, so the next one
+ * sees a dense store.
+ */
+public class EntityEngine {
+
+    private final EntityStore entities;
+    private final Array<EntitySystem> systems = new Array<>();
+    private final Array<String> names = new Array<>();
+
+    // optional per-system timing; null when not profiling
+    private FrameProfiler profiler;
+    private final IntArray phases = new IntArray();
+
+    public EntityEngine(EntityStore entities) {
+        this.entities = entities;
+    }
+
+    /** Appends a system; {@code name} is its profiler phase. */
+    public void add(String name, EntitySystem system) {
+        systems.add(system);
+        names.add(name);
+        if (profiler != null) phases.add(profiler.addPhase(name));
+    }
+
+    public void remove(EntitySystem system) {
+        int i = systems.indexOf(system, true);
+        if (i < 0) return;
+        systems.removeIndex(i);
+        names.removeIndex(i);
+        if (profiler != null) phases.removeIndex(i);
+    }
+
+    /** Times every system into a profiler phase of its name. Pass null to stop profiling. */
+    public void setProfiler(FrameProfiler profiler) {
+        this.profiler = profiler;
+        phases.clear();
+        if (profiler == null) return;
+        for (int i = 0; i < names.size; i++) phases.add(profiler.addPhase(names.get(i)));
+    }
+
+    public void update(float dt) {
+        for (int i = 0; i < systems.size; i++) {
+            if (profiler != null) profiler.begin(phases.get(i));
+            systems.get(i).update(entities, dt);
+            entities.flush();
+            if (profiler != null) profiler.end(phases.get(i));
+        }
+    }
+
+    public EntityStore getEntities() { return entities; }
+}
@@ -0,0 +1,107 @@
+package si.um.feri.platformer.ecs;
+
+import si.um.feri.platformer.simulation.GameStats;
+
+/**
+ * Entity kinds and their component sets. Level spawns are stored as {kind, x, y} triples
+ * (world units, bottom-left) and turned into entities by {@link #spawnAll}.
+ */
+public final class EntityFactory {
+
+    private static final float PPM = 32f;
+
+    public static final int ENEMY = 1;
+    public static final int PICKUP = 2;
+    public static final int PROJECTILE = 3;
+
+    public static final float ENEMY_WIDTH = 24f / PPM;
+    public static final float ENEMY_HEIGHT = 24f / PPM;
+    public static final float ENEMY_SPEED = 2.5f;  // world units per second
+    public static final int ENEMY_DAMAGE = 1;      // per tick of contact, like damage rectangles
+
+    // filter categories, next to box2d's default (0x0001) and CollisionGeometryBuilder.SOLID_TILE_CATEGORY (0x0002)
+    public static final short PLAYER_CATEGORY = 0x0001;
+    public static final short ENEMY_CATEGORY = 0x0004;
+    public static final short PICKUP_CATEGORY = 0x0008;
+    public static final short PROJECTILE_CATEGORY = 0x0010;
+
+    /** Mask the player queries entities with. */
+    public static final short PLAYER_MASK = ENEMY_CATEGORY | PICKUP_CATEGORY | PROJECTILE_CATEGORY;
+
+    public static final float PICKUP_SIZE = 16f / PPM;
+
+    public static final float PROJECTILE_SIZE = 8f / PPM;
+    public static final int PROJECTILE_DAMAGE = 10;
+    public static final float PROJECTILE_LIFETIME = 3f;
+
+    private static final int ENEMY_COMPONENTS = EntityStore.VELOCITY | EntityStore.GRAVITY
+        | EntityStore.TILE_COLLIDER | EntityStore.PATROL | EntityStore.HAZARD;
+    private static final int PROJECTILE_COMPONENTS = EntityStore.VELOCITY | EntityStore.TILE_COLLIDER
+        | EntityStore.LIFETIME | EntityStore.PROJECTILE;
+
+    private EntityFactory() {
+    }
+
+    /** Kind named by a Tiled object type/class ("enemy", "pickup" or "coin", "projectile"); 0 if unknown. */
+    public static int kindOf(String type) {
+        if (type == null) return 0;
+        if (type.equalsIgnoreCase("enemy")) return ENEMY;
+        if (type.equalsIgnoreCase("pickup") || type.equalsIgnoreCase("coin")) return PICKUP;
+        if (type.equalsIgnoreCase("projectile")) return PROJECTILE;
+        return 0;
+    }
+
+    /** Enemy walking in {@code direction} (-1 or 1) until it meets a wall or a ledge. */
+    public static int spawnEnemy(EntityStore entities, float x, float y, float direction) {
+        int handle = entities.create(ENEMY_COMPONENTS, x, y, ENEMY_WIDTH, ENEMY_HEIGHT);
+        int slot = entities.slotOf(handle);
+        entities.kind[slot] = ENEMY;
+        entities.vx[slot] = ENEMY_SPEED * Math.signum(direction == 0 ? 1 : direction);
+        entities.value[slot] = ENEMY_DAMAGE;
+        setFilter(entities, slot, ENEMY_CATEGORY, (short) (PLAYER_CATEGORY | ENEMY_CATEGORY | PROJECTILE_CATEGORY));
+        return handle;
+    }
+
+    public static int spawnPickup(EntityStore entities, float x, float y) {
+        int handle = entities.create(EntityStore.PICKUP, x, y, PICKUP_SIZE, PICKUP_SIZE);
+        int slot = entities.slotOf(handle);
+        entities.kind[slot] = PICKUP;
+        entities.value[slot] = GameStats.COIN_SCORE;
+        setFilter(entities, slot, PICKUP_CATEGORY, PLAYER_CATEGORY);
+        return handle;
+    }
+
+    public static int spawnProjectile(EntityStore entities, float x, float y, float vx, float vy) {
+        int handle = entities.create(PROJECTILE_COMPONENTS, x, y, PROJECTILE_SIZE, PROJECTILE_SIZE);
+        int slot = entities.slotOf(handle);
+        entities.kind[slot] = PROJECTILE;
+        entities.vx[slot] = vx;
+        entities.vy[slot] = vy;
+        entities.lifetime[slot] = PROJECTILE_LIFETIME;
+        entities.value[slot] = PROJECTILE_DAMAGE;
+        setFilter(entities, slot, PROJECTILE_CATEGORY, (short) (PLAYER_CATEGORY | ENEMY_CATEGORY));
+        return handle;
+    }
+
+    private static void setFilter(EntityStore entities, int slot, short categoryBits, short maskBits) {
+        entities.categoryBits[slot] = categoryBits;
+        entities.maskBits[slot] = maskBits;
+    }
+
+    /** Creates an entity of {@code kind}; returns {@link EntityStore#NONE} for unknown kinds. */
+    public static int spawn(EntityStore entities, int kind, float x, float y) {
+        switch (kind) {
+            case ENEMY: return spawnEnemy(entities, x, y, 1f);
+            case PICKUP: return spawnPickup(entities, x, y);
+            case PROJECTILE: return spawnProjectile(entities, x, y, 0f, 0f);
+            default: return EntityStore.NONE;
+        }
+    }
+
+    /** Spawns every {kind, x, y} triple of a level's spawn list. */
+    public static void spawnAll(EntityStore entities, float[] spawns) {
+        for (int i = 0; i + 2 < spawns.length; i += 3) {
+            spawn(entities, (int) spawns[i], spawns[i + 1], spawns[i + 2]);
+        }
+    }
+}
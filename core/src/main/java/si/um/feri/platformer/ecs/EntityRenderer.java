@@ -0,0 +1,60 @@
+package si.um.feri.platformer.ecs;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.OrthographicCamera;
+import com.badlogic.gdx.graphics.glutils.ShapeRenderer;
+
+import si.um.feri.platformer.systems.VisibilitySet;
+
+/**
+ * Draws every visible entity as a filled rectangle coloured by kind, blended between the
+ * last two ticks like the player. Placeholder art until entities get sprites; one
+ * ShapeRenderer batch.
+ */
+public class EntityRenderer {
+
+    private static final Color ENEMY = new Color(0.85f, 0.2f, 0.2f, 1f);
+    private static final Color PICKUP = new Color(1f, 0.85f, 0.2f, 1f);
+    private static final Color PROJECTILE = new Color(1f, 0.5f, 0.1f, 1f);
+
+    private final ShapeRenderer shapes = new ShapeRenderer();
+
+    public void render(EntityStore entities, OrthographicCamera camera, VisibilitySet visibility, float alpha) {
+        int n = entities.size();
+        if (n == 0) return;
+
+        int[] mask = entities.mask;
+        int[] kind = entities.kind;
+        float[] x = entities.x;
+        float[] y = entities.y;
+        float[] prevX = entities.prevX;
+        float[] prevY = entities.prevY;
+        float[] w = entities.width;
+        float[] h = entities.height;
+
+        shapes.setProjectionMatrix(camera.combined);
+        shapes.begin(ShapeRenderer.ShapeType.Filled);
+        for (int i = 0; i < n; i++) {
+            if (mask[i] == 0) continue;
+            float drawX = prevX[i] + (x[i] - prevX[i]) * alpha;
+            float drawY = prevY[i] + (y[i] - prevY[i]) * alpha;
+            if (!visibility.isVisible(drawX, drawY, w[i], h[i])) continue;
+            shapes.setColor(colorOf(kind[i]));
+            shapes.rect(drawX, drawY, w[i], h[i]);
+        }
+        shapes.end();
+    }
+
+    private static Color colorOf(int kind) {
+        switch (kind) {
+            case EntityFactory.ENEMY: return ENEMY;
+            case EntityFactory.PICKUP: return PICKUP;
+            case EntityFactory.PROJECTILE: return PROJECTILE;
+            default: return Color.WHITE;
+        }
+    }
+
+    public void dispose() {
+        shapes.dispose();
+    }
+}
@@ -0,0 +1,315 @@
+package si.um.feri.platformer.ecs;
+
+import com.badlogic.gdx.utils.IntArray;
+
+import java.util.Arrays;
+
+/**
+ * Struct-of-arrays storage for simple entities (enemies, projectiles, pickups).
+ *
+ * Every component is a primitive column indexed by a dense slot {@code 0..size()-1}, and a
+ * per-slot bit mask says which components an entity uses. Systems walk the slots in order
+ * and touch only the columns they need, so thousands of entities update without pointer
+ * chasing or per-entity objects.
+ *
+ * Entities are referred to by handles (index + generation), which stay valid while slots
+ * move. {@link #destroy(int)} is deferred until {@link #flush()}, where the last slot is
+ * swapped into the hole; systems can therefore destroy entities while iterating.
+ * Columns grow by doubling; after that nothing is allocated.
+ */
+public class EntityStore {
+
+    // ------------------------------
+    // Component bits
+    // ------------------------------
+
+    /** x, y, prevX, prevY, width, height; every entity has it. */
+    public static final int POSITION = 1;
+    /** vx, vy */
+    public static final int VELOCITY = 1 << 1;
+    /** Falls like the player. */
+    public static final int GRAVITY = 1 << 2;
+    /** Blocked by solid tiles. */
+    public static final int TILE_COLLIDER = 1 << 3;
+    /** Walks back and forth, turning at walls and ledges. */
+    public static final int PATROL = 1 << 4;
+    /** Removed once {@code lifetime} runs out. */
+    public static final int LIFETIME = 1 << 5;
+    /** Collected on contact with the player for {@code value} score. */
+    public static final int PICKUP = 1 << 6;
+    /** Hurts the player on contact for {@code value} health per tick. */
+    public static final int HAZARD = 1 << 7;
+    /** Removed when it hits a wall or the player. */
+    public static final int PROJECTILE = 1 << 8;
+
+    // handle = generation << INDEX_BITS | index
+    private static final int INDEX_BITS = 20;
+    private static final int INDEX_MASK = (1 << INDEX_BITS) - 1;
+    private static final int GENERATION_MASK = (1 << (31 - INDEX_BITS)) - 1;
+
+    /** Handle that never refers to a live entity. */
+    public static final int NONE = -1;
+
+    // ------------------------------
+    // Dense columns (slot-indexed); read the fields again after creating entities
+    // ------------------------------
+
+    public int[] mask;
+    public float[] x;
+    public float[] y;
+    public float[] prevX;
+    public float[] prevY;
+    public float[] width;
+    public float[] height;
+    public float[] vx;
+    public float[] vy;
+    public float[] lifetime;
+    public int[] value;
+    public int[] kind;
+    // collision filter, same rules as box2d's Filter (see Broadphase)
+    public short[] categoryBits;
+    public short[] maskBits;
+    public short[] groupIndex;
+
+    private int[] slotToIndex;
+    private int size;
+
+    // sparse side: entity index -> slot and generation
+    private int[] indexToSlot;
+    private int[] generation;
+    private final IntArray freeIndices = new IntArray();
+    private int indexCount;
+
+    private final IntArray pendingDestroy = new IntArray();
+
+    public EntityStore() {
+        this(256);
+    }
+
+    public EntityStore(int initialCapacity) {
+        int capacity = Math.max(16, initialCapacity);
+        mask = new int[capacity];
+        x = new float[capacity];
+        y = new float[capacity];
+        prevX = new float[capacity];
+        prevY = new float[capacity];
+        width = new float[capacity];
+        height = new float[capacity];
+        vx = new float[capacity];
+        vy = new float[capacity];
+        lifetime = new float[capacity];
+        value = new int[capacity];
+        kind = new int[capacity];
+        categoryBits = new short[capacity];
+        maskBits = new short[capacity];
+        groupIndex = new short[capacity];
+        slotToIndex = new int[capacity];
+
+        indexToSlot = new int[capacity];
+        generation = new int[capacity];
+    }
+
+    // ------------------------------
+    // Lifecycle
+    // ------------------------------
+
+    /**
+     * Adds an entity with the given components at (x, y) and returns its handle. The filter
+     * starts at box2d's defaults (category 1, collides with everything); other columns at zero.
+     */
+    public int create(int components, float x, float y, float width, float height) {
+        if (size == mask.length) growSlots(size * 2);
+
+        int index;
+        if (freeIndices.size > 0) {
+            index = freeIndices.pop();
+        } else {
+            if (indexCount == indexToSlot.length) growIndices(indexCount * 2);
+            if (indexCount > INDEX_MASK) throw new IllegalStateException("Too many entities");
+            index = indexCount++;
+        }
+
+        int slot = size++;
+        indexToSlot[index] = slot;
+        slotToIndex[slot] = index;
+
+        mask[slot] = components | POSITION;
+        this.x[slot] = x;
+        this.y[slot] = y;
+        prevX[slot] = x;
+        prevY[slot] = y;
+        this.width[slot] = width;
+        this.height[slot] = height;
+        vx[slot] = 0f;
+        vy[slot] = 0f;
+        lifetime[slot] = 0f;
+        value[slot] = 0;
+        kind[slot] = 0;
+        categoryBits[slot] = 0x0001;
+        maskBits[slot] = -1;
+        groupIndex[slot] = 0;
+
+        return (generation[index] << INDEX_BITS) | index;
+    }
+
+    /** Marks the entity for removal at the next {@link #flush()}. Stale handles are ignored. */
+    public void destroy(int handle) {
+        if (!isAlive(handle)) return;
+        int slot = indexToSlot[handle & INDEX_MASK];
+        if (mask[slot] == 0) return; // already pending
+        mask[slot] = 0;
+        pendingDestroy.add(handle);
+    }
+
+    /** Removes entities destroyed since the last flush by moving the last slot into each hole. */
+    public void flush() {
+        for (int i = 0; i < pendingDestroy.size; i++) {
+            int handle = pendingDestroy.get(i);
+            int index = handle & INDEX_MASK;
+            int slot = indexToSlot[index];
+            int last = --size;
+
+            if (slot != last) moveSlot(last, slot);
+
+            generation[index] = (generation[index] + 1) & GENERATION_MASK;
+            indexToSlot[index] = -1;
+            freeIndices.add(index);
+        }
+        pendingDestroy.clear();
+    }
+
+    /**
+     * Makes this store an exact copy of {@code other}: the same entities in the same slots
+     * under the same handles, free list and pending destroys included. Columns grow if
+     * {@code other} is larger; otherwise nothing is allocated, so a store can serve as a
+     * per-tick snapshot of another.
+     */
+    public void set(EntityStore other) {
+        if (mask.length < other.size) growSlots(other.mask.length);
+        if (indexToSlot.length < other.indexCount) growIndices(other.indexToSlot.length);
+
+        int n = other.size;
+        System.arraycopy(other.mask, 0, mask, 0, n);
+        System.arraycopy(other.x, 0, x, 0, n);
+        System.arraycopy(other.y, 0, y, 0, n);
+        System.arraycopy(other.prevX, 0, prevX, 0, n);
+        System.arraycopy(other.prevY, 0, prevY, 0, n);
+        System.arraycopy(other.width, 0, width, 0, n);
+        System.arraycopy(other.height, 0, height, 0, n);
+        System.arraycopy(other.vx, 0, vx, 0, n);
+        System.arraycopy(other.vy, 0, vy, 0, n);
+        System.arraycopy(other.lifetime, 0, lifetime, 0, n);
+        System.arraycopy(other.value, 0, value, 0, n);
+        System.arraycopy(other.kind, 0, kind, 0, n);
+        System.arraycopy(other.categoryBits, 0, categoryBits, 0, n);
+        System.arraycopy(other.maskBits, 0, maskBits, 0, n);
+        System.arraycopy(other.groupIndex, 0, groupIndex, 0, n);
+        System.arraycopy(other.slotToIndex, 0, slotToIndex, 0, n);
+        size = n;
+
+        System.arraycopy(other.indexToSlot, 0, indexToSlot, 0, other.indexCount);
+        System.arraycopy(other.generation, 0, generation, 0, other.indexCount);
+        indexCount = other.indexCount;
+
+        freeIndices.clear();
+        freeIndices.addAll(other.freeIndices);
+        pendingDestroy.clear();
+        pendingDestroy.addAll(other.pendingDestroy);
+    }
+
+    /** Removes every entity; handles from before are invalidated. */
+    public void clear() {
+        for (int slot = 0; slot < size; slot++) {
+            int index = slotToIndex[slot];
+            generation[index] = (generation[index] + 1) & GENERATION_MASK;
+            indexToSlot[index] = -1;
+            freeIndices.add(index);
+        }
+        size = 0;
+        pendingDestroy.clear();
+    }
+
+    public boolean isAlive(int handle) {
+        if (handle < 0) return false;
+        int index = handle & INDEX_MASK;
+        return index < indexCount
+            && indexToSlot[index] >= 0
+            && generation[index] == (handle >>> INDEX_BITS);
+    }
+
+    /** Current slot of a live entity, or -1. Slots change on {@link #flush()}. */
+    public int slotOf(int handle) {
+        return isAlive(handle) ? indexToSlot[handle & INDEX_MASK] : -1;
+    }
+
+    /** Handle of the entity in a slot. */
+    public int handleAt(int slot) {
+        int index = slotToIndex[slot];
+        return (generation[index] << INDEX_BITS) | index;
+    }
+
+    /** Entity index of a handle; indices are below {@link #indexCapacity()} and reused after destroy. */
+    public static int indexOf(int handle) {
+        return handle & INDEX_MASK;
+    }
+
+    public int indexCapacity() { return indexToSlot.length; }
+
+    /** Number of occupied slots, including entities destroyed since the last flush (mask 0). */
+    public int size() { return size; }
+
+    /** True if the slot has every component in {@code components}; destroyed slots have none. */
+    public boolean has(int slot, int components) {
+        return (mask[slot] & components) == components;
+    }
+
+    // ------------------------------
+    // Storage
+    // ------------------------------
+
+    private void moveSlot(int from, int to) {
+        mask[to] = mask[from];
+        x[to] = x[from];
+        y[to] = y[from];
+        prevX[to] = prevX[from];
+        prevY[to] = prevY[from];
+        width[to] = width[from];
+        height[to] = height[from];
+        vx[to] = vx[from];
+        vy[to] = vy[from];
+        lifetime[to] = lifetime[from];
+        value[to] = value[from];
+        kind[to] = kind[from];
+        categoryBits[to] = categoryBits[from];
+        maskBits[to] = maskBits[from];
+        groupIndex[to] = groupIndex[from];
+
+        int index = slotToIndex[from];
+        slotToIndex[to] = index;
+        indexToSlot[index] = to;
+    }
+
+    private void growSlots(int capacity) {
+        mask = Arrays.copyOf(mask, capacity);
+        x = Arrays.copyOf(x, capacity);
+        y = Arrays.copyOf(y, capacity);
+        prevX = Arrays.copyOf(prevX, capacity);
+        prevY = Arrays.copyOf(prevY, capacity);
+        width = Arrays.copyOf(width, capacity);
+        height = Arrays.copyOf(height, capacity);
+        vx = Arrays.copyOf(vx, capacity);
+        vy = Arrays.copyOf(vy, capacity);
+        lifetime = Arrays.copyOf(lifetime, capacity);
+        value = Arrays.copyOf(value, capacity);
+        kind = Arrays.copyOf(kind, capacity);
+        categoryBits = Arrays.copyOf(categoryBits, capacity);
+        maskBits = Arrays.copyOf(maskBits, capacity);
+        groupIndex = Arrays.copyOf(groupIndex, capacity);
+        slotToIndex = Arrays.copyOf(slotToIndex, capacity);
+    }
+
+    private void growIndices(int capacity) {
+        indexToSlot = Arrays.copyOf(indexToSlot, capacity);
+        generation = Arrays.copyOf(generation, capacity);
+    }
+}
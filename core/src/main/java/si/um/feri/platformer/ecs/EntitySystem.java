@@ -0,0 +1,8 @@
+package si.um.feri.platformer.ecs;
+
+/** One step of per-tick logic over the entity columns, run in order by an {@link EntityEngine}. */
+public interface EntitySystem {
+
+    /** Advances the system by one fixed tick of {@code dt} seconds. */
+    void update(EntityStore entities, float dt);
+}
@@ -1,68 +1,48 @@
 package si.um.feri.platformer.entities;
 
-import com.badlogic.gdx.Gdx;
-import com.badlogic.gdx.Input;
 import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.g2d.Batch;
 import com.badlogic.gdx.graphics.g2d.Sprite;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.math.Rectangle;
-import com.badlogic.gdx.physics.box2d.Body;
-import com.badlogic.gdx.physics.box2d.BodyDef;
-import com.badlogic.gdx.physics.box2d.World;
 
+/**
+ * The player's box and motion state. Movement is done by the
+ * {@link si.um.feri.platformer.systems.CharacterController} against the tile grid; there is
+ * no physics body, so a session needs no Box2D world.
+ */
 public class Player {
 
     private static final float PPM = 32f;
 
-    private final Body body;
-    private final Sprite sprite;
-    private final World world;
+    // collision size in world units, matching the 28x49 px GraveRobber sprite;
+    // fixed here so headless sessions (no texture) simulate exactly the same box
+    public static final float WIDTH = 28f / PPM;
+    public static final float HEIGHT = 49f / PPM;
 
-    // physics (world units)
-    private float velocityY = 0;
-    private boolean isJumping = false;
-
-    private final float gravity = -26f;        // world units
-    private final float jumpVelocity = 12f;     // world units
-    private final float maxFallSpeed = -20f;
-    private final float moveSpeed = 7f;
-
-    // movement candidates
-    private float candidateX;
-    private float candidateY;
+    // rendering only; null in headless sessions
+    private Sprite sprite;
 
-    public Player(World world) {
-        this.world = world;
-
-        // Load sprite
-        Texture t = new Texture("tiled/GraveRobberNew.png");
-        sprite = new Sprite(t);
-
-        // scale sprite so pixels -> world units (1 world unit = PPM pixels)
-        sprite.setSize(sprite.getWidth() / PPM, sprite.getHeight() / PPM);
+    // bottom-left corner (world units)
+    private float x = 1f;
+    private float y = 5f;
 
-        // Body
-        BodyDef bd = new BodyDef();
-        bd.type = BodyDef.BodyType.KinematicBody;
-
-        // We'll treat the body's position as the sprite's bottom-left (not center).
-        // That keeps sprite position and body position aligned and simple.
-        bd.position.set(1f, 5f); // initial world coords (bottom-left)
-
-        body = world.createBody(bd);
-        body.setFixedRotation(true);
+    // motion (world units per second)
+    private float velocityX = 0;
+    private float velocityY = 0;
+    private boolean isJumping = false;
+    // seconds since the player last stood on something; 0 while on the ground, airborne until the first landing
+    private float airTime = Float.MAX_VALUE;
 
-        // Ensure sprite is aligned with body bottom-left initially
-        sprite.setPosition(bd.position.x, bd.position.y);
+    private final Rectangle bounds = new Rectangle();
 
-        // initialize candidates to current position
-        candidateX = getX();
-        candidateY = getY();
-    }
+    // position at the start of the current fixed tick (for render interpolation)
+    private float prevX = x;
+    private float prevY = y;
 
+    /** World-unit bounds. The returned rectangle is reused; copy it if you need to keep it. */
     public Rectangle getBoundingRectangle() {
-        // builds world-unit rectangle.
-        return new Rectangle(
+        return bounds.set(
             getX(),
             getY(),
             getWidth(),   // world units
@@ -70,53 +50,63 @@ public class Player {
         );
     }
 
-    // positions now return world coords directly (we use body position as bottom-left)
-    public float getX() { return body.getPosition().x; }
-    public float getY() { return body.getPosition().y; }
+    public float getX() { return x; }
+    public float getY() { return y; }
 
-    public float getWidth() { return sprite.getWidth(); }   // world units
-    public float getHeight() { return sprite.getHeight(); } // world units
+    public float getWidth() { return WIDTH; }   // world units
+    public float getHeight() { return HEIGHT; } // world units
 
-    public void setPosition(float x, float y) {
-        body.setTransform(x, y, 0);
-        sprite.setPosition(x, y);
-        candidateX = x;
-        candidateY = y;
+    /** Attaches the sprite texture (the texture stays owned by the caller). */
+    public void setTexture(Texture texture) {
+        setRegion(new TextureRegion(texture));
     }
 
-    public void commitX(float x) {
-        body.setTransform(x, body.getPosition().y, 0);
-        sprite.setPosition(x, sprite.getY());
+    /** Attaches a sprite region, e.g. one packed onto the map's tileset page. */
+    public void setRegion(TextureRegion region) {
+        sprite = new Sprite(region);
+        // scale sprite so pixels -> world units (1 world unit = PPM pixels)
+        sprite.setSize(region.getRegionWidth() / PPM, region.getRegionHeight() / PPM);
+        sprite.setPosition(getX(), getY());
     }
 
-    public void commitY(float y) {
-        body.setTransform(body.getPosition().x, y, 0);
-        sprite.setPosition(sprite.getX(), y);
+    public void setPosition(float x, float y) {
+        this.x = x;
+        this.y = y;
+        prevX = x;
+        prevY = y;
     }
 
-    public void handleInput(float dt) {
-        float nx = getX();
-
-        if (Gdx.input.isKeyPressed(Input.Keys.A)) nx -= moveSpeed * dt;
-        if (Gdx.input.isKeyPressed(Input.Keys.D)) nx += moveSpeed * dt;
-
-        if (Gdx.input.isKeyJustPressed(Input.Keys.SPACE) && !isJumping) {
-            velocityY = jumpVelocity;
-            isJumping = true;
-        }
+    /** Puts the player back into a saved state; see {@code GameSimulation.restore}. */
+    public void restore(float x, float y, float prevX, float prevY,
+                        float velocityX, float velocityY, boolean jumping, float airTime) {
+        this.x = x;
+        this.y = y;
+        this.prevX = prevX;
+        this.prevY = prevY;
+        this.velocityX = velocityX;
+        this.velocityY = velocityY;
+        isJumping = jumping;
+        this.airTime = airTime;
+    }
 
-        candidateX = nx;
+    /** Remembers the current position as the interpolation origin; call once at the start of each tick. */
+    public void savePreviousPosition() {
+        prevX = x;
+        prevY = y;
     }
 
-    public void updatePhysics(float dt) {
-        velocityY += gravity * dt;
-        if (velocityY < maxFallSpeed) velocityY = maxFallSpeed;
+    public float getPreviousX() { return prevX; }
+    public float getPreviousY() { return prevY; }
 
-        candidateY = getY() + velocityY * dt;
-    }
+    public float getInterpolatedX(float alpha) { return prevX + (x - prevX) * alpha; }
+    public float getInterpolatedY(float alpha) { return prevY + (y - prevY) * alpha; }
+
+    public void commitX(float x) { this.x = x; }
+    public void commitY(float y) { this.y = y; }
 
-    public float getCandidateX() { return candidateX; }
-    public float getCandidateY() { return candidateY; }
+    /** Horizontal speed the player asked for this tick, before collisions. */
+    public float getVelocityX() { return velocityX; }
+    public void setVelocityX(float v) { velocityX = v; }
 
     public float getVelocityY() { return velocityY; }
     public void setVelocityY(float v) { velocityY = v; }
@@ -124,16 +114,24 @@ public class Player {
     public boolean isJumping() { return isJumping; }
     public void setJumping(boolean j) { isJumping = j; }
 
+    public float getAirTime() { return airTime; }
+    public void setAirTime(float t) { airTime = t; }
+    public boolean isGrounded() { return airTime == 0f; }
+
     public void draw(Batch batch) {
+        draw(batch, 1f);
+    }
+
+    /** Draws the sprite blended between the previous and the current tick. */
+    public void draw(Batch batch, float alpha) {
+        if (sprite == null) return;
+        sprite.setPosition(getInterpolatedX(alpha), getInterpolatedY(alpha));
         sprite.draw(batch);
     }
 
     public float getCenterX() { return getX() + getWidth() * 0.5f; }
     public float getCenterY() { return getY() + getHeight() * 0.5f; }
 
-    public void dispose() {
-        sprite.getTexture().dispose();
-    }
+    public float getInterpolatedCenterX(float alpha) { return getInterpolatedX(alpha) + getWidth() * 0.5f; }
+    public float getInterpolatedCenterY(float alpha) { return getInterpolatedY(alpha) + getHeight() * 0.5f; }
 }
-
-
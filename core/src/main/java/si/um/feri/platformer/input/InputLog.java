@@ -0,0 +1,144 @@
+package si.um.feri.platformer.input;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.IntArray;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * A recorded session: the {@link PlayerInput} of every tick, run-length encoded.
+ *
+ * Input changes rarely compared to the tick rate (a key is held for dozens of ticks), so a
+ * run of identical ticks is kept as one (bits, commands, length) entry. On disk
+ * ({@code .inp}) the header is followed by the runs, with commands and lengths as varints;
+ * a minute of play is typically well under a kilobyte.
+ *
+ * Written by {@link RecordingInputSource}, played back by {@link ReplayInputSource}.
+ * A log is not changed by playing it, so one log can feed any number of sessions.
+ */
+public class InputLog {
+
+    public static final String EXTENSION = "inp";
+
+    private static final int MAGIC = 0x50494E50; // "PINP"
+    private static final int VERSION = 1;
+
+    private final int ticksPerSecond;
+    private final IntArray bits = new IntArray();
+    private final IntArray commands = new IntArray();
+    private final IntArray lengths = new IntArray();
+    private int tickCount;
+
+    public InputLog(int ticksPerSecond) {
+        if (ticksPerSecond <= 0) throw new IllegalArgumentException("ticksPerSecond must be > 0: " + ticksPerSecond);
+        this.ticksPerSecond = ticksPerSecond;
+    }
+
+    /** Appends one tick. Allocates only when a new run outgrows the arrays. */
+    public void append(int tickBits, int tickCommands) {
+        int last = lengths.size - 1;
+        if (last >= 0 && bits.get(last) == tickBits && commands.get(last) == tickCommands) {
+            lengths.incr(last, 1);
+        } else {
+            bits.add(tickBits);
+            commands.add(tickCommands);
+            lengths.add(1);
+        }
+        tickCount++;
+    }
+
+    public void clear() {
+        bits.clear();
+        commands.clear();
+        lengths.clear();
+        tickCount = 0;
+    }
+
+    /** Fixed tick rate the session was recorded at. */
+    public int getTicksPerSecond() { return ticksPerSecond; }
+    public int getTickCount() { return tickCount; }
+    public int getRunCount() { return lengths.size; }
+
+    public int getBits(int run) { return bits.get(run); }
+    public int getCommands(int run) { return commands.get(run); }
+    public int getLength(int run) { return lengths.get(run); }
+
+    // ------------------------------
+    // File format
+    // ------------------------------
+
+    public void write(FileHandle file) {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file.write(false)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(ticksPerSecond);
+            out.writeInt(tickCount);
+            out.writeInt(lengths.size);
+            for (int i = 0; i < lengths.size; i++) {
+                out.writeByte(bits.get(i));
+                writeVarInt(out, commands.get(i));
+                writeVarInt(out, lengths.get(i));
+            }
+        } catch (IOException e) {
+            throw new GdxRuntimeException("Failed to write input log " + file.path(), e);
+        }
+    }
+
+    public static InputLog read(FileHandle file) {
+        ByteBuffer in = ByteBuffer.wrap(file.readBytes());
+        try {
+            if (in.getInt() != MAGIC) throw new GdxRuntimeException("Not an input log: " + file.path());
+            int version = in.getInt();
+            if (version != VERSION) throw new GdxRuntimeException("Input log " + file.path() + " has version " + version + ", expected " + VERSION);
+
+            InputLog log = new InputLog(in.getInt());
+            int tickCount = in.getInt();
+            int runs = in.getInt();
+            log.bits.ensureCapacity(runs);
+            log.commands.ensureCapacity(runs);
+            log.lengths.ensureCapacity(runs);
+            for (int i = 0; i < runs; i++) {
+                log.bits.add(in.get() & 0xFF);
+                log.commands.add(readVarInt(in));
+                int length = readVarInt(in);
+                if (length <= 0) throw new GdxRuntimeException("Input log " + file.path() + " has an empty run at " + i);
+                log.lengths.add(length);
+                log.tickCount += length;
+            }
+            if (log.tickCount != tickCount) {
+                throw new GdxRuntimeException("Input log " + file.path() + " holds " + log.tickCount + " ticks, header says " + tickCount);
+            }
+            return log;
+        } catch (BufferUnderflowException e) {
+            throw new GdxRuntimeException("Input log " + file.path() + " is truncated", e);
+        }
+    }
+
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarInt(ByteBuffer in) {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.get() & 0xFF;
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new GdxRuntimeException("Malformed varint in input log");
+    }
+
+    @Override
+    public String toString() {
+        return tickCount + " ticks in " + lengths.size + " runs at " + ticksPerSecond + " Hz";
+    }
+}
@@ -0,0 +1,8 @@
+package si.um.feri.platformer.input;
+
+/** Produces the player input for each simulation tick. */
+public interface InputSource {
+
+    /** Fills {@code out} with the input for the next tick. Called exactly once per tick. */
+    void sample(PlayerInput out);
+}
@@ -0,0 +1,42 @@
+package si.um.feri.platformer.input;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.Input;
+
+/**
+ * Reads A / D / SPACE and the game command keys (1-5, F3, F4, F5, R) from {@code Gdx.input}.
+ * Held keys are sampled per tick; presses are latched once per rendered frame in
+ * {@link #pollFrame()} so a frame that runs zero or several ticks neither drops nor repeats them.
+ */
+public class KeyboardInputSource implements InputSource {
+
+    private boolean jumpQueued = false;
+    private int commandsQueued = 0;
+
+    /** Call once per rendered frame, before the simulation ticks. */
+    public void pollFrame() {
+        if (Gdx.input.isKeyJustPressed(Input.Keys.SPACE)) jumpQueued = true;
+
+        if (Gdx.input.isKeyJustPressed(Input.Keys.NUM_1)) commandsQueued ^= PlayerInput.LAYER_1;
+        if (Gdx.input.isKeyJustPressed(Input.Keys.NUM_2)) commandsQueued ^= PlayerInput.LAYER_2;
+        if (Gdx.input.isKeyJustPressed(Input.Keys.NUM_3)) commandsQueued ^= PlayerInput.LAYER_3;
+        if (Gdx.input.isKeyJustPressed(Input.Keys.NUM_4)) commandsQueued ^= PlayerInput.LAYER_4;
+        if (Gdx.input.isKeyJustPressed(Input.Keys.NUM_5)) commandsQueued ^= PlayerInput.LAYER_5;
+        if (Gdx.input.isKeyJustPressed(Input.Keys.F3)) commandsQueued ^= PlayerInput.PROFILER_OVERLAY;
+        if (Gdx.input.isKeyJustPressed(Input.Keys.F4)) commandsQueued |= PlayerInput.CYCLE_LIGHT_QUALITY;
+        if (Gdx.input.isKeyJustPressed(Input.Keys.F5)) commandsQueued |= PlayerInput.RELOAD;
+        if (Gdx.input.isKeyJustPressed(Input.Keys.R)) commandsQueued |= PlayerInput.RESTART;
+    }
+
+    @Override
+    public void sample(PlayerInput out) {
+        int bits = 0;
+        if (Gdx.input.isKeyPressed(Input.Keys.A)) bits |= PlayerInput.LEFT;
+        if (Gdx.input.isKeyPressed(Input.Keys.D)) bits |= PlayerInput.RIGHT;
+        if (jumpQueued) bits |= PlayerInput.JUMP;
+        jumpQueued = false;
+
+        out.set(bits, commandsQueued);
+        commandsQueued = 0;
+    }
+}
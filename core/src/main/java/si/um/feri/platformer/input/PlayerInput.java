@@ -0,0 +1,57 @@
+package si.um.feri.platformer.input;
+
+/**
+ * The player's input for one simulation tick, packed into a bitmask.
+ * The simulation only ever reads this, never the keyboard, so ticks can be fed
+ * from the keyboard, a script or a recording alike.
+ *
+ * Besides the movement bits a tick carries the game commands requested since the previous
+ * one (layer toggles, overlay, light quality, reload). The simulation ignores them; the game
+ * applies them after the tick, so a recording reproduces them at the same point of a session.
+ */
+public class PlayerInput {
+
+    public static final int LEFT  = 1;
+    public static final int RIGHT = 1 << 1;
+    /** Edge-triggered: set only on the tick a jump was requested. */
+    public static final int JUMP  = 1 << 2;
+
+    // ------------------------------
+    // Commands (edge-triggered, applied by the game)
+    // ------------------------------
+
+    /** Toggles the map layer bound to keys 1..5; LAYER_1 << n is key n + 1. */
+    public static final int LAYER_1 = 1;
+    public static final int LAYER_2 = 1 << 1;
+    public static final int LAYER_3 = 1 << 2;
+    public static final int LAYER_4 = 1 << 3;
+    public static final int LAYER_5 = 1 << 4;
+    public static final int PROFILER_OVERLAY = 1 << 5;
+    public static final int CYCLE_LIGHT_QUALITY = 1 << 6;
+    public static final int RELOAD = 1 << 7;
+    /** Back to the start of the level from a snapshot, without reloading it. */
+    public static final int RESTART = 1 << 8;
+
+    private int bits;
+    private int commands;
+
+    public void set(int bits) { set(bits, 0); }
+
+    public void set(int bits, int commands) {
+        this.bits = bits;
+        this.commands = commands;
+    }
+
+    public int getBits() { return bits; }
+    public int getCommands() { return commands; }
+
+    public void clear() {
+        bits = 0;
+        commands = 0;
+    }
+
+    public boolean isLeft() { return (bits & LEFT) != 0; }
+    public boolean isRight() { return (bits & RIGHT) != 0; }
+    public boolean isJump() { return (bits & JUMP) != 0; }
+    public boolean hasCommand(int command) { return (commands & command) != 0; }
+}
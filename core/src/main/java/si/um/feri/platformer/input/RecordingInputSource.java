@@ -0,0 +1,25 @@
+package si.um.feri.platformer.input;
+
+/**
+ * Passes another source's input through unchanged and appends every tick to an
+ * {@link InputLog}, e.g. to record a keyboard session for later replay.
+ */
+public class RecordingInputSource implements InputSource {
+
+    private final InputSource source;
+    private final InputLog log;
+
+    public RecordingInputSource(InputSource source, InputLog log) {
+        this.source = source;
+        this.log = log;
+    }
+
+    @Override
+    public void sample(PlayerInput out) {
+        source.sample(out);
+        log.append(out.getBits(), out.getCommands());
+    }
+
+    public InputSource getSource() { return source; }
+    public InputLog getLog() { return log; }
+}
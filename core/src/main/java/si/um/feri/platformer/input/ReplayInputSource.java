@@ -0,0 +1,56 @@
+package si.um.feri.platformer.input;
+
+/**
+ * Plays an {@link InputLog} back tick by tick, optionally looping. Once a non-looping
+ * replay has run out every tick is empty and {@link #isFinished()} turns true.
+ * Walks the runs in place, so playback allocates nothing.
+ */
+public class ReplayInputSource implements InputSource {
+
+    private final InputLog log;
+    private final boolean loop;
+    private int run = 0;
+    private int ticksLeftInRun;
+    private int ticksPlayed = 0;
+
+    public ReplayInputSource(InputLog log, boolean loop) {
+        if (log.getTickCount() == 0) throw new IllegalArgumentException("input log is empty");
+        this.log = log;
+        this.loop = loop;
+        ticksLeftInRun = log.getLength(0);
+    }
+
+    @Override
+    public void sample(PlayerInput out) {
+        if (ticksLeftInRun == 0) {
+            if (run + 1 < log.getRunCount()) {
+                run++;
+            } else if (loop) {
+                run = 0;
+            } else {
+                out.clear();
+                return;
+            }
+            ticksLeftInRun = log.getLength(run);
+        }
+        out.set(log.getBits(run), log.getCommands(run));
+        ticksLeftInRun--;
+        ticksPlayed++;
+    }
+
+    /** True once a non-looping replay has played its last tick. */
+    public boolean isFinished() {
+        return !loop && ticksLeftInRun == 0 && run == log.getRunCount() - 1;
+    }
+
+    /** Ticks played since the start or the last {@link #reset()}, counting loops. */
+    public int getTicksPlayed() { return ticksPlayed; }
+
+    public InputLog getLog() { return log; }
+
+    public void reset() {
+        run = 0;
+        ticksLeftInRun = log.getLength(0);
+        ticksPlayed = 0;
+    }
+}
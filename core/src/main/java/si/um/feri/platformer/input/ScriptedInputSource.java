@@ -0,0 +1,61 @@
+package si.um.feri.platformer.input;
+
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.IntArray;
+
+/**
+ * Replays a fixed per-tick input sequence, optionally looping. Used by headless runs.
+ *
+ * Scripts are whitespace separated {@code <keys>:<ticks>} steps, where keys is any
+ * combination of L, R and J (or "-" for nothing), e.g. {@code "R:40 RJ:1 R:30 -:10"}.
+ * J is edge-triggered, so "RJ:3" requests a jump on each of the three ticks.
+ */
+public class ScriptedInputSource implements InputSource {
+
+    private final int[] ticks;
+    private final boolean loop;
+    private int position = 0;
+
+    public ScriptedInputSource(int[] ticks, boolean loop) {
+        if (ticks.length == 0) throw new IllegalArgumentException("script is empty");
+        this.ticks = ticks;
+        this.loop = loop;
+    }
+
+    public static ScriptedInputSource fromScript(String script, boolean loop) {
+        IntArray out = new IntArray();
+        for (String step : script.trim().split("\\s+")) {
+            int colon = step.indexOf(':');
+            if (colon <= 0) throw new GdxRuntimeException("Bad input script step: " + step);
+
+            int bits = 0;
+            for (char c : step.substring(0, colon).toCharArray()) {
+                switch (Character.toUpperCase(c)) {
+                    case 'L': bits |= PlayerInput.LEFT; break;
+                    case 'R': bits |= PlayerInput.RIGHT; break;
+                    case 'J': bits |= PlayerInput.JUMP; break;
+                    case '-': break;
+                    default: throw new GdxRuntimeException("Bad input script key '" + c + "' in " + step);
+                }
+            }
+
+            int count = Integer.parseInt(step.substring(colon + 1));
+            for (int i = 0; i < count; i++) out.add(bits);
+        }
+        return new ScriptedInputSource(out.toArray(), loop);
+    }
+
+    @Override
+    public void sample(PlayerInput out) {
+        if (position >= ticks.length) {
+            if (!loop) {
+                out.clear();
+                return;
+            }
+            position = 0;
+        }
+        out.set(ticks[position++]);
+    }
+
+    public void reset() { position = 0; }
+}
@@ -0,0 +1,511 @@
+package si.um.feri.platformer.managers;
+
+import com.badlogic.gdx.assets.AssetManager;
+import com.badlogic.gdx.assets.loaders.resolvers.InternalFileHandleResolver;
+import com.badlogic.gdx.audio.Sound;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.OrthographicCamera;
+import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.maps.MapLayer;
+import com.badlogic.gdx.maps.tiled.TiledMap;
+import com.badlogic.gdx.maps.tiled.TiledMapTileLayer;
+import com.badlogic.gdx.maps.tiled.TmxMapLoader;
+import com.badlogic.gdx.maps.tiled.renderers.OrthogonalTiledMapRenderer;
+import com.badlogic.gdx.math.Matrix4;
+import com.badlogic.gdx.physics.box2d.Body;
+import com.badlogic.gdx.physics.box2d.World;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.LongMap;
+import com.badlogic.gdx.utils.async.AsyncExecutor;
+import com.badlogic.gdx.utils.async.AsyncResult;
+import com.badlogic.gdx.utils.async.AsyncTask;
+
+import si.um.feri.platformer.audio.AudioQueue;
+import si.um.feri.platformer.map.ChunkedLevel;
+import si.um.feri.platformer.map.ChunkedLevelLoader;
+import si.um.feri.platformer.map.CollisionGeometryBuilder;
+import si.um.feri.platformer.map.CompiledLevel;
+import si.um.feri.platformer.map.CompiledLevelLoader;
+import si.um.feri.platformer.map.LevelData;
+import si.um.feri.platformer.map.SolidityGrid;
+import si.um.feri.platformer.map.TileLayerEdits;
+import si.um.feri.platformer.map.TileShapes;
+import si.um.feri.platformer.simulation.SimulationListener;
+import si.um.feri.platformer.systems.VisibilitySet;
+
+/**
+ * Streams a large level split into chunks (see {@link ChunkedLevel}). The simulation runs on
+ * the level-wide {@link LevelData} the ChunkedLevel stitched together while loading; this
+ * class only holds what is drawn and lit: the tile maps and occluder bodies of the chunks
+ * around the camera.
+ *
+ * Chunk maps load on the AssetManager's loader thread and TMX chunks have their collision
+ * rectangles merged on a background executor; only creating the Box2D body and uploading
+ * textures happens on the render thread. Once more chunks are resident than twice the
+ * chunks around the view, the least recently used ones are unloaded, so memory and body
+ * count are bounded by the view size rather than the level size.
+ *
+ * Collected coins are mirrored into the Coin layer of resident chunks, and applied from the
+ * session's coin grid whenever a chunk loads.
+ */
+public class ChunkedMapManager implements SimulationListener {
+
+    private static final String TAG = "ChunkedMapManager";
+
+    // time the chunk AssetManager may spend on the render thread per frame
+    private static final int LOAD_FRAME_BUDGET_MS = 4;
+
+    private enum State { LOADING, BUILDING, READY, MISSING }
+
+    private static class Chunk {
+        final int cx;
+        final int cy;
+        final String path;
+        final boolean compiled;
+
+        State state;
+        TiledMap map;
+        int[] background;
+        int[] coins;
+        int[] foreground;
+        TileLayerEdits coinEdits;
+        AsyncResult<IntArray> merge;
+        Body body;
+        int fixtureCount;
+        long lastUsedFrame;
+
+        Chunk(int cx, int cy, String path, boolean compiled) {
+            this.cx = cx;
+            this.cy = cy;
+            this.path = path;
+            this.compiled = compiled;
+        }
+    }
+
+    // the chunked level and sounds come from the game's AssetManager, chunk maps from our own
+    private final AssetManager assets;
+    private final String levelDir;
+    private final String damageSoundPath;
+    private final String coinSoundPath;
+
+    private final ChunkedLevel level;
+    private final LevelData levelData;
+
+    // the session's coins, so chunks that load later show what is left; null until set
+    private SolidityGrid sessionCoins;
+
+    // null when occluders are off
+    private final World world;
+
+    private final int chunksX;
+    private final int chunksY;
+    private final int chunkTilesX;
+    private final int chunkTilesY;
+    private final float tileW; // world units
+    private final float tileH; // world units
+    private final float chunkWorldW;
+    private final float chunkWorldH;
+    private final int viewMarginChunks;
+
+    private final AssetManager chunkAssets;
+    private final AsyncExecutor executor;
+    private final OrthogonalTiledMapRenderer renderer;
+
+    private final LongMap<Chunk> chunks = new LongMap<>();
+    private final Matrix4 chunkProjection = new Matrix4();
+    private final Array<String> hiddenLayers = new Array<>();
+
+    private final AudioQueue audio;
+    private final int coinSoundId;
+    private final int damageSoundId;
+
+    private long frame = 0;
+
+    // chunk range around the last view (inclusive, empty until the first update)
+    private int viewMinX = 0;
+    private int viewMinY = 0;
+    private int viewMaxX = -1;
+    private int viewMaxY = -1;
+
+    /** Queues the chunked level (stitched on the loader thread) and the sounds on the game's AssetManager. */
+    public static void queueAssets(AssetManager assets, String levelDir, String damageSoundPath, String coinSoundPath) {
+        if (assets.getLoader(ChunkedLevel.class) == null) {
+            assets.setLoader(ChunkedLevel.class, new ChunkedLevelLoader(new InternalFileHandleResolver()));
+        }
+        assets.load(levelDir, ChunkedLevel.class);
+        assets.load(damageSoundPath, Sound.class);
+        assets.load(coinSoundPath, Sound.class);
+    }
+
+    /**
+     * Builds the streaming map from assets queued with {@link #queueAssets}; chunks start
+     * loading with the first {@link #update}. {@code world} receives the occluder bodies and
+     * may be null.
+     */
+    public ChunkedMapManager(AssetManager assets, String levelDir, String damageSoundPath, String coinSoundPath,
+                             World world, int viewMarginChunks) {
+        this.assets = assets;
+        this.levelDir = levelDir;
+        this.damageSoundPath = damageSoundPath;
+        this.coinSoundPath = coinSoundPath;
+        this.world = world;
+        this.viewMarginChunks = viewMarginChunks;
+
+        level = assets.finishLoadingAsset(levelDir);
+        levelData = level.getLevelData();
+
+        chunksX = level.getChunksX();
+        chunksY = level.getChunksY();
+        chunkTilesX = level.getChunkWidthTiles();
+        chunkTilesY = level.getChunkHeightTiles();
+        tileW = levelData.getTileWidth();
+        tileH = levelData.getTileHeight();
+        chunkWorldW = chunkTilesX * tileW;
+        chunkWorldH = chunkTilesY * tileH;
+
+        Sound damageSound = assets.finishLoadingAsset(damageSoundPath);
+        Sound coinSound = assets.finishLoadingAsset(coinSoundPath);
+        // same settings as MapManager
+        audio = new AudioQueue(AudioQueue.SOUNDS, 64, 20f, 8);
+        coinSoundId = audio.register(coinSound, 1f, 3, 0.4f, 0.05f);
+        damageSoundId = audio.register(damageSound, 1f, 1, 0.4f, 0.4f);
+
+        chunkAssets = new AssetManager(new InternalFileHandleResolver());
+        chunkAssets.setLoader(TiledMap.class, new TmxMapLoader(new InternalFileHandleResolver()));
+        chunkAssets.setLoader(CompiledLevel.class, new CompiledLevelLoader(new InternalFileHandleResolver()));
+
+        executor = new AsyncExecutor(1, TAG);
+        renderer = new OrthogonalTiledMapRenderer(null, 1f / 32f);
+    }
+
+    // ------------------------------
+    // Streaming
+    // ------------------------------
+
+    /** Requests chunks around the camera, advances pending loads and builds and evicts stale chunks. */
+    public void update(OrthographicCamera camera) {
+        frame++;
+
+        float halfW = VisibilitySet.viewWidth(camera) * 0.5f;
+        float halfH = VisibilitySet.viewHeight(camera) * 0.5f;
+
+        viewMinX = Math.max(0, (int) Math.floor((camera.position.x - halfW) / chunkWorldW) - viewMarginChunks);
+        viewMinY = Math.max(0, (int) Math.floor((camera.position.y - halfH) / chunkWorldH) - viewMarginChunks);
+        viewMaxX = Math.min(chunksX - 1, (int) Math.floor((camera.position.x + halfW) / chunkWorldW) + viewMarginChunks);
+        viewMaxY = Math.min(chunksY - 1, (int) Math.floor((camera.position.y + halfH) / chunkWorldH) + viewMarginChunks);
+
+        for (int cy = viewMinY; cy <= viewMaxY; cy++) {
+            for (int cx = viewMinX; cx <= viewMaxX; cx++) {
+                long key = key(cx, cy);
+                Chunk chunk = chunks.get(key);
+                if (chunk == null) {
+                    chunk = requestChunk(cx, cy);
+                    chunks.put(key, chunk);
+                }
+                chunk.lastUsedFrame = frame;
+            }
+        }
+
+        // finishes async loads; texture uploads happen here, on the GL thread
+        chunkAssets.update(LOAD_FRAME_BUDGET_MS);
+
+        for (Chunk chunk : chunks.values()) advance(chunk);
+
+        evictLeastRecentlyUsed(2 * Math.max(0, viewMaxX - viewMinX + 1) * Math.max(0, viewMaxY - viewMinY + 1));
+    }
+
+    private Chunk requestChunk(int cx, int cy) {
+        FileHandle file = level.getChunkFile(cx, cy);
+        if (file == null) {
+            // holes in the level are simply empty
+            Chunk chunk = new Chunk(cx, cy, null, false);
+            chunk.state = State.MISSING;
+            return chunk;
+        }
+
+        boolean compiled = file.extension().equals(CompiledLevel.EXTENSION);
+        Chunk chunk = new Chunk(cx, cy, file.path(), compiled);
+        if (compiled) chunkAssets.load(chunk.path, CompiledLevel.class);
+        else chunkAssets.load(chunk.path, TiledMap.class);
+        chunk.state = State.LOADING;
+        return chunk;
+    }
+
+    private void advance(Chunk chunk) {
+        switch (chunk.state) {
+            case LOADING:
+                if (!chunkAssets.isLoaded(chunk.path)) return;
+                if (chunk.compiled) {
+                    CompiledLevel compiled = chunkAssets.get(chunk.path, CompiledLevel.class);
+                    showMap(chunk, compiled.getMap(), compiled);
+                    // compiled chunks skip the merge: the rectangles come from the file
+                    createBody(chunk, compiled.getCollisionRects());
+                    chunk.state = State.READY;
+                } else {
+                    showMap(chunk, chunkAssets.get(chunk.path, TiledMap.class), null);
+                    startCollisionBuild(chunk);
+                }
+                break;
+
+            case BUILDING:
+                if (!chunk.merge.isDone()) return;
+                IntArray rects = chunk.merge.get();
+                chunk.merge = null;
+                createBody(chunk, rects);
+                chunk.state = State.READY;
+                break;
+
+            default:
+                break;
+        }
+    }
+
+    /** Classifies the chunk's layers like MapManager and brings its Coin layer and layer visibility up to date. */
+    private void showMap(Chunk chunk, TiledMap map, CompiledLevel compiled) {
+        chunk.map = map;
+        IntArray background = new IntArray();
+        IntArray coins = new IntArray();
+        IntArray foreground = new IntArray();
+        for (int i = 0; i < map.getLayers().getCount(); i++) {
+            MapLayer layer = map.getLayers().get(i);
+            int role = (compiled != null && i < compiled.getLayers().size)
+                ? compiled.getLayers().get(i).role
+                : CompiledLevel.roleOf(layer.getName());
+            switch (role) {
+                case CompiledLevel.ROLE_SOLID:
+                case CompiledLevel.ROLE_FOREGROUND:
+                    foreground.add(i);
+                    break;
+                case CompiledLevel.ROLE_COIN:
+                    coins.add(i);
+                    if (chunk.coinEdits == null) chunk.coinEdits = new TileLayerEdits((TiledMapTileLayer) layer);
+                    break;
+                case CompiledLevel.ROLE_BACKGROUND:
+                    background.add(i);
+                    break;
+                default:
+                    break;
+            }
+            if (hiddenLayers.contains(layer.getName(), false)) layer.setVisible(false);
+        }
+        chunk.background = background.toArray();
+        chunk.coins = coins.toArray();
+        chunk.foreground = foreground.toArray();
+
+        if (chunk.coinEdits == null || sessionCoins == null) return;
+        TiledMapTileLayer coinLayer = chunk.coinEdits.getLayer();
+        int x0 = chunk.cx * chunkTilesX;
+        int y0 = chunk.cy * chunkTilesY;
+        for (int y = 0; y < chunkTilesY; y++) {
+            for (int x = 0; x < chunkTilesX; x++) {
+                if (coinLayer.getCell(x, y) != null && !sessionCoins.isSolid(x0 + x, y0 + y)) chunk.coinEdits.set(x, y, null);
+            }
+        }
+    }
+
+    private void startCollisionBuild(Chunk chunk) {
+        MapLayer layer = chunk.map.getLayers().get("Foreground");
+        if (world == null || !(layer instanceof TiledMapTileLayer)) {
+            chunk.state = State.READY;
+            return;
+        }
+
+        // snapshot solidity on the render thread, merge rectangles on the executor
+        TiledMapTileLayer foreground = (TiledMapTileLayer) layer;
+        final SolidityGrid grid = SolidityGrid.fromLayer(foreground);
+        // shaped tiles cast no shadows, like in MapManager
+        TileShapes.fromLayer(foreground, grid);
+
+        chunk.merge = executor.submit(new AsyncTask<IntArray>() {
+            @Override
+            public IntArray call() {
+                IntArray rects = new IntArray();
+                CollisionGeometryBuilder.mergeRectangles(grid, rects);
+                return rects;
+            }
+        });
+        chunk.state = State.BUILDING;
+    }
+
+    private void createBody(Chunk chunk, IntArray rects) {
+        if (world == null || rects.size == 0) return;
+        chunk.body = CollisionGeometryBuilder.createStaticBody(world, rects, tileW, tileH,
+            chunk.cx * chunkWorldW, chunk.cy * chunkWorldH);
+        chunk.fixtureCount = rects.size / 4;
+    }
+
+    private void evictLeastRecentlyUsed(int maxResidentChunks) {
+        while (chunks.size > maxResidentChunks) {
+            Chunk oldest = null;
+            for (Chunk chunk : chunks.values()) {
+                if (chunk.lastUsedFrame == frame) continue; // still in view
+                if (oldest == null || chunk.lastUsedFrame < oldest.lastUsedFrame) oldest = chunk;
+            }
+            if (oldest == null) return; // everything resident is in view
+            unload(oldest);
+            chunks.remove(key(oldest.cx, oldest.cy));
+        }
+    }
+
+    private void unload(Chunk chunk) {
+        if (chunk.body != null) {
+            world.destroyBody(chunk.body);
+            chunk.body = null;
+        }
+        if (chunk.coinEdits != null) chunk.coinEdits.revertAll();
+        if (chunk.state != State.MISSING) {
+            // also cancels a load still in flight; shared tileset textures stay reference-counted
+            chunkAssets.unload(chunk.path);
+        }
+        chunk.map = null;
+        chunk.coinEdits = null;
+        chunk.merge = null;
+        chunk.fixtureCount = 0;
+    }
+
+    // ------------------------------
+    // Simulation data and feedback
+    // ------------------------------
+
+    public LevelData getLevelData() { return levelData; }
+
+    /** The session's coin grid (GameSimulation.getCoins()), applied to chunks as they load. */
+    public void setSessionCoins(SolidityGrid coins) {
+        this.sessionCoins = coins;
+        for (Chunk chunk : chunks.values()) {
+            if (chunk.map != null) showMap(chunk, chunk.map, chunk.compiled ? chunkAssets.get(chunk.path, CompiledLevel.class) : null);
+        }
+    }
+
+    @Override
+    public void coinCollected(int tileX, int tileY) {
+        setCoinCell(tileX, tileY, false);
+        audio.post(coinSoundId, (tileX + 0.5f) * tileW, (tileY + 0.5f) * tileH);
+    }
+
+    @Override
+    public void coinRestored(int tileX, int tileY, boolean present) {
+        setCoinCell(tileX, tileY, present);
+    }
+
+    /** Mirrors a coin into its chunk if that is resident; other chunks pick it up when they load. */
+    private void setCoinCell(int tileX, int tileY, boolean present) {
+        Chunk chunk = chunks.get(key(tileX / chunkTilesX, tileY / chunkTilesY));
+        if (chunk == null || chunk.coinEdits == null) return;
+        int x = tileX - chunk.cx * chunkTilesX;
+        int y = tileY - chunk.cy * chunkTilesY;
+        if (present) chunk.coinEdits.revert(x, y);
+        else if (chunk.coinEdits.getLayer().getCell(x, y) != null) chunk.coinEdits.set(x, y, null);
+    }
+
+    @Override
+    public void pickupCollected(float x, float y) {
+        audio.post(coinSoundId, x, y);
+    }
+
+    /** Queues the damage sound; the queue's interval keeps continuous damage from repeating it every tick. */
+    @Override
+    public void damageTaken() {
+        audio.post(damageSoundId);
+    }
+
+    /** Sound effects posted by the simulation; drain once per frame. */
+    public AudioQueue getAudio() { return audio; }
+
+    /** Hides or shows a layer by name in every chunk, including chunks loaded later. */
+    public void toggleLayerVisibility(String name) {
+        boolean hide = !hiddenLayers.contains(name, false);
+        if (hide) hiddenLayers.add(name);
+        else hiddenLayers.removeValue(name, false);
+        for (Chunk chunk : chunks.values()) {
+            if (chunk.map == null) continue;
+            MapLayer layer = chunk.map.getLayers().get(name);
+            if (layer != null) layer.setVisible(!hide);
+        }
+    }
+
+    // ------------------------------
+    // Rendering
+    // ------------------------------
+
+    public static final int BACKGROUND = 0;
+    public static final int COINS = 1;
+    public static final int FOREGROUND = 2;
+
+    /** Renders one group of layers ({@link #BACKGROUND}, {@link #COINS} or {@link #FOREGROUND}) of the resident chunks in view. */
+    public void render(OrthographicCamera camera, int layers) {
+        float viewW = VisibilitySet.viewWidth(camera);
+        float viewH = VisibilitySet.viewHeight(camera);
+        float viewX = camera.position.x - viewW * 0.5f;
+        float viewY = camera.position.y - viewH * 0.5f;
+
+        for (Chunk chunk : chunks.values()) {
+            if (chunk.map == null) continue;
+            int[] indices = layers == BACKGROUND ? chunk.background : (layers == COINS ? chunk.coins : chunk.foreground);
+            if (indices.length == 0) continue;
+
+            float ox = chunk.cx * chunkWorldW;
+            float oy = chunk.cy * chunkWorldH;
+            if (ox > viewX + viewW || ox + chunkWorldW < viewX) continue;
+            if (oy > viewY + viewH || oy + chunkWorldH < viewY) continue;
+
+            // render the chunk in its local space, shifted into place by the projection
+            chunkProjection.set(camera.combined).translate(ox, oy, 0f);
+            renderer.setMap(chunk.map);
+            renderer.setView(chunkProjection, viewX - ox, viewY - oy, viewW, viewH);
+            renderer.render(indices);
+        }
+    }
+
+    /** The renderer's batch, also used for the player and HUD. */
+    public Batch getBatch() { return renderer.getBatch(); }
+
+    // ------------------------------
+    // Queries
+    // ------------------------------
+
+    /** True once every chunk in the current view range has its map and collision built. */
+    public boolean isViewReady() {
+        for (int cy = viewMinY; cy <= viewMaxY; cy++) {
+            for (int cx = viewMinX; cx <= viewMaxX; cx++) {
+                Chunk chunk = chunks.get(key(cx, cy));
+                if (chunk == null) return false;
+                if (chunk.state == State.LOADING || chunk.state == State.BUILDING) return false;
+            }
+        }
+        return true;
+    }
+
+    public int getResidentChunkCount() { return chunks.size; }
+
+    public int getBodyCount() {
+        int count = 0;
+        for (Chunk chunk : chunks.values()) if (chunk.body != null) count++;
+        return count;
+    }
+
+    public int getFixtureCount() {
+        int count = 0;
+        for (Chunk chunk : chunks.values()) count += chunk.fixtureCount;
+        return count;
+    }
+
+    private static long key(int cx, int cy) {
+        return ((long) cx << 32) | (cy & 0xFFFFFFFFL);
+    }
+
+    /** Unloads every chunk and releases the level's references to the game's assets. */
+    public void dispose() {
+        for (Chunk chunk : chunks.values()) unload(chunk);
+        chunks.clear();
+
+        executor.dispose();
+        chunkAssets.dispose();
+        renderer.dispose();
+
+        assets.unload(levelDir);
+        assets.unload(coinSoundPath);
+        assets.unload(damageSoundPath);
+    }
+}
@@ -0,0 +1,33 @@
+package si.um.feri.platformer.managers;
+
+/**
+ * Lighting cost tiers, from the original look (HIGH) down. LightingManager steps
+ * between them at runtime based on measured frame time.
+ */
+public enum LightQuality {
+    LOW(32, 1, false),
+    MEDIUM(64, 4, true),
+    HIGH(128, 8, true);
+
+    /** Rays of the player light. */
+    public final int rays;
+    /** RayHandler blur passes; 0 turns blurring off. */
+    public final int blurPasses;
+    /** Soft shadow edges on the player light. */
+    public final boolean soft;
+
+    LightQuality(int rays, int blurPasses, boolean soft) {
+        this.rays = rays;
+        this.blurPasses = blurPasses;
+        this.soft = soft;
+    }
+
+    public LightQuality lower() {
+        return ordinal() == 0 ? null : values()[ordinal() - 1];
+    }
+
+    public LightQuality higher() {
+        LightQuality[] all = values();
+        return ordinal() == all.length - 1 ? null : all[ordinal() + 1];
+    }
+}
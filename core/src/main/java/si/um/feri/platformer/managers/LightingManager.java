@@ -3,41 +3,110 @@ package si.um.feri.platformer.managers;
 import box2dLight.PointLight;
 import box2dLight.RayHandler;
 
+import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.OrthographicCamera;
+import com.badlogic.gdx.maps.MapObject;
+import com.badlogic.gdx.maps.MapProperties;
+import com.badlogic.gdx.maps.objects.RectangleMapObject;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Rectangle;
 import com.badlogic.gdx.physics.box2d.World;
+import com.badlogic.gdx.utils.Array;
 
+import si.um.feri.platformer.systems.VisibilitySet;
+
+/**
+ * Owns the RayHandler, the player light and the level lights.
+ *
+ * All lights are box2dlights "static" lights: their ray casts against the tile fixtures
+ * are cached in the light mesh and only redone when the light is marked dirty. The tile
+ * geometry never moves, so a light is only recast when it moved or changed radius by more
+ * than a small threshold. Level lights outside the view are deactivated, and flickering
+ * ones are recast round-robin within a per-frame budget.
+ *
+ * Ray count, softness and blur passes come from a {@link LightQuality} tier that adapts to
+ * the measured frame time unless adaptive quality is turned off.
+ */
 public class LightingManager {
 
+    private static final String TAG = "Lighting";
+
+    // the cached player light mesh is rebuilt once the light has drifted this far (world units)
+    private static final float MOVE_THRESHOLD = 2f / 32f;
+    private static final float DISTANCE_THRESHOLD = 0.05f;
+
+    // --- adaptive quality: averaged CPU frame time against the frame budget ---
+    private static final float FRAME_BUDGET_SECONDS = 1f / 60f;
+    private static final float DOWNGRADE_RATIO = 0.9f;
+    private static final float UPGRADE_RATIO = 0.5f;
+    private static final float FRAME_TIME_SMOOTHING = 0.05f;
+    private static final int QUALITY_HOLD_FRAMES = 120; // minimum frames between tier changes
+
+    // --- level lights ---
+    private static final int LEVEL_LIGHT_RAYS = 32;
+    private static final int LEVEL_LIGHT_UPDATES_PER_FRAME = 4;
+    private static final float LEVEL_LIGHT_DEFAULT_DISTANCE = 6f;
+    private static final float FLICKER_AMOUNT = 0.3f;
+
     private final RayHandler rayHandler;
+
     private PointLight playerLight;
+    private final Color playerColor = new Color(1f, 0.92f, 0.80f, 0.6f);
     private float pulseTime = 0f;
 
+    // values the player light mesh was last cast with
+    private float castX;
+    private float castY;
+    private float castDistance;
+
+    private LightQuality quality = LightQuality.HIGH;
+    private boolean adaptiveQuality = true;
+    private float averageFrameSeconds = FRAME_BUDGET_SECONDS * 0.5f;
+    private int framesSinceQualityChange = 0;
+
+    private final Array<LevelLight> levelLights = new Array<>();
+    private int nextFlicker = 0;
+
+    private static class LevelLight {
+        PointLight light;
+        float x;
+        float y;
+        float distance;
+        boolean flicker;
+        float phase;
+    }
+
     public LightingManager(World world) {
         rayHandler = new RayHandler(world);
 
         // Darker world → stronger contrast
         rayHandler.setAmbientLight(0.35f);
-        rayHandler.setBlur(true);
-        rayHandler.setBlurNum(8);
+        applyBlur();
     }
 
     public void createPlayerLight() {
+        createPlayerLight(0, 0);
+    }
 
-        Color warmGlow = new Color(1f, 0.92f, 0.80f, 0.6f);
-
+    private void createPlayerLight(float x, float y) {
         playerLight = new PointLight(
             rayHandler,
-            128,           // smooth light
-            warmGlow,
+            quality.rays,
+            playerColor,
             15f,           // initial radius
-            0, 0
+            x, y
         );
 
-        playerLight.setSoft(true);
+        playerLight.setSoft(quality.soft);
         playerLight.setSoftnessLength(4f);
-        playerLight.setStaticLight(false);
+        playerLight.setStaticLight(true);     // recast only when moved (see updatePlayerLight)
         playerLight.setXray(false);          // IMPORTANT: If true → light ignores shadows
         playerLight.setContactFilter((short)0xFFFF, (short)0xFFFF, (short)0xFFFF);
+
+        castX = x;
+        castY = y;
+        castDistance = 15f;
     }
 
     public void updatePlayerLight(float x, float y, float dt) {
@@ -46,19 +115,172 @@ public class LightingManager {
         // Slight breathing effect
         pulseTime += dt;
         float pulse = (float) Math.sin(pulseTime * 1.8f) * 0.25f;
+        float distance = 15f + pulse;
+
+        if (Math.abs(x - castX) < MOVE_THRESHOLD
+            && Math.abs(y - castY) < MOVE_THRESHOLD
+            && Math.abs(distance - castDistance) < DISTANCE_THRESHOLD) return;
 
-        playerLight.setDistance(15f + pulse);
+        // both setters mark the light dirty, so its rays are recast on the next update
+        playerLight.setDistance(distance);
         playerLight.setPosition(x, y);
+        castX = x;
+        castY = y;
+        castDistance = distance;
+    }
+
+    // ------------------------------
+    // Level lights
+    // ------------------------------
+
+    /**
+     * Creates a static light per rectangle object, centred on it. Optional object properties:
+     * {@code distance} (world units), {@code color} (Tiled color or hex string) and
+     * {@code flicker} (boolean).
+     */
+    public void createLevelLights(Iterable<MapObject> objects, float pixelsPerUnit) {
+        for (MapObject object : objects) {
+            if (!(object instanceof RectangleMapObject)) continue;
+            Rectangle r = ((RectangleMapObject) object).getRectangle();
+            MapProperties props = object.getProperties();
+
+            Color color = new Color(1f, 0.7f, 0.4f, 0.7f);
+            Object value = props.get("color");
+            if (value instanceof Color) color.set((Color) value);
+            else if (value instanceof String) color.set(Color.valueOf((String) value));
+
+            addLevelLight(
+                (r.x + r.width * 0.5f) / pixelsPerUnit,
+                (r.y + r.height * 0.5f) / pixelsPerUnit,
+                props.get("distance", LEVEL_LIGHT_DEFAULT_DISTANCE, Float.class),
+                color,
+                props.get("flicker", Boolean.FALSE, Boolean.class)
+            );
+        }
+        if (levelLights.size > 0) Gdx.app.log(TAG, levelLights.size + " level lights");
+    }
+
+    public void addLevelLight(float x, float y, float distance, Color color, boolean flicker) {
+        LevelLight l = new LevelLight();
+        l.x = x;
+        l.y = y;
+        l.distance = distance;
+        l.flicker = flicker;
+        l.phase = MathUtils.random(MathUtils.PI2);
+
+        l.light = new PointLight(rayHandler, LEVEL_LIGHT_RAYS, color, distance, x, y);
+        l.light.setStaticLight(true);
+        l.light.setSoft(false);
+        l.light.setXray(false);
+        levelLights.add(l);
+    }
+
+    /**
+     * Turns off level lights whose radius does not reach the view and recasts at most
+     * {@link #LEVEL_LIGHT_UPDATES_PER_FRAME} visible flickering lights.
+     */
+    private void updateLevelLights(VisibilitySet visibility) {
+        if (levelLights.size == 0) return;
+
+        for (int i = 0; i < levelLights.size; i++) {
+            LevelLight l = levelLights.get(i);
+            boolean visible = visibility.isVisible(l.x - l.distance, l.y - l.distance, l.distance * 2f, l.distance * 2f);
+            if (l.light.isActive() != visible) l.light.setActive(visible);
+        }
+
+        int budget = LEVEL_LIGHT_UPDATES_PER_FRAME;
+        for (int n = 0; n < levelLights.size && budget > 0; n++) {
+            LevelLight l = levelLights.get(nextFlicker);
+            nextFlicker = (nextFlicker + 1) % levelLights.size;
+            if (!l.flicker || !l.light.isActive()) continue;
+
+            l.phase += 0.7f + MathUtils.random(0.6f);
+            l.light.setDistance(l.distance * (1f + MathUtils.sin(l.phase) * FLICKER_AMOUNT * 0.5f));
+            budget--;
+        }
+    }
+
+    // ------------------------------
+    // Rendering
+    // ------------------------------
+
+    /**
+     * Culls the level lights against the frame's view, recasts the dirty lights and renders
+     * the light map. {@code visibility} must have been set from {@code camera}.
+     */
+    public void render(OrthographicCamera camera, VisibilitySet visibility) {
+        updateLevelLights(visibility);
+
+        rayHandler.setCombinedMatrix(
+            camera.combined,
+            visibility.getCenterX(),
+            visibility.getCenterY(),
+            visibility.getViewWidth(),
+            visibility.getViewHeight()
+        );
+        rayHandler.updateAndRender();
+    }
+
+    // ------------------------------
+    // Quality tiers
+    // ------------------------------
+
+    /**
+     * Feeds the CPU time of the last frame. The average is compared with the frame
+     * budget and the quality tier is stepped down when close to it, or up when there
+     * is plenty of headroom, at most once every {@link #QUALITY_HOLD_FRAMES} frames.
+     */
+    public void reportFrameTime(float cpuFrameSeconds) {
+        averageFrameSeconds += (cpuFrameSeconds - averageFrameSeconds) * FRAME_TIME_SMOOTHING;
+        if (!adaptiveQuality || ++framesSinceQualityChange < QUALITY_HOLD_FRAMES) return;
+
+        LightQuality next = null;
+        if (averageFrameSeconds > FRAME_BUDGET_SECONDS * DOWNGRADE_RATIO) next = quality.lower();
+        else if (averageFrameSeconds < FRAME_BUDGET_SECONDS * UPGRADE_RATIO) next = quality.higher();
+
+        if (next != null) {
+            Gdx.app.log(TAG, "Quality " + quality + " -> " + next
+                + " (avg frame " + (int) (averageFrameSeconds * 1_000_000) + " us)");
+            setQuality(next);
+        }
+    }
+
+    public void setQuality(LightQuality quality) {
+        framesSinceQualityChange = 0;
+        if (quality == this.quality) return;
+
+        boolean raysChanged = quality.rays != this.quality.rays;
+        this.quality = quality;
+        applyBlur();
+
+        if (playerLight == null) return;
+        if (raysChanged) {
+            // box2dlights fixes the ray count at construction
+            playerLight.remove();
+            createPlayerLight(castX, castY);
+        } else {
+            playerLight.setSoft(quality.soft);
+        }
+    }
+
+    public LightQuality getQuality() { return quality; }
+
+    /** Turns automatic tier changes on or off; the current tier is kept. */
+    public void setAdaptiveQuality(boolean adaptive) { adaptiveQuality = adaptive; }
+    public boolean isAdaptiveQuality() { return adaptiveQuality; }
+
+    private void applyBlur() {
+        rayHandler.setBlur(quality.blurPasses > 0);
+        if (quality.blurPasses > 0) rayHandler.setBlurNum(quality.blurPasses);
     }
 
     public RayHandler getRayHandler() {
         return rayHandler;
     }
 
+    public int getLevelLightCount() { return levelLights.size; }
+
     public void dispose() {
         rayHandler.dispose();
     }
 }
-
-
-
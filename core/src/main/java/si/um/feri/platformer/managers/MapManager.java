@@ -1,36 +1,85 @@
 package si.um.feri.platformer.managers;
 
 import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.assets.AssetManager;
+import com.badlogic.gdx.assets.loaders.resolvers.InternalFileHandleResolver;
 import com.badlogic.gdx.audio.Sound;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.maps.MapLayer;
 import com.badlogic.gdx.maps.MapObject;
 import com.badlogic.gdx.maps.tiled.TiledMap;
+import com.badlogic.gdx.maps.tiled.TiledMapTile;
 import com.badlogic.gdx.maps.tiled.TiledMapTileLayer;
-import com.badlogic.gdx.maps.tiled.TmxMapLoader;
-import com.badlogic.gdx.maps.tiled.renderers.OrthogonalTiledMapRenderer;
-import com.badlogic.gdx.math.Vector2;
-import com.badlogic.gdx.physics.box2d.Body;
-import com.badlogic.gdx.physics.box2d.BodyDef;
-import com.badlogic.gdx.physics.box2d.Fixture;
-import com.badlogic.gdx.physics.box2d.PolygonShape;
+import com.badlogic.gdx.maps.tiled.TiledMapTileSet;
 import com.badlogic.gdx.physics.box2d.World;
 import com.badlogic.gdx.utils.Array;
-import com.badlogic.gdx.physics.box2d.Filter;
-
-public class MapManager {
+import com.badlogic.gdx.utils.FloatArray;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.TimeUtils;
+
+import java.util.Iterator;
+import java.util.concurrent.ForkJoinTask;
+
+import si.um.feri.platformer.audio.AudioQueue;
+import si.um.feri.platformer.ecs.EntityFactory;
+import si.um.feri.platformer.map.CachedTiledMapRenderer;
+import si.um.feri.platformer.map.CollisionGeometryBuilder;
+import si.um.feri.platformer.map.CompiledLevel;
+import si.um.feri.platformer.map.CompiledLevelLoader;
+import si.um.feri.platformer.map.LevelData;
+import si.um.feri.platformer.map.LevelPipeline;
+import si.um.feri.platformer.map.OccluderUpdater;
+import si.um.feri.platformer.map.RectangleIndex;
+import si.um.feri.platformer.map.SolidityGrid;
+import si.um.feri.platformer.map.TileChangeTracker;
+import si.um.feri.platformer.map.TileLayerEdits;
+import si.um.feri.platformer.map.TileShapes;
+import si.um.feri.platformer.simulation.SimulationListener;
+
+public class MapManager implements SimulationListener {
+
+    private static final String TAG = "MapManager";
+
+    // map, tileset textures and sounds are reference-counted by the AssetManager
+    private final AssetManager assets;
+    private final String mapAssetPath;
+    private final String damageSoundPath;
+    private final String coinSoundPath;
 
     private final TiledMap map;
-    private final OrthogonalTiledMapRenderer renderer;
+    private final CachedTiledMapRenderer renderer;
+
+    // set when the map came from a precompiled .lvl; supplies roles, grids and collision shapes
+    private final CompiledLevel compiled;
 
-    private final Array<Integer> backgroundLayers = new Array<>();
-    private final Array<Integer> foregroundLayers = new Array<>();
+    private final IntArray backgroundLayers = new IntArray();
+    private final IntArray foregroundLayers = new IntArray();
+
+    // render index arrays, built once after classifyLayers (the renderer only reads them)
+    private final int[] backgroundLayerIndices;
+    private final int[] foregroundLayerIndices;
+    private final int[] coinLayerIndex;
 
     private TiledMapTileLayer foregroundLayer;
     private TiledMapTileLayer coinLayer;
+    // Foreground cells replaced through setForegroundCell, reverted on dispose()
+    private final TileLayerEdits foregroundEdits;
+    // cells taken off the Coin layer, so a restored snapshot or dispose() can put them back
+    private final TileLayerEdits coinEdits;
+
+    // packed copy of the Foreground layer, owned by this level; kept in sync through setForegroundCell
+    private final SolidityGrid solidityGrid;
 
     private final Sound damageSound;
     private final Sound coinSound;
 
+    // sound effects from simulation events; the game drains it once per frame
+    private final AudioQueue audio;
+    private final int coinSoundId;
+    private final int damageSoundId;
+
     private final int tileWidthPx;
     private final int tileHeightPx;
 
@@ -41,15 +90,69 @@ public class MapManager {
     private final int mapHeightInPx;
 
     private final Array<MapObject> damageObjects = new Array<>();
+    private final Array<MapObject> lightObjects = new Array<>();
+    private final RectangleIndex damageIndex;
+
+    // render-free view of the level shared with the simulation
+    private final LevelData levelData;
+
+    // merged Foreground rectangles ({x, y, w, h} in tiles) for the light occluder bodies
+    private final IntArray occluderRects;
+    private final LevelPipeline pipeline = new LevelPipeline();
+    private OccluderUpdater occluderUpdater;
+
+    // cells changed by the simulation or editing, handed to the caches once per frame
+    private final TileChangeTracker tileChanges;
+
+    /**
+     * Queues the level's map (with its tileset textures) and sounds on the AssetManager.
+     * Each call takes one reference; {@link #dispose()} of the MapManager built from them
+     * releases it, so assets shared by consecutive levels stay loaded across a reload.
+     */
+    public static void queueAssets(AssetManager assets, String mapPath, String damageSoundPath, String coinSoundPath) {
+        String mapAsset = resolveMapAsset(mapPath);
+        if (isCompiled(mapAsset)) {
+            if (assets.getLoader(CompiledLevel.class) == null) {
+                assets.setLoader(CompiledLevel.class, new CompiledLevelLoader(new InternalFileHandleResolver()));
+            }
+            assets.load(mapAsset, CompiledLevel.class);
+        } else {
+            assets.load(mapAsset, TiledMap.class);
+        }
+        assets.load(damageSoundPath, Sound.class);
+        assets.load(coinSoundPath, Sound.class);
+    }
 
-    public MapManager(String mapPath, String damageSoundPath, String coinSoundPath) {
+    /**
+     * Builds the level from assets queued with {@link #queueAssets}. Anything not finished
+     * loading yet is waited for, so call this once {@code assets.update()} returns true to
+     * avoid stalling the render thread.
+     */
+    public MapManager(AssetManager assets, String mapPath, String damageSoundPath, String coinSoundPath) {
+        this.assets = assets;
+        this.mapAssetPath = resolveMapAsset(mapPath);
+        this.damageSoundPath = damageSoundPath;
+        this.coinSoundPath = coinSoundPath;
+
+        if (!mapAssetPath.equals(mapPath)) Gdx.app.log(TAG, "Using " + mapAssetPath + " for " + mapPath);
+        if (isCompiled(mapAssetPath)) {
+            compiled = assets.finishLoadingAsset(mapAssetPath);
+            map = compiled.getMap();
+        } else {
+            compiled = null;
+            map = assets.finishLoadingAsset(mapAssetPath);
+        }
+        // every tile layer is baked into chunk caches; changed cells are re-baked on demand
+        renderer = new CachedTiledMapRenderer(map, 1f / 32f);
 
-        map = new TmxMapLoader().load(mapPath);
-        renderer = new OrthogonalTiledMapRenderer(map, 1f / 32f);
+        // Sounds
+        damageSound = assets.finishLoadingAsset(damageSoundPath);
+        coinSound   = assets.finishLoadingAsset(coinSoundPath);
 
-        // Load sounds
-        damageSound = Gdx.audio.newSound(Gdx.files.internal(damageSoundPath));
-        coinSound   = Gdx.audio.newSound(Gdx.files.internal(coinSoundPath));
+        // heard up to about a screen away; coins may overlap a little, damage is rate-limited
+        audio = new AudioQueue(AudioQueue.SOUNDS, 64, 20f, 8);
+        coinSoundId = audio.register(coinSound, 1f, 3, 0.4f, 0.05f);
+        damageSoundId = audio.register(damageSound, 1f, 1, 0.4f, 0.4f);
 
         // Get tile size (in pixels)
         TiledMapTileLayer base = (TiledMapTileLayer) map.getLayers().get(0);
@@ -64,31 +167,138 @@ public class MapManager {
         mapWidthInPx  = base.getWidth() * tileWidthPx;
         mapHeightInPx = base.getHeight() * tileHeightPx;
 
+        tileChanges = new TileChangeTracker(map.getLayers().getCount(),
+            base.getWidth(), base.getHeight(), CachedTiledMapRenderer.CHUNK_TILES);
+        tileChanges.addListener(renderer);
+
         classifyLayers();
         extractDamageObjects();
+        extractLightObjects();
+
+        backgroundLayerIndices = backgroundLayers.toArray();
+        foregroundLayerIndices = foregroundLayers.toArray();
+        coinLayerIndex = (coinLayer == null)
+            ? new int[0]
+            : new int[] { map.getLayers().getIndex(coinLayer) };
+        coinEdits = (coinLayer != null) ? new TileLayerEdits(coinLayer) : null;
+        foregroundEdits = (foregroundLayer != null) ? new TileLayerEdits(foregroundLayer) : null;
+
+        if (compiled != null) {
+            // grids, occluders and damage rectangles were built by the level compiler; the
+            // compiled LevelData outlives this level, so edits go to a copy of its terrain
+            levelData = compiled.getLevelData().copyTerrain();
+            occluderRects = compiled.getCollisionRects();
+        } else {
+            occluderRects = new IntArray();
+            levelData = preprocess(base.getWidth(), base.getHeight(), occluderRects);
+            Gdx.app.log(TAG, "Preprocessed " + mapAssetPath + ": " + pipeline.getTimings());
+        }
+        solidityGrid = levelData.getSolidity();
+        damageIndex = levelData.getDamageIndex();
+    }
+
+    /**
+     * Derives the simulation grids, damage index, spawns and occluder rectangles from the
+     * TMX layers. Independent stages run in parallel on the common pool (see
+     * {@link LevelPipeline}); the layers are only read, and this thread waits for them.
+     */
+    private LevelData preprocess(final int width, final int height, final IntArray occluders) {
+        final SolidityGrid[] solid = new SolidityGrid[1];
+        final TileShapes[] shapes = new TileShapes[1];
+        final SolidityGrid[] coinGrid = new SolidityGrid[1];
+        final RectangleIndex[] damage = new RectangleIndex[1];
+        final float[][] spawns = new float[1][];
+        final LevelPipeline.Timings timings = pipeline.getTimings();
+
+        Array<ForkJoinTask<?>> stages = new Array<>();
+        stages.add(ForkJoinTask.adapt(() -> {
+            LevelPipeline.timed(timings, LevelPipeline.Stage.SOLIDITY, () -> {
+                solid[0] = (foregroundLayer != null)
+                    ? SolidityGrid.fromLayer(foregroundLayer)
+                    : new SolidityGrid(width, height);
+                // one-way and slope tiles move from the solid grid into their own
+                shapes[0] = (foregroundLayer != null)
+                    ? TileShapes.fromLayer(foregroundLayer, solid[0])
+                    : new TileShapes(width, height);
+            }).invoke();
+            LevelPipeline.timed(timings, LevelPipeline.Stage.OCCLUDERS,
+                () -> CollisionGeometryBuilder.mergeRectangles(solid[0], occluders)).invoke();
+        }));
+        stages.add(LevelPipeline.timed(timings, LevelPipeline.Stage.COINS, () -> coinGrid[0] = (coinLayer != null)
+            ? SolidityGrid.fromLayer(coinLayer)
+            : new SolidityGrid(width, height)));
+        // damage rectangles converted to world units once, then bucketed into a grid
+        stages.add(LevelPipeline.timed(timings, LevelPipeline.Stage.DAMAGE_INDEX, () -> damage[0] = RectangleIndex.fromObjects(
+            damageObjects,
+            tileWidthPx / tileWidthWorld,
+            mapWidthInPx / 32f,
+            mapHeightInPx / 32f,
+            LevelData.DAMAGE_INDEX_CELL_TILES * tileWidthWorld
+        )));
+        stages.add(LevelPipeline.timed(timings, LevelPipeline.Stage.SPAWNS, () -> spawns[0] = readSpawns()));
+        pipeline.run(stages);
+
+        return new LevelData(
+            width, height,
+            tileWidthPx, tileHeightPx,
+            solid[0], coinGrid[0], damage[0], spawns[0], shapes[0]
+        );
+    }
+
+    /**
+     * The asset loaded for a map: its packed variant if there is one, and in turn the
+     * compiled level of that ({@code .lvl}) if there is one. -Dplatformer.compiledLevel=false
+     * keeps the TMX.
+     */
+    public static String resolveMapAsset(String mapPath) {
+        String tmx = preferPacked(mapPath);
+        if ("false".equals(System.getProperty("platformer.compiledLevel"))) return tmx;
+        FileHandle level = CompiledLevel.siblingOf(Gdx.files.internal(tmx));
+        return level != null ? level.path() : tmx;
+    }
+
+    private static boolean isCompiled(String mapAsset) {
+        return mapAsset.endsWith("." + CompiledLevel.EXTENSION);
+    }
+
+    /**
+     * Returns the "-packed" variant written by the packTiledAtlas build task when it exists,
+     * so all tile layers come from one texture. -Dplatformer.packedMap=false keeps the original.
+     */
+    public static String preferPacked(String mapPath) {
+        if ("false".equals(System.getProperty("platformer.packedMap"))) return mapPath;
+        FileHandle original = Gdx.files.internal(mapPath);
+        FileHandle packed = original.sibling(original.nameWithoutExtension() + "-packed." + original.extension());
+        return packed.exists() ? packed.path() : mapPath;
     }
 
     private void classifyLayers() {
         for (int i = 0; i < map.getLayers().getCount(); i++) {
 
             MapLayer layer = map.getLayers().get(i);
-            String name = layer.getName();
-
-            if (name.equalsIgnoreCase("Foreground")) {
-                foregroundLayers.add(i);
-                foregroundLayer = (TiledMapTileLayer) layer;
-            }
 
-            if (name.equalsIgnoreCase("Coin")) {
-                coinLayer = (TiledMapTileLayer) layer;
+            // a compiled map lists its tile layers first, with the roles assigned at compile time
+            int role = (compiled != null && i < compiled.getLayers().size)
+                ? compiled.getLayers().get(i).role
+                : CompiledLevel.roleOf(layer.getName());
+
+            switch (role) {
+                case CompiledLevel.ROLE_SOLID:
+                    foregroundLayers.add(i);
+                    foregroundLayer = (TiledMapTileLayer) layer;
+                    break;
+                case CompiledLevel.ROLE_FOREGROUND:
+                    foregroundLayers.add(i);
+                    break;
+                case CompiledLevel.ROLE_COIN:
+                    coinLayer = (TiledMapTileLayer) layer;
+                    break;
+                case CompiledLevel.ROLE_BACKGROUND:
+                    backgroundLayers.add(i);
+                    break;
+                default:
+                    break;
             }
-
-            if (name.equalsIgnoreCase("Background") ||
-                name.equalsIgnoreCase("Trees"))
-                backgroundLayers.add(i);
-
-            if (name.equalsIgnoreCase("Spikes"))
-                foregroundLayers.add(i);
         }
     }
 
@@ -101,42 +311,148 @@ public class MapManager {
         }
     }
 
+    /** Optional "Lights" object layer: torches, lamps etc. placed in Tiled. */
+    private void extractLightObjects() {
+        MapLayer lightLayer = map.getLayers().get("Lights");
+        if (lightLayer != null) {
+            for (MapObject obj : lightLayer.getObjects()) {
+                lightObjects.add(obj);
+            }
+        }
+    }
+
+    /**
+     * Optional "Entities" object layer as {kind, x, y} spawns in world units. TmxMapLoader has
+     * already flipped the object positions to y-up; the kind is the object's type/class.
+     */
+    private float[] readSpawns() {
+        MapLayer entityLayer = map.getLayers().get("Entities");
+        if (entityLayer == null) return new float[0];
+
+        FloatArray spawns = new FloatArray();
+        for (MapObject obj : entityLayer.getObjects()) {
+            int kind = EntityFactory.kindOf(obj.getProperties().get("type", obj.getName(), String.class));
+            if (kind == 0) continue;
+            spawns.add(kind);
+            spawns.add(obj.getProperties().get("x", 0f, Float.class) / 32f);
+            spawns.add(obj.getProperties().get("y", 0f, Float.class) / 32f);
+        }
+        return spawns.toArray();
+    }
+
     // ------------------------------
-    // REQUIRED BY CollisionSystem
+    // Simulation data and feedback
     // ------------------------------
 
+    public LevelData getLevelData() { return levelData; }
+
+    /** Mirrors a collected coin into the rendered Coin layer and queues the pickup sound. */
+    @Override
+    public void coinCollected(int tileX, int tileY) {
+        takeCoinCell(tileX, tileY);
+        audio.post(coinSoundId, (tileX + 0.5f) * tileWidthWorld, (tileY + 0.5f) * tileHeightWorld);
+    }
+
+    @Override
+    public void coinRestored(int tileX, int tileY, boolean present) {
+        if (coinLayer == null) return;
+        if (!present) {
+            takeCoinCell(tileX, tileY);
+            return;
+        }
+        if (coinEdits.revert(tileX, tileY)) tileChanges.markChanged(coinLayerIndex[0], tileX, tileY);
+    }
+
+    private void takeCoinCell(int tileX, int tileY) {
+        if (coinLayer == null) return;
+        if (coinLayer.getCell(tileX, tileY) == null) return;
+        coinEdits.set(tileX, tileY, null);
+        tileChanges.markChanged(coinLayerIndex[0], tileX, tileY);
+    }
+
+    @Override
+    public void pickupCollected(float x, float y) {
+        audio.post(coinSoundId, x, y);
+    }
+
+    /** Queues the damage sound; the queue's interval keeps continuous damage from repeating it every tick. */
+    @Override
+    public void damageTaken() {
+        audio.post(damageSoundId);
+    }
+
     public TiledMapTileLayer getForegroundLayer() { return foregroundLayer; }
     public TiledMapTileLayer getCoinLayer() { return coinLayer; }
 
+    public SolidityGrid getSolidityGrid() { return solidityGrid; }
+
+    /**
+     * Changes a Foreground cell, updates this level's solidity grid and shapes and reports the
+     * change to the caches. Use this instead of layer.setCell: the map may be shared with the
+     * next level, so the original cell is put back on {@link #dispose()}.
+     */
+    public void setForegroundCell(int tx, int ty, TiledMapTileLayer.Cell cell) {
+        if (foregroundLayer == null) return;
+        foregroundEdits.set(tx, ty, cell);
+        byte shape = (cell != null && cell.getTile() != null) ? TileShapes.shapeOf(cell.getTile()) : TileShapes.NONE;
+        solidityGrid.set(tx, ty, cell != null && shape == TileShapes.NONE);
+        levelData.getShapes().set(tx, ty, shape);
+        tileChanges.markChanged(map.getLayers().getIndex(foregroundLayer), tx, ty);
+    }
+
     public float getTileWidth() { return tileWidthWorld; }
     public float getTileHeight() { return tileHeightWorld; }
 
     public int getTileWidthPx() { return tileWidthPx; }
 
-    public Sound getCoinSound() { return coinSound; }
-    public Sound getDamageSound() { return damageSound; }
+    /** Sound effects posted by the simulation; drain once per frame. */
+    public AudioQueue getAudio() { return audio; }
 
     public Array<MapObject> getDamageObjects() { return damageObjects; }
+    public RectangleIndex getDamageIndex() { return damageIndex; }
+    public Array<MapObject> getLightObjects() { return lightObjects; }
 
     // ------------------------------
     // Rendering helpers
     // ------------------------------
 
-    private int[] toIntArray(Array<Integer> arr) {
-        int[] result = new int[arr.size];
-        for (int i = 0; i < arr.size; i++) result[i] = arr.get(i);
-        return result;
-    }
+    // The index arrays are shared and must not be modified by callers.
 
     public int[] getBackgroundLayerIndices() {
-        return toIntArray(backgroundLayers);
+        return backgroundLayerIndices;
     }
 
     public int[] getForegroundLayerIndices() {
-        return toIntArray(foregroundLayers);
+        return foregroundLayerIndices;
     }
 
-    public OrthogonalTiledMapRenderer getRenderer() { return renderer; }
+    public CachedTiledMapRenderer getRenderer() { return renderer; }
+
+    /**
+     * Changes to the map's tile layers since the last flush. Caches of the map subscribe
+     * here; the game flushes once per frame, after the simulation ticks and before drawing.
+     */
+    public TileChangeTracker getTileChanges() { return tileChanges; }
+
+    /**
+     * Region of a sprite the pack task put on the tileset page ("sprite.&lt;name&gt;" = "x,y,w,h"),
+     * so it can be drawn without a texture switch. Null when the map is not packed.
+     */
+    public TextureRegion findSprite(String name) {
+        for (TiledMapTileSet tileSet : map.getTileSets()) {
+            String rect = tileSet.getProperties().get("sprite." + name, String.class);
+            Iterator<TiledMapTile> tiles = tileSet.iterator();
+            if (rect == null || !tiles.hasNext()) continue;
+
+            // every tile of the packed set is a region of the same page texture
+            Texture page = tiles.next().getTextureRegion().getTexture();
+            String[] v = rect.split(",");
+            return new TextureRegion(page,
+                Integer.parseInt(v[0].trim()), Integer.parseInt(v[1].trim()),
+                Integer.parseInt(v[2].trim()), Integer.parseInt(v[3].trim()));
+        }
+        return null;
+    }
 
     public int getMapWidthInPx() { return mapWidthInPx; }
     public int getMapHeightInPx() { return mapHeightInPx; }
@@ -150,64 +466,53 @@ public class MapManager {
     }
 
     public int[] getCoinLayerIndex() {
-        if (coinLayer == null) return new int[0];
-        return new int[] { map.getLayers().getIndex(coinLayer) };
+        return coinLayerIndex;
     }
 
 
     // --------------------------------------------------------
-// Build Box2D collision from the Foreground layer
-// --------------------------------------------------------
-    public void buildCollision(World world) {
-        if (foregroundLayer == null) return;
-
-        for (int x = 0; x < foregroundLayer.getWidth(); x++) {
-            for (int y = 0; y < foregroundLayer.getHeight(); y++) {
-                if (foregroundLayer.getCell(x, y) != null) {
-                    createTileBody(world, x, y);
-                }
-            }
-        }
-    }
-
+    // Build Box2D collision from the Foreground layer
     // --------------------------------------------------------
-// Create a single tile body with Box2D Lights shadow filtering
-// --------------------------------------------------------
-    private void createTileBody(World world, int x, int y) {
-
-        BodyDef bd = new BodyDef();
-        bd.type = BodyDef.BodyType.StaticBody;
-        Body body = world.createBody(bd);
-
-        PolygonShape shape = new PolygonShape();
-        shape.setAsBox(
-            tileWidthWorld / 2f,
-            tileHeightWorld / 2f,
-            new Vector2(
-                (x + 0.5f) * tileWidthWorld,
-                (y + 0.5f) * tileHeightWorld
-            ),
-            0f
-        );
 
-        // IMPORTANT: get the fixture reference
-        Fixture fixture = body.createFixture(shape, 0);
-
-        // ---------- LIGHTING FILTER (required to cast shadows) ----------
-        Filter filter = new Filter();
-        filter.categoryBits = 0x0002;   // solid tile category
-        filter.maskBits     = -1;       // collide with all (lights included)
-        fixture.setFilterData(filter);
-        // ----------------------------------------------------------------
-
-        shape.dispose();
+    /**
+     * Creates one static body with a box fixture per merged Foreground rectangle (instead of
+     * one body per tile) as light occluders. The rectangles were merged while preprocessing
+     * (or by the level compiler); only the Box2D calls run here, on the World's thread.
+     * Later Foreground changes update the fixtures of the changed chunks only.
+     * Returns the number of fixtures created.
+     */
+    public int buildCollision(World world) {
+        if (foregroundLayer == null) return 0;
+
+        long start = TimeUtils.nanoTime();
+        int tileCount = solidityGrid.countSolid();
+        occluderUpdater = new OccluderUpdater(world, solidityGrid, occluderRects,
+            map.getLayers().getIndex(foregroundLayer), tileWidthWorld, tileHeightWorld);
+        tileChanges.addListener(occluderUpdater);
+        long nanos = TimeUtils.timeSinceNanos(start);
+        pipeline.getTimings().add(LevelPipeline.Stage.BODIES, nanos);
+
+        int fixtureCount = occluderUpdater.getFixtureCount();
+        Gdx.app.log(TAG, "Collision: " + tileCount + " tile fixtures -> " + fixtureCount
+            + " merged fixtures in " + TimeUtils.nanosToMillis(nanos) + " ms");
+        return fixtureCount;
     }
 
+    /** Per-stage preprocessing times of this level, plus {@code bodies} once buildCollision ran. */
+    public LevelPipeline.Timings getLoadTimings() { return pipeline.getTimings(); }
+
+    /**
+     * Disposes the render caches and releases this level's references to its assets. Collected
+     * coins and edited Foreground cells are put back first: a reload gets the same TiledMap
+     * from the AssetManager and must find it as loaded.
+     */
     public void dispose() {
-        map.dispose();
+        if (coinEdits != null) coinEdits.revertAll();
+        if (foregroundEdits != null) foregroundEdits.revertAll();
         renderer.dispose();
-        coinSound.dispose();
-        damageSound.dispose();
+        assets.unload(mapAssetPath);
+        assets.unload(coinSoundPath);
+        assets.unload(damageSoundPath);
     }
 }
 
@@ -0,0 +1,425 @@
+package si.um.feri.platformer.map;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.OrthographicCamera;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.graphics.g2d.SpriteCache;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.maps.MapLayer;
+import com.badlogic.gdx.maps.tiled.TiledMap;
+import com.badlogic.gdx.maps.tiled.TiledMapTile;
+import com.badlogic.gdx.maps.tiled.TiledMapTileLayer;
+import com.badlogic.gdx.maps.tiled.tiles.AnimatedTiledMapTile;
+import com.badlogic.gdx.math.Matrix4;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.IntArray;
+
+import si.um.feri.platformer.systems.VisibilitySet;
+
+/**
+ * Tile layer renderer that bakes every tile layer into {@link SpriteCache} vertex
+ * buffers, one cache per layer per chunk of {@link #CHUNK_TILES}² tiles. Drawing a frame
+ * is one cache draw per visible chunk; nothing is re-batched or re-uploaded.
+ *
+ * Cells changed at runtime (a collected coin, an edited Foreground tile) must be reported
+ * through {@link #invalidateCell}, or a {@link TileChangeTracker} the renderer listens to;
+ * only the affected chunk is re-baked, on the next render.
+ * Animated tiles can't be baked, so they are kept out of the caches and drawn with the
+ * batch every frame.
+ *
+ * Layer opacity and tint are baked into the vertices. Parallax factors are not supported;
+ * render offsets are applied once at bake time.
+ */
+public class CachedTiledMapRenderer implements Disposable, TileChangeTracker.Listener {
+
+    private static final String TAG = "CachedTiledMapRenderer";
+
+    public static final int CHUNK_TILES = 16;
+
+    // SpriteCache indices are shorts: above this many sprites it has to run unindexed
+    private static final int MAX_INDEXED_SPRITES = 8191;
+
+    // vertex layout used by SpriteBatch and SpriteCache: x, y, color, u, v
+    private static final int VERTEX_SIZE = 5;
+    private static final int X1 = 0, Y1 = 1, C1 = 2, U1 = 3, V1 = 4;
+    private static final int X2 = 5, Y2 = 6, C2 = 7, U2 = 8, V2 = 9;
+    private static final int X3 = 10, Y3 = 11, C3 = 12, U3 = 13, V3 = 14;
+    private static final int X4 = 15, Y4 = 16, C4 = 17, U4 = 18, V4 = 19;
+
+    private final TiledMap map;
+    private final float unitScale;
+    private final SpriteBatch batch;
+
+    private SpriteCache cache;
+    private int cacheCapacity;
+    private boolean indexed;
+
+    // per map layer (null / empty for object layers)
+    private final TiledMapTileLayer[] layers;
+    private final int[] chunksX;
+    private final int[] chunksY;
+    private final int[][] cacheIds;      // -1 = chunk has no cached tiles
+    private final int[][] cacheSizes;    // sprites the cache was defined with; a redefinition may not exceed it
+    private final boolean[][] dirtyChunks;
+    private final IntArray[] animatedCells; // packed tx, ty pairs
+    private boolean anyDirty = false;
+    private boolean anyAnimated = false;
+
+    private final float[] vertices = new float[VERTEX_SIZE * 4];
+    private final float[] unindexed = new float[VERTEX_SIZE * 6];
+    private final Matrix4 projection = new Matrix4();
+
+    public CachedTiledMapRenderer(TiledMap map, float unitScale) {
+        this.map = map;
+        this.unitScale = unitScale;
+        this.batch = new SpriteBatch();
+
+        int count = map.getLayers().getCount();
+        layers = new TiledMapTileLayer[count];
+        chunksX = new int[count];
+        chunksY = new int[count];
+        cacheIds = new int[count][];
+        cacheSizes = new int[count][];
+        dirtyChunks = new boolean[count][];
+        animatedCells = new IntArray[count];
+
+        for (int i = 0; i < count; i++) {
+            MapLayer layer = map.getLayers().get(i);
+            animatedCells[i] = new IntArray();
+            if (!(layer instanceof TiledMapTileLayer)) {
+                cacheIds[i] = new int[0];
+                cacheSizes[i] = new int[0];
+                dirtyChunks[i] = new boolean[0];
+                continue;
+            }
+
+            TiledMapTileLayer tiles = (TiledMapTileLayer) layer;
+            layers[i] = tiles;
+            chunksX[i] = (tiles.getWidth() + CHUNK_TILES - 1) / CHUNK_TILES;
+            chunksY[i] = (tiles.getHeight() + CHUNK_TILES - 1) / CHUNK_TILES;
+            cacheIds[i] = new int[chunksX[i] * chunksY[i]];
+            cacheSizes[i] = new int[chunksX[i] * chunksY[i]];
+            dirtyChunks[i] = new boolean[chunksX[i] * chunksY[i]];
+        }
+
+        bakeAll();
+    }
+
+    // ------------------------------
+    // Baking
+    // ------------------------------
+
+    /** (Re)creates every chunk cache from scratch. */
+    private void bakeAll() {
+        int total = 0;
+        for (int i = 0; i < layers.length; i++) {
+            if (layers[i] == null) continue;
+            total += countStatic(layers[i], 0, 0, layers[i].getWidth(), layers[i].getHeight());
+        }
+
+        // headroom so a chunk that grows by a few tiles doesn't force another full bake
+        int needed = Math.max(1, total + total / 4 + 16);
+        if (cache == null || needed > cacheCapacity) {
+            if (cache != null) cache.dispose();
+            cacheCapacity = needed;
+            indexed = needed <= MAX_INDEXED_SPRITES;
+            cache = new SpriteCache(needed, indexed);
+        } else {
+            cache.clear();
+        }
+
+        anyAnimated = false;
+        for (int i = 0; i < layers.length; i++) {
+            animatedCells[i].clear();
+            if (layers[i] == null) continue;
+
+            for (int c = 0; c < cacheIds[i].length; c++) {
+                int x0 = (c % chunksX[i]) * CHUNK_TILES;
+                int y0 = (c / chunksX[i]) * CHUNK_TILES;
+                int n = countStatic(layers[i], x0, y0, CHUNK_TILES, CHUNK_TILES);
+
+                collectAnimated(i, x0, y0);
+                dirtyChunks[i][c] = false;
+                if (n == 0) {
+                    cacheIds[i][c] = -1;
+                    cacheSizes[i][c] = 0;
+                    continue;
+                }
+
+                cache.beginCache();
+                addChunk(layers[i], x0, y0);
+                cacheIds[i][c] = cache.endCache();
+                cacheSizes[i][c] = n;
+            }
+        }
+        anyDirty = false;
+
+        Gdx.app.log(TAG, "Baked " + total + " tiles into chunk caches"
+            + (anyAnimated ? " (animated tiles drawn per frame)" : ""));
+    }
+
+    /** Re-bakes dirty chunks in place; falls back to a full bake if a chunk outgrew its cache. */
+    private void bakeDirty() {
+        anyDirty = false;
+
+        for (int i = 0; i < layers.length; i++) {
+            if (layers[i] == null) continue;
+
+            for (int c = 0; c < cacheIds[i].length; c++) {
+                if (!dirtyChunks[i][c]) continue;
+                dirtyChunks[i][c] = false;
+
+                int x0 = (c % chunksX[i]) * CHUNK_TILES;
+                int y0 = (c / chunksX[i]) * CHUNK_TILES;
+                int n = countStatic(layers[i], x0, y0, CHUNK_TILES, CHUNK_TILES);
+
+                if (cacheIds[i][c] < 0 ? n > 0 : n > cacheSizes[i][c]) {
+                    bakeAll();
+                    return;
+                }
+                if (cacheIds[i][c] >= 0) {
+                    cache.beginCache(cacheIds[i][c]);
+                    addChunk(layers[i], x0, y0);
+                    cache.endCache();
+                }
+                rebuildAnimated(i);
+            }
+        }
+    }
+
+    private int countStatic(TiledMapTileLayer layer, int x0, int y0, int w, int h) {
+        int x1 = Math.min(x0 + w, layer.getWidth());
+        int y1 = Math.min(y0 + h, layer.getHeight());
+        int n = 0;
+        for (int y = y0; y < y1; y++) {
+            for (int x = x0; x < x1; x++) {
+                TiledMapTileLayer.Cell cell = layer.getCell(x, y);
+                if (cell != null && cell.getTile() != null && !(cell.getTile() instanceof AnimatedTiledMapTile)) n++;
+            }
+        }
+        return n;
+    }
+
+    private void addChunk(TiledMapTileLayer layer, int x0, int y0) {
+        float color = layerColor(layer);
+        int x1 = Math.min(x0 + CHUNK_TILES, layer.getWidth());
+        int y1 = Math.min(y0 + CHUNK_TILES, layer.getHeight());
+
+        for (int y = y0; y < y1; y++) {
+            for (int x = x0; x < x1; x++) {
+                TiledMapTileLayer.Cell cell = layer.getCell(x, y);
+                if (cell == null || cell.getTile() == null || cell.getTile() instanceof AnimatedTiledMapTile) continue;
+
+                Texture texture = buildVertices(layer, cell, x, y, color);
+                if (indexed) {
+                    cache.add(texture, vertices, 0, vertices.length);
+                } else {
+                    // unindexed caches take two triangles per quad: 1-2-3, 3-4-1
+                    System.arraycopy(vertices, 0, unindexed, 0, 15);
+                    System.arraycopy(vertices, 10, unindexed, 15, 10);
+                    System.arraycopy(vertices, 0, unindexed, 25, 5);
+                    cache.add(texture, unindexed, 0, unindexed.length);
+                }
+            }
+        }
+    }
+
+    private void collectAnimated(int layerIndex, int x0, int y0) {
+        TiledMapTileLayer layer = layers[layerIndex];
+        int x1 = Math.min(x0 + CHUNK_TILES, layer.getWidth());
+        int y1 = Math.min(y0 + CHUNK_TILES, layer.getHeight());
+        for (int y = y0; y < y1; y++) {
+            for (int x = x0; x < x1; x++) {
+                TiledMapTileLayer.Cell cell = layer.getCell(x, y);
+                if (cell == null || !(cell.getTile() instanceof AnimatedTiledMapTile)) continue;
+                animatedCells[layerIndex].add(x);
+                animatedCells[layerIndex].add(y);
+                anyAnimated = true;
+            }
+        }
+    }
+
+    private void rebuildAnimated(int layerIndex) {
+        animatedCells[layerIndex].clear();
+        for (int c = 0; c < cacheIds[layerIndex].length; c++) {
+            collectAnimated(layerIndex, (c % chunksX[layerIndex]) * CHUNK_TILES, (c / chunksX[layerIndex]) * CHUNK_TILES);
+        }
+    }
+
+    private float layerColor(TiledMapTileLayer layer) {
+        Color tint = layer.getTintColor();
+        return Color.toFloatBits(tint.r, tint.g, tint.b, tint.a * layer.getOpacity());
+    }
+
+    /** Fills {@link #vertices} for one cell the same way OrthogonalTiledMapRenderer does. */
+    private Texture buildVertices(TiledMapTileLayer layer, TiledMapTileLayer.Cell cell, int tx, int ty, float color) {
+        TiledMapTile tile = cell.getTile();
+        TextureRegion region = tile.getTextureRegion();
+
+        float x1 = tx * layer.getTileWidth() * unitScale + tile.getOffsetX() * unitScale + layer.getRenderOffsetX() * unitScale;
+        float y1 = ty * layer.getTileHeight() * unitScale + tile.getOffsetY() * unitScale - layer.getRenderOffsetY() * unitScale;
+        float x2 = x1 + region.getRegionWidth() * unitScale;
+        float y2 = y1 + region.getRegionHeight() * unitScale;
+
+        float u1 = region.getU();
+        float v1 = region.getV2();
+        float u2 = region.getU2();
+        float v2 = region.getV();
+
+        float[] v = vertices;
+        v[X1] = x1; v[Y1] = y1; v[C1] = color; v[U1] = u1; v[V1] = v1;
+        v[X2] = x1; v[Y2] = y2; v[C2] = color; v[U2] = u1; v[V2] = v2;
+        v[X3] = x2; v[Y3] = y2; v[C3] = color; v[U3] = u2; v[V3] = v2;
+        v[X4] = x2; v[Y4] = y1; v[C4] = color; v[U4] = u2; v[V4] = v1;
+
+        if (cell.getFlipHorizontally()) {
+            swap(U1, U3);
+            swap(U2, U4);
+        }
+        if (cell.getFlipVertically()) {
+            swap(V1, V3);
+            swap(V2, V4);
+        }
+
+        switch (cell.getRotation()) {
+            case TiledMapTileLayer.Cell.ROTATE_90: {
+                float tempV = v[V1]; v[V1] = v[V2]; v[V2] = v[V3]; v[V3] = v[V4]; v[V4] = tempV;
+                float tempU = v[U1]; v[U1] = v[U2]; v[U2] = v[U3]; v[U3] = v[U4]; v[U4] = tempU;
+                break;
+            }
+            case TiledMapTileLayer.Cell.ROTATE_180: {
+                swap(U1, U3);
+                swap(U2, U4);
+                swap(V1, V3);
+                swap(V2, V4);
+                break;
+            }
+            case TiledMapTileLayer.Cell.ROTATE_270: {
+                float tempV = v[V1]; v[V1] = v[V4]; v[V4] = v[V3]; v[V3] = v[V2]; v[V2] = tempV;
+                float tempU = v[U1]; v[U1] = v[U4]; v[U4] = v[U3]; v[U3] = v[U2]; v[U2] = tempU;
+                break;
+            }
+            default:
+                break;
+        }
+        return region.getTexture();
+    }
+
+    private void swap(int a, int b) {
+        float t = vertices[a];
+        vertices[a] = vertices[b];
+        vertices[b] = t;
+    }
+
+    // ------------------------------
+    // Invalidation
+    // ------------------------------
+
+    /** Marks the chunk holding the cell for re-baking; call after changing a cell of a tile layer. */
+    public void invalidateCell(int layerIndex, int tx, int ty) {
+        if (layerIndex < 0 || layerIndex >= layers.length || layers[layerIndex] == null) return;
+        int cx = tx / CHUNK_TILES;
+        int cy = ty / CHUNK_TILES;
+        if (tx < 0 || ty < 0 || cx >= chunksX[layerIndex] || cy >= chunksY[layerIndex]) return;
+
+        dirtyChunks[layerIndex][cx + cy * chunksX[layerIndex]] = true;
+        anyDirty = true;
+    }
+
+    @Override
+    public void tilesChanged(TileChangeTracker changes) {
+        for (int i = 0; i < changes.getTileCount(); i++) {
+            invalidateCell(changes.getTileLayer(i), changes.getTileX(i), changes.getTileY(i));
+        }
+    }
+
+    /** Re-bakes everything, e.g. after replacing whole layers. */
+    public void invalidateAll() {
+        bakeAll();
+    }
+
+    // ------------------------------
+    // Rendering
+    // ------------------------------
+
+    public void setView(OrthographicCamera camera) {
+        projection.set(camera.combined);
+    }
+
+    /**
+     * Draws the given layers, in order, skipping hidden ones. Only chunks and animated tiles
+     * in the frame's {@code visibility} ranges are drawn, so the map culls with the same view
+     * and margin as everything else; its chunks must be {@link #CHUNK_TILES} tiles.
+     */
+    public void render(int[] layerIndices, VisibilitySet visibility) {
+        if (visibility.getChunkTiles() != CHUNK_TILES) {
+            throw new IllegalArgumentException("Visibility chunks are " + visibility.getChunkTiles() + " tiles, not " + CHUNK_TILES);
+        }
+        if (anyDirty) bakeDirty();
+
+        Gdx.gl.glEnable(GL20.GL_BLEND);
+        Gdx.gl.glBlendFunc(GL20.GL_SRC_ALPHA, GL20.GL_ONE_MINUS_SRC_ALPHA);
+
+        cache.setProjectionMatrix(projection);
+        cache.begin();
+        for (int index : layerIndices) {
+            TiledMapTileLayer layer = layers[index];
+            if (layer == null || !layer.isVisible()) continue;
+
+            // before the first view is set everything counts as visible
+            boolean all = !visibility.isSet();
+            int cx0 = all ? 0 : visibility.getChunkX0();
+            int cy0 = all ? 0 : visibility.getChunkY0();
+            int cx1 = all ? chunksX[index] - 1 : Math.min(chunksX[index] - 1, visibility.getChunkX1());
+            int cy1 = all ? chunksY[index] - 1 : Math.min(chunksY[index] - 1, visibility.getChunkY1());
+
+            for (int cy = cy0; cy <= cy1; cy++) {
+                for (int cx = cx0; cx <= cx1; cx++) {
+                    int id = cacheIds[index][cx + cy * chunksX[index]];
+                    if (id >= 0) cache.draw(id);
+                }
+            }
+        }
+        cache.end();
+        Gdx.gl.glDisable(GL20.GL_BLEND);
+
+        if (anyAnimated) renderAnimated(layerIndices, visibility);
+    }
+
+    private void renderAnimated(int[] layerIndices, VisibilitySet visibility) {
+        AnimatedTiledMapTile.updateAnimationBaseTime();
+
+        batch.setProjectionMatrix(projection);
+        batch.begin();
+        for (int index : layerIndices) {
+            TiledMapTileLayer layer = layers[index];
+            IntArray cells = animatedCells[index];
+            if (layer == null || !layer.isVisible() || cells.size == 0) continue;
+
+            float color = layerColor(layer);
+            for (int i = 0; i < cells.size; i += 2) {
+                if (!visibility.isTileVisible(cells.get(i), cells.get(i + 1))) continue;
+                TiledMapTileLayer.Cell cell = layer.getCell(cells.get(i), cells.get(i + 1));
+                if (cell == null || cell.getTile() == null) continue;
+                Texture texture = buildVertices(layer, cell, cells.get(i), cells.get(i + 1), color);
+                batch.draw(texture, vertices, 0, vertices.length);
+            }
+        }
+        batch.end();
+    }
+
+    /** Batch for drawing on top of the map (player, HUD), like OrthogonalTiledMapRenderer.getBatch(). */
+    public Batch getBatch() { return batch; }
+
+    public TiledMap getMap() { return map; }
+
+    @Override
+    public void dispose() {
+        cache.dispose();
+        batch.dispose();
+    }
+}
@@ -0,0 +1,314 @@
+package si.um.feri.platformer.map;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.FloatArray;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.IntArray;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * A level split into equally sized chunks, one map per chunk in a directory:
+ * {@code chunk_<cx>_<cy>.lvl}, or {@code .tmx} where there is no compiled chunk, with chunk
+ * 0_0 at the bottom-left. The bottom row and the left column of chunks give the level's
+ * size; any other chunk may be missing and is then empty. {@link #split} writes a compiled
+ * level out in this form.
+ *
+ * {@link #getLevelData()} stitches the grids, shapes, damage rectangles and spawns of every
+ * chunk into one LevelData, so sessions, snapshots and replays do not depend on which chunks
+ * happen to be loaded. It keeps two bits and a byte per tile of the whole level; tile layers,
+ * tilesets and occluder bodies are only held for the chunks around the view (see
+ * ChunkedMapManager).
+ */
+public class ChunkedLevel {
+
+    public static final String CHUNK_PREFIX = "chunk_";
+
+    private static final float PPM = 32f;
+
+    private final FileHandle dir;
+    private final int chunksX;
+    private final int chunksY;
+    private final int chunkWidthTiles;
+    private final int chunkHeightTiles;
+    private final int tileWidthPx;
+    private final int tileHeightPx;
+
+    private LevelData levelData;
+
+    private ChunkedLevel(FileHandle dir, int chunksX, int chunksY,
+                         int chunkWidthTiles, int chunkHeightTiles, int tileWidthPx, int tileHeightPx) {
+        this.dir = dir;
+        this.chunksX = chunksX;
+        this.chunksY = chunksY;
+        this.chunkWidthTiles = chunkWidthTiles;
+        this.chunkHeightTiles = chunkHeightTiles;
+        this.tileWidthPx = tileWidthPx;
+        this.tileHeightPx = tileHeightPx;
+    }
+
+    /** Finds the chunks in {@code dir}; chunk 0_0 gives the chunk and tile sizes. */
+    public static ChunkedLevel open(FileHandle dir) {
+        FileHandle origin = chunkFile(dir, 0, 0);
+        if (origin == null) throw new GdxRuntimeException("No " + CHUNK_PREFIX + "0_0 level in " + dir.path());
+
+        int chunksX = 1;
+        while (chunkFile(dir, chunksX, 0) != null) chunksX++;
+        int chunksY = 1;
+        while (chunkFile(dir, 0, chunksY) != null) chunksY++;
+
+        LevelData first = readChunk(origin);
+        return new ChunkedLevel(dir, chunksX, chunksY, first.getWidthTiles(), first.getHeightTiles(),
+            first.getTileWidthPx(), first.getTileHeightPx());
+    }
+
+    /** The compiled chunk file, else the TMX one, else null. */
+    private static FileHandle chunkFile(FileHandle dir, int cx, int cy) {
+        String name = CHUNK_PREFIX + cx + "_" + cy;
+        FileHandle compiled = dir.child(name + "." + CompiledLevel.EXTENSION);
+        if (compiled.exists()) return compiled;
+        FileHandle tmx = dir.child(name + ".tmx");
+        return tmx.exists() ? tmx : null;
+    }
+
+    private static LevelData readChunk(FileHandle file) {
+        return file.extension().equals(CompiledLevel.EXTENSION)
+            ? CompiledLevel.readLevelData(file)
+            : TmxLevelLoader.load(file);
+    }
+
+    // ------------------------------
+    // Simulation data
+    // ------------------------------
+
+    /**
+     * The whole level for the simulation, read from every chunk on first use; call it off the
+     * render thread (ChunkedLevelLoader does). Shared read-only like any LevelData.
+     */
+    public LevelData getLevelData() {
+        if (levelData == null) levelData = assemble();
+        return levelData;
+    }
+
+    private LevelData assemble() {
+        int width = chunksX * chunkWidthTiles;
+        int height = chunksY * chunkHeightTiles;
+        float tileW = tileWidthPx / PPM;
+        float tileH = tileHeightPx / PPM;
+
+        SolidityGrid solidity = new SolidityGrid(width, height);
+        SolidityGrid coins = new SolidityGrid(width, height);
+        TileShapes shapes = new TileShapes(width, height);
+        FloatArray damage = new FloatArray();
+        FloatArray spawns = new FloatArray();
+
+        for (int cy = 0; cy < chunksY; cy++) {
+            for (int cx = 0; cx < chunksX; cx++) {
+                FileHandle file = getChunkFile(cx, cy);
+                if (file == null) continue;
+                LevelData chunk = readChunk(file);
+                if (chunk.getWidthTiles() != chunkWidthTiles || chunk.getHeightTiles() != chunkHeightTiles
+                    || chunk.getTileWidthPx() != tileWidthPx || chunk.getTileHeightPx() != tileHeightPx) {
+                    throw new GdxRuntimeException("Chunk " + file.path() + " is " + chunk.getWidthTiles() + "x"
+                        + chunk.getHeightTiles() + " tiles of " + chunk.getTileWidthPx() + "x" + chunk.getTileHeightPx()
+                        + " px, expected " + chunkWidthTiles + "x" + chunkHeightTiles + " of " + tileWidthPx + "x" + tileHeightPx);
+                }
+
+                int x0 = cx * chunkWidthTiles;
+                int y0 = cy * chunkHeightTiles;
+                for (int y = 0; y < chunkHeightTiles; y++) {
+                    for (int x = 0; x < chunkWidthTiles; x++) {
+                        if (chunk.getSolidity().isSolid(x, y)) solidity.set(x0 + x, y0 + y, true);
+                        if (chunk.getCoins().isSolid(x, y)) coins.set(x0 + x, y0 + y, true);
+                        byte shape = chunk.getShapes().get(x, y);
+                        if (shape != TileShapes.NONE) shapes.set(x0 + x, y0 + y, shape);
+                    }
+                }
+
+                // world units, moved from the chunk's origin to the level's
+                float ox = x0 * tileW;
+                float oy = y0 * tileH;
+                RectangleIndex rects = chunk.getDamageIndex();
+                for (int i = 0; i < rects.size(); i++) {
+                    damage.add(rects.getX(i) + ox);
+                    damage.add(rects.getY(i) + oy);
+                    damage.add(rects.getWidth(i));
+                    damage.add(rects.getHeight(i));
+                }
+                float[] chunkSpawns = chunk.getSpawns();
+                for (int i = 0; i + 2 < chunkSpawns.length; i += 3) {
+                    spawns.add(chunkSpawns[i]);
+                    spawns.add(chunkSpawns[i + 1] + ox);
+                    spawns.add(chunkSpawns[i + 2] + oy);
+                }
+            }
+        }
+
+        RectangleIndex damageIndex = new RectangleIndex(damage.items, damage.size / 4,
+            width * tileW, height * tileH, LevelData.DAMAGE_INDEX_CELL_TILES * tileW);
+        return new LevelData(width, height, tileWidthPx, tileHeightPx, solidity, coins, damageIndex,
+            spawns.toArray(), shapes);
+    }
+
+    // ------------------------------
+    // Splitting
+    // ------------------------------
+
+    /**
+     * Writes {@code level}, read from {@code levelFile}, into {@code dir} as compiled chunks of
+     * {@code chunkWidth} x {@code chunkHeight} tiles; the level's size must be a multiple of
+     * them. Damage rectangles, lights and spawns go to the chunk holding their bottom-left
+     * corner, so a rectangle may reach into the next chunk but is never cut in two. Each
+     * chunk gets its own merged collision rectangles.
+     */
+    public static ChunkedLevel split(CompiledLevel level, FileHandle levelFile, int chunkWidth, int chunkHeight, FileHandle dir) {
+        int width = level.getWidthTiles();
+        int height = level.getHeightTiles();
+        if (chunkWidth <= 0 || chunkHeight <= 0 || width % chunkWidth != 0 || height % chunkHeight != 0) {
+            throw new IllegalArgumentException("A " + width + "x" + height + " level does not split into "
+                + chunkWidth + "x" + chunkHeight + " chunks");
+        }
+        int chunksX = width / chunkWidth;
+        int chunksY = height / chunkHeight;
+        float chunkWorldW = chunkWidth * level.getTileWidthPx() / PPM;
+        float chunkWorldH = chunkHeight * level.getTileHeightPx() / PPM;
+
+        // tileset images stay where they are; chunks reference them from dir
+        Array<CompiledLevel.Tileset> tilesets = new Array<>(level.getTilesets().size);
+        for (CompiledLevel.Tileset source : level.getTilesets()) {
+            CompiledLevel.Tileset ts = copy(source);
+            ts.image = relativePath(dir, CompiledLevel.resolveImagePath(levelFile, source.image));
+            tilesets.add(ts);
+        }
+
+        dir.mkdirs();
+        for (int cy = 0; cy < chunksY; cy++) {
+            for (int cx = 0; cx < chunksX; cx++) {
+                int x0 = cx * chunkWidth;
+                int y0 = cy * chunkHeight;
+
+                Array<CompiledLevel.TileLayer> layers = new Array<>(level.getLayers().size);
+                for (CompiledLevel.TileLayer source : level.getLayers()) {
+                    CompiledLevel.TileLayer layer = new CompiledLevel.TileLayer();
+                    layer.name = source.name;
+                    layer.role = source.role;
+                    layer.opacity = source.opacity;
+                    layer.visible = source.visible;
+                    layer.gids = new int[chunkWidth * chunkHeight];
+                    // rows run top-down in both
+                    for (int row = 0; row < chunkHeight; row++) {
+                        int sourceRow = height - y0 - chunkHeight + row;
+                        System.arraycopy(source.gids, x0 + sourceRow * width, layer.gids, row * chunkWidth, chunkWidth);
+                    }
+                    layers.add(layer);
+                }
+
+                SolidityGrid solidity = new SolidityGrid(chunkWidth, chunkHeight);
+                SolidityGrid coins = new SolidityGrid(chunkWidth, chunkHeight);
+                TileShapes shapes = new TileShapes(chunkWidth, chunkHeight);
+                for (int y = 0; y < chunkHeight; y++) {
+                    for (int x = 0; x < chunkWidth; x++) {
+                        if (level.getSolidity().isSolid(x0 + x, y0 + y)) solidity.set(x, y, true);
+                        if (level.getCoins().isSolid(x0 + x, y0 + y)) coins.set(x, y, true);
+                        shapes.set(x, y, level.getLevelData().getShapes().get(x0 + x, y0 + y));
+                    }
+                }
+                IntArray collision = new IntArray();
+                CollisionGeometryBuilder.mergeRectangles(solidity, collision);
+
+                float ox = cx * chunkWorldW;
+                float oy = cy * chunkWorldH;
+                FloatArray damage = new FloatArray();
+                float[] damageRects = level.getDamageRects();
+                for (int i = 0; i + 3 < damageRects.length; i += 4) {
+                    if (!owns(cx, cy, damageRects[i], damageRects[i + 1], chunkWorldW, chunkWorldH, chunksX, chunksY)) continue;
+                    damage.add(damageRects[i] - ox);
+                    damage.add(damageRects[i + 1] - oy);
+                    damage.add(damageRects[i + 2]);
+                    damage.add(damageRects[i + 3]);
+                }
+
+                Array<CompiledLevel.Light> lights = new Array<>();
+                for (CompiledLevel.Light source : level.getLights()) {
+                    // lights are in pixels
+                    if (!owns(cx, cy, source.x / PPM, source.y / PPM, chunkWorldW, chunkWorldH, chunksX, chunksY)) continue;
+                    CompiledLevel.Light light = new CompiledLevel.Light();
+                    light.x = source.x - ox * PPM;
+                    light.y = source.y - oy * PPM;
+                    light.width = source.width;
+                    light.height = source.height;
+                    light.distance = source.distance;
+                    light.color = source.color;
+                    light.flicker = source.flicker;
+                    lights.add(light);
+                }
+
+                FloatArray spawns = new FloatArray();
+                float[] levelSpawns = level.getSpawns();
+                for (int i = 0; i + 2 < levelSpawns.length; i += 3) {
+                    if (!owns(cx, cy, levelSpawns[i + 1], levelSpawns[i + 2], chunkWorldW, chunkWorldH, chunksX, chunksY)) continue;
+                    spawns.add(levelSpawns[i]);
+                    spawns.add(levelSpawns[i + 1] - ox);
+                    spawns.add(levelSpawns[i + 2] - oy);
+                }
+
+                CompiledLevel chunk = new CompiledLevel(chunkWidth, chunkHeight, level.getTileWidthPx(), level.getTileHeightPx(),
+                    layers, tilesets, solidity, coins, collision, damage.toArray(), lights, spawns.toArray(), shapes);
+                chunk.write(dir.child(CHUNK_PREFIX + cx + "_" + cy + "." + CompiledLevel.EXTENSION));
+            }
+        }
+        return open(dir);
+    }
+
+    /** True if (x, y), in world units, falls in chunk (cx, cy); points off the level go to the nearest edge chunk. */
+    private static boolean owns(int cx, int cy, float x, float y, float chunkW, float chunkH, int chunksX, int chunksY) {
+        int ownerX = Math.max(0, Math.min(chunksX - 1, (int) Math.floor(x / chunkW)));
+        int ownerY = Math.max(0, Math.min(chunksY - 1, (int) Math.floor(y / chunkH)));
+        return ownerX == cx && ownerY == cy;
+    }
+
+    private static CompiledLevel.Tileset copy(CompiledLevel.Tileset source) {
+        CompiledLevel.Tileset ts = new CompiledLevel.Tileset();
+        ts.name = source.name;
+        ts.image = source.image;
+        ts.firstGid = source.firstGid;
+        ts.tileWidth = source.tileWidth;
+        ts.tileHeight = source.tileHeight;
+        ts.margin = source.margin;
+        ts.spacing = source.spacing;
+        ts.columns = source.columns;
+        ts.tileCount = source.tileCount;
+        ts.propertyNames = source.propertyNames;
+        ts.propertyValues = source.propertyValues;
+        return ts;
+    }
+
+    private static String relativePath(FileHandle dir, String path) {
+        Path from = Paths.get(dir.path()).toAbsolutePath().normalize();
+        Path to = Paths.get(path).toAbsolutePath().normalize();
+        return from.relativize(to).toString().replace('\\', '/');
+    }
+
+    // ------------------------------
+    // Layout
+    // ------------------------------
+
+    /** The file of chunk (cx, cy), or null if the chunk is empty or outside the level. */
+    public FileHandle getChunkFile(int cx, int cy) {
+        if (cx < 0 || cy < 0 || cx >= chunksX || cy >= chunksY) return null;
+        return chunkFile(dir, cx, cy);
+    }
+
+    public FileHandle getDir() { return dir; }
+
+    public int getChunksX() { return chunksX; }
+    public int getChunksY() { return chunksY; }
+
+    public int getChunkWidthTiles() { return chunkWidthTiles; }
+    public int getChunkHeightTiles() { return chunkHeightTiles; }
+
+    public int getTileWidthPx() { return tileWidthPx; }
+    public int getTileHeightPx() { return tileHeightPx; }
+}
@@ -0,0 +1,45 @@
+package si.um.feri.platformer.map;
+
+import com.badlogic.gdx.assets.AssetDescriptor;
+import com.badlogic.gdx.assets.AssetLoaderParameters;
+import com.badlogic.gdx.assets.AssetManager;
+import com.badlogic.gdx.assets.loaders.AsynchronousAssetLoader;
+import com.badlogic.gdx.assets.loaders.FileHandleResolver;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.Array;
+
+/**
+ * AssetManager loader for {@link ChunkedLevel}s; the asset name is the chunk directory. Every
+ * chunk's simulation data is read and stitched on the loader thread. No tiles or textures are
+ * loaded; ChunkedMapManager streams those per chunk.
+ */
+public class ChunkedLevelLoader extends AsynchronousAssetLoader<ChunkedLevel, ChunkedLevelLoader.Parameters> {
+
+    public static class Parameters extends AssetLoaderParameters<ChunkedLevel> {
+    }
+
+    // built in loadAsync, handed out in loadSync; the AssetManager runs one task per loader at a time
+    private ChunkedLevel level;
+
+    public ChunkedLevelLoader(FileHandleResolver resolver) {
+        super(resolver);
+    }
+
+    @Override
+    public Array<AssetDescriptor> getDependencies(String fileName, FileHandle file, Parameters parameter) {
+        return null;
+    }
+
+    @Override
+    public void loadAsync(AssetManager manager, String fileName, FileHandle file, Parameters parameter) {
+        level = ChunkedLevel.open(file);
+        level.getLevelData();
+    }
+
+    @Override
+    public ChunkedLevel loadSync(AssetManager manager, String fileName, FileHandle file, Parameters parameter) {
+        ChunkedLevel result = level;
+        level = null;
+        return result;
+    }
+}
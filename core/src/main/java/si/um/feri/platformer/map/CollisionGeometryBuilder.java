@@ -0,0 +1,163 @@
+package si.um.feri.platformer.map;
+
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.physics.box2d.Body;
+import com.badlogic.gdx.physics.box2d.BodyDef;
+import com.badlogic.gdx.physics.box2d.Filter;
+import com.badlogic.gdx.physics.box2d.Fixture;
+import com.badlogic.gdx.physics.box2d.PolygonShape;
+import com.badlogic.gdx.physics.box2d.World;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntArray;
+
+/**
+ * Turns a grid of solid tiles into as few Box2D fixtures as possible.
+ * Solid tiles are merged into greedy maximal rectangles (grow right, then grow up),
+ * and every rectangle becomes one box fixture on a single static body.
+ */
+public class CollisionGeometryBuilder {
+
+    /** Filter category of solid tile fixtures; box2dlights casts shadows from these. */
+    public static final short SOLID_TILE_CATEGORY = 0x0002;
+
+    private CollisionGeometryBuilder() {
+    }
+
+    /**
+     * Greedy rectangle merge over the solid tiles of the grid.
+     * Appends {x, y, w, h} quadruples (in tiles) to {@code out}.
+     */
+    public static void mergeRectangles(SolidityGrid grid, IntArray out) {
+        int width = grid.getWidth();
+        int height = grid.getHeight();
+        boolean[] used = new boolean[width * height];
+
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int i = x + y * width;
+                if (used[i] || !grid.isSolid(x, y)) continue;
+
+                // grow right
+                int w = 1;
+                while (x + w < width && !used[i + w] && grid.isSolid(x + w, y)) w++;
+
+                // grow up while the whole span stays solid
+                int h = 1;
+                grow:
+                while (y + h < height) {
+                    int row = (y + h) * width;
+                    for (int k = x; k < x + w; k++) {
+                        if (used[row + k] || !grid.isSolid(k, y + h)) break grow;
+                    }
+                    h++;
+                }
+
+                for (int yy = y; yy < y + h; yy++) {
+                    int row = yy * width;
+                    for (int xx = x; xx < x + w; xx++) used[row + xx] = true;
+                }
+
+                out.add(x);
+                out.add(y);
+                out.add(w);
+                out.add(h);
+            }
+        }
+    }
+
+    /**
+     * Greedy rectangle merge over the solid tiles flagged in {@code open} (indexed
+     * {@code x + y * width}) between (x0, y0) inclusive and (x1, y1) exclusive; used to
+     * cover a region again after some of its rectangles were dropped. Appends to {@code out}
+     * like {@link #mergeRectangles(SolidityGrid, IntArray)} and clears every flag in the
+     * region, so the array can be reused without another pass.
+     */
+    public static void mergeRectangles(SolidityGrid grid, boolean[] open, int x0, int y0, int x1, int y1, IntArray out) {
+        int width = grid.getWidth();
+
+        for (int y = y0; y < y1; y++) {
+            for (int x = x0; x < x1; x++) {
+                int i = x + y * width;
+                if (!open[i]) continue;
+                if (!grid.isSolid(x, y)) {
+                    open[i] = false;
+                    continue;
+                }
+
+                int w = 1;
+                while (x + w < x1 && open[i + w] && grid.isSolid(x + w, y)) w++;
+
+                int h = 1;
+                grow:
+                while (y + h < y1) {
+                    int row = (y + h) * width;
+                    for (int k = x; k < x + w; k++) {
+                        if (!open[row + k] || !grid.isSolid(k, y + h)) break grow;
+                    }
+                    h++;
+                }
+
+                for (int yy = y; yy < y + h; yy++) {
+                    int row = yy * width;
+                    for (int xx = x; xx < x + w; xx++) open[row + xx] = false;
+                }
+
+                out.add(x);
+                out.add(y);
+                out.add(w);
+                out.add(h);
+            }
+        }
+    }
+
+    /**
+     * Creates one static body holding a box fixture per merged rectangle.
+     * Rectangles are given in tiles and converted with the tile size in world units.
+     */
+    public static Body createStaticBody(World world, IntArray rects, float tileW, float tileH) {
+        return createStaticBody(world, rects, tileW, tileH, 0f, 0f);
+    }
+
+    /** Same as above, with the body placed at (originX, originY) in world units (used by map chunks). */
+    public static Body createStaticBody(World world, IntArray rects, float tileW, float tileH,
+                                        float originX, float originY) {
+        BodyDef bd = new BodyDef();
+        bd.type = BodyDef.BodyType.StaticBody;
+        bd.position.set(originX, originY);
+        Body body = world.createBody(bd);
+
+        addBoxes(body, rects, 0, tileW, tileH, null);
+        return body;
+    }
+
+    /**
+     * Adds a box fixture with the occluder filter to {@code body} for every rectangle starting
+     * at {@code rects[from]} (a multiple of 4), and appends the fixtures to {@code out} if given.
+     */
+    public static void addBoxes(Body body, IntArray rects, int from, float tileW, float tileH, Array<Fixture> out) {
+        // ---------- LIGHTING FILTER (required to cast shadows) ----------
+        Filter filter = new Filter();
+        filter.categoryBits = SOLID_TILE_CATEGORY;
+        filter.maskBits     = -1;       // collide with all (lights included)
+        // ----------------------------------------------------------------
+
+        PolygonShape shape = new PolygonShape();
+        Vector2 center = new Vector2();
+
+        for (int i = from; i < rects.size; i += 4) {
+            int x = rects.get(i);
+            int y = rects.get(i + 1);
+            int w = rects.get(i + 2);
+            int h = rects.get(i + 3);
+
+            center.set((x + w * 0.5f) * tileW, (y + h * 0.5f) * tileH);
+            shape.setAsBox(w * tileW * 0.5f, h * tileH * 0.5f, center, 0f);
+
+            Fixture fixture = body.createFixture(shape, 0);
+            fixture.setFilterData(filter);
+            if (out != null) out.add(fixture);
+        }
+
+        shape.dispose();
+    }
+}
@@ -0,0 +1,523 @@
+package si.um.feri.platformer.map;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.maps.MapLayer;
+import com.badlogic.gdx.maps.MapObjects;
+import com.badlogic.gdx.maps.objects.RectangleMapObject;
+import com.badlogic.gdx.maps.tiled.TiledMap;
+import com.badlogic.gdx.maps.tiled.TiledMapTile;
+import com.badlogic.gdx.maps.tiled.TiledMapTileLayer;
+import com.badlogic.gdx.maps.tiled.TiledMapTileSet;
+import com.badlogic.gdx.maps.tiled.tiles.StaticTiledMapTile;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.IntArray;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A level compiled ahead of time from a TMX map ({@code <map>.lvl} next to it, written by the
+ * headless {@code LevelCompiler}). It holds what would otherwise be derived from the XML on
+ * every start: raw tile ids and the role of each tile layer, tileset metadata, the solidity
+ * and coin grids, the merged collision rectangles, damage rectangles in world units and the
+ * level lights.
+ *
+ * {@link #read(FileHandle)} memory-maps the file where the backend allows it and bulk-copies
+ * the arrays out of the buffer, so loading is a handful of array allocations and no parsing.
+ * {@link #buildMap(Texture[])} turns the tile data back into a TiledMap for rendering.
+ */
+public class CompiledLevel implements Disposable {
+
+    public static final String EXTENSION = "lvl";
+
+    private static final int MAGIC = 0x504C564C; // "PLVL"
+    private static final int VERSION = 3;
+
+    // Tiled keeps the flip/rotation flags in the top bits of each gid
+    private static final int FLIP_HORIZONTALLY = 0x80000000;
+    private static final int FLIP_VERTICALLY = 0x40000000;
+    private static final int FLIP_DIAGONALLY = 0x20000000;
+    private static final int GID_MASK = 0x1FFFFFFF;
+
+    private static final float PPM = 32f;
+
+    // ------------------------------
+    // Layer roles
+    // ------------------------------
+
+    public static final int ROLE_OTHER = 0;
+    /** Drawn before the lights (Background, Trees). */
+    public static final int ROLE_BACKGROUND = 1;
+    /** Drawn after the lights, not solid (Spikes). */
+    public static final int ROLE_FOREGROUND = 2;
+    /** Drawn after the lights and collided with (Foreground). */
+    public static final int ROLE_SOLID = 3;
+    /** Collectable coins. */
+    public static final int ROLE_COIN = 4;
+
+    /** Classifies a tile layer by name, the same way MapManager does for TMX maps. */
+    public static int roleOf(String layerName) {
+        if (layerName.equalsIgnoreCase("Foreground")) return ROLE_SOLID;
+        if (layerName.equalsIgnoreCase("Coin")) return ROLE_COIN;
+        if (layerName.equalsIgnoreCase("Spikes")) return ROLE_FOREGROUND;
+        if (layerName.equalsIgnoreCase("Background") || layerName.equalsIgnoreCase("Trees")) return ROLE_BACKGROUND;
+        return ROLE_OTHER;
+    }
+
+    // ------------------------------
+    // Level contents
+    // ------------------------------
+
+    public static class TileLayer {
+        public String name;
+        public int role;
+        public float opacity = 1f;
+        public boolean visible = true;
+        public int[] gids; // TMX order: rows top-down, flip flags kept; null from readLevelData
+    }
+
+    public static class Tileset {
+        public String name;
+        public String image; // relative to the level file
+        public int firstGid;
+        public int tileWidth;
+        public int tileHeight;
+        public int margin;
+        public int spacing;
+        public int columns;
+        public int tileCount;
+        public String[] propertyNames = new String[0];
+        public String[] propertyValues = new String[0];
+    }
+
+    public static class Light {
+        public float x, y, width, height;  // pixels, y-up like TmxMapLoader objects
+        public float distance = Float.NaN; // NaN: LightingManager default
+        public Color color;                // null: LightingManager default
+        public boolean flicker;
+    }
+
+    private final int widthTiles;
+    private final int heightTiles;
+    private final int tileWidthPx;
+    private final int tileHeightPx;
+
+    private final Array<TileLayer> layers;
+    private final Array<Tileset> tilesets;
+    private final SolidityGrid solidity;
+    private final SolidityGrid coins;
+    private final TileShapes shapes;
+    private final IntArray collisionRects; // {x, y, w, h} in tiles
+    private final float[] damageRects;     // {x, y, w, h} in world units
+    private final Array<Light> lights;
+    private final float[] spawns;          // {kind, x, y} in world units
+
+    private RectangleIndex damageIndex;
+    private LevelData levelData;
+    private TiledMap map;
+
+    public CompiledLevel(int widthTiles, int heightTiles, int tileWidthPx, int tileHeightPx,
+                         Array<TileLayer> layers, Array<Tileset> tilesets,
+                         SolidityGrid solidity, SolidityGrid coins, IntArray collisionRects,
+                         float[] damageRects, Array<Light> lights, float[] spawns, TileShapes shapes) {
+        this.widthTiles = widthTiles;
+        this.heightTiles = heightTiles;
+        this.tileWidthPx = tileWidthPx;
+        this.tileHeightPx = tileHeightPx;
+        this.layers = layers;
+        this.tilesets = tilesets;
+        this.solidity = solidity;
+        this.coins = coins;
+        this.collisionRects = collisionRects;
+        this.damageRects = damageRects;
+        this.lights = lights;
+        this.spawns = spawns;
+        this.shapes = shapes;
+    }
+
+    /** Simulation view of the level, built on first use and cached. The solidity grid is shared with it; see {@link LevelData#copyTerrain()} before editing. */
+    public LevelData getLevelData() {
+        if (levelData == null) {
+            if (damageIndex == null) {
+                float tileW = tileWidthPx / PPM;
+                damageIndex = new RectangleIndex(
+                    damageRects, damageRects.length / 4,
+                    widthTiles * tileW, heightTiles * (tileHeightPx / PPM),
+                    LevelData.DAMAGE_INDEX_CELL_TILES * tileW
+                );
+            }
+            levelData = new LevelData(widthTiles, heightTiles, tileWidthPx, tileHeightPx,
+                solidity, coins, damageIndex, spawns, shapes);
+        }
+        return levelData;
+    }
+
+    /** Index of {@link #getDamageRects()} built ahead of time, e.g. by a {@link LevelPipeline} stage. */
+    void setDamageIndex(RectangleIndex damageIndex) { this.damageIndex = damageIndex; }
+
+    public int getWidthTiles() { return widthTiles; }
+    public int getHeightTiles() { return heightTiles; }
+    public int getTileWidthPx() { return tileWidthPx; }
+    public int getTileHeightPx() { return tileHeightPx; }
+
+    public Array<TileLayer> getLayers() { return layers; }
+    public Array<Tileset> getTilesets() { return tilesets; }
+    public SolidityGrid getSolidity() { return solidity; }
+    public SolidityGrid getCoins() { return coins; }
+    /** Merged Foreground rectangles as {x, y, w, h} in tiles, ready for CollisionGeometryBuilder. */
+    public IntArray getCollisionRects() { return collisionRects; }
+    public float[] getDamageRects() { return damageRects; }
+    public Array<Light> getLights() { return lights; }
+    public float[] getSpawns() { return spawns; }
+
+    /** The map built by {@link #buildMap}, or null before that. */
+    public TiledMap getMap() { return map; }
+
+    // ------------------------------
+    // Rendering
+    // ------------------------------
+
+    /**
+     * Path of a tileset image for loading, resolved against the level file the same way
+     * TmxMapLoader resolves image sources.
+     */
+    public static String resolveImagePath(FileHandle levelFile, String image) {
+        FileHandle dir = levelFile.parent();
+        for (String part : image.replace('\\', '/').split("/")) {
+            if (part.equals("..")) dir = dir.parent();
+            else if (!part.isEmpty() && !part.equals(".")) dir = dir.child(part);
+        }
+        return dir.path();
+    }
+
+    /**
+     * Rebuilds the tile layers, tilesets and the "Damage" and "Lights" object layers as a
+     * TiledMap equivalent to what TmxMapLoader produces. {@code textures[i]} is the image of
+     * tileset {@code i}; the textures stay owned by the caller.
+     */
+    public TiledMap buildMap(Texture[] textures) {
+        TiledMap result = new TiledMap();
+
+        for (int i = 0; i < tilesets.size; i++) {
+            Tileset ts = tilesets.get(i);
+            TiledMapTileSet set = new TiledMapTileSet();
+            set.setName(ts.name);
+            for (int p = 0; p < ts.propertyNames.length; p++) set.getProperties().put(ts.propertyNames[p], ts.propertyValues[p]);
+
+            for (int id = 0; id < ts.tileCount; id++) {
+                int x = ts.margin + (id % ts.columns) * (ts.tileWidth + ts.spacing);
+                int y = ts.margin + (id / ts.columns) * (ts.tileHeight + ts.spacing);
+                StaticTiledMapTile tile = new StaticTiledMapTile(new TextureRegion(textures[i], x, y, ts.tileWidth, ts.tileHeight));
+                tile.setId(ts.firstGid + id);
+                set.putTile(ts.firstGid + id, tile);
+            }
+            result.getTileSets().addTileSet(set);
+        }
+
+        for (TileLayer source : layers) {
+            TiledMapTileLayer layer = new TiledMapTileLayer(widthTiles, heightTiles, tileWidthPx, tileHeightPx);
+            layer.setName(source.name);
+            layer.setOpacity(source.opacity);
+            layer.setVisible(source.visible);
+
+            for (int row = 0; row < heightTiles; row++) {
+                // TMX rows run top-down, TiledMapTileLayer y runs bottom-up
+                int y = heightTiles - 1 - row;
+                for (int x = 0; x < widthTiles; x++) {
+                    int gid = source.gids[x + row * widthTiles];
+                    if ((gid & GID_MASK) == 0) continue;
+                    TiledMapTile tile = result.getTileSets().getTile(gid & GID_MASK);
+                    if (tile != null) layer.setCell(x, y, createCell(tile, gid));
+                }
+            }
+            result.getLayers().add(layer);
+        }
+
+        MapLayer damage = new MapLayer();
+        damage.setName("Damage");
+        for (int i = 0; i + 3 < damageRects.length; i += 4) {
+            damage.getObjects().add(new RectangleMapObject(
+                damageRects[i] * PPM, damageRects[i + 1] * PPM, damageRects[i + 2] * PPM, damageRects[i + 3] * PPM));
+        }
+        result.getLayers().add(damage);
+
+        if (lights.size > 0) {
+            MapLayer lightLayer = new MapLayer();
+            lightLayer.setName("Lights");
+            MapObjects objects = lightLayer.getObjects();
+            for (Light l : lights) {
+                RectangleMapObject object = new RectangleMapObject(l.x, l.y, l.width, l.height);
+                if (!Float.isNaN(l.distance)) object.getProperties().put("distance", l.distance);
+                if (l.color != null) object.getProperties().put("color", new Color(l.color));
+                object.getProperties().put("flicker", l.flicker);
+                objects.add(object);
+            }
+            result.getLayers().add(lightLayer);
+        }
+
+        map = result;
+        return result;
+    }
+
+    /** Same flag handling as TmxMapLoader: the diagonal flip becomes a rotation. */
+    private static TiledMapTileLayer.Cell createCell(TiledMapTile tile, int gid) {
+        boolean flipH = (gid & FLIP_HORIZONTALLY) != 0;
+        boolean flipV = (gid & FLIP_VERTICALLY) != 0;
+        boolean flipD = (gid & FLIP_DIAGONALLY) != 0;
+
+        TiledMapTileLayer.Cell cell = new TiledMapTileLayer.Cell();
+        cell.setTile(tile);
+        if (flipD) {
+            if (flipH && flipV) {
+                cell.setFlipHorizontally(true);
+                cell.setRotation(TiledMapTileLayer.Cell.ROTATE_270);
+            } else if (flipH) {
+                cell.setRotation(TiledMapTileLayer.Cell.ROTATE_270);
+            } else if (flipV) {
+                cell.setRotation(TiledMapTileLayer.Cell.ROTATE_90);
+            } else {
+                cell.setFlipVertically(true);
+                cell.setRotation(TiledMapTileLayer.Cell.ROTATE_270);
+            }
+        } else {
+            cell.setFlipHorizontally(flipH);
+            cell.setFlipVertically(flipV);
+        }
+        return cell;
+    }
+
+    @Override
+    public void dispose() {
+        // the tileset textures belong to whoever passed them to buildMap
+        if (map != null) map.dispose();
+        map = null;
+    }
+
+    // ------------------------------
+    // Binary format
+    // ------------------------------
+
+    /*
+     * Big-endian, in order:
+     *   magic, version, width, height, tileWidthPx, tileHeightPx
+     *   tilesets:  count, then per set name, image, firstGid, tileWidth, tileHeight, margin,
+     *              spacing, columns, tileCount, property count, (name, value)*
+     *   layers:    count, then per layer name, role (byte), opacity, visible (byte), gids[w*h]
+     *   solidity:  long[((w + 63) / 64) * h], coins: same
+     *   shapes:    byte[w * h], TileShapes per tile in row order, bottom row first
+     *   collision: rect count, int[4n] in tiles
+     *   damage:    rect count, float[4n] in world units
+     *   lights:    count, then per light x, y, w, h, distance, color (RGBA8888, 0 = default), flicker (byte)
+     *   spawns:    count, float[3n] {kind, x, y} in world units
+     * Strings are an unsigned short byte length followed by UTF-8 bytes.
+     */
+
+    public void write(FileHandle file) {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file.write(false), 64 * 1024))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(widthTiles);
+            out.writeInt(heightTiles);
+            out.writeInt(tileWidthPx);
+            out.writeInt(tileHeightPx);
+
+            out.writeInt(tilesets.size);
+            for (Tileset ts : tilesets) {
+                writeString(out, ts.name);
+                writeString(out, ts.image);
+                out.writeInt(ts.firstGid);
+                out.writeInt(ts.tileWidth);
+                out.writeInt(ts.tileHeight);
+                out.writeInt(ts.margin);
+                out.writeInt(ts.spacing);
+                out.writeInt(ts.columns);
+                out.writeInt(ts.tileCount);
+                out.writeInt(ts.propertyNames.length);
+                for (int p = 0; p < ts.propertyNames.length; p++) {
+                    writeString(out, ts.propertyNames[p]);
+                    writeString(out, ts.propertyValues[p]);
+                }
+            }
+
+            out.writeInt(layers.size);
+            for (TileLayer layer : layers) {
+                writeString(out, layer.name);
+                out.writeByte(layer.role);
+                out.writeFloat(layer.opacity);
+                out.writeBoolean(layer.visible);
+                for (int gid : layer.gids) out.writeInt(gid);
+            }
+
+            for (long word : solidity.words()) out.writeLong(word);
+            for (long word : coins.words()) out.writeLong(word);
+            out.write(shapes.cells());
+
+            out.writeInt(collisionRects.size / 4);
+            for (int i = 0; i < collisionRects.size; i++) out.writeInt(collisionRects.get(i));
+
+            out.writeInt(damageRects.length / 4);
+            for (float v : damageRects) out.writeFloat(v);
+
+            out.writeInt(lights.size);
+            for (Light l : lights) {
+                out.writeFloat(l.x);
+                out.writeFloat(l.y);
+                out.writeFloat(l.width);
+                out.writeFloat(l.height);
+                out.writeFloat(l.distance);
+                out.writeInt(l.color != null ? Color.rgba8888(l.color) : 0);
+                out.writeBoolean(l.flicker);
+            }
+
+            out.writeInt(spawns.length / 3);
+            for (float v : spawns) out.writeFloat(v);
+        } catch (IOException e) {
+            throw new GdxRuntimeException("Failed to write compiled level " + file.path(), e);
+        }
+    }
+
+    public static CompiledLevel read(FileHandle file) {
+        return read(file, true);
+    }
+
+    /**
+     * Only the simulation's view of a compiled level: the tile layers are skipped rather than
+     * copied, so nothing of the file but the grids and object data stays in memory.
+     */
+    public static LevelData readLevelData(FileHandle file) {
+        return read(file, false).getLevelData();
+    }
+
+    private static CompiledLevel read(FileHandle file, boolean tiles) {
+        ByteBuffer in = open(file);
+
+        if (in.getInt() != MAGIC) throw new GdxRuntimeException("Not a compiled level: " + file.path());
+        int version = in.getInt();
+        if (version != VERSION) throw new GdxRuntimeException("Compiled level " + file.path() + " has version " + version + ", expected " + VERSION);
+
+        int width = in.getInt();
+        int height = in.getInt();
+        int tileWidthPx = in.getInt();
+        int tileHeightPx = in.getInt();
+
+        int tilesetCount = in.getInt();
+        Array<Tileset> tilesets = new Array<>(tilesetCount);
+        for (int i = 0; i < tilesetCount; i++) {
+            Tileset ts = new Tileset();
+            ts.name = readString(in);
+            ts.image = readString(in);
+            ts.firstGid = in.getInt();
+            ts.tileWidth = in.getInt();
+            ts.tileHeight = in.getInt();
+            ts.margin = in.getInt();
+            ts.spacing = in.getInt();
+            ts.columns = in.getInt();
+            ts.tileCount = in.getInt();
+            int properties = in.getInt();
+            ts.propertyNames = new String[properties];
+            ts.propertyValues = new String[properties];
+            for (int p = 0; p < properties; p++) {
+                ts.propertyNames[p] = readString(in);
+                ts.propertyValues[p] = readString(in);
+            }
+            tilesets.add(ts);
+        }
+
+        int layerCount = in.getInt();
+        Array<TileLayer> layers = new Array<>(layerCount);
+        for (int i = 0; i < layerCount; i++) {
+            TileLayer layer = new TileLayer();
+            layer.name = readString(in);
+            layer.role = in.get();
+            layer.opacity = in.getFloat();
+            layer.visible = in.get() != 0;
+            if (tiles) {
+                layer.gids = new int[width * height];
+                in.asIntBuffer().get(layer.gids);
+            }
+            skip(in, width * height * 4);
+            layers.add(layer);
+        }
+
+        int words = ((width + 63) >>> 6) * height;
+        long[] solid = new long[words];
+        in.asLongBuffer().get(solid);
+        skip(in, words * 8);
+        long[] coinBits = new long[words];
+        in.asLongBuffer().get(coinBits);
+        skip(in, words * 8);
+        byte[] shapeCells = new byte[width * height];
+        in.get(shapeCells);
+
+        int[] rects = new int[in.getInt() * 4];
+        in.asIntBuffer().get(rects);
+        skip(in, rects.length * 4);
+
+        float[] damage = new float[in.getInt() * 4];
+        in.asFloatBuffer().get(damage);
+        skip(in, damage.length * 4);
+
+        int lightCount = in.getInt();
+        Array<Light> lights = new Array<>(lightCount);
+        for (int i = 0; i < lightCount; i++) {
+            Light l = new Light();
+            l.x = in.getFloat();
+            l.y = in.getFloat();
+            l.width = in.getFloat();
+            l.height = in.getFloat();
+            l.distance = in.getFloat();
+            int rgba = in.getInt();
+            if (rgba != 0) l.color = new Color(rgba);
+            l.flicker = in.get() != 0;
+            lights.add(l);
+        }
+
+        float[] spawns = new float[in.getInt() * 3];
+        in.asFloatBuffer().get(spawns);
+        skip(in, spawns.length * 4);
+
+        return new CompiledLevel(width, height, tileWidthPx, tileHeightPx, layers, tilesets,
+            new SolidityGrid(width, height, solid), new SolidityGrid(width, height, coinBits),
+            new IntArray(rects), damage, lights, spawns, new TileShapes(width, height, shapeCells));
+    }
+
+    /** The compiled level written next to a TMX map, or null if there is none. */
+    public static FileHandle siblingOf(FileHandle tmx) {
+        FileHandle level = tmx.sibling(tmx.nameWithoutExtension() + "." + EXTENSION);
+        return level.exists() ? level : null;
+    }
+
+    private static ByteBuffer open(FileHandle file) {
+        try {
+            // read-only mapping of the file; no copy into the Java heap
+            return file.map();
+        } catch (GdxRuntimeException e) {
+            // classpath and packaged internal files cannot be mapped
+            return ByteBuffer.wrap(file.readBytes());
+        }
+    }
+
+    private static void skip(ByteBuffer in, int bytes) {
+        in.position(in.position() + bytes);
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] bytes = (s != null ? s : "").getBytes(StandardCharsets.UTF_8);
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        byte[] bytes = new byte[in.getShort() & 0xFFFF];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
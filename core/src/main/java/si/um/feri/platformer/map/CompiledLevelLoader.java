@@ -0,0 +1,57 @@
+package si.um.feri.platformer.map;
+
+import com.badlogic.gdx.assets.AssetDescriptor;
+import com.badlogic.gdx.assets.AssetLoaderParameters;
+import com.badlogic.gdx.assets.AssetManager;
+import com.badlogic.gdx.assets.loaders.AsynchronousAssetLoader;
+import com.badlogic.gdx.assets.loaders.FileHandleResolver;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.utils.Array;
+
+/**
+ * AssetManager loader for {@link CompiledLevel}s. The file is read and the TiledMap built on
+ * the AssetManager's loader thread; the tileset images are loaded as ordinary, reference
+ * counted Texture dependencies, so levels sharing a tileset share its texture.
+ */
+public class CompiledLevelLoader extends AsynchronousAssetLoader<CompiledLevel, CompiledLevelLoader.Parameters> {
+
+    public static class Parameters extends AssetLoaderParameters<CompiledLevel> {
+    }
+
+    // read in getDependencies, finished in loadAsync; the AssetManager runs one task per loader at a time
+    private CompiledLevel level;
+    private String[] imagePaths;
+
+    public CompiledLevelLoader(FileHandleResolver resolver) {
+        super(resolver);
+    }
+
+    @Override
+    public Array<AssetDescriptor> getDependencies(String fileName, FileHandle file, Parameters parameter) {
+        level = CompiledLevel.read(file);
+
+        Array<AssetDescriptor> dependencies = new Array<>();
+        imagePaths = new String[level.getTilesets().size];
+        for (int i = 0; i < imagePaths.length; i++) {
+            imagePaths[i] = CompiledLevel.resolveImagePath(file, level.getTilesets().get(i).image);
+            dependencies.add(new AssetDescriptor<>(imagePaths[i], Texture.class));
+        }
+        return dependencies;
+    }
+
+    @Override
+    public void loadAsync(AssetManager manager, String fileName, FileHandle file, Parameters parameter) {
+        Texture[] textures = new Texture[imagePaths.length];
+        for (int i = 0; i < textures.length; i++) textures[i] = manager.get(imagePaths[i], Texture.class);
+        level.buildMap(textures);
+    }
+
+    @Override
+    public CompiledLevel loadSync(AssetManager manager, String fileName, FileHandle file, Parameters parameter) {
+        CompiledLevel result = level;
+        level = null;
+        imagePaths = null;
+        return result;
+    }
+}
@@ -0,0 +1,82 @@
+package si.um.feri.platformer.map;
+
+/**
+ * Everything the simulation needs to know about a level, without any rendering state:
+ * tile metrics, the Foreground solidity grid and its one-way / slope tiles, the initial coin
+ * grid, the damage index and the entity spawns.
+ *
+ * Treat instances as read-only once built. Sessions copy {@link #getCoins()} before
+ * collecting coins, so one LevelData can back any number of sessions. A level that edits its
+ * Foreground works on {@link #copyTerrain()} instead.
+ */
+public class LevelData {
+
+    /** Edge of a damage index cell, in tiles. */
+    public static final int DAMAGE_INDEX_CELL_TILES = 4;
+
+    private final int widthTiles;
+    private final int heightTiles;
+    private final int tileWidthPx;
+    private final int tileHeightPx;
+
+    private final float tileWidth;  // world units
+    private final float tileHeight; // world units
+
+    private final SolidityGrid solidity;
+    private final SolidityGrid coins;
+    private final RectangleIndex damageIndex;
+    private final float[] spawns; // {kind, x, y} in world units, see EntityFactory
+    private final TileShapes shapes;
+
+    public LevelData(int widthTiles, int heightTiles, int tileWidthPx, int tileHeightPx,
+                     SolidityGrid solidity, SolidityGrid coins, RectangleIndex damageIndex) {
+        this(widthTiles, heightTiles, tileWidthPx, tileHeightPx, solidity, coins, damageIndex, new float[0],
+            new TileShapes(widthTiles, heightTiles));
+    }
+
+    public LevelData(int widthTiles, int heightTiles, int tileWidthPx, int tileHeightPx,
+                     SolidityGrid solidity, SolidityGrid coins, RectangleIndex damageIndex, float[] spawns,
+                     TileShapes shapes) {
+        this.widthTiles = widthTiles;
+        this.heightTiles = heightTiles;
+        this.tileWidthPx = tileWidthPx;
+        this.tileHeightPx = tileHeightPx;
+        this.tileWidth = tileWidthPx / 32f;
+        this.tileHeight = tileHeightPx / 32f;
+        this.solidity = solidity;
+        this.coins = coins;
+        this.damageIndex = damageIndex;
+        this.spawns = spawns;
+        this.shapes = shapes;
+    }
+
+    /**
+     * Copy with its own solidity grid and tile shapes, which may then be edited; the coins,
+     * damage index and spawns stay shared and read-only.
+     */
+    public LevelData copyTerrain() {
+        return new LevelData(widthTiles, heightTiles, tileWidthPx, tileHeightPx,
+            solidity.copy(), coins, damageIndex, spawns, shapes.copy());
+    }
+
+    public int getWidthTiles() { return widthTiles; }
+    public int getHeightTiles() { return heightTiles; }
+
+    public int getTileWidthPx() { return tileWidthPx; }
+    public int getTileHeightPx() { return tileHeightPx; }
+
+    public float getTileWidth() { return tileWidth; }
+    public float getTileHeight() { return tileHeight; }
+
+    public float getWidth() { return widthTiles * tileWidth; }
+    public float getHeight() { return heightTiles * tileHeight; }
+
+    public SolidityGrid getSolidity() { return solidity; }
+    /** One-way platforms and slopes; these tiles are not in {@link #getSolidity()}. */
+    public TileShapes getShapes() { return shapes; }
+    /** Initial coin layout. Do not mutate; copy it per session. */
+    public SolidityGrid getCoins() { return coins; }
+    public RectangleIndex getDamageIndex() { return damageIndex; }
+    /** Entities placed in the level as {kind, x, y} triples (world units, bottom-left). Do not mutate. */
+    public float[] getSpawns() { return spawns; }
+}
@@ -0,0 +1,246 @@
+package si.um.feri.platformer.map;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.FloatArray;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.XmlReader;
+import com.badlogic.gdx.utils.XmlReader.Element;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Preprocesses TMX levels with the independent stages of each level running in parallel on
+ * a {@link ForkJoinPool}:
+ *
+ * <pre>
+ * parse --+-- decodeLayers (one task per layer) --+-- solidity -- occluders
+ *         |                                       +-- coins
+ *         +-- damageIndex, lights, spawns
+ * </pre>
+ *
+ * {@link #compileAll} also runs whole levels side by side, so compiling a directory of maps
+ * scales with the pool. Nothing here touches Box2D: creating the occluder bodies from the
+ * merged rectangles ({@link Stage#BODIES}) stays with the thread that owns the World.
+ *
+ * Every stage is timed into {@link #getTimings()}; the times are summed over levels and
+ * threads, so comparing them to the wall time shows how well a run scaled.
+ */
+public class LevelPipeline {
+
+    public enum Stage {
+        PARSE("parse"),
+        DECODE_LAYERS("decodeLayers"),
+        SOLIDITY("solidity"),
+        COINS("coins"),
+        OCCLUDERS("occluders"),
+        DAMAGE_INDEX("damageIndex"),
+        LIGHTS("lights"),
+        SPAWNS("spawns"),
+        /** Box2D bodies for the occluders; timed by the caller on the World's thread. */
+        BODIES("bodies");
+
+        public final String label;
+
+        Stage(String label) {
+            this.label = label;
+        }
+    }
+
+    /** Per-stage time summed over every level and thread; safe to update concurrently. */
+    public static class Timings {
+        private final AtomicLongArray nanos = new AtomicLongArray(Stage.values().length);
+        private final AtomicLong wallNanos = new AtomicLong();
+        private final AtomicLong levels = new AtomicLong();
+
+        public void add(Stage stage, long stageNanos) {
+            nanos.addAndGet(stage.ordinal(), stageNanos);
+        }
+
+        public void addWall(long runNanos, int levelCount) {
+            wallNanos.addAndGet(runNanos);
+            levels.addAndGet(levelCount);
+        }
+
+        public long getNanos(Stage stage) { return nanos.get(stage.ordinal()); }
+        public long getWallNanos() { return wallNanos.get(); }
+        public long getLevels() { return levels.get(); }
+
+        public void reset() {
+            for (int i = 0; i < nanos.length(); i++) nanos.set(i, 0L);
+            wallNanos.set(0L);
+            levels.set(0L);
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append("levels=").append(getLevels())
+                .append(" wall=").append(String.format("%.2f", getWallNanos() / 1_000_000.0)).append(" ms |");
+            for (Stage stage : Stage.values()) {
+                long n = getNanos(stage);
+                if (n == 0) continue;
+                sb.append(' ').append(stage.label).append('=').append(String.format("%.2f", n / 1_000_000.0)).append(" ms");
+            }
+            return sb.toString();
+        }
+    }
+
+    private final ForkJoinPool pool;
+    private final Timings timings = new Timings();
+
+    public LevelPipeline(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /** Pipeline on the common pool. */
+    public LevelPipeline() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public Timings getTimings() { return timings; }
+    public ForkJoinPool getPool() { return pool; }
+
+    /** Compiles one TMX map; its stages run in parallel. */
+    public CompiledLevel compile(final FileHandle tmx) {
+        long start = System.nanoTime();
+        CompiledLevel level = pool.invoke(ForkJoinTask.adapt(() -> compileLevel(tmx)));
+        timings.addWall(System.nanoTime() - start, 1);
+        return level;
+    }
+
+    /** Compiles every map, levels and their stages in parallel. Results are in the order of {@code tmxFiles}. */
+    public Array<CompiledLevel> compileAll(final Array<FileHandle> tmxFiles) {
+        long start = System.nanoTime();
+        final CompiledLevel[] results = new CompiledLevel[tmxFiles.size];
+        pool.invoke(ForkJoinTask.adapt(() -> {
+            Array<ForkJoinTask<?>> tasks = new Array<>(tmxFiles.size);
+            for (int i = 0; i < tmxFiles.size; i++) {
+                final int index = i;
+                tasks.add(ForkJoinTask.adapt(() -> results[index] = compileLevel(tmxFiles.get(index))));
+            }
+            invokeAll(tasks);
+        }));
+        timings.addWall(System.nanoTime() - start, tmxFiles.size);
+        return new Array<>(results);
+    }
+
+    /**
+     * Runs stages of one level that the caller put together (e.g. MapManager, from a map
+     * TmxMapLoader already decoded) in parallel and waits for them; counts as one level.
+     */
+    public void run(final Array<ForkJoinTask<?>> stages) {
+        long start = System.nanoTime();
+        pool.invoke(ForkJoinTask.adapt(() -> invokeAll(stages)));
+        timings.addWall(System.nanoTime() - start, 1);
+    }
+
+    /** Wraps {@code work} in a task that adds its run time to {@code stage}. */
+    public static ForkJoinTask<?> timed(final Timings timings, final Stage stage, final Runnable work) {
+        return ForkJoinTask.adapt(() -> {
+            long start = System.nanoTime();
+            work.run();
+            timings.add(stage, System.nanoTime() - start);
+        });
+    }
+
+    /** Runs the tasks in parallel and waits for all of them; call from a pool thread. */
+    public static void invokeAll(Array<ForkJoinTask<?>> tasks) {
+        ForkJoinTask.invokeAll(tasks.toArray(ForkJoinTask.class));
+    }
+
+    // ------------------------------
+    // One level (runs on a pool thread)
+    // ------------------------------
+
+    private CompiledLevel compileLevel(final FileHandle tmx) {
+        long start = System.nanoTime();
+        final Element root = new XmlReader().parse(tmx);
+        if (root.getIntAttribute("infinite", 0) != 0) {
+            throw new GdxRuntimeException("Infinite TMX maps are not supported: " + tmx.path());
+        }
+
+        final int width = root.getIntAttribute("width");
+        final int height = root.getIntAttribute("height");
+        final int tileWidthPx = root.getIntAttribute("tilewidth");
+        final int tileHeightPx = root.getIntAttribute("tileheight");
+        final float mapHeightPx = height * tileHeightPx;
+
+        Array<CompiledLevel.Tileset> tilesets = new Array<>();
+        for (Element element : root.getChildrenByName("tileset")) tilesets.add(TmxLevelLoader.readTileset(element, tmx));
+        final byte[] shapeByGid = TmxLevelLoader.readShapes(root);
+
+        final Array<Element> layerElements = root.getChildrenByName("layer");
+        final Array<CompiledLevel.TileLayer> layers = new Array<>(layerElements.size);
+        for (Element element : layerElements) {
+            CompiledLevel.TileLayer layer = new CompiledLevel.TileLayer();
+            layer.name = element.getAttribute("name", "");
+            layer.role = CompiledLevel.roleOf(layer.name);
+            layer.opacity = element.getFloatAttribute("opacity", 1f);
+            layer.visible = element.getIntAttribute("visible", 1) != 0;
+            layers.add(layer);
+        }
+        timings.add(Stage.PARSE, System.nanoTime() - start);
+
+        // object groups only need the XML; start them before the layers
+        final ObjectGroups groups = new ObjectGroups();
+        Array<ForkJoinTask<?>> objects = new Array<>(3);
+        objects.add(timed(timings, Stage.DAMAGE_INDEX, () -> {
+            FloatArray rects = TmxLevelLoader.readDamageRects(root, mapHeightPx);
+            float tileW = tileWidthPx / 32f;
+            groups.damageRects = rects.toArray();
+            groups.damageIndex = new RectangleIndex(rects.items, rects.size / 4,
+                width * tileW, height * (tileHeightPx / 32f), LevelData.DAMAGE_INDEX_CELL_TILES * tileW);
+        }));
+        objects.add(timed(timings, Stage.LIGHTS, () -> groups.lights = TmxLevelLoader.readLights(root, mapHeightPx)));
+        objects.add(timed(timings, Stage.SPAWNS, () -> groups.spawns = TmxLevelLoader.readSpawns(root, mapHeightPx).toArray()));
+        for (ForkJoinTask<?> task : objects) task.fork();
+
+        Array<ForkJoinTask<?>> decode = new Array<>(layers.size);
+        for (int i = 0; i < layers.size; i++) {
+            final CompiledLevel.TileLayer layer = layers.get(i);
+            final Element element = layerElements.get(i);
+            decode.add(timed(timings, Stage.DECODE_LAYERS, () -> layer.gids = TmxLevelLoader.decodeLayer(element, width, height)));
+        }
+        invokeAll(decode);
+
+        final SolidityGrid solidity = new SolidityGrid(width, height);
+        final SolidityGrid coins = new SolidityGrid(width, height);
+        final TileShapes shapes = new TileShapes(width, height);
+        final IntArray collisionRects = new IntArray();
+        Array<ForkJoinTask<?>> grids = new Array<>(2);
+        grids.add(ForkJoinTask.adapt(() -> {
+            timed(timings, Stage.SOLIDITY, () -> {
+                for (CompiledLevel.TileLayer layer : layers) {
+                    if (layer.role == CompiledLevel.ROLE_SOLID) TmxLevelLoader.fillSolid(layer.gids, shapeByGid, solidity, shapes);
+                }
+            }).invoke();
+            timed(timings, Stage.OCCLUDERS, () -> CollisionGeometryBuilder.mergeRectangles(solidity, collisionRects)).invoke();
+        }));
+        grids.add(timed(timings, Stage.COINS, () -> {
+            for (CompiledLevel.TileLayer layer : layers) {
+                if (layer.role == CompiledLevel.ROLE_COIN) TmxLevelLoader.fillGrid(layer.gids, coins);
+            }
+        }));
+        invokeAll(grids);
+
+        for (ForkJoinTask<?> task : objects) task.join();
+
+        CompiledLevel level = new CompiledLevel(width, height, tileWidthPx, tileHeightPx, layers, tilesets,
+            solidity, coins, collisionRects, groups.damageRects, groups.lights, groups.spawns, shapes);
+        level.setDamageIndex(groups.damageIndex);
+        return level;
+    }
+
+    /** Results of the object group stages of one level; written by their tasks before the join. */
+    private static class ObjectGroups {
+        float[] damageRects;
+        RectangleIndex damageIndex;
+        Array<CompiledLevel.Light> lights;
+        float[] spawns;
+    }
+}
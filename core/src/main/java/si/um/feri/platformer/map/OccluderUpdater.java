@@ -0,0 +1,128 @@
+package si.um.feri.platformer.map;
+
+import com.badlogic.gdx.physics.box2d.Body;
+import com.badlogic.gdx.physics.box2d.Fixture;
+import com.badlogic.gdx.physics.box2d.World;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntArray;
+
+/**
+ * The light occluder body of a level's solid tiles, kept in step with the solidity grid as
+ * the solid layer changes. On a change only the merged rectangles that touch a changed
+ * chunk lose their fixtures; the solid tiles of those rectangles and chunks are merged
+ * again and get new ones. Everything else, usually almost the whole level, stays as built.
+ *
+ * Rectangles never overlap, so the result covers exactly the solid tiles, just like a
+ * full rebuild, though possibly split differently.
+ */
+public class OccluderUpdater implements TileChangeTracker.Listener {
+
+    private final SolidityGrid solidity;
+    private final int layerIndex;
+    private final float tileW;
+    private final float tileH;
+
+    private final Body body;
+    // {x, y, w, h} in tiles, one per fixture, in the same order
+    private final IntArray rects;
+    private final Array<Fixture> fixtures;
+
+    // tiles to cover again, and their bounds; cleared by the merge
+    private final boolean[] open;
+    private int openX0, openY0, openX1, openY1;
+    private final IntArray merged = new IntArray();
+
+    private int lastRemoved;
+    private int lastAdded;
+
+    /**
+     * Creates the body from the already merged {@code rects} (copied). {@code layerIndex} is
+     * the map layer {@code solidity} was built from; changes to other layers are ignored.
+     */
+    public OccluderUpdater(World world, SolidityGrid solidity, IntArray rects, int layerIndex, float tileW, float tileH) {
+        this.solidity = solidity;
+        this.layerIndex = layerIndex;
+        this.tileW = tileW;
+        this.tileH = tileH;
+        this.rects = new IntArray(rects);
+        this.open = new boolean[solidity.getWidth() * solidity.getHeight()];
+
+        body = CollisionGeometryBuilder.createStaticBody(world, this.rects, tileW, tileH);
+        fixtures = new Array<>(this.rects.size / 4);
+        fixtures.addAll(body.getFixtureList());
+    }
+
+    /** The grid must already reflect the change (MapManager.setForegroundCell does both). */
+    @Override
+    public void tilesChanged(TileChangeTracker changes) {
+        if (!changes.isLayerChanged(layerIndex)) return;
+        int chunk = changes.getChunkTiles();
+
+        openX0 = Integer.MAX_VALUE;
+        openY0 = Integer.MAX_VALUE;
+        openX1 = 0;
+        openY1 = 0;
+        for (int i = 0; i < changes.getChunkCount(); i++) {
+            if (changes.getChunkLayer(i) != layerIndex) continue;
+            int x = changes.getChunkX(i) * chunk;
+            int y = changes.getChunkY(i) * chunk;
+            openRegion(x, y, Math.min(chunk, solidity.getWidth() - x), Math.min(chunk, solidity.getHeight() - y));
+        }
+
+        // drop rectangles reaching into a changed chunk; walking back keeps swap-removal safe
+        lastRemoved = 0;
+        for (int i = rects.size - 4; i >= 0; i -= 4) {
+            int x = rects.get(i);
+            int y = rects.get(i + 1);
+            int w = rects.get(i + 2);
+            int h = rects.get(i + 3);
+            if (!touchesChunk(changes, x, y, w, h, chunk)) continue;
+
+            openRegion(x, y, w, h);
+            int k = i / 4;
+            body.destroyFixture(fixtures.get(k));
+            int last = rects.size - 4;
+            for (int j = 0; j < 4; j++) rects.set(i + j, rects.get(last + j));
+            rects.truncate(last);
+            fixtures.set(k, fixtures.peek());
+            fixtures.pop();
+            lastRemoved++;
+        }
+
+        merged.clear();
+        CollisionGeometryBuilder.mergeRectangles(solidity, open, openX0, openY0, openX1, openY1, merged);
+        int from = rects.size;
+        rects.addAll(merged);
+        CollisionGeometryBuilder.addBoxes(body, rects, from, tileW, tileH, fixtures);
+        lastAdded = merged.size / 4;
+    }
+
+    private boolean touchesChunk(TileChangeTracker changes, int x, int y, int w, int h, int chunk) {
+        for (int cy = y / chunk, cy1 = (y + h - 1) / chunk; cy <= cy1; cy++) {
+            for (int cx = x / chunk, cx1 = (x + w - 1) / chunk; cx <= cx1; cx++) {
+                if (changes.isChunkChanged(layerIndex, cx, cy)) return true;
+            }
+        }
+        return false;
+    }
+
+    private void openRegion(int x, int y, int w, int h) {
+        int width = solidity.getWidth();
+        for (int yy = y; yy < y + h; yy++) {
+            for (int xx = x; xx < x + w; xx++) open[xx + yy * width] = true;
+        }
+        openX0 = Math.min(openX0, x);
+        openY0 = Math.min(openY0, y);
+        openX1 = Math.max(openX1, x + w);
+        openY1 = Math.max(openY1, y + h);
+    }
+
+    public Body getBody() { return body; }
+
+    /** Occluder fixtures currently on the body. */
+    public int getFixtureCount() { return fixtures.size; }
+
+    /** Fixtures destroyed and created by the last update. */
+    public int getLastRemoved() { return lastRemoved; }
+    public int getLastAdded() { return lastAdded; }
+}
@@ -0,0 +1,168 @@
+package si.um.feri.platformer.map;
+
+import com.badlogic.gdx.maps.MapObject;
+import com.badlogic.gdx.maps.objects.RectangleMapObject;
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.utils.FloatArray;
+import com.badlogic.gdx.utils.IntArray;
+
+/**
+ * Static uniform-grid index over axis-aligned rectangles in world units
+ * (damage zones, triggers). Rectangles are stored struct-of-arrays and every grid
+ * cell lists the rectangles touching it, so a query only looks at nearby entries.
+ * Built once at load time; queries allocate nothing and keep no state, so one index
+ * can be shared by sessions running on different threads.
+ */
+public class RectangleIndex {
+
+    private final float[] xs;
+    private final float[] ys;
+    private final float[] ws;
+    private final float[] hs;
+    private final int count;
+
+    private final float cellSize;
+    private final int cols;
+    private final int rows;
+
+    // cellStart[c]..cellStart[c + 1] is the slice of cellItems for cell c
+    private final int[] cellStart;
+    private final int[] cellItems;
+
+    /**
+     * @param rects    {x, y, w, h} quadruples in world units
+     * @param boundsW  indexed area width (world units); rectangles outside are clamped to the edge cells
+     * @param boundsH  indexed area height (world units)
+     * @param cellSize grid cell size (world units)
+     */
+    public RectangleIndex(float[] rects, int rectCount, float boundsW, float boundsH, float cellSize) {
+        this.count = rectCount;
+        this.cellSize = cellSize;
+        this.cols = Math.max(1, (int) Math.ceil(boundsW / cellSize));
+        this.rows = Math.max(1, (int) Math.ceil(boundsH / cellSize));
+
+        xs = new float[count];
+        ys = new float[count];
+        ws = new float[count];
+        hs = new float[count];
+        for (int i = 0; i < count; i++) {
+            xs[i] = rects[i * 4];
+            ys[i] = rects[i * 4 + 1];
+            ws[i] = rects[i * 4 + 2];
+            hs[i] = rects[i * 4 + 3];
+        }
+
+        // pass 1: count entries per cell
+        cellStart = new int[cols * rows + 1];
+        for (int i = 0; i < count; i++) {
+            int x0 = cellX(xs[i]), x1 = cellX(xs[i] + ws[i]);
+            int y0 = cellY(ys[i]), y1 = cellY(ys[i] + hs[i]);
+            for (int cy = y0; cy <= y1; cy++)
+                for (int cx = x0; cx <= x1; cx++)
+                    cellStart[cx + cy * cols + 1]++;
+        }
+        for (int c = 0; c < cols * rows; c++) cellStart[c + 1] += cellStart[c];
+
+        // pass 2: fill
+        cellItems = new int[cellStart[cols * rows]];
+        int[] fill = new int[cols * rows];
+        for (int i = 0; i < count; i++) {
+            int x0 = cellX(xs[i]), x1 = cellX(xs[i] + ws[i]);
+            int y0 = cellY(ys[i]), y1 = cellY(ys[i] + hs[i]);
+            for (int cy = y0; cy <= y1; cy++) {
+                for (int cx = x0; cx <= x1; cx++) {
+                    int c = cx + cy * cols;
+                    cellItems[cellStart[c] + fill[c]++] = i;
+                }
+            }
+        }
+    }
+
+    /** Converts the rectangle objects of a Tiled object layer from pixels to world units and indexes them. */
+    public static RectangleIndex fromObjects(Iterable<MapObject> objects, float pixelsPerUnit,
+                                             float boundsW, float boundsH, float cellSize) {
+        FloatArray rects = new FloatArray();
+        for (MapObject mo : objects) {
+            if (!(mo instanceof RectangleMapObject)) continue;
+            Rectangle px = ((RectangleMapObject) mo).getRectangle();
+            rects.add(px.x / pixelsPerUnit);
+            rects.add(px.y / pixelsPerUnit);
+            rects.add(px.width / pixelsPerUnit);
+            rects.add(px.height / pixelsPerUnit);
+        }
+        return new RectangleIndex(rects.items, rects.size / 4, boundsW, boundsH, cellSize);
+    }
+
+    // ------------------------------
+    // Queries
+    // ------------------------------
+
+    /**
+     * Collects the ids of all rectangles overlapping the box into {@code out} (cleared first)
+     * and returns how many were found. Touching edges do not count, like {@link Rectangle#overlaps}.
+     */
+    public int query(float x, float y, float w, float h, IntArray out) {
+        out.clear();
+        if (count == 0) return 0;
+
+        int x0 = cellX(x), x1 = cellX(x + w);
+        int y0 = cellY(y), y1 = cellY(y + h);
+
+        for (int cy = y0; cy <= y1; cy++) {
+            for (int cx = x0; cx <= x1; cx++) {
+                int c = cx + cy * cols;
+                for (int k = cellStart[c]; k < cellStart[c + 1]; k++) {
+                    int i = cellItems[k];
+                    // a rectangle spanning several cells is reported only from the first
+                    // cell it shares with the query range (no per-query "seen" marks)
+                    if (cx != Math.max(x0, cellX(xs[i])) || cy != Math.max(y0, cellY(ys[i]))) continue;
+                    if (overlaps(i, x, y, w, h)) out.add(i);
+                }
+            }
+        }
+        return out.size;
+    }
+
+    /** True if the box overlaps at least one rectangle. */
+    public boolean overlapsAny(float x, float y, float w, float h) {
+        if (count == 0) return false;
+
+        int x0 = cellX(x), x1 = cellX(x + w);
+        int y0 = cellY(y), y1 = cellY(y + h);
+
+        for (int cy = y0; cy <= y1; cy++) {
+            for (int cx = x0; cx <= x1; cx++) {
+                int c = cx + cy * cols;
+                for (int k = cellStart[c]; k < cellStart[c + 1]; k++) {
+                    if (overlaps(cellItems[k], x, y, w, h)) return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    public int size() { return count; }
+
+    public float getX(int id) { return xs[id]; }
+    public float getY(int id) { return ys[id]; }
+    public float getWidth(int id) { return ws[id]; }
+    public float getHeight(int id) { return hs[id]; }
+
+    // ------------------------------
+    // Helpers
+    // ------------------------------
+
+    private boolean overlaps(int i, float x, float y, float w, float h) {
+        return x < xs[i] + ws[i] && x + w > xs[i] && y < ys[i] + hs[i] && y + h > ys[i];
+    }
+
+    private int cellX(float x) {
+        int c = (int) Math.floor(x / cellSize);
+        return c < 0 ? 0 : (c >= cols ? cols - 1 : c);
+    }
+
+    private int cellY(float y) {
+        int c = (int) Math.floor(y / cellSize);
+        return c < 0 ? 0 : (c >= rows ? rows - 1 : c);
+    }
+}
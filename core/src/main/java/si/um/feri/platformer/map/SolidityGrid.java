@@ -0,0 +1,140 @@
+package si.um.feri.platformer.map;
+
+import com.badlogic.gdx.maps.tiled.TiledMapTileLayer;
+
+import java.util.Arrays;
+
+/**
+ * Packed one-bit-per-tile map, used for Foreground solidity and for coin presence.
+ * Each row starts on a word boundary, so a horizontal run of tiles is tested with one
+ * or two masked {@code long} reads. Tiles outside the grid are never set.
+ * All queries are allocation-free.
+ */
+public class SolidityGrid {
+
+    private final int width;
+    private final int height;
+    private final int wordsPerRow;
+    private final long[] bits;
+
+    public SolidityGrid(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.wordsPerRow = (width + 63) >>> 6;
+        this.bits = new long[wordsPerRow * height];
+    }
+
+    /** Wraps packed rows read back from a compiled level; {@code bits} is used, not copied. */
+    SolidityGrid(int width, int height, long[] bits) {
+        this.width = width;
+        this.height = height;
+        this.wordsPerRow = (width + 63) >>> 6;
+        if (bits.length != wordsPerRow * height) throw new IllegalArgumentException("Grid data does not match " + width + "x" + height);
+        this.bits = bits;
+    }
+
+    /** Marks every non-null cell of the layer as solid. */
+    public static SolidityGrid fromLayer(TiledMapTileLayer layer) {
+        SolidityGrid grid = new SolidityGrid(layer.getWidth(), layer.getHeight());
+        for (int y = 0; y < grid.height; y++) {
+            for (int x = 0; x < grid.width; x++) {
+                if (layer.getCell(x, y) != null) grid.set(x, y, true);
+            }
+        }
+        return grid;
+    }
+
+    /** Independent copy, e.g. a per-session coin grid cloned from shared level data. */
+    public SolidityGrid copy() {
+        SolidityGrid grid = new SolidityGrid(width, height);
+        System.arraycopy(bits, 0, grid.bits, 0, bits.length);
+        return grid;
+    }
+
+    /** The packed rows, for {@link CompiledLevel} to write out. */
+    long[] words() { return bits; }
+
+    public int getWidth() { return width; }
+    public int getHeight() { return height; }
+
+    // ------------------------------
+    // Mutation
+    // ------------------------------
+
+    public void set(int tx, int ty, boolean solid) {
+        if (tx < 0 || ty < 0 || tx >= width || ty >= height) return;
+
+        int word = ty * wordsPerRow + (tx >>> 6);
+        long mask = 1L << (tx & 63);
+        if (solid) bits[word] |= mask;
+        else bits[word] &= ~mask;
+    }
+
+    public void clear() {
+        Arrays.fill(bits, 0L);
+    }
+
+    // ------------------------------
+    // Queries (tile coordinates)
+    // ------------------------------
+
+    public boolean isSolid(int tx, int ty) {
+        if (tx < 0 || ty < 0 || tx >= width || ty >= height) return false;
+        return (bits[ty * wordsPerRow + (tx >>> 6)] & (1L << (tx & 63))) != 0;
+    }
+
+    /** True if any tile in row {@code ty} between {@code x0} and {@code x1} (inclusive) is solid. */
+    public boolean anySolidInRow(int ty, int x0, int x1) {
+        if (ty < 0 || ty >= height) return false;
+        if (x0 < 0) x0 = 0;
+        if (x1 >= width) x1 = width - 1;
+        if (x0 > x1) return false;
+
+        int base = ty * wordsPerRow;
+        int w0 = x0 >>> 6;
+        int w1 = x1 >>> 6;
+        long firstMask = -1L << (x0 & 63);
+        long lastMask = -1L >>> (63 - (x1 & 63));
+
+        if (w0 == w1) return (bits[base + w0] & firstMask & lastMask) != 0;
+
+        if ((bits[base + w0] & firstMask) != 0) return true;
+        for (int w = w0 + 1; w < w1; w++) {
+            if (bits[base + w] != 0) return true;
+        }
+        return (bits[base + w1] & lastMask) != 0;
+    }
+
+    /** True if any tile in the inclusive tile box [x0..x1] x [y0..y1] is solid. */
+    public boolean anySolid(int x0, int y0, int x1, int y1) {
+        if (y0 < 0) y0 = 0;
+        if (y1 >= height) y1 = height - 1;
+        for (int ty = y0; ty <= y1; ty++) {
+            if (anySolidInRow(ty, x0, x1)) return true;
+        }
+        return false;
+    }
+
+    // ------------------------------
+    // Queries (world units)
+    // ------------------------------
+
+    /** True if the world-space box overlaps a solid tile of size tileW x tileH. */
+    public boolean overlaps(float x, float y, float w, float h, float tileW, float tileH) {
+        int x0 = (int) Math.floor(x / tileW);
+        int x1 = (int) Math.floor((x + w - 0.0001f) / tileW); // tiny eps so touching edges don't count
+        int y0 = (int) Math.floor(y / tileH);
+        int y1 = (int) Math.floor((y + h - 0.0001f) / tileH);
+        return anySolid(x0, y0, x1, y1);
+    }
+
+    public boolean isSolidAt(float x, float y, float tileW, float tileH) {
+        return isSolid((int) Math.floor(x / tileW), (int) Math.floor(y / tileH));
+    }
+
+    public int countSolid() {
+        int count = 0;
+        for (long word : bits) count += Long.bitCount(word);
+        return count;
+    }
+}
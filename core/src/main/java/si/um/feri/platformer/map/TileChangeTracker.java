@@ -0,0 +1,157 @@
+package si.um.feri.platformer.map;
+
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntArray;
+
+/**
+ * Collects the cells of a map's tile layers that changed during a frame (a collected coin,
+ * an edited Foreground tile, a restored snapshot) and hands them to the caches built from
+ * the map once per frame, so each one updates only what changed instead of rebuilding.
+ *
+ * Changes are kept per tile and per chunk of {@code chunkTiles}² tiles, each at most once
+ * per frame no matter how often a cell changes. {@link #flush()} passes them to every
+ * {@link Listener} and starts the next frame. Flags and lists are reused; after a layer's
+ * first change nothing is allocated.
+ */
+public class TileChangeTracker {
+
+    /** A cache of map tiles that follows changes (render meshes, occluders, minimaps). */
+    public interface Listener {
+        /**
+         * Called from {@link #flush()} with the frame's changes, read through {@code changes}.
+         * Must not mark further changes.
+         */
+        void tilesChanged(TileChangeTracker changes);
+    }
+
+    private final int width;
+    private final int height;
+    private final int chunkTiles;
+    private final int chunksX;
+    private final int chunksY;
+
+    // per layer, allocated on its first change
+    private final boolean[][] tileFlags;
+    private final boolean[][] chunkFlags;
+    private final int[] layerTiles;
+
+    // {layer, tx, ty} and {layer, cx, cy} triples, in the order they were first marked
+    private final IntArray tiles = new IntArray();
+    private final IntArray chunks = new IntArray();
+
+    private final Array<Listener> listeners = new Array<>();
+    private long flushedTiles;
+
+    public TileChangeTracker(int layerCount, int width, int height, int chunkTiles) {
+        if (chunkTiles <= 0) throw new IllegalArgumentException("chunkTiles must be positive: " + chunkTiles);
+        this.width = width;
+        this.height = height;
+        this.chunkTiles = chunkTiles;
+        this.chunksX = (width + chunkTiles - 1) / chunkTiles;
+        this.chunksY = (height + chunkTiles - 1) / chunkTiles;
+        tileFlags = new boolean[layerCount][];
+        chunkFlags = new boolean[layerCount][];
+        layerTiles = new int[layerCount];
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.removeValue(listener, true);
+    }
+
+    // ------------------------------
+    // Recording
+    // ------------------------------
+
+    /** Records a changed cell; call after changing it. Cells outside the map are ignored. */
+    public void markChanged(int layer, int tx, int ty) {
+        if (layer < 0 || layer >= tileFlags.length || tx < 0 || ty < 0 || tx >= width || ty >= height) return;
+        if (tileFlags[layer] == null) {
+            tileFlags[layer] = new boolean[width * height];
+            chunkFlags[layer] = new boolean[chunksX * chunksY];
+        }
+
+        int tile = tx + ty * width;
+        if (tileFlags[layer][tile]) return;
+        tileFlags[layer][tile] = true;
+        layerTiles[layer]++;
+        tiles.add(layer);
+        tiles.add(tx);
+        tiles.add(ty);
+
+        int cx = tx / chunkTiles;
+        int cy = ty / chunkTiles;
+        int chunk = cx + cy * chunksX;
+        if (chunkFlags[layer][chunk]) return;
+        chunkFlags[layer][chunk] = true;
+        chunks.add(layer);
+        chunks.add(cx);
+        chunks.add(cy);
+    }
+
+    /**
+     * Hands the frame's changes to the listeners, then clears them. Call once per frame
+     * before drawing; does nothing if nothing changed.
+     */
+    public void flush() {
+        if (tiles.size == 0) return;
+
+        for (int i = 0; i < listeners.size; i++) listeners.get(i).tilesChanged(this);
+
+        for (int i = 0; i < tiles.size; i += 3) {
+            int layer = tiles.get(i);
+            tileFlags[layer][tiles.get(i + 1) + tiles.get(i + 2) * width] = false;
+            layerTiles[layer] = 0;
+        }
+        for (int i = 0; i < chunks.size; i += 3) {
+            chunkFlags[chunks.get(i)][chunks.get(i + 1) + chunks.get(i + 2) * chunksX] = false;
+        }
+        flushedTiles += tiles.size / 3;
+        tiles.clear();
+        chunks.clear();
+    }
+
+    // ------------------------------
+    // Queries (for listeners)
+    // ------------------------------
+
+    public boolean hasChanges() { return tiles.size > 0; }
+
+    /** Changed cells this frame; index them with getTileLayer / getTileX / getTileY. */
+    public int getTileCount() { return tiles.size / 3; }
+    public int getTileLayer(int i) { return tiles.get(i * 3); }
+    public int getTileX(int i) { return tiles.get(i * 3 + 1); }
+    public int getTileY(int i) { return tiles.get(i * 3 + 2); }
+
+    /** Chunks with at least one changed cell this frame, per layer. */
+    public int getChunkCount() { return chunks.size / 3; }
+    public int getChunkLayer(int i) { return chunks.get(i * 3); }
+    public int getChunkX(int i) { return chunks.get(i * 3 + 1); }
+    public int getChunkY(int i) { return chunks.get(i * 3 + 2); }
+
+    public boolean isLayerChanged(int layer) {
+        return layer >= 0 && layer < layerTiles.length && layerTiles[layer] > 0;
+    }
+
+    public boolean isTileChanged(int layer, int tx, int ty) {
+        if (!isLayerChanged(layer) || tx < 0 || ty < 0 || tx >= width || ty >= height) return false;
+        return tileFlags[layer][tx + ty * width];
+    }
+
+    public boolean isChunkChanged(int layer, int cx, int cy) {
+        if (!isLayerChanged(layer) || cx < 0 || cy < 0 || cx >= chunksX || cy >= chunksY) return false;
+        return chunkFlags[layer][cx + cy * chunksX];
+    }
+
+    public int getWidth() { return width; }
+    public int getHeight() { return height; }
+    public int getChunkTiles() { return chunkTiles; }
+    public int getChunksX() { return chunksX; }
+    public int getChunksY() { return chunksY; }
+
+    /** Cells handed to listeners since the tracker was created. */
+    public long getFlushedTiles() { return flushedTiles; }
+}
@@ -0,0 +1,50 @@
+package si.um.feri.platformer.map;
+
+import com.badlogic.gdx.maps.tiled.TiledMapTileLayer;
+import com.badlogic.gdx.utils.IntMap;
+
+/**
+ * Cells a level changed in one tile layer (collected coins, edited Foreground tiles), with the
+ * cells they replaced. The map is a reference-counted asset, so a reload (F5) hands the same
+ * TiledMap to the next level: {@link #revertAll()} puts the original cells back before the
+ * level releases it.
+ */
+public class TileLayerEdits {
+
+    private final TiledMapTileLayer layer;
+    // original cell (null when the cell was empty) by tx + ty * width, kept from the first change
+    private final IntMap<TiledMapTileLayer.Cell> originals = new IntMap<>();
+
+    public TileLayerEdits(TiledMapTileLayer layer) {
+        this.layer = layer;
+    }
+
+    /** Sets a cell, remembering what it held before the layer's first change to it. */
+    public void set(int tx, int ty, TiledMapTileLayer.Cell cell) {
+        int index = tx + ty * layer.getWidth();
+        if (!originals.containsKey(index)) originals.put(index, layer.getCell(tx, ty));
+        layer.setCell(tx, ty, cell);
+    }
+
+    /** Puts the original cell back; false if this cell was never changed. */
+    public boolean revert(int tx, int ty) {
+        int index = tx + ty * layer.getWidth();
+        if (!originals.containsKey(index)) return false;
+        layer.setCell(tx, ty, originals.remove(index));
+        return true;
+    }
+
+    /** Puts every changed cell back, leaving the layer as it was loaded. */
+    public void revertAll() {
+        int width = layer.getWidth();
+        for (IntMap.Entry<TiledMapTileLayer.Cell> e : originals.entries()) {
+            layer.setCell(e.key % width, e.key / width, e.value);
+        }
+        originals.clear();
+    }
+
+    /** Number of cells currently changed. */
+    public int size() { return originals.size; }
+
+    public TiledMapTileLayer getLayer() { return layer; }
+}
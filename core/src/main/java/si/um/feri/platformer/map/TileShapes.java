@@ -0,0 +1,113 @@
+package si.um.feri.platformer.map;
+
+import com.badlogic.gdx.maps.tiled.TiledMapTile;
+import com.badlogic.gdx.maps.tiled.TiledMapTileLayer;
+
+/**
+ * Foreground tiles that are not plain solid blocks: one-way platforms and 45 degree slopes.
+ * Tiles opt in with a string {@code shape} tile property in Tiled ({@code oneway},
+ * {@code slope_up} rising to the right, {@code slope_down} falling to the right); every
+ * other Foreground tile stays in the {@link SolidityGrid}. Shaped tiles are kept out of the
+ * solidity grid, so they get no Box2D fixture and cast no light shadows.
+ */
+public class TileShapes {
+
+    /** Property on a tile that selects its shape; values of other types are ignored. */
+    public static final String PROPERTY = "shape";
+
+    public static final byte NONE = 0;
+    /** Blocks only from above, and only while moving down. */
+    public static final byte ONE_WAY = 1;
+    /** Floor rising from the bottom-left to the top-right corner of the tile. */
+    public static final byte SLOPE_UP = 2;
+    /** Floor falling from the top-left to the bottom-right corner of the tile. */
+    public static final byte SLOPE_DOWN = 3;
+
+    private final int width;
+    private final int height;
+    private final byte[] shapes;
+    private int count;
+
+    public TileShapes(int width, int height) {
+        this(width, height, new byte[width * height]);
+    }
+
+    /** Wraps cells read back from a compiled level; {@code shapes} is used, not copied. */
+    TileShapes(int width, int height, byte[] shapes) {
+        if (shapes.length != width * height) throw new IllegalArgumentException("Shape data does not match " + width + "x" + height);
+        this.width = width;
+        this.height = height;
+        this.shapes = shapes;
+        for (byte s : shapes) if (s != NONE) count++;
+    }
+
+    /** Shape named by a {@code shape} property value; NONE for solid or unknown values. */
+    public static byte shapeOf(String value) {
+        if (value == null) return NONE;
+        if (value.equalsIgnoreCase("oneway") || value.equalsIgnoreCase("one_way")) return ONE_WAY;
+        if (value.equalsIgnoreCase("slope_up")) return SLOPE_UP;
+        if (value.equalsIgnoreCase("slope_down")) return SLOPE_DOWN;
+        return NONE;
+    }
+
+    /** Shape of a map tile from its properties. */
+    public static byte shapeOf(TiledMapTile tile) {
+        Object value = tile.getProperties().get(PROPERTY);
+        return value instanceof String ? shapeOf((String) value) : NONE;
+    }
+
+    /** Records the shaped tiles of the layer and takes them out of {@code solidity}. */
+    public static TileShapes fromLayer(TiledMapTileLayer layer, SolidityGrid solidity) {
+        TileShapes result = new TileShapes(layer.getWidth(), layer.getHeight());
+        for (int y = 0; y < result.height; y++) {
+            for (int x = 0; x < result.width; x++) {
+                TiledMapTileLayer.Cell cell = layer.getCell(x, y);
+                if (cell == null || cell.getTile() == null) continue;
+                byte shape = shapeOf(cell.getTile());
+                if (shape == NONE) continue;
+                result.set(x, y, shape);
+                solidity.set(x, y, false);
+            }
+        }
+        return result;
+    }
+
+    /** Independent copy, e.g. for a level that edits its Foreground while sharing the original. */
+    public TileShapes copy() {
+        return new TileShapes(width, height, shapes.clone());
+    }
+
+    /** The cells in row order, for {@link CompiledLevel} to write out. */
+    byte[] cells() { return shapes; }
+
+    public int getWidth() { return width; }
+    public int getHeight() { return height; }
+
+    /** True if the level has no shaped tiles; lets callers skip slope handling entirely. */
+    public boolean isEmpty() { return count == 0; }
+
+    public void set(int tx, int ty, byte shape) {
+        if (tx < 0 || ty < 0 || tx >= width || ty >= height) return;
+        int i = tx + ty * width;
+        if (shapes[i] != NONE) count--;
+        shapes[i] = shape;
+        if (shape != NONE) count++;
+    }
+
+    /** Shape at a tile; NONE outside the grid. */
+    public byte get(int tx, int ty) {
+        if (tx < 0 || ty < 0 || tx >= width || ty >= height) return NONE;
+        return shapes[tx + ty * width];
+    }
+
+    /** True if any tile in row {@code ty} between {@code x0} and {@code x1} (inclusive) has {@code shape}. */
+    public boolean anyInRow(int ty, int x0, int x1, byte shape) {
+        if (count == 0 || ty < 0 || ty >= height) return false;
+        if (x0 < 0) x0 = 0;
+        if (x1 >= width) x1 = width - 1;
+        for (int i = x0 + ty * width, end = x1 + ty * width; i <= end; i++) {
+            if (shapes[i] == shape) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,345 @@
+package si.um.feri.platformer.map;
+
+/**
+ * Continuous collision of a moving box against the level's tiles.
+ *
+ * {@link #sweep} walks the grid lines the box's leading edges cross, in order of time (a DDA
+ * over tile columns and rows), and checks only the tiles the leading face enters. The first
+ * blocking tile gives the exact time of impact, the contact normal and a snapped position,
+ * so fast movers need one query per tick and cannot tunnel through thin walls.
+ * One-way platforms block only a downward move entering them from above. Slopes do not
+ * block the sweep; the box is lifted onto (or kept on) the slope surface under its bottom
+ * centre afterwards. {@link #slide} repeats the sweep along the contact surface.
+ *
+ * Coordinates are world units with y up. Holds no per-query state beyond the caller's
+ * {@link Hit}, so a sweeper can be shared by sessions on different threads.
+ */
+public class TileSweeper {
+
+    // same tolerance as SolidityGrid.overlaps: boxes touching a tile edge do not overlap it
+    private static final float EPS = 0.0001f;
+    private static final float SLOPE_NORMAL = 0.70710677f;
+
+    /** Result of a sweep; reuse one per caller. */
+    public static class Hit {
+        /** True if the move was stopped or redirected. */
+        public boolean hit;
+        /** Fraction of the move done before the contact, 0..1 (1 without a hit). */
+        public float time;
+        /** Box position after the move, snapped onto the contact surface. */
+        public float x, y;
+        /** Unit normal of the surface hit, pointing away from it. */
+        public float normalX, normalY;
+        /** Tile hit and its shape ({@link TileShapes#NONE} for solid tiles). */
+        public int tileX, tileY;
+        public byte shape;
+
+        // summary of a slide
+        public boolean wall;
+        public boolean ground;
+        public boolean ceiling;
+
+        private void reset(float x, float y) {
+            hit = false;
+            time = 1f;
+            this.x = x;
+            this.y = y;
+            normalX = 0f;
+            normalY = 0f;
+            tileX = -1;
+            tileY = -1;
+            shape = TileShapes.NONE;
+        }
+    }
+
+    private final SolidityGrid solidity;
+    private final TileShapes shapes;
+    private final float tileW;
+    private final float tileH;
+
+    public TileSweeper(LevelData level) {
+        this(level.getSolidity(), level.getShapes(), level.getTileWidth(), level.getTileHeight());
+    }
+
+    public TileSweeper(SolidityGrid solidity, TileShapes shapes, float tileW, float tileH) {
+        this.solidity = solidity;
+        this.shapes = shapes;
+        this.tileW = tileW;
+        this.tileH = tileH;
+    }
+
+    // ------------------------------
+    // Sweep
+    // ------------------------------
+
+    /**
+     * Moves the box (x, y, w, h) by (dx, dy) until the first contact. Returns {@code out.hit}.
+     * The box is assumed not to overlap a blocking tile at the start; overlaps smaller than
+     * the edge tolerance are ignored.
+     */
+    public boolean sweep(float x, float y, float w, float h, float dx, float dy, Hit out) {
+        out.reset(x + dx, y + dy);
+
+        // next column / row boundary the leading edges cross, and when
+        int stepX = dx > 0 ? 1 : (dx < 0 ? -1 : 0);
+        int stepY = dy > 0 ? 1 : (dy < 0 ? -1 : 0);
+
+        int col = 0;
+        float tNextX = Float.POSITIVE_INFINITY;
+        float tDeltaX = Float.POSITIVE_INFINITY;
+        if (stepX > 0) {
+            col = (int) Math.floor((x + w - EPS) / tileW) + 1;
+            tNextX = (col * tileW - (x + w)) / dx;
+            tDeltaX = tileW / dx;
+        } else if (stepX < 0) {
+            col = (int) Math.floor((x + EPS) / tileW) - 1;
+            tNextX = ((col + 1) * tileW - x) / dx;
+            tDeltaX = -tileW / dx;
+        }
+
+        int row = 0;
+        float tNextY = Float.POSITIVE_INFINITY;
+        float tDeltaY = Float.POSITIVE_INFINITY;
+        if (stepY > 0) {
+            row = (int) Math.floor((y + h - EPS) / tileH) + 1;
+            tNextY = (row * tileH - (y + h)) / dy;
+            tDeltaY = tileH / dy;
+        } else if (stepY < 0) {
+            row = (int) Math.floor((y + EPS) / tileH) - 1;
+            tNextY = ((row + 1) * tileH - y) / dy;
+            tDeltaY = -tileH / dy;
+        }
+
+        while (true) {
+            if (tNextX <= tNextY) {
+                float t = Math.max(0f, tNextX);
+                if (t > 1f) break;
+
+                // the leading vertical face enters column col
+                float by = y + dy * t;
+                int r0 = (int) Math.floor((by + EPS) / tileH);
+                int r1 = (int) Math.floor((by + h - EPS) / tileH);
+                int r = blockingRow(col, r0, r1, stepX);
+                if (r >= 0) {
+                    out.hit = true;
+                    out.time = t;
+                    out.x = stepX > 0 ? col * tileW - w : (col + 1) * tileW;
+                    out.y = by;
+                    out.normalX = -stepX;
+                    out.tileX = col;
+                    out.tileY = r;
+                    break;
+                }
+                col += stepX;
+                tNextX += tDeltaX;
+            } else {
+                float t = Math.max(0f, tNextY);
+                if (t > 1f) break;
+
+                // the leading horizontal face enters row row
+                float bx = x + dx * t;
+                int c0 = (int) Math.floor((bx + EPS) / tileW);
+                int c1 = (int) Math.floor((bx + w - EPS) / tileW);
+                if (solidity.anySolidInRow(row, c0, c1)
+                    || (stepY < 0 && shapes.anyInRow(row, c0, c1, TileShapes.ONE_WAY))) {
+                    out.hit = true;
+                    out.time = t;
+                    out.x = bx;
+                    out.y = stepY > 0 ? row * tileH - h : (row + 1) * tileH;
+                    out.normalY = -stepY;
+                    out.tileX = firstBlocking(row, c0, c1, stepY);
+                    out.tileY = row;
+                    out.shape = solidity.isSolid(out.tileX, row) ? TileShapes.NONE : TileShapes.ONE_WAY;
+                    break;
+                }
+                row += stepY;
+                tNextY += tDeltaY;
+            }
+        }
+
+        if (!shapes.isEmpty()) resolveSlope(x, y, w, dx, dy, out);
+        return out.hit;
+    }
+
+    /**
+     * Sweeps and, on contact, keeps moving along the surface with what is left of the move
+     * (at most three contacts). {@code out} holds the final position, the last contact and
+     * whether a wall, the ground or a ceiling was touched on the way.
+     */
+    public void slide(float x, float y, float w, float h, float dx, float dy, Hit out) {
+        boolean wall = false;
+        boolean ground = false;
+        boolean ceiling = false;
+
+        for (int i = 0; i < 3; i++) {
+            boolean hit = sweep(x, y, w, h, dx, dy, out);
+            x = out.x;
+            y = out.y;
+            if (!hit) break;
+
+            if (out.normalY > 0f) ground = true;
+            if (out.normalY < 0f) ceiling = true;
+            // a slope snap only moves the box up or down; the horizontal move is already done
+            if (out.shape == TileShapes.SLOPE_UP || out.shape == TileShapes.SLOPE_DOWN) break;
+
+            float rest = 1f - out.time;
+
+            if (out.normalY == 0f) {
+                wall = true;
+                dx = 0f;
+                dy *= rest;
+            } else {
+                // floors and ceilings: carry on horizontally
+                dx *= rest;
+                dy = 0f;
+            }
+            if (dx == 0f && dy == 0f) break;
+        }
+
+        out.x = x;
+        out.y = y;
+        out.wall = wall;
+        out.ground = ground;
+        out.ceiling = ceiling;
+    }
+
+    /** True if (x, y) is on something an entity can stand on: a solid, one-way or slope tile. */
+    public boolean isGroundAt(float x, float y) {
+        int tx = (int) Math.floor(x / tileW);
+        int ty = (int) Math.floor(y / tileH);
+        return solidity.isSolid(tx, ty) || shapes.get(tx, ty) != TileShapes.NONE;
+    }
+
+    // ------------------------------
+    // Helpers
+    // ------------------------------
+
+    /** First row in r0..r1 where column col blocks a horizontal move, or -1. */
+    private int blockingRow(int col, int r0, int r1, int stepX) {
+        for (int r = r0; r <= r1; r++) {
+            if (solidity.isSolid(col, r) && !isSlopeStep(col, r, stepX, r0)) return r;
+        }
+        return -1;
+    }
+
+    /**
+     * A solid tile in the bottom row of the box, right where a slope climbing towards it ends,
+     * is the top of that slope: walking into it is a step up, not a wall.
+     */
+    private boolean isSlopeStep(int col, int r, int stepX, int bottomRow) {
+        if (r != bottomRow || shapes.isEmpty()) return false;
+        byte behind = shapes.get(col - stepX, r);
+        return stepX > 0 ? behind == TileShapes.SLOPE_UP : behind == TileShapes.SLOPE_DOWN;
+    }
+
+    private int firstBlocking(int row, int c0, int c1, int stepY) {
+        for (int c = c0; c <= c1; c++) {
+            if (solidity.isSolid(c, row) || (stepY < 0 && shapes.get(c, row) == TileShapes.ONE_WAY)) return c;
+        }
+        return c0;
+    }
+
+    /**
+     * Puts the box on the slope it ended up in, or, when moving down, on a slope just below so
+     * it does not hop down the incline. The box rests on the highest point of ground under its
+     * bottom edge: on a rising slope that is its bottom-right corner, on a falling one its
+     * bottom-left, so it reaches the top of a slope level with the tile that follows.
+     */
+    private void resolveSlope(float x0, float y0, float w, float dx, float dy, Hit out) {
+        if (dy > 0f) return;
+
+        float left = out.x;
+        float right = out.x + w;
+        float py = out.y;
+        int c0 = (int) Math.floor((left + EPS) / tileW);
+        int c1 = (int) Math.floor((right - EPS) / tileW);
+        int ty = (int) Math.floor((py + EPS) / tileH);
+
+        // highest ground under the bottom edge, looking at the tile row the bottom is in and the one below
+        float best = Float.NEGATIVE_INFINITY;
+        byte bestShape = TileShapes.NONE;
+        int bestX = 0;
+        int bestY = 0;
+        for (int c = c0; c <= c1; c++) {
+            for (int r = ty; r >= ty - 1; r--) {
+                byte shape = shapes.get(c, r);
+                boolean slope = shape == TileShapes.SLOPE_UP || shape == TileShapes.SLOPE_DOWN;
+                float surface;
+                if (slope) {
+                    surface = slopeSurface(shape, c, r, left, right);
+                } else if (solidity.isSolid(c, r) || (shape == TileShapes.ONE_WAY && (r + 1) * tileH <= py + EPS)) {
+                    surface = (r + 1) * tileH;
+                } else {
+                    continue;
+                }
+                if (surface > best || (surface == best && slope)) {
+                    best = surface;
+                    bestShape = slope ? shape : TileShapes.NONE;
+                    bestX = c;
+                    bestY = r;
+                }
+                break;
+            }
+        }
+
+        if (bestShape == TileShapes.NONE) {
+            // flat ground is the sweep's business, except at the foot of a slope the box was
+            // walking down: a step's move leaves it hovering just above the floor
+            if (out.hit || dy == 0f || best == Float.NEGATIVE_INFINITY || py <= best + EPS
+                || py > best + Math.abs(dx) + Math.abs(dy) + EPS || !isOnSlope(x0, y0, w)) return;
+            out.hit = true;
+            out.y = best;
+            out.normalY = 1f;
+            out.tileX = bestX;
+            out.tileY = bestY;
+            return;
+        }
+        if (py > best + EPS && (dy == 0f || py > best + Math.abs(dx) + Math.abs(dy) + EPS)) return;
+
+        // a tile hit earlier in the sweep keeps its contact; the box is only lifted
+        if (out.hit) {
+            out.y = best;
+            return;
+        }
+
+        // time at which the supporting corner met the slope line along the move
+        boolean up = bestShape == TileShapes.SLOPE_UP;
+        float cornerX = up ? x0 + w : x0;
+        float k = (up ? 1f : -1f) * tileH / tileW;
+        float lineAtStart = bestY * tileH + (up ? cornerX - bestX * tileW : (bestX + 1) * tileW - cornerX) * (tileH / tileW);
+        float denom = dy - k * dx;
+        float t = denom != 0f ? (lineAtStart - y0) / denom : 0f;
+
+        out.hit = true;
+        out.time = Math.max(0f, Math.min(1f, t));
+        out.y = best;
+        out.normalX = up ? -SLOPE_NORMAL : SLOPE_NORMAL;
+        out.normalY = SLOPE_NORMAL;
+        out.tileX = bestX;
+        out.tileY = bestY;
+        out.shape = bestShape;
+    }
+
+    /** True if the bottom edge of the box at (x, y) rests on a slope. */
+    private boolean isOnSlope(float x, float y, float w) {
+        int c0 = (int) Math.floor((x + EPS) / tileW);
+        int c1 = (int) Math.floor((x + w - EPS) / tileW);
+        int ty = (int) Math.floor((y + EPS) / tileH);
+        for (int c = c0; c <= c1; c++) {
+            for (int r = ty; r >= ty - 1; r--) {
+                byte shape = shapes.get(c, r);
+                if (shape != TileShapes.SLOPE_UP && shape != TileShapes.SLOPE_DOWN) continue;
+                if (Math.abs(slopeSurface(shape, c, r, x, x + w) - y) <= EPS) return true;
+            }
+        }
+        return false;
+    }
+
+    /** Height of a slope tile's floor under the highest point of the span left..right. */
+    private float slopeSurface(byte shape, int c, int r, float left, float right) {
+        if (shape == TileShapes.SLOPE_UP) {
+            return r * tileH + (Math.min(right, (c + 1) * tileW) - c * tileW) / tileW * tileH;
+        }
+        return r * tileH + (1f - (Math.max(left, c * tileW) - c * tileW) / tileW) * tileH;
+    }
+}
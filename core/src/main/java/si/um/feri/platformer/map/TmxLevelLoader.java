@@ -0,0 +1,333 @@
+package si.um.feri.platformer.map;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Base64Coder;
+import com.badlogic.gdx.utils.FloatArray;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.XmlReader;
+import com.badlogic.gdx.utils.XmlReader.Element;
+
+import si.um.feri.platformer.ecs.EntityFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Reads the simulation-relevant parts of a TMX file straight from the XML, without
+ * loading tilesets or textures. This is what headless runs use instead of TmxMapLoader,
+ * which needs a GL context.
+ *
+ * Layers are classified by name exactly like {@code MapManager}: "Foreground" is solid,
+ * "Coin" holds collectables and the "Damage" object group holds hazard rectangles.
+ * {@link #compile(FileHandle)} additionally keeps every tile layer, the tilesets and the
+ * "Lights" objects, for writing a {@link CompiledLevel}.
+ */
+public class TmxLevelLoader {
+
+    // Tiled keeps the flip/rotation flags in the top bits of each gid
+    private static final int GID_MASK = 0x1FFFFFFF;
+
+    private TmxLevelLoader() {
+    }
+
+    public static LevelData load(FileHandle tmx) {
+        Element root = new XmlReader().parse(tmx);
+
+        if (root.getIntAttribute("infinite", 0) != 0) {
+            throw new GdxRuntimeException("Infinite TMX maps are not supported: " + tmx.path());
+        }
+
+        int width = root.getIntAttribute("width");
+        int height = root.getIntAttribute("height");
+        int tileWidthPx = root.getIntAttribute("tilewidth");
+        int tileHeightPx = root.getIntAttribute("tileheight");
+
+        SolidityGrid solidity = new SolidityGrid(width, height);
+        SolidityGrid coins = new SolidityGrid(width, height);
+        TileShapes shapes = new TileShapes(width, height);
+        byte[] shapeByGid = readShapes(root);
+
+        for (Element layer : root.getChildrenByName("layer")) {
+            int role = CompiledLevel.roleOf(layer.getAttribute("name", ""));
+            if (role == CompiledLevel.ROLE_SOLID) fillSolid(decodeLayer(layer, width, height), shapeByGid, solidity, shapes);
+            else if (role == CompiledLevel.ROLE_COIN) fillGrid(decodeLayer(layer, width, height), coins);
+        }
+
+        FloatArray damageRects = readDamageRects(root, height * tileHeightPx);
+
+        float tileW = tileWidthPx / 32f;
+        RectangleIndex damageIndex = new RectangleIndex(
+            damageRects.items, damageRects.size / 4,
+            width * tileW, height * (tileHeightPx / 32f),
+            LevelData.DAMAGE_INDEX_CELL_TILES * tileW
+        );
+
+        return new LevelData(width, height, tileWidthPx, tileHeightPx, solidity, coins, damageIndex,
+            readSpawns(root, height * tileHeightPx).toArray(), shapes);
+    }
+
+    /**
+     * Reads everything a {@link CompiledLevel} stores: all tile layers with their roles, the
+     * image tilesets, the grids, the merged Foreground rectangles, damage rectangles and lights.
+     * The stages run in parallel on the common pool; see {@link LevelPipeline}.
+     */
+    public static CompiledLevel compile(FileHandle tmx) {
+        return new LevelPipeline().compile(tmx);
+    }
+
+    static CompiledLevel.Tileset readTileset(Element element, FileHandle tmx) {
+        if (element.getAttribute("source", null) != null) {
+            throw new GdxRuntimeException("External tilesets are not supported: " + element.getAttribute("source"));
+        }
+        Element image = element.getChildByName("image");
+        if (image == null) {
+            throw new GdxRuntimeException("Tileset " + element.getAttribute("name", "") + " is not image based: " + tmx.path());
+        }
+
+        CompiledLevel.Tileset ts = new CompiledLevel.Tileset();
+        ts.name = element.getAttribute("name", "");
+        ts.image = image.getAttribute("source");
+        ts.firstGid = element.getIntAttribute("firstgid", 1);
+        ts.tileWidth = element.getIntAttribute("tilewidth");
+        ts.tileHeight = element.getIntAttribute("tileheight");
+        ts.margin = element.getIntAttribute("margin", 0);
+        ts.spacing = element.getIntAttribute("spacing", 0);
+
+        // older Tiled versions leave out columns and tilecount
+        int imageWidth = image.getIntAttribute("width", 0);
+        int imageHeight = image.getIntAttribute("height", 0);
+        ts.columns = element.getIntAttribute("columns",
+            (imageWidth - 2 * ts.margin + ts.spacing) / (ts.tileWidth + ts.spacing));
+        ts.tileCount = element.getIntAttribute("tilecount",
+            ts.columns * ((imageHeight - 2 * ts.margin + ts.spacing) / (ts.tileHeight + ts.spacing)));
+
+        Element properties = element.getChildByName("properties");
+        if (properties != null) {
+            Array<Element> list = properties.getChildrenByName("property");
+            ts.propertyNames = new String[list.size];
+            ts.propertyValues = new String[list.size];
+            for (int i = 0; i < list.size; i++) {
+                ts.propertyNames[i] = list.get(i).getAttribute("name");
+                ts.propertyValues[i] = list.get(i).getAttribute("value", "");
+            }
+        }
+        return ts;
+    }
+
+    /** Like fillGrid, but tiles with a collision shape go into {@code shapes} instead of the grid. */
+    static void fillSolid(int[] gids, byte[] shapeByGid, SolidityGrid solidity, TileShapes shapes) {
+        fillGrid(gids, solidity);
+        if (shapeByGid.length == 0) return;
+
+        int width = solidity.getWidth();
+        int height = solidity.getHeight();
+        for (int row = 0; row < height; row++) {
+            int y = height - 1 - row;
+            for (int x = 0; x < width; x++) {
+                int gid = gids[x + row * width] & GID_MASK;
+                if (gid >= shapeByGid.length || shapeByGid[gid] == TileShapes.NONE) continue;
+                shapes.set(x, y, shapeByGid[gid]);
+                solidity.set(x, y, false);
+            }
+        }
+    }
+
+    /**
+     * {@link TileShapes} of every tile with a {@code shape} property, indexed by gid;
+     * empty when no tile has one. Tiles of external tilesets keep the default (solid).
+     */
+    static byte[] readShapes(Element root) {
+        byte[] byGid = new byte[0];
+        for (Element tileset : root.getChildrenByName("tileset")) {
+            int firstGid = tileset.getIntAttribute("firstgid", 1);
+            for (Element tile : tileset.getChildrenByName("tile")) {
+                Element properties = tile.getChildByName("properties");
+                if (properties == null) continue;
+                for (Element p : properties.getChildrenByName("property")) {
+                    if (!p.getAttribute("name", "").equals(TileShapes.PROPERTY)
+                        || !p.getAttribute("type", "string").equals("string")) continue;
+                    byte shape = TileShapes.shapeOf(p.getAttribute("value", ""));
+                    if (shape == TileShapes.NONE) continue;
+                    int gid = firstGid + tile.getIntAttribute("id");
+                    if (gid >= byGid.length) byGid = Arrays.copyOf(byGid, Math.max(gid + 1, byGid.length * 2));
+                    byGid[gid] = shape;
+                }
+            }
+        }
+        return byGid;
+    }
+
+    static void fillGrid(int[] gids, SolidityGrid target) {
+        int width = target.getWidth();
+        int height = target.getHeight();
+        for (int row = 0; row < height; row++) {
+            // TMX rows run top-down, the game's tile y runs bottom-up
+            int y = height - 1 - row;
+            for (int x = 0; x < width; x++) {
+                if ((gids[x + row * width] & GID_MASK) != 0) target.set(x, y, true);
+            }
+        }
+    }
+
+    /** Rectangles of the "Damage" object group as {x, y, w, h} in world units, y-up. */
+    static FloatArray readDamageRects(Element root, float mapHeightPx) {
+        FloatArray damageRects = new FloatArray();
+        for (Element group : root.getChildrenByName("objectgroup")) {
+            if (!group.getAttribute("name", "").equalsIgnoreCase("Damage")) continue;
+
+            for (Element object : group.getChildrenByName("object")) {
+                float w = object.getFloatAttribute("width", 0f);
+                float h = object.getFloatAttribute("height", 0f);
+                if (w <= 0f || h <= 0f) continue; // points, polylines etc. are not hazards
+
+                float x = object.getFloatAttribute("x", 0f);
+                float y = mapHeightPx - object.getFloatAttribute("y", 0f) - h; // flip to y-up like TmxMapLoader
+
+                damageRects.add(x / 32f);
+                damageRects.add(y / 32f);
+                damageRects.add(w / 32f);
+                damageRects.add(h / 32f);
+            }
+        }
+        return damageRects;
+    }
+
+    /**
+     * Objects of the "Entities" object group as {kind, x, y} in world units, y-up. The kind
+     * comes from the object's type (class in newer Tiled versions); see EntityFactory#kindOf.
+     * Rectangles and tile objects spawn at their bottom-left corner, points at the point.
+     */
+    static FloatArray readSpawns(Element root, float mapHeightPx) {
+        FloatArray spawns = new FloatArray();
+        for (Element group : root.getChildrenByName("objectgroup")) {
+            if (!group.getAttribute("name", "").equalsIgnoreCase("Entities")) continue;
+
+            for (Element object : group.getChildrenByName("object")) {
+                String type = object.getAttribute("type", object.getAttribute("class", object.getAttribute("name", "")));
+                int kind = EntityFactory.kindOf(type);
+                if (kind == 0) continue;
+
+                // tile objects are anchored at their bottom edge already
+                float h = object.getAttribute("gid", null) != null ? 0f : object.getFloatAttribute("height", 0f);
+                spawns.add(kind);
+                spawns.add(object.getFloatAttribute("x", 0f) / 32f);
+                spawns.add((mapHeightPx - object.getFloatAttribute("y", 0f) - h) / 32f);
+            }
+        }
+        return spawns;
+    }
+
+    /** Rectangle objects of the "Lights" object group with the properties LightingManager reads. */
+    static Array<CompiledLevel.Light> readLights(Element root, float mapHeightPx) {
+        Array<CompiledLevel.Light> lights = new Array<>();
+        for (Element group : root.getChildrenByName("objectgroup")) {
+            if (!group.getAttribute("name", "").equalsIgnoreCase("Lights")) continue;
+
+            for (Element object : group.getChildrenByName("object")) {
+                // only plain rectangles become RectangleMapObjects in TmxMapLoader
+                if (object.getChildByName("point") != null || object.getChildByName("ellipse") != null
+                    || object.getChildByName("polygon") != null || object.getChildByName("polyline") != null) continue;
+
+                CompiledLevel.Light l = new CompiledLevel.Light();
+                l.width = object.getFloatAttribute("width", 0f);
+                l.height = object.getFloatAttribute("height", 0f);
+                l.x = object.getFloatAttribute("x", 0f);
+                l.y = mapHeightPx - object.getFloatAttribute("y", 0f) - l.height;
+
+                Element properties = object.getChildByName("properties");
+                if (properties != null) {
+                    for (Element p : properties.getChildrenByName("property")) {
+                        String name = p.getAttribute("name", "");
+                        String value = p.getAttribute("value", "");
+                        if (name.equals("distance")) l.distance = Float.parseFloat(value);
+                        else if (name.equals("flicker")) l.flicker = Boolean.parseBoolean(value);
+                        else if (name.equals("color")) l.color = parseColor(value, p.getAttribute("type", "string"));
+                    }
+                }
+                lights.add(l);
+            }
+        }
+        return lights;
+    }
+
+    /** Tiled "color" properties are #AARRGGBB; plain strings are read like Color.valueOf. */
+    private static Color parseColor(String value, String type) {
+        if (type.equals("color") && value.length() == 9) {
+            return Color.valueOf(value.substring(3) + value.substring(1, 3));
+        }
+        return Color.valueOf(value);
+    }
+
+    // ------------------------------
+    // Layer data decoding
+    // ------------------------------
+
+    static int[] decodeLayer(Element layer, int width, int height) {
+        Element data = layer.getChildByName("data");
+        if (data == null) throw new GdxRuntimeException("Layer without data: " + layer.getAttribute("name", ""));
+
+        int[] gids = new int[width * height];
+        String encoding = data.getAttribute("encoding", null);
+
+        if (encoding == null) {
+            // plain XML <tile gid=".."/> children
+            int i = 0;
+            for (Element tile : data.getChildrenByName("tile")) {
+                if (i >= gids.length) break;
+                gids[i++] = (int) Long.parseLong(tile.getAttribute("gid", "0"));
+            }
+            return gids;
+        }
+
+        if (encoding.equals("csv")) {
+            String[] values = data.getText().split(",");
+            for (int i = 0; i < gids.length && i < values.length; i++) {
+                gids[i] = (int) Long.parseLong(values[i].trim());
+            }
+            return gids;
+        }
+
+        if (!encoding.equals("base64")) throw new GdxRuntimeException("Unsupported TMX encoding: " + encoding);
+
+        byte[] raw = Base64Coder.decode(data.getText().trim());
+        String compression = data.getAttribute("compression", null);
+
+        try (InputStream in = open(raw, compression)) {
+            byte[] word = new byte[4];
+            for (int i = 0; i < gids.length; i++) {
+                readFully(in, word);
+                // little-endian unsigned 32-bit gid
+                gids[i] = (word[0] & 0xFF)
+                    | (word[1] & 0xFF) << 8
+                    | (word[2] & 0xFF) << 16
+                    | (word[3] & 0xFF) << 24;
+            }
+        } catch (IOException e) {
+            throw new GdxRuntimeException("Failed to decode TMX layer " + layer.getAttribute("name", ""), e);
+        }
+        return gids;
+    }
+
+    private static InputStream open(byte[] raw, String compression) throws IOException {
+        InputStream in = new ByteArrayInputStream(raw);
+        if (compression == null) return in;
+        if (compression.equals("zlib")) return new InflaterInputStream(in);
+        if (compression.equals("gzip")) return new GZIPInputStream(in, raw.length);
+        throw new GdxRuntimeException("Unsupported TMX compression: " + compression);
+    }
+
+    private static void readFully(InputStream in, byte[] buffer) throws IOException {
+        int read = 0;
+        while (read < buffer.length) {
+            int n = in.read(buffer, read, buffer.length - read);
+            if (n < 0) throw new IOException("Unexpected end of layer data");
+            read += n;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package si.um.feri.platformer.profiling;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Measures heap bytes allocated by the calling thread between {@link #beginFrame()} and
+ * {@link #endFrame()} and checks them against a per-frame budget. Uses the HotSpot
+ * per-thread allocation counter; on JVMs without it {@link #isSupported()} is false and
+ * every frame reads as zero bytes.
+ *
+ * The counter query itself may allocate a few bytes on older JVMs, so budgets should
+ * leave some slack instead of demanding exactly zero.
+ */
+public class AllocationMonitor {
+
+    private final com.sun.management.ThreadMXBean threadBean;
+    private final long threadId;
+
+    private final long budgetBytesPerFrame;
+    private final int warmupFrames;
+
+    private long frameStartBytes;
+    private long lastFrameBytes;
+    private long maxFrameBytes;
+    private long totalBytes;
+    private int frames;
+    private int measuredFrames;
+    private int overBudgetFrames;
+
+    /**
+     * @param budgetBytesPerFrame frames allocating more than this are counted as over budget
+     * @param warmupFrames        frames ignored at the start (class loading, pools filling up)
+     */
+    public AllocationMonitor(long budgetBytesPerFrame, int warmupFrames) {
+        this.budgetBytesPerFrame = budgetBytesPerFrame;
+        this.warmupFrames = warmupFrames;
+        this.threadId = Thread.currentThread().getId();
+
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        com.sun.management.ThreadMXBean hotspot = null;
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            hotspot = (com.sun.management.ThreadMXBean) bean;
+            if (hotspot.isThreadAllocatedMemorySupported()) {
+                hotspot.setThreadAllocatedMemoryEnabled(true);
+            } else {
+                hotspot = null;
+            }
+        }
+        this.threadBean = hotspot;
+    }
+
+    public boolean isSupported() { return threadBean != null; }
+
+    public void beginFrame() {
+        frameStartBytes = allocatedBytes();
+    }
+
+    public void endFrame() {
+        lastFrameBytes = allocatedBytes() - frameStartBytes;
+        frames++;
+        if (frames <= warmupFrames) return;
+
+        measuredFrames++;
+        totalBytes += lastFrameBytes;
+        if (lastFrameBytes > maxFrameBytes) maxFrameBytes = lastFrameBytes;
+        if (lastFrameBytes > budgetBytesPerFrame) overBudgetFrames++;
+    }
+
+    private long allocatedBytes() {
+        return threadBean != null ? threadBean.getThreadAllocatedBytes(threadId) : 0L;
+    }
+
+    // ------------------------------
+    // Results
+    // ------------------------------
+
+    public long getBudgetBytesPerFrame() { return budgetBytesPerFrame; }
+    public long getLastFrameBytes() { return lastFrameBytes; }
+    public long getMaxFrameBytes() { return maxFrameBytes; }
+    public int getMeasuredFrames() { return measuredFrames; }
+    public int getOverBudgetFrames() { return overBudgetFrames; }
+
+    public long getAverageFrameBytes() {
+        return measuredFrames == 0 ? 0 : totalBytes / measuredFrames;
+    }
+
+    /** True when the average measured frame stays within the budget. */
+    public boolean isWithinBudget() {
+        return getAverageFrameBytes() <= budgetBytesPerFrame;
+    }
+
+    public String summary() {
+        return "frames=" + measuredFrames
+            + " avgBytes=" + getAverageFrameBytes()
+            + " maxBytes=" + maxFrameBytes
+            + " overBudgetFrames=" + overBudgetFrames
+            + " budget=" + budgetBytesPerFrame
+            + (isWithinBudget() ? " PASS" : " FAIL");
+    }
+}
@@ -0,0 +1,219 @@
+package si.um.feri.platformer.profiling;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+
+/**
+ * Records named per-frame series into fixed-size ring buffers: phase timings in
+ * nanoseconds (between {@link #begin(int)} and {@link #end(int)}, summed if a phase runs
+ * several times per frame) and counters such as draw calls or body counts.
+ *
+ * Series are registered up front; recording is a couple of array writes and a
+ * {@link System#nanoTime()} call per phase and allocates nothing. Percentiles are computed
+ * on demand over the frames still in the ring. Series 0 is the whole frame.
+ *
+ * Not thread-safe: record from one thread.
+ */
+public class FrameProfiler {
+
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    /** Id of the whole-frame timing, measured from beginFrame to endFrame. */
+    public static final int FRAME = 0;
+
+    private final int capacity;
+
+    private final Array<String> names = new Array<>();
+    private final Array<long[]> rings = new Array<>();
+    private boolean[] isPhase = new boolean[8];
+    private long[] current = new long[8];
+    private long[] started = new long[8];
+
+    private long frameStart;
+    private int frames;       // frames recorded in total; the ring holds the last min(frames, capacity)
+
+    private final long[] scratch;
+
+    public FrameProfiler() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public FrameProfiler(int capacity) {
+        this.capacity = capacity;
+        this.scratch = new long[capacity];
+        addPhase("frame");
+    }
+
+    // ------------------------------
+    // Registration
+    // ------------------------------
+
+    /** Registers a timed phase, or returns the id of the phase already registered under that name. */
+    public int addPhase(String name) {
+        return add(name, true);
+    }
+
+    /** Registers a counter, or returns the id of the counter already registered under that name. */
+    public int addCounter(String name) {
+        return add(name, false);
+    }
+
+    private int add(String name, boolean phase) {
+        int existing = names.indexOf(name, false);
+        if (existing >= 0) {
+            if (isPhase[existing] != phase) throw new GdxRuntimeException("Series kind mismatch: " + name);
+            return existing;
+        }
+
+        int id = names.size;
+        if (id == current.length) {
+            isPhase = Arrays.copyOf(isPhase, id * 2);
+            current = Arrays.copyOf(current, id * 2);
+            started = Arrays.copyOf(started, id * 2);
+        }
+        names.add(name);
+        rings.add(new long[capacity]);
+        isPhase[id] = phase;
+        return id;
+    }
+
+    // ------------------------------
+    // Recording
+    // ------------------------------
+
+    public void beginFrame() {
+        Arrays.fill(current, 0, names.size, 0L);
+        frameStart = System.nanoTime();
+    }
+
+    public void begin(int phase) {
+        started[phase] = System.nanoTime();
+    }
+
+    public void end(int phase) {
+        current[phase] += System.nanoTime() - started[phase];
+    }
+
+    /** Sets a counter's value for the current frame. */
+    public void count(int counter, long value) {
+        current[counter] = value;
+    }
+
+    public void endFrame() {
+        current[FRAME] = System.nanoTime() - frameStart;
+
+        int slot = frames % capacity;
+        for (int i = 0; i < names.size; i++) rings.get(i)[slot] = current[i];
+        frames++;
+    }
+
+    // ------------------------------
+    // Results
+    // ------------------------------
+
+    public int getSeriesCount() { return names.size; }
+    public String getName(int series) { return names.get(series); }
+    public boolean isPhase(int series) { return isPhase[series]; }
+
+    public int getCapacity() { return capacity; }
+    public int getFrames() { return frames; }
+
+    /** Number of frames currently held in the ring. */
+    public int getSampleCount() { return Math.min(frames, capacity); }
+
+    /** Value of the series in the last finished frame. */
+    public long getLast(int series) {
+        return frames == 0 ? 0 : rings.get(series)[(frames - 1) % capacity];
+    }
+
+    /** Value below which the fraction {@code p} (0..1) of the sampled frames fall. */
+    public long percentile(int series, float p) {
+        int n = getSampleCount();
+        if (n == 0) return 0;
+
+        System.arraycopy(rings.get(series), 0, scratch, 0, n);
+        Arrays.sort(scratch, 0, n);
+        int index = (int) Math.ceil(p * n) - 1;
+        return scratch[Math.max(0, Math.min(n - 1, index))];
+    }
+
+    public long max(int series) {
+        long[] ring = rings.get(series);
+        long max = 0;
+        for (int i = 0, n = getSampleCount(); i < n; i++) max = Math.max(max, ring[i]);
+        return max;
+    }
+
+    public double mean(int series) {
+        int n = getSampleCount();
+        if (n == 0) return 0;
+        long[] ring = rings.get(series);
+        long total = 0;
+        for (int i = 0; i < n; i++) total += ring[i];
+        return (double) total / n;
+    }
+
+    // ------------------------------
+    // Export
+    // ------------------------------
+
+    /** Writes the sampled frames as CSV, oldest first: one column per series, phases in nanoseconds. */
+    public void writeCsv(Writer out) throws IOException {
+        out.write("frame");
+        for (int i = 0; i < names.size; i++) {
+            out.write(',');
+            out.write(names.get(i));
+            if (isPhase[i]) out.write("_ns");
+        }
+        out.write('\n');
+
+        int n = getSampleCount();
+        int first = frames - n;
+        for (int f = first; f < frames; f++) {
+            int slot = f % capacity;
+            out.write(Integer.toString(f));
+            for (int i = 0; i < names.size; i++) {
+                out.write(',');
+                out.write(Long.toString(rings.get(i)[slot]));
+            }
+            out.write('\n');
+        }
+    }
+
+    /** Writes a per-series summary (p50, p90, p99, max, mean) as JSON. */
+    public void writeJson(Writer out) throws IOException {
+        out.write("{\n  \"frames\": " + frames + ",\n  \"samples\": " + getSampleCount() + ",\n  \"series\": [\n");
+        for (int i = 0; i < names.size; i++) {
+            out.write("    {\"name\": \"" + names.get(i) + "\""
+                + ", \"unit\": \"" + (isPhase[i] ? "ns" : "count") + "\""
+                + ", \"p50\": " + percentile(i, 0.5f)
+                + ", \"p90\": " + percentile(i, 0.9f)
+                + ", \"p99\": " + percentile(i, 0.99f)
+                + ", \"max\": " + max(i)
+                + ", \"mean\": " + (long) mean(i) + "}");
+            out.write(i < names.size - 1 ? ",\n" : "\n");
+        }
+        out.write("  ]\n}\n");
+    }
+
+    /** Writes JSON if the file name ends in .json, CSV otherwise. */
+    public void export(FileHandle file) {
+        Writer out = file.writer(false, "UTF-8");
+        try {
+            if (file.extension().equalsIgnoreCase("json")) writeJson(out);
+            else writeCsv(out);
+        } catch (IOException e) {
+            throw new GdxRuntimeException("Failed to write profile to " + file.path(), e);
+        } finally {
+            try {
+                out.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
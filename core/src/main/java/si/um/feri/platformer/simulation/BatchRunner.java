@@ -0,0 +1,171 @@
+package si.um.feri.platformer.simulation;
+
+import com.badlogic.gdx.utils.TimeUtils;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import si.um.feri.platformer.input.InputSource;
+import si.um.feri.platformer.map.LevelData;
+
+/**
+ * Runs many independent playthroughs of one level in parallel on a {@link ForkJoinPool}.
+ *
+ * The {@link LevelData} (solidity, initial coins, damage index) is shared read-only by all
+ * sessions; each session builds its own Player, GameStats, entities and coin grid and is
+ * touched by one worker thread only. The session range is split recursively so idle
+ * workers steal whole sessions, and every session runs to completion before the next one
+ * starts on that worker.
+ */
+public class BatchRunner {
+
+    // sessions per leaf task; a session is thousands of ticks, so small leaves balance well
+    private static final int SESSIONS_PER_TASK = 4;
+
+    /** Aggregated outcome of a batch. Finish times only count sessions that won or lost. */
+    public static class Result {
+        public int sessions;
+        public int threads;
+        public long ticks;          // total ticks over all sessions
+        public long nanos;
+        public int victories;
+        public int defeats;
+        public int unfinished;
+        public long coinsCollected;
+        public long finishTicksTotal;
+        public long minFinishTicks = Long.MAX_VALUE;
+        public long maxFinishTicks;
+
+        public double ticksPerSecond() {
+            return nanos == 0 ? 0 : ticks * 1_000_000_000.0 / nanos;
+        }
+
+        public double averageFinishTicks() {
+            int finished = victories + defeats;
+            return finished == 0 ? 0 : (double) finishTicksTotal / finished;
+        }
+
+        public double averageCoins() {
+            return sessions == 0 ? 0 : (double) coinsCollected / sessions;
+        }
+
+        private void add(Result other) {
+            ticks += other.ticks;
+            victories += other.victories;
+            defeats += other.defeats;
+            unfinished += other.unfinished;
+            coinsCollected += other.coinsCollected;
+            finishTicksTotal += other.finishTicksTotal;
+            minFinishTicks = Math.min(minFinishTicks, other.minFinishTicks);
+            maxFinishTicks = Math.max(maxFinishTicks, other.maxFinishTicks);
+        }
+
+        @Override
+        public String toString() {
+            int finished = victories + defeats;
+            return "sessions=" + sessions
+                + " threads=" + threads
+                + " ticks=" + ticks
+                + " ms=" + (nanos / 1_000_000)
+                + " ticks/s=" + (long) ticksPerSecond()
+                + " victories=" + victories
+                + " defeats=" + defeats
+                + " unfinished=" + unfinished
+                + " avgCoins=" + String.format("%.2f", averageCoins())
+                + " finishTicks(min/avg/max)=" + (finished == 0 ? "-"
+                    : minFinishTicks + "/" + (long) averageFinishTicks() + "/" + maxFinishTicks);
+        }
+    }
+
+    private final LevelData level;
+    private final float dt;
+    private final int maxTicks;
+
+    /**
+     * @param maxTicks sessions still playing after this many ticks count as unfinished
+     */
+    public BatchRunner(LevelData level, float dt, int maxTicks) {
+        this.level = level;
+        this.dt = dt;
+        this.maxTicks = maxTicks;
+    }
+
+    /**
+     * Runs {@code sessions} sessions on the given pool and waits for all of them.
+     * {@code inputs} is called from worker threads and must be safe for that;
+     * the sources it returns are used by one session only.
+     */
+    public Result run(int sessions, SimulationRunner.InputFactory inputs, ForkJoinPool pool) {
+        long start = TimeUtils.nanoTime();
+        Result result = pool.invoke(new SessionRange(inputs, 0, sessions));
+        result.nanos = TimeUtils.nanoTime() - start;
+        result.sessions = sessions;
+        result.threads = pool.getParallelism();
+        return result;
+    }
+
+    /** Same as above on the common pool. */
+    public Result run(int sessions, SimulationRunner.InputFactory inputs) {
+        return run(sessions, inputs, ForkJoinPool.commonPool());
+    }
+
+    private void runSession(int session, SimulationRunner.InputFactory inputs, Result into) {
+        GameSimulation sim = new GameSimulation(level, SimulationListener.NONE);
+        try {
+            InputSource source = inputs.create(session);
+            while (!sim.isFinished() && sim.getTick() < maxTicks) {
+                sim.tick(source, dt);
+            }
+
+            GameStats stats = sim.getStats();
+            into.ticks += sim.getTick();
+            into.coinsCollected += stats.getCoinsCollected();
+
+            if (stats.isVictory()) into.victories++;
+            else if (stats.isDefeat()) into.defeats++;
+            else {
+                into.unfinished++;
+                return;
+            }
+
+            long finishTicks = sim.getTick();
+            into.finishTicksTotal += finishTicks;
+            into.minFinishTicks = Math.min(into.minFinishTicks, finishTicks);
+            into.maxFinishTicks = Math.max(into.maxFinishTicks, finishTicks);
+        } finally {
+            sim.dispose();
+        }
+    }
+
+    // ------------------------------
+    // Fork/join split
+    // ------------------------------
+
+    private class SessionRange extends RecursiveTask<Result> {
+        private final SimulationRunner.InputFactory inputs;
+        private final int from;
+        private final int to;
+
+        SessionRange(SimulationRunner.InputFactory inputs, int from, int to) {
+            this.inputs = inputs;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Result compute() {
+            if (to - from <= SESSIONS_PER_TASK) {
+                Result result = new Result();
+                for (int i = from; i < to; i++) runSession(i, inputs, result);
+                return result;
+            }
+
+            int mid = (from + to) >>> 1;
+            SessionRange left = new SessionRange(inputs, from, mid);
+            left.fork();
+            Result result = new SessionRange(inputs, mid, to).compute();
+            result.add(left.join());
+            return result;
+        }
+    }
+}
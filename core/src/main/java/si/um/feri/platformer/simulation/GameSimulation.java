@@ -0,0 +1,207 @@
+package si.um.feri.platformer.simulation;
+
+import com.badlogic.gdx.utils.IntArray;
+
+import si.um.feri.platformer.ecs.Broadphase;
+import si.um.feri.platformer.ecs.EntityEngine;
+import si.um.feri.platformer.ecs.EntityFactory;
+import si.um.feri.platformer.ecs.EntityStore;
+import si.um.feri.platformer.entities.Player;
+import si.um.feri.platformer.input.InputSource;
+import si.um.feri.platformer.input.PlayerInput;
+import si.um.feri.platformer.map.LevelData;
+import si.um.feri.platformer.map.SolidityGrid;
+import si.um.feri.platformer.profiling.FrameProfiler;
+import si.um.feri.platformer.systems.CharacterController;
+import si.um.feri.platformer.systems.CollisionSystem;
+import si.um.feri.platformer.systems.EntityContactSystem;
+import si.um.feri.platformer.systems.EntityMovementSystem;
+import si.um.feri.platformer.systems.LifetimeSystem;
+
+/**
+ * One play session: player movement, tile collision, coin pickup, health and score, plus the
+ * enemies, pickups and projectiles in its {@link EntityStore}.
+ * Contains no rendering and no direct input polling, so it runs the same under the
+ * desktop backend, the headless backend, or many times side by side in one JVM.
+ *
+ * The {@link LevelData} is shared read-only; everything mutable (Player, coins,
+ * stats, entities) belongs to the session. After the player has moved, every tick runs the
+ * entity engine: "entities" (movement), "lifetime", "contacts" (broadphase and
+ * entity-vs-entity) and "collisions" (the player's), then any systems added
+ * through {@link #getEngine()}.
+ *
+ * The player moves through a {@link CharacterController} on the tile grid; a session has no
+ * Box2D world, so its cost does not depend on how many static bodies the lighting uses.
+ *
+ * {@link #save} and {@link #restore} copy that state to and from a {@link SimulationSnapshot}.
+ */
+public class GameSimulation {
+
+    private static final float PPM = 32f;
+
+    private final LevelData level;
+    private final SimulationListener listener;
+
+    private final Player player;
+    private final SolidityGrid coins;
+    private final GameStats stats = new GameStats();
+    private final CollisionSystem collisionSystem;
+    private final CharacterController controller;
+    private final EntityMovementSystem movementSystem;
+
+    private final EntityStore entities = new EntityStore();
+    private final EntityEngine engine = new EntityEngine(entities);
+    private final Broadphase broadphase = new Broadphase();
+
+    private final PlayerInput input = new PlayerInput();
+    private long tick = 0;
+
+    // optional phase timing; null when not profiling
+    private FrameProfiler profiler;
+    private int playerPhase;
+
+    public GameSimulation(LevelData level, SimulationListener listener) {
+        this.level = level;
+        this.listener = listener;
+
+        coins = level.getCoins().copy();
+        player = new Player();
+        player.setPosition(player.getWidth(), 160f / PPM);
+
+        collisionSystem = new CollisionSystem(level, coins, listener, player, stats, broadphase);
+        controller = new CharacterController(collisionSystem.getSweeper());
+        movementSystem = new EntityMovementSystem(level);
+        engine.add("entities", movementSystem);
+        engine.add("lifetime", new LifetimeSystem());
+        engine.add("contacts", new EntityContactSystem(broadphase));
+        engine.add("collisions", collisionSystem);
+
+        EntityFactory.spawnAll(entities, level.getSpawns());
+    }
+
+    /**
+     * Times the player movement and every entity system of each tick into the
+     * profiler's "player" and per-system phases ("entities", "lifetime",
+     * "contacts", "collisions", ...). Sessions may share a profiler; their times add up per frame.
+     * Pass null to stop profiling.
+     */
+    public void setProfiler(FrameProfiler profiler) {
+        this.profiler = profiler;
+        engine.setProfiler(profiler);
+        if (profiler == null) return;
+        playerPhase = profiler.addPhase("player");
+    }
+
+    /** Advances the session by one fixed tick of {@code dt} seconds. */
+    public void tick(InputSource inputSource, float dt) {
+        player.savePreviousPosition();
+        inputSource.sample(input);
+
+        // --- PLAYER UPDATE ---
+        if (stats.isPlaying()) {
+            if (profiler != null) profiler.begin(playerPhase);
+            controller.move(player, input, dt);
+            if (profiler != null) profiler.end(playerPhase);
+        } else {
+            player.setVelocityX(0f);
+        }
+
+        // entities keep moving after the game ends; the collision system stops by itself
+        movementSystem.setTick(tick);
+        engine.update(dt);
+
+        tick++;
+    }
+
+    public boolean isFinished() { return !stats.isPlaying(); }
+
+    // ------------------------------
+    // Snapshots
+    // ------------------------------
+
+    /** Copies the session's state into {@code out}; call between ticks. Allocates nothing once {@code out} has grown. */
+    public void save(SimulationSnapshot out) {
+        out.level = level;
+        out.tick = tick;
+
+        out.playerX = player.getX();
+        out.playerY = player.getY();
+        out.playerPrevX = player.getPreviousX();
+        out.playerPrevY = player.getPreviousY();
+        out.playerVelocityX = player.getVelocityX();
+        out.playerVelocityY = player.getVelocityY();
+        out.playerJumping = player.isJumping();
+        out.playerAirTime = player.getAirTime();
+
+        out.health = stats.getHealth();
+        out.score = stats.getScore();
+        out.coinsCollected = stats.getCoinsCollected();
+
+        out.coinLog.clear();
+        out.coinLog.addAll(collisionSystem.getCoinLog());
+        out.entities.set(entities);
+    }
+
+    /**
+     * Puts the session back into the state saved in {@code snapshot}, which may come from
+     * another session of the same level. Only the coins that differ are changed: the coin
+     * logs share a prefix (all of it when rolling back the same session), the coins past it
+     * are put back newest first, then the snapshot's are taken again. The listener hears
+     * about each through {@link SimulationListener#coinRestored}.
+     */
+    public void restore(SimulationSnapshot snapshot) {
+        if (snapshot.isEmpty()) throw new IllegalArgumentException("snapshot is empty");
+        if (snapshot.level != level) throw new IllegalArgumentException("snapshot is of another level");
+
+        restoreCoins(snapshot.coinLog);
+
+        player.restore(snapshot.playerX, snapshot.playerY, snapshot.playerPrevX, snapshot.playerPrevY,
+            snapshot.playerVelocityX, snapshot.playerVelocityY, snapshot.playerJumping, snapshot.playerAirTime);
+        stats.set(snapshot.health, snapshot.score, snapshot.coinsCollected);
+        entities.set(snapshot.entities);
+        tick = snapshot.tick;
+    }
+
+    private void restoreCoins(IntArray target) {
+        IntArray log = collisionSystem.getCoinLog();
+        int width = coins.getWidth();
+
+        int common = 0;
+        int shared = Math.min(log.size, target.size);
+        while (common < shared && log.get(common) == target.get(common)) common++;
+
+        for (int i = log.size - 1; i >= common; i--) {
+            int index = log.get(i);
+            coins.set(index % width, index / width, true);
+            listener.coinRestored(index % width, index / width, true);
+        }
+        for (int i = common; i < target.size; i++) {
+            int index = target.get(i);
+            coins.set(index % width, index / width, false);
+            listener.coinRestored(index % width, index / width, false);
+        }
+
+        log.truncate(common);
+        log.addAll(target, common, target.size - common);
+    }
+
+    public LevelData getLevel() { return level; }
+    public Player getPlayer() { return player; }
+    public SolidityGrid getCoins() { return coins; }
+    public GameStats getStats() { return stats; }
+    public CollisionSystem getCollisionSystem() { return collisionSystem; }
+    public CharacterController getController() { return controller; }
+    public EntityStore getEntities() { return entities; }
+    public Broadphase getBroadphase() { return broadphase; }
+    /** Systems added here run every tick after the built-in ones. */
+    public EntityEngine getEngine() { return engine; }
+
+    /** Entity movement; see {@link EntityMovementSystem#setVisibility} for off-screen tiers. */
+    public EntityMovementSystem getMovementSystem() { return movementSystem; }
+    public PlayerInput getLastInput() { return input; }
+    public long getTick() { return tick; }
+
+    /** Holds no native resources since the player left Box2D; kept so owners need not care. */
+    public void dispose() {
+    }
+}
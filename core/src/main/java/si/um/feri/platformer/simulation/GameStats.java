@@ -0,0 +1,42 @@
+package si.um.feri.platformer.simulation;
+
+/** Health and score of one session, plus the win / lose rules that depend on them. */
+public class GameStats {
+
+    public static final int MAX_HEALTH = 100;
+    public static final int VICTORY_SCORE = 40;
+    public static final int COIN_SCORE = 10;
+
+    private int health = MAX_HEALTH;
+    private int score = 0;
+    private int coinsCollected = 0;
+
+    public int getHealth() { return health; }
+    public int getScore() { return score; }
+    public int getCoinsCollected() { return coinsCollected; }
+    public void setHealth(int h) { health = h; }
+    public void setScore(int s) { score = s; }
+
+    public void addScore(int v) { score += v; }
+    public void collectCoin() {
+        coinsCollected++;
+        score += COIN_SCORE;
+    }
+    public void decreaseHealth(int v) { health = Math.max(0, health - v); }
+
+    public boolean isPlaying() { return health > 0 && score < VICTORY_SCORE; }
+    public boolean isDefeat() { return health <= 0; }
+    public boolean isVictory() { return health > 0 && score >= VICTORY_SCORE; }
+
+    public void set(int health, int score, int coinsCollected) {
+        this.health = health;
+        this.score = score;
+        this.coinsCollected = coinsCollected;
+    }
+
+    public void reset() {
+        health = MAX_HEALTH;
+        score = 0;
+        coinsCollected = 0;
+    }
+}
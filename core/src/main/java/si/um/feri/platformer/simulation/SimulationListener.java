@@ -0,0 +1,29 @@
+package si.um.feri.platformer.simulation;
+
+/**
+ * Side effects the simulation reports instead of performing itself (sounds, updating the
+ * rendered coin layer). Headless sessions use {@link #NONE}.
+ */
+public interface SimulationListener {
+
+    SimulationListener NONE = new SimulationListener() {
+        @Override public void coinCollected(int tileX, int tileY) { }
+        @Override public void pickupCollected(float x, float y) { }
+        @Override public void damageTaken() { }
+        @Override public void coinRestored(int tileX, int tileY, boolean present) { }
+    };
+
+    void coinCollected(int tileX, int tileY);
+
+    /** A pickup entity at (x, y), in world units, was collected. */
+    void pickupCollected(float x, float y);
+
+    /** Called once per overlapped damage rectangle or hazard entity, every tick it overlaps. */
+    void damageTaken();
+
+    /**
+     * Restoring a snapshot put a coin back ({@code present}) or took one away without it
+     * being collected. Only the rendered layer should follow; no feedback.
+     */
+    void coinRestored(int tileX, int tileY, boolean present);
+}
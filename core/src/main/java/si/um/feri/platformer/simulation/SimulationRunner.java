@@ -0,0 +1,115 @@
+package si.um.feri.platformer.simulation;
+
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.TimeUtils;
+
+import si.um.feri.platformer.input.InputSource;
+import si.um.feri.platformer.map.LevelData;
+import si.um.feri.platformer.profiling.AllocationMonitor;
+import si.um.feri.platformer.profiling.FrameProfiler;
+
+/**
+ * Server-style tick loop: runs a number of independent sessions of one level as fast as
+ * possible on the calling thread, with no rendering and no frame pacing.
+ * Sessions advance round-robin, one tick each per round, until all have finished or
+ * the tick limit is hit.
+ */
+public class SimulationRunner {
+
+    /** Creates the input source for one session. */
+    public interface InputFactory {
+        InputSource create(int session);
+    }
+
+    public static class Result {
+        public int sessions;
+        public long ticks;          // total ticks over all sessions
+        public long nanos;
+        public int victories;
+        public int defeats;
+        public int unfinished;
+
+        public double ticksPerSecond() {
+            return nanos == 0 ? 0 : ticks * 1_000_000_000.0 / nanos;
+        }
+
+        @Override
+        public String toString() {
+            return "sessions=" + sessions
+                + " ticks=" + ticks
+                + " ms=" + (nanos / 1_000_000)
+                + " ticks/s=" + (long) ticksPerSecond()
+                + " victories=" + victories
+                + " defeats=" + defeats
+                + " unfinished=" + unfinished;
+        }
+    }
+
+    private final LevelData level;
+    private final float dt;
+
+    public SimulationRunner(LevelData level, float dt) {
+        this.level = level;
+        this.dt = dt;
+    }
+
+    /**
+     * Runs {@code sessions} sessions for at most {@code maxTicks} ticks each.
+     * If {@code monitor} is non-null every round is measured as one allocation frame.
+     */
+    public Result run(int sessions, int maxTicks, InputFactory inputs, AllocationMonitor monitor) {
+        return run(sessions, maxTicks, inputs, monitor, null);
+    }
+
+    /**
+     * Same as above; if {@code profiler} is non-null every round is also recorded as one
+     * profiler frame, with the sessions' phases summed and an "activeSessions" counter.
+     */
+    public Result run(int sessions, int maxTicks, InputFactory inputs, AllocationMonitor monitor,
+                      FrameProfiler profiler) {
+        Array<GameSimulation> sims = new Array<>(sessions);
+        InputSource[] sources = new InputSource[sessions];
+        for (int i = 0; i < sessions; i++) {
+            GameSimulation sim = new GameSimulation(level, SimulationListener.NONE);
+            sim.setProfiler(profiler);
+            sims.add(sim);
+            sources[i] = inputs.create(i);
+        }
+        int activeCounter = profiler != null ? profiler.addCounter("activeSessions") : -1;
+
+        Result result = new Result();
+        result.sessions = sessions;
+
+        long start = TimeUtils.nanoTime();
+        for (int t = 0; t < maxTicks; t++) {
+            if (monitor != null) monitor.beginFrame();
+            if (profiler != null) profiler.beginFrame();
+
+            int active = 0;
+            for (int i = 0; i < sessions; i++) {
+                GameSimulation sim = sims.get(i);
+                if (sim.isFinished()) continue;
+                sim.tick(sources[i], dt);
+                active++;
+            }
+            result.ticks += active;
+
+            if (profiler != null) {
+                profiler.count(activeCounter, active);
+                profiler.endFrame();
+            }
+            if (monitor != null) monitor.endFrame();
+            if (active == 0) break;
+        }
+        result.nanos = TimeUtils.nanoTime() - start;
+
+        for (GameSimulation sim : sims) {
+            GameStats stats = sim.getStats();
+            if (stats.isVictory()) result.victories++;
+            else if (stats.isDefeat()) result.defeats++;
+            else result.unfinished++;
+            sim.dispose();
+        }
+        return result;
+    }
+}
@@ -0,0 +1,55 @@
+package si.um.feri.platformer.simulation;
+
+import com.badlogic.gdx.utils.IntArray;
+
+import si.um.feri.platformer.ecs.EntityStore;
+import si.um.feri.platformer.map.LevelData;
+
+/**
+ * The complete mutable state of a {@link GameSimulation} at the end of a tick, filled by
+ * {@link GameSimulation#save} and applied by {@link GameSimulation#restore}.
+ *
+ * Coins are kept as the session's coin log (the coins taken, in order) rather than a copy
+ * of the grid, so a snapshot costs a few dozen bytes plus the entity columns. All storage is
+ * reused: once a snapshot has grown to the largest state saved into it, saving allocates
+ * nothing, so a session can be snapshotted every tick.
+ *
+ * A snapshot can be restored into any session of the same {@link LevelData}, e.g. to fork a
+ * batch session or respawn at a checkpoint.
+ */
+public class SimulationSnapshot {
+
+    LevelData level;
+    long tick = -1;
+
+    float playerX;
+    float playerY;
+    float playerPrevX;
+    float playerPrevY;
+    float playerVelocityX;
+    float playerVelocityY;
+    boolean playerJumping;
+    float playerAirTime;
+
+    int health;
+    int score;
+    int coinsCollected;
+
+    final IntArray coinLog = new IntArray();
+    final EntityStore entities = new EntityStore(16);
+
+    /** True until something has been saved into it. */
+    public boolean isEmpty() { return level == null; }
+
+    /** Tick count of the session when it was saved; -1 while empty. */
+    public long getTick() { return tick; }
+
+    public LevelData getLevel() { return level; }
+
+    public void clear() {
+        level = null;
+        tick = -1;
+        coinLog.clear();
+        entities.clear();
+    }
+}
@@ -0,0 +1,50 @@
+package si.um.feri.platformer.simulation;
+
+/**
+ * The last {@code capacity} snapshots of a session in a ring, one per tick, for rolling
+ * back to a recent tick (e.g. when a late remote input arrives) and resimulating.
+ * Snapshots are allocated up front and overwritten in place.
+ */
+public class SnapshotHistory {
+
+    private final SimulationSnapshot[] ring;
+
+    public SnapshotHistory(int capacity) {
+        if (capacity <= 0) throw new IllegalArgumentException("capacity must be > 0: " + capacity);
+        ring = new SimulationSnapshot[capacity];
+        for (int i = 0; i < capacity; i++) ring[i] = new SimulationSnapshot();
+    }
+
+    /** Saves the session's current state under its current tick, replacing the oldest entry. */
+    public void save(GameSimulation simulation) {
+        simulation.save(ring[slot(simulation.getTick())]);
+    }
+
+    /** Snapshot saved at {@code tick}, or null if it is older than the history or was never saved. */
+    public SimulationSnapshot get(long tick) {
+        if (tick < 0) return null;
+        SimulationSnapshot snapshot = ring[slot(tick)];
+        return snapshot.getTick() == tick ? snapshot : null;
+    }
+
+    /**
+     * Puts the session back to {@code tick}; returns false (and leaves the session alone) if
+     * that tick is no longer in the history. Later snapshots stay until they are overwritten.
+     */
+    public boolean rollback(GameSimulation simulation, long tick) {
+        SimulationSnapshot snapshot = get(tick);
+        if (snapshot == null) return false;
+        simulation.restore(snapshot);
+        return true;
+    }
+
+    public void clear() {
+        for (SimulationSnapshot snapshot : ring) snapshot.clear();
+    }
+
+    public int getCapacity() { return ring.length; }
+
+    private int slot(long tick) {
+        return (int) (tick % ring.length);
+    }
+}
@@ -3,28 +3,52 @@ package si.um.feri.platformer.systems;
 import com.badlogic.gdx.graphics.OrthographicCamera;
 import com.badlogic.gdx.math.MathUtils;
 
-import si.um.feri.platformer.managers.MapManager;
+import si.um.feri.platformer.ecs.EntityStore;
+import si.um.feri.platformer.ecs.EntitySystem;
 import si.um.feri.platformer.entities.Player;
+import si.um.feri.platformer.map.LevelData;
 
-public class CameraSystem {
+public class CameraSystem implements EntitySystem {
 
     private final OrthographicCamera camera;
 
-    private final MapManager mapManager;
+    private final LevelData level;
     private final Player player;
 
     // Hollow Knight look-ahead
     private float lookAheadX = 0f;
     private float lookAheadTarget = 0f;
 
-    public CameraSystem(OrthographicCamera camera, Player player, MapManager mapManager) {
+    // simulated camera position; the real camera only sees the interpolated value
+    private float posX;
+    private float posY;
+    private float prevX;
+    private float prevY;
+
+    // optional view of the simulated camera, set every tick for tick-driven culling
+    private VisibilitySet tickVisibility;
+
+    public CameraSystem(OrthographicCamera camera, Player player, LevelData level) {
         this.camera = camera;
         this.player = player;
-        this.mapManager = mapManager;
+        this.level = level;
+
+        posX = prevX = camera.position.x;
+        posY = prevY = camera.position.y;
+    }
+
+    /** Runs as the last system of the engine, after the player and entities have moved. */
+    @Override
+    public void update(EntityStore entities, float dt) {
+        update(dt);
     }
 
+    /** Advances the camera by one fixed simulation tick. */
     public void update(float dt) {
 
+        prevX = posX;
+        prevY = posY;
+
         // ======================================================
         //              FOLLOW + LOOK-AHEAD LOGIC
         // ======================================================
@@ -34,7 +58,7 @@ public class CameraSystem {
         float playerCenterY = player.getCenterY();
 
         // detect player horizontal movement
-        float playerVelocityX = player.getCandidateX() - player.getX();
+        float playerVelocityX = player.getVelocityX();
 
         if (Math.abs(playerVelocityX) > 0.001f) {
             float direction = Math.signum(playerVelocityX);
@@ -49,22 +73,37 @@ public class CameraSystem {
         float desiredX = playerCenterX + lookAheadX;
         float desiredY = playerCenterY;
 
-        camera.position.x += (desiredX - camera.position.x) * lerp;
-        camera.position.y += (desiredY - camera.position.y) * lerp;
+        posX += (desiredX - posX) * lerp;
+        posY += (desiredY - posY) * lerp;
 
         // ======================================================
         //                  WORLD BOUNDARIES
         // ======================================================
 
-        float halfW = camera.viewportWidth * camera.zoom * 0.5f;
-        float halfH = camera.viewportHeight * camera.zoom * 0.5f;
+        float halfW = VisibilitySet.viewWidth(camera) * 0.5f;
+        float halfH = VisibilitySet.viewHeight(camera) * 0.5f;
+
+        float mapW = level.getWidth();
+        float mapH = level.getHeight();
 
-        float mapW = mapManager.getMapWidthInPx() / 32f;
-        float mapH = mapManager.getMapHeightInPx() / 32f;
+        posX = MathUtils.clamp(posX, halfW, mapW - halfW);
+        posY = MathUtils.clamp(posY, halfH, mapH - halfH);
 
-        camera.position.x = MathUtils.clamp(camera.position.x, halfW, mapW - halfW);
-        camera.position.y = MathUtils.clamp(camera.position.y, halfH, mapH - halfH);
+        if (tickVisibility != null) tickVisibility.set(posX, posY, halfW * 2f, halfH * 2f);
+    }
+
+    /**
+     * Keeps {@code visibility} at the camera's simulated (not interpolated) view after every
+     * tick. Simulation systems must use this one so they do not depend on the frame rate.
+     */
+    public void setTickVisibility(VisibilitySet visibility) {
+        this.tickVisibility = visibility;
+    }
 
+    /** Moves the real camera to the state blended between the last two ticks and updates its matrices. */
+    public void apply(float alpha) {
+        camera.position.x = prevX + (posX - prevX) * alpha;
+        camera.position.y = prevY + (posY - prevY) * alpha;
         camera.update();
     }
 }
@@ -0,0 +1,66 @@
+package si.um.feri.platformer.systems;
+
+import si.um.feri.platformer.entities.Player;
+import si.um.feri.platformer.input.PlayerInput;
+import si.um.feri.platformer.map.TileSweeper;
+
+/**
+ * Kinematic movement of the player on the tile grid: run, jump, gravity, and one swept
+ * slide per tick through the {@link TileSweeper}, which also walks it up and down slopes and
+ * onto one-way platforms. Nothing here touches Box2D, so a tick costs the same however many
+ * static bodies the lighting world holds.
+ *
+ * Ground is detected from the slide itself: gravity pulls the player into the floor every
+ * tick, and a floor or slope contact while not rising counts as standing. A jump is allowed
+ * while standing and for {@link #COYOTE_TIME} after walking off a ledge.
+ */
+public class CharacterController {
+
+    public static final float GRAVITY = -26f;        // world units / s^2
+    public static final float JUMP_VELOCITY = 12f;   // world units / s
+    public static final float MAX_FALL_SPEED = -20f;
+    public static final float MOVE_SPEED = 7f;
+    /** Seconds after leaving the ground during which a jump still counts. */
+    public static final float COYOTE_TIME = 0.1f;
+
+    private final TileSweeper sweeper;
+    private final TileSweeper.Hit hit = new TileSweeper.Hit();
+
+    public CharacterController(TileSweeper sweeper) {
+        this.sweeper = sweeper;
+    }
+
+    /** Moves the player by one tick of {@code dt} seconds under {@code input}. */
+    public void move(Player player, PlayerInput input, float dt) {
+        float vx = 0f;
+        if (input.isLeft()) vx -= MOVE_SPEED;
+        if (input.isRight()) vx += MOVE_SPEED;
+        player.setVelocityX(vx);
+
+        float vy = player.getVelocityY();
+        if (input.isJump() && !player.isJumping() && player.getAirTime() <= COYOTE_TIME) {
+            vy = JUMP_VELOCITY;
+            player.setJumping(true);
+        }
+        vy += GRAVITY * dt;
+        if (vy < MAX_FALL_SPEED) vy = MAX_FALL_SPEED;
+
+        // one swept move to the target position, sliding along whatever it hits
+        sweeper.slide(player.getX(), player.getY(), player.getWidth(), player.getHeight(), vx * dt, vy * dt, hit);
+        player.commitX(hit.x);
+        player.commitY(hit.y);
+
+        if (hit.ground && vy <= 0f) {
+            vy = 0f;
+            player.setJumping(false);
+            player.setAirTime(0f);
+        } else {
+            if (hit.ceiling && vy > 0f) vy = 0f;
+            player.setAirTime(player.getAirTime() + dt);
+        }
+        player.setVelocityY(vy);
+    }
+
+    /** Contact summary of the last move. */
+    public TileSweeper.Hit getLastHit() { return hit; }
+}
@@ -1,106 +1,177 @@
 package si.um.feri.platformer.systems;
 
 import com.badlogic.gdx.math.Rectangle;
-import com.badlogic.gdx.maps.MapObject;
-import com.badlogic.gdx.maps.objects.RectangleMapObject;
-import com.badlogic.gdx.maps.tiled.TiledMapTileLayer;
+import com.badlogic.gdx.utils.IntArray;
 
-import si.um.feri.platformer.HUD;
-import si.um.feri.platformer.managers.MapManager;
+import si.um.feri.platformer.ecs.Broadphase;
+import si.um.feri.platformer.ecs.EntityFactory;
+import si.um.feri.platformer.ecs.EntityStore;
+import si.um.feri.platformer.ecs.EntitySystem;
+import si.um.feri.platformer.map.LevelData;
+import si.um.feri.platformer.map.RectangleIndex;
+import si.um.feri.platformer.map.SolidityGrid;
+import si.um.feri.platformer.map.TileSweeper;
 import si.um.feri.platformer.entities.Player;
+import si.um.feri.platformer.simulation.GameStats;
+import si.um.feri.platformer.simulation.SimulationListener;
 
-public class CollisionSystem {
-    private final MapManager mapManager;
-    private final TiledMapTileLayer foreground;
-    private final TiledMapTileLayer coins;
+/**
+ * Player collisions: Foreground solidity queries for the movement code, then per tick (as an
+ * entity system) coins, damage rectangles and contacts with pickup, hazard and projectile
+ * entities.
+ */
+public class CollisionSystem implements EntitySystem {
+    private final SolidityGrid solidity;
+    private final TileSweeper sweeper;
+    private final SolidityGrid coins;      // per-session copy, mutated on pickup
+    private final IntArray coinLog = new IntArray(); // tx + ty * width of each coin taken, in order
+    private final SimulationListener listener;
     private final float tileW; // world units
     private final float tileH; // world units
 
-    public CollisionSystem(MapManager mapManager) {
-        this.mapManager = mapManager;
-        this.foreground = mapManager.getForegroundLayer();
-        this.coins = mapManager.getCoinLayer();
-        this.tileW = mapManager.getTileWidth();   // world units
-        this.tileH = mapManager.getTileHeight();  // world units
+    // damage rectangles are pre-converted to world units and bucketed at load time
+    private final RectangleIndex damageIndex;
+    private final IntArray damageHits = new IntArray();
+
+    // the player the system runs for; null when only the query methods are used
+    private final Player player;
+    private final GameStats stats;
+
+    // updated by EntityContactSystem earlier in the tick; null scans every entity
+    private final Broadphase broadphase;
+    private final IntArray entityHits = new IntArray();
+
+    public CollisionSystem(LevelData level, SolidityGrid coins, SimulationListener listener) {
+        this(level, coins, listener, null, null, null);
+    }
+
+    public CollisionSystem(LevelData level, SolidityGrid coins, SimulationListener listener,
+                           Player player, GameStats stats, Broadphase broadphase) {
+        this.player = player;
+        this.stats = stats;
+        this.broadphase = broadphase;
+        this.solidity = level.getSolidity();
+        this.sweeper = new TileSweeper(level);
+        this.coins = coins;
+        this.listener = listener;
+        this.tileW = level.getTileWidth();   // world units
+        this.tileH = level.getTileHeight();  // world units
+        this.damageIndex = level.getDamageIndex();
     }
 
     /**
-     * Checks if rectangle at (x,y,width,height) overlaps any non-null cell in the Foreground layer.
+     * Checks if rectangle at (x,y,width,height) overlaps any solid cell of the Foreground layer.
      * All coordinates and sizes are expected in WORLD UNITS.
+     * Backed by the packed solidity grid, so this is a handful of word reads and allocates nothing.
      */
     public boolean collidesWithForeground(float x, float y, float width, float height) {
-        if (foreground == null) return false;
-
-        int leftTileX = (int) Math.floor(x / tileW);
-        int rightTileX = (int) Math.floor((x + width - 0.0001f) / tileW); // subtract tiny eps to avoid exact border issues
-        int bottomTileY = (int) Math.floor(y / tileH);
-        int topTileY = (int) Math.floor((y + height - 0.0001f) / tileH);
-
-        // bounds safety (map may be smaller or negative indexes)
-        if (leftTileX < 0) leftTileX = 0;
-        if (bottomTileY < 0) bottomTileY = 0;
-
-        for (int tx = leftTileX; tx <= rightTileX; tx++) {
-            for (int ty = bottomTileY; ty <= topTileY; ty++) {
-                if (tx < 0 || ty < 0) continue;
-                if (tx >= foreground.getWidth() || ty >= foreground.getHeight()) continue;
-                if (foreground.getCell(tx, ty) != null) {
-                    return true;
-                }
-            }
-        }
-        return false;
+        return solidity.overlaps(x, y, width, height, tileW, tileH);
+    }
+
+    /**
+     * Moves the box (x, y, width, height) by (dx, dy) through the Foreground tiles and stops at
+     * the first contact; {@code hit} receives the time of impact, contact normal and the
+     * position at contact. One query per move, however fast. See {@link TileSweeper}.
+     */
+    public boolean sweep(float x, float y, float width, float height, float dx, float dy, TileSweeper.Hit hit) {
+        return sweeper.sweep(x, y, width, height, dx, dy, hit);
+    }
+
+    /** Like {@link #sweep}, but slides along walls, floors and slopes with the rest of the move. */
+    public void slide(float x, float y, float width, float height, float dx, float dy, TileSweeper.Hit hit) {
+        sweeper.slide(x, y, width, height, dx, dy, hit);
     }
 
+    public TileSweeper getSweeper() { return sweeper; }
+
+    /**
+     * Coins collected so far as tile indices ({@code tx + ty * width}), oldest first: the
+     * session's coin grid is the level's minus these. Snapshots keep and restore this log
+     * instead of the grid.
+     */
+    public IntArray getCoinLog() { return coinLog; }
+
     /**
      * Handles coin collection and damage object collisions.
-     * Coin = remove coin cell and play coin sound and add score.
-     * Damage = check overlap with rectangle MapObjects and reduce health.
-     * Player positions and sizes are in WORLD UNITS. Tiled objects are in PIXELS,
-     * so we convert them to world units for comparisons.
+     * Coin = clear the coin in the session's coin grid, notify the listener and add score.
+     * Damage = check overlap with the indexed damage rectangles and reduce health once per overlap.
+     * Player positions and sizes are in WORLD UNITS; the damage index was converted from
+     * Tiled PIXELS to world units at load time.
      */
-    public void handlePlayerTileCollisions(Player player, HUD hud) {
-        if (coins != null) {
-            // coin collection using player's center tile
-            float centerX = player.getX() + player.getWidth() / 2f;
-            float centerY = player.getY() + player.getHeight() / 2f;
-            int tileX = (int) Math.floor(centerX / tileW);
-            int tileY = (int) Math.floor(centerY / tileH);
-
-            if (tileX >= 0 && tileY >= 0 && tileX < coins.getWidth() && tileY < coins.getHeight()) {
-                if (coins.getCell(tileX, tileY) != null) {
-                    coins.setCell(tileX, tileY, null);
-                    if (mapManager.getCoinSound() != null) mapManager.getCoinSound().play();
-                    hud.addScore(10);
-                }
-            }
+    public void handlePlayerTileCollisions(Player player, GameStats stats) {
+        // coin collection using player's center tile
+        float centerX = player.getX() + player.getWidth() / 2f;
+        float centerY = player.getY() + player.getHeight() / 2f;
+        int tileX = (int) Math.floor(centerX / tileW);
+        int tileY = (int) Math.floor(centerY / tileH);
+
+        if (coins.isSolid(tileX, tileY)) {
+            coins.set(tileX, tileY, false);
+            coinLog.add(tileX + tileY * coins.getWidth());
+            listener.coinCollected(tileX, tileY);
+            stats.collectCoin();
         }
 
         Rectangle playerRect = player.getBoundingRectangle();
-        for (MapObject mo : mapManager.getDamageObjects()) {
-            if (mo instanceof RectangleMapObject) {
-                RectangleMapObject rmo = (RectangleMapObject) mo;
-                Rectangle rectPx = rmo.getRectangle();
-
-                float PPM = mapManager.getTileWidthPx() / mapManager.getTileWidth();
-
-                Rectangle rectWorld = new Rectangle(
-                    rectPx.x / PPM,
-                    rectPx.y / PPM,
-                    rectPx.width / PPM,
-                    rectPx.height / PPM
-                );
-
-                if (playerRect.overlaps(rectWorld)) {
-                    // only play sound when health is full? original played only on first hit if health==100
-                    if (hud.getHealth() == 100) {
-                        if (mapManager.getDamageSound() != null) mapManager.getDamageSound().play();
-                        hud.decreaseHealth(1);
-                    } else {
-                        hud.decreaseHealth(1);
-                    }
-                }
-            }
+        int hits = damageIndex.query(playerRect.x, playerRect.y, playerRect.width, playerRect.height, damageHits);
+        for (int i = 0; i < hits; i++) {
+            // every hit is reported; rate-limiting the feedback is up to the listener
+            listener.damageTaken();
+            stats.decreaseHealth(1);
+        }
+    }
+
+    /** Tile collisions and entity contacts of the player, once per tick while the game is on. */
+    @Override
+    public void update(EntityStore entities, float dt) {
+        if (player == null || !stats.isPlaying()) return;
+        handlePlayerTileCollisions(player, stats);
+        handlePlayerEntityCollisions(player, stats, entities);
+    }
+
+    /**
+     * Overlap of the player with every pickup, hazard and projectile entity. Pickups add their
+     * value to the score, hazards take their value of health per tick of contact, projectiles
+     * take it once and disappear. Uses the broadphase when there is one, otherwise a straight
+     * pass over the dense columns.
+     */
+    public void handlePlayerEntityCollisions(Player player, GameStats stats, EntityStore entities) {
+        float px = player.getX();
+        float py = player.getY();
+        float pw = player.getWidth();
+        float ph = player.getHeight();
+
+        if (broadphase != null) {
+            int hits = broadphase.query(px, py, pw, ph, EntityFactory.PLAYER_CATEGORY, EntityFactory.PLAYER_MASK, entityHits);
+            for (int i = 0; i < hits; i++) playerContact(entities, entityHits.get(i), stats);
+            return;
+        }
+
+        float pr = px + pw;
+        float pt = py + ph;
+        int[] mask = entities.mask;
+        float[] x = entities.x;
+        float[] y = entities.y;
+        float[] w = entities.width;
+        float[] h = entities.height;
+
+        for (int i = 0, n = entities.size(); i < n; i++) {
+            if ((mask[i] & (EntityStore.PICKUP | EntityStore.HAZARD | EntityStore.PROJECTILE)) == 0) continue;
+            if (x[i] >= pr || x[i] + w[i] <= px || y[i] >= pt || y[i] + h[i] <= py) continue;
+            playerContact(entities, i, stats);
+        }
+    }
+
+    private void playerContact(EntityStore entities, int slot, GameStats stats) {
+        int m = entities.mask[slot];
+        if ((m & EntityStore.PICKUP) != 0) {
+            listener.pickupCollected(entities.x[slot], entities.y[slot]);
+            stats.addScore(entities.value[slot]);
+            entities.destroy(entities.handleAt(slot));
+        } else if ((m & (EntityStore.HAZARD | EntityStore.PROJECTILE)) != 0) {
+            listener.damageTaken();
+            stats.decreaseHealth(entities.value[slot]);
+            if ((m & EntityStore.PROJECTILE) != 0) entities.destroy(entities.handleAt(slot));
         }
     }
 }
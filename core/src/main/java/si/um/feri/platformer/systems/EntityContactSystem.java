@@ -0,0 +1,55 @@
+package si.um.feri.platformer.systems;
+
+import com.badlogic.gdx.utils.IntArray;
+
+import si.um.feri.platformer.ecs.Broadphase;
+import si.um.feri.platformer.ecs.EntityStore;
+import si.um.feri.platformer.ecs.EntitySystem;
+
+/**
+ * Entity-vs-entity contacts. Updates the broadphase after movement, then resolves each
+ * candidate pair: a projectile destroys the enemy it hits and itself, and two patrolling
+ * entities that bump into each other both turn away. Later systems can query the same
+ * broadphase this tick (the player's contacts in {@link CollisionSystem}).
+ */
+public class EntityContactSystem implements EntitySystem {
+
+    private final Broadphase broadphase;
+    private final IntArray pairs = new IntArray();
+
+    public EntityContactSystem(Broadphase broadphase) {
+        this.broadphase = broadphase;
+    }
+
+    @Override
+    public void update(EntityStore entities, float dt) {
+        broadphase.update(entities);
+        int pairCount = broadphase.findPairs(pairs);
+
+        int[] mask = entities.mask;
+        float[] x = entities.x;
+        float[] vx = entities.vx;
+        int[] items = pairs.items;
+
+        for (int p = 0; p < pairCount; p++) {
+            int a = items[p * 2];
+            int b = items[p * 2 + 1];
+            int ma = mask[a];
+            int mb = mask[b];
+            if (ma == 0 || mb == 0) continue; // destroyed by an earlier pair
+
+            if ((ma & EntityStore.PROJECTILE) != 0 || (mb & EntityStore.PROJECTILE) != 0) {
+                entities.destroy(entities.handleAt(a));
+                entities.destroy(entities.handleAt(b));
+            } else if ((ma & mb & EntityStore.PATROL) != 0) {
+                // the left one walks left, the right one walks right
+                int left = x[a] <= x[b] ? a : b;
+                int right = left == a ? b : a;
+                vx[left] = -Math.abs(vx[left]);
+                vx[right] = Math.abs(vx[right]);
+            }
+        }
+    }
+
+    public Broadphase getBroadphase() { return broadphase; }
+}
@@ -0,0 +1,120 @@
+package si.um.feri.platformer.systems;
+
+import si.um.feri.platformer.ecs.EntityStore;
+import si.um.feri.platformer.ecs.EntitySystem;
+import si.um.feri.platformer.map.LevelData;
+import si.um.feri.platformer.map.TileSweeper;
+
+/**
+ * Moves every entity with a velocity. Gravity and tile collision follow the player's rules
+ * (one swept move per tick, sliding along walls, floors and slopes); patrolling entities turn
+ * around at walls and ledges, projectiles are destroyed at the first tile they hit.
+ *
+ * With {@link #setVisibility} entities far off screen drop to a cheaper tier: each moves
+ * only every {@code farInterval}-th tick, by that many ticks at once (staggered by entity
+ * index so the work spreads evenly). The phase comes from the session's tick
+ * ({@link #setTick}), so a restored snapshot continues the same stagger. Off by default; the
+ * outcome then depends on where the camera was, so recordings only replay the same way with
+ * the same setting.
+ */
+public class EntityMovementSystem implements EntitySystem {
+
+    // same fall as Player
+    private static final float GRAVITY = -26f;
+    private static final float MAX_FALL_SPEED = -20f;
+
+    private final TileSweeper sweeper;
+    private final float tileH;
+    private final TileSweeper.Hit hit = new TileSweeper.Hit();
+
+    // far-tier updates; null / 1 moves every entity every tick
+    private VisibilitySet visibility;
+    private int farInterval = 1;
+    private long tick;
+
+    public EntityMovementSystem(LevelData level) {
+        this.sweeper = new TileSweeper(level);
+        this.tileH = level.getTileHeight();
+    }
+
+    /**
+     * Moves entities in the {@link VisibilitySet#FAR} tier of {@code visibility} only every
+     * {@code farInterval} ticks. The set should follow the simulated camera
+     * (CameraSystem.setTickVisibility) so the result does not depend on the frame rate.
+     */
+    public void setVisibility(VisibilitySet visibility, int farInterval) {
+        if (farInterval < 1) throw new IllegalArgumentException("farInterval must be at least 1: " + farInterval);
+        this.visibility = visibility;
+        this.farInterval = farInterval;
+    }
+
+    /** The session tick the next {@link #update} runs in; GameSimulation sets it before each tick. */
+    public void setTick(long tick) {
+        this.tick = tick;
+    }
+
+    @Override
+    public void update(EntityStore entities, float dt) {
+        boolean tiered = visibility != null && farInterval > 1;
+
+        int[] mask = entities.mask;
+        float[] x = entities.x;
+        float[] y = entities.y;
+        float[] w = entities.width;
+        float[] h = entities.height;
+        float[] vx = entities.vx;
+        float[] vy = entities.vy;
+        float[] prevX = entities.prevX;
+        float[] prevY = entities.prevY;
+
+        for (int i = 0, n = entities.size(); i < n; i++) {
+            int m = mask[i];
+            if ((m & EntityStore.VELOCITY) == 0) continue;
+
+            prevX[i] = x[i];
+            prevY[i] = y[i];
+
+            float step = dt;
+            if (tiered && visibility.tierOf(x[i], y[i], w[i], h[i]) == VisibilitySet.FAR) {
+                if ((tick + EntityStore.indexOf(entities.handleAt(i))) % farInterval != 0L) continue;
+                step = dt * farInterval;
+            }
+
+            if ((m & EntityStore.GRAVITY) != 0) {
+                vy[i] = Math.max(vy[i] + GRAVITY * step, MAX_FALL_SPEED);
+            }
+
+            float dx = vx[i] * step;
+            float dy = vy[i] * step;
+
+            if ((m & EntityStore.TILE_COLLIDER) == 0) {
+                x[i] += dx;
+                y[i] += dy;
+                continue;
+            }
+
+            // projectiles die at the first tile they reach, however fast they fly
+            if ((m & EntityStore.PROJECTILE) != 0) {
+                if (sweeper.sweep(x[i], y[i], w[i], h[i], dx, dy, hit)) {
+                    entities.destroy(entities.handleAt(i));
+                    continue;
+                }
+                x[i] = hit.x;
+                y[i] = hit.y;
+                continue;
+            }
+
+            sweeper.slide(x[i], y[i], w[i], h[i], dx, dy, hit);
+            x[i] = hit.x;
+            y[i] = hit.y;
+            if (hit.wall) vx[i] = (m & EntityStore.PATROL) != 0 ? -vx[i] : 0f;
+            if (hit.ground || hit.ceiling) vy[i] = 0f;
+
+            // patrollers turn back instead of walking off a ledge
+            if (hit.ground && (m & EntityStore.PATROL) != 0) {
+                float aheadX = vx[i] > 0 ? x[i] + w[i] + 0.01f : x[i] - 0.01f;
+                if (!sweeper.isGroundAt(aheadX, y[i] - tileH * 0.5f)) vx[i] = -vx[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package si.um.feri.platformer.systems;
+
+/**
+ * Fixed-step accumulator that decouples simulation ticks from the render frame rate.
+ * Each frame feeds the raw frame delta in and gets back the number of simulation
+ * ticks to run; {@link #getAlpha()} is then the blend factor between the previous
+ * and current tick for interpolated rendering.
+ */
+public class FixedTimestep {
+
+    // a single huge frame (debugger, window drag) must not turn into seconds of catch-up
+    private static final float MAX_FRAME_TIME = 0.25f;
+
+    private final int ticksPerSecond;
+    private final float stepSeconds;
+    private final int maxStepsPerFrame;
+
+    private float accumulator = 0f;
+    private long tickCount = 0;
+
+    public FixedTimestep(int ticksPerSecond, int maxStepsPerFrame) {
+        if (ticksPerSecond <= 0) throw new IllegalArgumentException("ticksPerSecond must be > 0");
+        if (maxStepsPerFrame <= 0) throw new IllegalArgumentException("maxStepsPerFrame must be > 0");
+
+        this.ticksPerSecond = ticksPerSecond;
+        this.stepSeconds = 1f / ticksPerSecond;
+        this.maxStepsPerFrame = maxStepsPerFrame;
+    }
+
+    /**
+     * Adds the frame time to the accumulator and returns how many fixed ticks should run now.
+     * If the simulation fell further behind than {@code maxStepsPerFrame} ticks the remaining
+     * backlog is dropped, so a slow machine runs in slow motion instead of spiralling.
+     */
+    public int advance(float frameDelta) {
+        if (frameDelta > MAX_FRAME_TIME) frameDelta = MAX_FRAME_TIME;
+        if (frameDelta > 0f) accumulator += frameDelta;
+
+        int steps = (int) (accumulator / stepSeconds);
+        if (steps > maxStepsPerFrame) {
+            steps = maxStepsPerFrame;
+            accumulator = 0f;
+        } else {
+            accumulator -= steps * stepSeconds;
+        }
+
+        tickCount += steps;
+        return steps;
+    }
+
+    /** Blend factor in [0, 1) between the previous and the current simulated state. */
+    public float getAlpha() {
+        float alpha = accumulator / stepSeconds;
+        return alpha < 0f ? 0f : Math.min(alpha, 1f);
+    }
+
+    public float getStepSeconds() { return stepSeconds; }
+    public int getTicksPerSecond() { return ticksPerSecond; }
+    public int getMaxStepsPerFrame() { return maxStepsPerFrame; }
+    public long getTickCount() { return tickCount; }
+
+    public void reset() {
+        accumulator = 0f;
+    }
+}
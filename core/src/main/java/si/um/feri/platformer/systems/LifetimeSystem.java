@@ -0,0 +1,20 @@
+package si.um.feri.platformer.systems;
+
+import si.um.feri.platformer.ecs.EntityStore;
+import si.um.feri.platformer.ecs.EntitySystem;
+
+/** Counts down {@code lifetime} and destroys entities whose time has run out. */
+public class LifetimeSystem implements EntitySystem {
+
+    @Override
+    public void update(EntityStore entities, float dt) {
+        int[] mask = entities.mask;
+        float[] lifetime = entities.lifetime;
+
+        for (int i = 0, n = entities.size(); i < n; i++) {
+            if ((mask[i] & EntityStore.LIFETIME) == 0) continue;
+            lifetime[i] -= dt;
+            if (lifetime[i] <= 0f) entities.destroy(entities.handleAt(i));
+        }
+    }
+}
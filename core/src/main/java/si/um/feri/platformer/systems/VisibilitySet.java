@@ -0,0 +1,165 @@
+package si.um.feri.platformer.systems;
+
+import com.badlogic.gdx.graphics.OrthographicCamera;
+
+/**
+ * What the camera sees: the view rectangle in world units and, grown by a margin, the
+ * tile and chunk ranges around it. Set once per frame (or tick) from the camera, then
+ * queried by everything that can skip or simplify off-screen work: map chunks, level
+ * lights, entity drawing and updates, positional sounds.
+ *
+ * Boxes fall into one of three tiers: {@link #VISIBLE} (overlapping the view), {@link #NEAR}
+ * (only overlapping the margin around it) and {@link #FAR}. Until the first {@link #set}
+ * everything is visible, so nothing is skipped by mistake.
+ */
+public class VisibilitySet {
+
+    public static final int VISIBLE = 0;
+    public static final int NEAR = 1;
+    public static final int FAR = 2;
+
+    private final float tileW;
+    private final float tileH;
+    private final int widthTiles;
+    private final int heightTiles;
+    private final int chunkTiles;
+    private final float margin;
+
+    private boolean valid;
+    private long updates;
+
+    private float centerX;
+    private float centerY;
+    private float viewWidth;
+    private float viewHeight;
+
+    // view, and view grown by the margin, in world units
+    private float viewX0, viewY0, viewX1, viewY1;
+    private float nearX0, nearY0, nearX1, nearY1;
+
+    // tiles and chunks overlapping the grown view, inclusive and clamped to the map
+    private int tileX0, tileY0, tileX1, tileY1;
+    private int chunkX0, chunkY0, chunkX1, chunkY1;
+
+    /**
+     * @param margin world units added around the view for {@link #NEAR}, the tile range
+     *               and the chunk range
+     */
+    public VisibilitySet(float tileW, float tileH, int widthTiles, int heightTiles, int chunkTiles, float margin) {
+        if (chunkTiles <= 0) throw new IllegalArgumentException("chunkTiles must be positive: " + chunkTiles);
+        this.tileW = tileW;
+        this.tileH = tileH;
+        this.widthTiles = widthTiles;
+        this.heightTiles = heightTiles;
+        this.chunkTiles = chunkTiles;
+        this.margin = margin;
+    }
+
+    /** Width of the area an orthographic camera shows, in world units. */
+    public static float viewWidth(OrthographicCamera camera) {
+        return camera.viewportWidth * camera.zoom;
+    }
+
+    /** Height of the area an orthographic camera shows, in world units. */
+    public static float viewHeight(OrthographicCamera camera) {
+        return camera.viewportHeight * camera.zoom;
+    }
+
+    /** Takes the view from the camera as it will be drawn. */
+    public void update(OrthographicCamera camera) {
+        set(camera.position.x, camera.position.y, viewWidth(camera), viewHeight(camera));
+    }
+
+    /** Sets the view centred on (centerX, centerY); also used without a camera (simulated view). */
+    public void set(float centerX, float centerY, float viewWidth, float viewHeight) {
+        this.centerX = centerX;
+        this.centerY = centerY;
+        this.viewWidth = viewWidth;
+        this.viewHeight = viewHeight;
+
+        viewX0 = centerX - viewWidth * 0.5f;
+        viewY0 = centerY - viewHeight * 0.5f;
+        viewX1 = centerX + viewWidth * 0.5f;
+        viewY1 = centerY + viewHeight * 0.5f;
+        nearX0 = viewX0 - margin;
+        nearY0 = viewY0 - margin;
+        nearX1 = viewX1 + margin;
+        nearY1 = viewY1 + margin;
+
+        tileX0 = Math.max(0, (int) Math.floor(nearX0 / tileW));
+        tileY0 = Math.max(0, (int) Math.floor(nearY0 / tileH));
+        tileX1 = Math.min(widthTiles - 1, (int) Math.floor(nearX1 / tileW));
+        tileY1 = Math.min(heightTiles - 1, (int) Math.floor(nearY1 / tileH));
+        chunkX0 = tileX0 / chunkTiles;
+        chunkY0 = tileY0 / chunkTiles;
+        chunkX1 = tileX1 < 0 ? -1 : tileX1 / chunkTiles;
+        chunkY1 = tileY1 < 0 ? -1 : tileY1 / chunkTiles;
+
+        valid = true;
+        updates++;
+    }
+
+    // ------------------------------
+    // Queries
+    // ------------------------------
+
+    /** Tier of the box (x, y, w, h) in world units. Touching edges do not count as overlap. */
+    public int tierOf(float x, float y, float w, float h) {
+        if (!valid) return VISIBLE;
+        if (x + w <= nearX0 || x >= nearX1 || y + h <= nearY0 || y >= nearY1) return FAR;
+        if (x + w <= viewX0 || x >= viewX1 || y + h <= viewY0 || y >= viewY1) return NEAR;
+        return VISIBLE;
+    }
+
+    public boolean isVisible(float x, float y, float w, float h) {
+        return tierOf(x, y, w, h) == VISIBLE;
+    }
+
+    /** Visible, or within the margin around the view. */
+    public boolean isNear(float x, float y, float w, float h) {
+        return tierOf(x, y, w, h) != FAR;
+    }
+
+    /** Tier of a point; sounds and other things without a size. */
+    public int tierOf(float x, float y) {
+        return tierOf(x, y, 0f, 0f);
+    }
+
+    /** True if the tile is in the tile range (the view plus margin). */
+    public boolean isTileVisible(int tx, int ty) {
+        if (!valid) return true;
+        return tx >= tileX0 && tx <= tileX1 && ty >= tileY0 && ty <= tileY1;
+    }
+
+    /** True if the chunk of {@code chunkTiles}² tiles is in the chunk range. */
+    public boolean isChunkVisible(int cx, int cy) {
+        if (!valid) return true;
+        return cx >= chunkX0 && cx <= chunkX1 && cy >= chunkY0 && cy <= chunkY1;
+    }
+
+    public boolean isSet() { return valid; }
+
+    /** Number of times the view was set; lets per-frame caches tell a stale set apart. */
+    public long getUpdates() { return updates; }
+
+    public float getCenterX() { return centerX; }
+    public float getCenterY() { return centerY; }
+    public float getViewWidth() { return viewWidth; }
+    public float getViewHeight() { return viewHeight; }
+    public float getViewX0() { return viewX0; }
+    public float getViewY0() { return viewY0; }
+    public float getViewX1() { return viewX1; }
+    public float getViewY1() { return viewY1; }
+    public float getMargin() { return margin; }
+
+    // inclusive ranges; empty (x1 < x0) when the view is off the map
+    public int getTileX0() { return tileX0; }
+    public int getTileY0() { return tileY0; }
+    public int getTileX1() { return tileX1; }
+    public int getTileY1() { return tileY1; }
+    public int getChunkX0() { return chunkX0; }
+    public int getChunkY0() { return chunkY0; }
+    public int getChunkX1() { return chunkX1; }
+    public int getChunkY1() { return chunkY1; }
+    public int getChunkTiles() { return chunkTiles; }
+}
@@ -0,0 +1,171 @@
+package si.um.feri.platformer.audio;
+
+import com.badlogic.gdx.audio.Sound;
+import com.badlogic.gdx.utils.FloatArray;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.LongArray;
+
+import org.junit.Test;
+
+import si.um.feri.platformer.systems.VisibilitySet;
+
+import static org.junit.Assert.assertEquals;
+
+/** {@link AudioQueue} draining into a {@link RecordingSink}; no audio backend needed. */
+public class AudioQueueTest {
+
+    private static final float RANGE = 20f;
+    private static final float EPS = 1e-5f;
+
+    /** Records every play and stop; voices are numbered from 1. */
+    private static class RecordingSink implements AudioQueue.Sink {
+        final IntArray played = new IntArray();
+        final FloatArray volumes = new FloatArray();
+        final FloatArray pans = new FloatArray();
+        final LongArray voices = new LongArray();
+        final IntArray stopped = new IntArray();
+        final LongArray stoppedVoices = new LongArray();
+        private long nextVoice = 1;
+
+        @Override
+        public long play(int id, Sound sound, float volume, float pan) {
+            played.add(id);
+            volumes.add(volume);
+            pans.add(pan);
+            voices.add(nextVoice);
+            return nextVoice++;
+        }
+
+        @Override
+        public void stop(int id, Sound sound, long voice) {
+            stopped.add(id);
+            stoppedVoices.add(voice);
+        }
+    }
+
+    private final RecordingSink sink = new RecordingSink();
+
+    @Test
+    public void mergesEventsOfOneSoundToNearest() {
+        AudioQueue queue = new AudioQueue(sink, 16, RANGE, 8);
+        int coin = queue.register(null, 1f, 3, 0.4f, 0f);
+
+        for (int i = 0; i < 5; i++) queue.post(coin, 10f + i, 0f);
+        assertEquals(1, queue.drain(0.016f, 11.6f, 0f));
+
+        // the coin at x = 12 is 0.4 away
+        assertEquals(1, sink.played.size);
+        assertEquals(1f - 0.4f / RANGE, sink.volumes.get(0), EPS);
+        assertEquals(0.4f / RANGE * 2f, sink.pans.get(0), EPS);
+        assertEquals(1, queue.getPlayed(coin));
+        assertEquals(4, queue.getDropped(coin));
+        assertEquals(0, queue.getQueued());
+    }
+
+    @Test
+    public void playsNearestSoundFirst() {
+        AudioQueue queue = new AudioQueue(sink, 16, RANGE, 8);
+        int coin = queue.register(null, 1f, 3, 0.4f, 0f);
+        int damage = queue.register(null, 0.5f, 1, 0.4f, 0f);
+
+        queue.post(coin, 5f, 0f);
+        queue.post(damage); // no position: at the listener, full volume
+        queue.drain(0.016f, 0f, 0f);
+
+        assertEquals(damage, sink.played.get(0));
+        assertEquals(0.5f, sink.volumes.get(0), EPS);
+        assertEquals(0f, sink.pans.get(0), 0f);
+        assertEquals(coin, sink.played.get(1));
+    }
+
+    @Test
+    public void dropsSoundsWithinMinimumInterval() {
+        AudioQueue queue = new AudioQueue(sink, 16, RANGE, 8);
+        int damage = queue.register(null, 1f, 1, 0.1f, 0.35f);
+
+        // posted every 0.1 s for a second: plays at 0.1, 0.5 and 0.9
+        for (int frame = 0; frame < 10; frame++) {
+            queue.post(damage);
+            queue.drain(0.1f, 0f, 0f);
+        }
+        assertEquals(3, queue.getPlayed(damage));
+        assertEquals(7, queue.getDropped(damage));
+    }
+
+    @Test
+    public void stealsOldestVoiceOfSoundAtItsLimit() {
+        AudioQueue queue = new AudioQueue(sink, 16, RANGE, 8);
+        int coin = queue.register(null, 1f, 2, 1f, 0f);
+
+        for (int frame = 0; frame < 3; frame++) {
+            queue.post(coin, 1f, 0f);
+            queue.drain(0.1f, 0f, 0f);
+        }
+        assertEquals(3, queue.getPlayed(coin));
+        assertEquals(1, sink.stopped.size);
+        assertEquals(sink.voices.get(0), sink.stoppedVoices.get(0));
+
+        // once the voices have run out nothing is stopped
+        queue.drain(2f, 0f, 0f);
+        queue.post(coin, 1f, 0f);
+        queue.drain(0.1f, 0f, 0f);
+        assertEquals(1, sink.stopped.size);
+    }
+
+    @Test
+    public void capsVoicesOverAllSounds() {
+        AudioQueue queue = new AudioQueue(sink, 16, RANGE, 2);
+        int far = queue.register(null, 1f, 1, 1f, 0f);
+        int near = queue.register(null, 1f, 1, 1f, 0f);
+        int middle = queue.register(null, 1f, 1, 1f, 0f);
+
+        queue.post(far, 5f, 0f);
+        queue.post(near, 1f, 0f);
+        queue.post(middle, 3f, 0f);
+        assertEquals(2, queue.drain(0.01f, 0f, 0f));
+        assertEquals(near, sink.played.get(0));
+        assertEquals(middle, sink.played.get(1));
+        assertEquals(1, queue.getDropped(far));
+
+        // at the cap a new voice has no room, but a sound may still reuse its own
+        queue.post(far, 0f, 0f);
+        queue.post(near, 1f, 0f);
+        assertEquals(1, queue.drain(0.01f, 0f, 0f));
+        assertEquals(near, sink.played.get(2));
+        assertEquals(near, sink.stopped.get(0));
+        assertEquals(2, queue.getDropped(far));
+    }
+
+    @Test
+    public void dropsEventsOutOfRangeOrFarOffScreen() {
+        AudioQueue queue = new AudioQueue(sink, 16, RANGE, 8);
+        int coin = queue.register(null, 1f, 3, 0.4f, 0f);
+
+        queue.post(coin, RANGE + 1f, 0f);
+        assertEquals(0, queue.drain(0.1f, 0f, 0f));
+
+        // in range, but beyond the view's margin
+        VisibilitySet visibility = new VisibilitySet(1f, 1f, 100, 20, 16, 2f);
+        visibility.set(10f, 10f, 16f, 10f);
+        queue.post(coin, 25f, 10f);
+        assertEquals(0, queue.drain(0.1f, visibility));
+        queue.post(coin, 19f, 10f);
+        assertEquals(1, queue.drain(0.1f, visibility));
+        assertEquals(2, queue.getDropped(coin));
+    }
+
+    @Test
+    public void countsEventsPastCapacity() {
+        AudioQueue queue = new AudioQueue(sink, 4, RANGE, 8);
+        int coin = queue.register(null, 1f, 3, 0.4f, 0f);
+
+        for (int i = 0; i < 6; i++) queue.post(coin, 0f, 0f);
+        assertEquals(4, queue.getQueued());
+        assertEquals(2, queue.getOverflowed());
+
+        queue.clear();
+        assertEquals(0, queue.getQueued());
+        assertEquals(6, queue.getDropped(coin));
+        assertEquals(0, queue.drain(0.1f, 0f, 0f));
+    }
+}
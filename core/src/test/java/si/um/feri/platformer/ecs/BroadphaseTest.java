@@ -0,0 +1,160 @@
+package si.um.feri.platformer.ecs;
+
+import com.badlogic.gdx.utils.IntArray;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Compares {@link Broadphase} against testing every pair, over ticks of random spawns,
+ * destroys and moves. Boxes straddle x = 0 so the float sort key sees both signs, and
+ * destroyed entity indices are reused under new generations.
+ */
+public class BroadphaseTest {
+
+    private static final short[] CATEGORIES = {0x0001, 0x0004, 0x0008, 0x0010};
+    private static final short[] GROUPS = {0, 0, 0, 1, -1, 2};
+
+    @Test
+    public void matchesBruteForceOverRandomTicks() {
+        for (long seed = 1; seed <= 20; seed++) {
+            runTicks(new Random(seed), 200);
+        }
+    }
+
+    @Test
+    public void replacesReusedIndexWithinOneTick() {
+        EntityStore entities = new EntityStore(16);
+        Broadphase broadphase = new Broadphase();
+        IntArray pairs = new IntArray();
+
+        int a = entities.create(0, 0f, 0f, 1f, 1f);
+        int b = entities.create(0, 0.5f, 0f, 1f, 1f);
+        broadphase.update(entities);
+        assertEquals(1, broadphase.findPairs(pairs));
+
+        // same index, new generation, far away: the old box must not linger
+        entities.destroy(b);
+        entities.flush();
+        int c = entities.create(0, 10f, 0f, 1f, 1f);
+        assertEquals(EntityStore.indexOf(b), EntityStore.indexOf(c));
+        broadphase.update(entities);
+        assertEquals(2, broadphase.size());
+        assertEquals(0, broadphase.findPairs(pairs));
+
+        entities.x[entities.slotOf(c)] = -0.5f;
+        broadphase.update(entities);
+        assertEquals(1, broadphase.findPairs(pairs));
+        assertEquals(entities.slotOf(a) + entities.slotOf(c), pairs.get(0) + pairs.get(1));
+    }
+
+    private static void runTicks(Random random, int ticks) {
+        EntityStore entities = new EntityStore(16);
+        Broadphase broadphase = new Broadphase();
+        IntArray pairs = new IntArray();
+        IntArray found = new IntArray();
+        List<Integer> live = new ArrayList<>();
+
+        for (int tick = 0; tick < ticks; tick++) {
+            // now and then a batch big enough to take the full sort
+            int spawns = random.nextInt(10) == 0 ? 40 + random.nextInt(40) : random.nextInt(8);
+            for (int i = 0; i < spawns; i++) live.add(spawn(entities, random));
+
+            int destroys = Math.min(live.size(), random.nextInt(8));
+            for (int i = 0; i < destroys; i++) entities.destroy(live.remove(random.nextInt(live.size())));
+            // destroys made after the flush stay in their slots with mask 0 until the next tick
+            entities.flush();
+            int pending = Math.min(live.size(), random.nextInt(3));
+            for (int i = 0; i < pending; i++) entities.destroy(live.remove(random.nextInt(live.size())));
+
+            for (int slot = 0; slot < entities.size(); slot++) {
+                entities.x[slot] += (random.nextFloat() - 0.5f) * 0.6f;
+                entities.y[slot] += (random.nextFloat() - 0.5f) * 0.2f;
+            }
+
+            broadphase.update(entities);
+            String at = "tick " + tick;
+            assertEquals(at, live.size(), broadphase.size());
+
+            int n = broadphase.findPairs(pairs);
+            assertEquals(at, n, pairs.size / 2);
+            Set<Long> reported = new HashSet<>();
+            for (int i = 0; i < n; i++) reported.add(pairKey(pairs.get(i * 2), pairs.get(i * 2 + 1)));
+            assertEquals(at + ": duplicate pairs", n, reported.size());
+            assertEquals(at, bruteForcePairs(entities), reported);
+
+            float qx = random.nextFloat() * 30f - 15f;
+            float qy = random.nextFloat() * 6f;
+            float qw = 0.5f + random.nextFloat() * 3f;
+            float qh = 0.5f + random.nextFloat() * 2f;
+            short category = CATEGORIES[random.nextInt(CATEGORIES.length)];
+            short maskBits = random.nextBoolean() ? (short) -1 : (short) (CATEGORIES[random.nextInt(CATEGORIES.length)] | 0x0001);
+            broadphase.query(qx, qy, qw, qh, category, maskBits, found);
+            assertEquals(at + ": query", bruteForceQuery(entities, qx, qy, qw, qh, category, maskBits), toSet(found));
+        }
+    }
+
+    private static int spawn(EntityStore entities, Random random) {
+        float w = 0.25f + random.nextFloat() * (random.nextInt(8) == 0 ? 4f : 1f);
+        float h = 0.25f + random.nextFloat();
+        int handle = entities.create(0, random.nextFloat() * 30f - 15f, random.nextFloat() * 6f, w, h);
+        int slot = entities.slotOf(handle);
+        entities.categoryBits[slot] = CATEGORIES[random.nextInt(CATEGORIES.length)];
+        entities.maskBits[slot] = random.nextInt(3) == 0 ? (short) -1 : (short) (CATEGORIES[random.nextInt(CATEGORIES.length)] | CATEGORIES[random.nextInt(CATEGORIES.length)]);
+        entities.groupIndex[slot] = GROUPS[random.nextInt(GROUPS.length)];
+        return handle;
+    }
+
+    // ------------------------------
+    // Brute force
+    // ------------------------------
+
+    private static Set<Long> bruteForcePairs(EntityStore e) {
+        Set<Long> pairs = new HashSet<>();
+        for (int a = 0; a < e.size(); a++) {
+            if (e.mask[a] == 0) continue;
+            for (int b = a + 1; b < e.size(); b++) {
+                if (e.mask[b] == 0) continue;
+                if (!overlaps(e, a, e.x[b], e.y[b], e.width[b], e.height[b])) continue;
+                short group = e.groupIndex[a];
+                boolean collide = group != 0 && group == e.groupIndex[b]
+                    ? group > 0
+                    : (e.maskBits[a] & e.categoryBits[b]) != 0 && (e.categoryBits[a] & e.maskBits[b]) != 0;
+                if (collide) pairs.add(pairKey(a, b));
+            }
+        }
+        return pairs;
+    }
+
+    private static Set<Long> bruteForceQuery(EntityStore e, float x, float y, float w, float h, short category, short maskBits) {
+        Set<Long> slots = new HashSet<>();
+        for (int slot = 0; slot < e.size(); slot++) {
+            if (e.mask[slot] == 0 || !overlaps(e, slot, x, y, w, h)) continue;
+            if ((e.maskBits[slot] & category) == 0 || (e.categoryBits[slot] & maskBits) == 0) continue;
+            slots.add((long) slot);
+        }
+        return slots;
+    }
+
+    private static boolean overlaps(EntityStore e, int slot, float x, float y, float w, float h) {
+        return e.x[slot] < x + w && x < e.x[slot] + e.width[slot]
+            && e.y[slot] < y + h && y < e.y[slot] + e.height[slot];
+    }
+
+    private static long pairKey(int a, int b) {
+        return ((long) Math.min(a, b) << 32) | Math.max(a, b);
+    }
+
+    private static Set<Long> toSet(IntArray slots) {
+        Set<Long> set = new HashSet<>();
+        for (int i = 0; i < slots.size; i++) set.add((long) slots.get(i));
+        return set;
+    }
+}
@@ -0,0 +1,207 @@
+package si.um.feri.platformer.input;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+
+import si.um.feri.platformer.map.LevelData;
+import si.um.feri.platformer.map.TmxLevelLoader;
+import si.um.feri.platformer.simulation.GameSimulation;
+import si.um.feri.platformer.simulation.GameStats;
+import si.um.feri.platformer.simulation.SimulationListener;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Records scripted sessions into an {@link InputLog}, writes and reads it back and replays it
+ * through {@link ReplayInputSource}: every tick must play out the same. Runs with
+ * {@code assets} as the working directory (see core/build.gradle).
+ */
+public class InputLogTest {
+
+    private static final String MAP_PATH = "tiled/MyMap.tmx";
+    private static final String SCRIPT = "R:90 RJ:1 R:40 -:10 L:30 LJ:1 L:20";
+    private static final int TICKS_PER_SECOND = 60;
+    private static final float STEP = 1f / TICKS_PER_SECOND;
+    private static final int TICKS = 1200;
+
+    // header: magic, version, tick rate, tick count, run count
+    private static final int HEADER_BYTES = 5 * 4;
+
+    // ------------------------------
+    // Replay
+    // ------------------------------
+
+    @Test
+    public void replayMatchesRecordedSession() throws IOException {
+        LevelData level = TmxLevelLoader.load(new FileHandle(new File(MAP_PATH)));
+
+        InputLog recorded = new InputLog(TICKS_PER_SECOND);
+        // commands ride along with the movement, as the game's F-keys do
+        InputSource commands = new InputSource() {
+            private final InputSource script = ScriptedInputSource.fromScript(SCRIPT, true);
+            private int tick;
+
+            @Override
+            public void sample(PlayerInput out) {
+                script.sample(out);
+                if (tick++ % 97 == 0) out.set(out.getBits(), PlayerInput.PROFILER_OVERLAY | PlayerInput.RESTART);
+            }
+        };
+        GameSimulation original = new GameSimulation(level, SimulationListener.NONE);
+        float[] trace = run(original, new RecordingInputSource(commands, recorded));
+        assertEquals(TICKS, recorded.getTickCount());
+        assertTrue("the player moved", trace[(TICKS - 1) * 4] != trace[0]);
+
+        InputLog read = writeAndRead(recorded);
+        assertLogsEqual(recorded, read);
+
+        ReplayInputSource replay = new ReplayInputSource(read, false);
+        GameSimulation replayed = new GameSimulation(level, SimulationListener.NONE);
+        float[] replayTrace = run(replayed, replay);
+        assertTrue(replay.isFinished());
+        assertEquals(TICKS, replay.getTicksPlayed());
+
+        for (int i = 0; i < trace.length; i++) {
+            assertEquals("tick " + i / 4 + ", value " + i % 4, trace[i], replayTrace[i], 0f);
+        }
+        assertEquals(original.getTick(), replayed.getTick());
+        assertEquals(original.getPlayer().getX(), replayed.getPlayer().getX(), 0f);
+        assertEquals(original.getPlayer().getY(), replayed.getPlayer().getY(), 0f);
+        assertEquals(original.getPlayer().getVelocityY(), replayed.getPlayer().getVelocityY(), 0f);
+        assertStatsEqual(original.getStats(), replayed.getStats());
+    }
+
+    // ------------------------------
+    // Encoding
+    // ------------------------------
+
+    @Test
+    public void keepsLongRunsAndLargeCommands() throws IOException {
+        InputLog log = new InputLog(TICKS_PER_SECOND);
+        appendRun(log, PlayerInput.RIGHT, 0, 127);                         // one byte
+        appendRun(log, PlayerInput.RIGHT | PlayerInput.JUMP, 0, 128);      // two bytes
+        appendRun(log, 0, PlayerInput.RESTART, 300);                       // two-byte command too
+        appendRun(log, PlayerInput.LEFT, 0, 20000);                        // three bytes
+        appendRun(log, PlayerInput.LEFT, PlayerInput.RELOAD, 1);
+
+        File file = File.createTempFile("input", "." + InputLog.EXTENSION);
+        try {
+            log.write(new FileHandle(file));
+            // per run: bits, then commands and length as varints
+            int runBytes = (1 + 1 + 1) + (1 + 1 + 2) + (1 + 2 + 2) + (1 + 1 + 3) + (1 + 2 + 1);
+            assertEquals(HEADER_BYTES + runBytes, file.length());
+
+            InputLog read = InputLog.read(new FileHandle(file));
+            assertLogsEqual(log, read);
+            assertEquals(5, read.getRunCount());
+            assertEquals(20000, read.getLength(3));
+            assertEquals(PlayerInput.RESTART, read.getCommands(2));
+        } finally {
+            file.delete();
+        }
+
+        // replay walks the long runs tick by tick
+        ReplayInputSource replay = new ReplayInputSource(log, false);
+        PlayerInput input = new PlayerInput();
+        for (int i = 0; i < 127 + 128 + 300; i++) replay.sample(input);
+        replay.sample(input);
+        assertEquals(PlayerInput.LEFT, input.getBits());
+        assertEquals(0, input.getCommands());
+    }
+
+    @Test
+    public void rejectsBadMagicVersionAndTruncation() throws IOException {
+        assertRejected(header(0x12345678, 1), "Not an input log");
+        assertRejected(header(0x50494E50, 2), "has version 2");
+
+        // header promises a run that is not there
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.write(header(0x50494E50, 1));
+        out.writeInt(TICKS_PER_SECOND);
+        out.writeInt(200);
+        out.writeInt(1);
+        out.writeByte(PlayerInput.RIGHT);
+        out.writeByte(0);
+        out.writeByte(0x80 | 72); // first byte of a two-byte length only
+        assertRejected(bytes.toByteArray(), "truncated");
+    }
+
+    // ------------------------------
+    // Helpers
+    // ------------------------------
+
+    /** Ticks the session and returns {x, y, bits, commands} of every tick. */
+    private static float[] run(GameSimulation simulation, InputSource input) {
+        float[] trace = new float[TICKS * 4];
+        for (int tick = 0; tick < TICKS; tick++) {
+            simulation.tick(input, STEP);
+            trace[tick * 4] = simulation.getPlayer().getX();
+            trace[tick * 4 + 1] = simulation.getPlayer().getY();
+            trace[tick * 4 + 2] = simulation.getLastInput().getBits();
+            trace[tick * 4 + 3] = simulation.getLastInput().getCommands();
+        }
+        return trace;
+    }
+
+    private static InputLog writeAndRead(InputLog log) throws IOException {
+        File file = File.createTempFile("input", "." + InputLog.EXTENSION);
+        try {
+            log.write(new FileHandle(file));
+            return InputLog.read(new FileHandle(file));
+        } finally {
+            file.delete();
+        }
+    }
+
+    private static void appendRun(InputLog log, int bits, int commands, int ticks) {
+        for (int i = 0; i < ticks; i++) log.append(bits, commands);
+    }
+
+    private static byte[] header(int magic, int version) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(magic);
+        out.writeInt(version);
+        return bytes.toByteArray();
+    }
+
+    private static void assertRejected(byte[] bytes, String message) throws IOException {
+        File file = File.createTempFile("input", "." + InputLog.EXTENSION);
+        try {
+            new FileHandle(file).writeBytes(bytes, false);
+            InputLog.read(new FileHandle(file));
+            fail("read a bad input log, expected: " + message);
+        } catch (GdxRuntimeException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains(message));
+        } finally {
+            file.delete();
+        }
+    }
+
+    private static void assertLogsEqual(InputLog expected, InputLog actual) {
+        assertEquals(expected.getTicksPerSecond(), actual.getTicksPerSecond());
+        assertEquals(expected.getTickCount(), actual.getTickCount());
+        assertEquals(expected.getRunCount(), actual.getRunCount());
+        for (int run = 0; run < expected.getRunCount(); run++) {
+            assertEquals("run " + run, expected.getBits(run), actual.getBits(run));
+            assertEquals("run " + run, expected.getCommands(run), actual.getCommands(run));
+            assertEquals("run " + run, expected.getLength(run), actual.getLength(run));
+        }
+    }
+
+    private static void assertStatsEqual(GameStats expected, GameStats actual) {
+        assertEquals(expected.getHealth(), actual.getHealth());
+        assertEquals(expected.getScore(), actual.getScore());
+        assertEquals(expected.getCoinsCollected(), actual.getCoinsCollected());
+    }
+}
@@ -0,0 +1,124 @@
+package si.um.feri.platformer.map;
+
+import com.badlogic.gdx.files.FileHandle;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Splits MyMap.tmx into chunks and stitches them back: the simulation must see the same
+ * level as {@link TmxLevelLoader} reads from the TMX, whichever chunks it was cut into.
+ * Runs with {@code assets} as the working directory (see core/build.gradle).
+ */
+public class ChunkedLevelTest {
+
+    private static final String MAP_PATH = "tiled/MyMap.tmx";
+
+    @Test
+    public void stitchedChunksMatchTmxLoader() throws IOException {
+        FileHandle tmx = new FileHandle(new File(MAP_PATH));
+        LevelData expected = TmxLevelLoader.load(tmx);
+        CompiledLevel compiled = TmxLevelLoader.compile(tmx);
+
+        File dir = tempDir();
+        try {
+            FileHandle chunkDir = new FileHandle(dir);
+            ChunkedLevel split = ChunkedLevel.split(compiled, tmx, 10, 10, chunkDir);
+            assertEquals(expected.getWidthTiles() / 10, split.getChunksX());
+            assertEquals(expected.getHeightTiles() / 10, split.getChunksY());
+            assertNotNull(split.getChunkFile(split.getChunksX() - 1, split.getChunksY() - 1));
+            assertNull(split.getChunkFile(split.getChunksX(), 0));
+            assertNull(split.getChunkFile(0, -1));
+
+            // a fresh open, as ChunkedLevelLoader does it
+            LevelData stitched = ChunkedLevel.open(chunkDir).getLevelData();
+            assertEquals(expected.getWidthTiles(), stitched.getWidthTiles());
+            assertEquals(expected.getHeightTiles(), stitched.getHeightTiles());
+            assertEquals(expected.getTileWidthPx(), stitched.getTileWidthPx());
+            assertEquals(expected.getTileHeightPx(), stitched.getTileHeightPx());
+
+            assertGridEquals("solidity", expected.getSolidity(), stitched.getSolidity());
+            assertGridEquals("coins", expected.getCoins(), stitched.getCoins());
+            for (int y = 0; y < expected.getHeightTiles(); y++) {
+                for (int x = 0; x < expected.getWidthTiles(); x++) {
+                    assertEquals("shape at " + x + ", " + y, expected.getShapes().get(x, y), stitched.getShapes().get(x, y));
+                }
+            }
+
+            // the chunks list damage and spawns in their own order
+            assertTrue("the level has damage rectangles", expected.getDamageIndex().size() > 0);
+            assertEquals(rects(expected.getDamageIndex()), rects(stitched.getDamageIndex()));
+            assertEquals(spawns(expected.getSpawns()), spawns(stitched.getSpawns()));
+        } finally {
+            deleteAll(dir);
+        }
+    }
+
+    @Test
+    public void rejectsChunksThatDoNotTileTheLevel() throws IOException {
+        FileHandle tmx = new FileHandle(new File(MAP_PATH));
+        CompiledLevel compiled = TmxLevelLoader.compile(tmx);
+
+        File dir = tempDir();
+        try {
+            ChunkedLevel.split(compiled, tmx, 7, 10, new FileHandle(dir));
+            fail("split a " + compiled.getWidthTiles() + " tile wide level into 7 tile chunks");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("7x10"));
+        } finally {
+            deleteAll(dir);
+        }
+    }
+
+    // ------------------------------
+    // Helpers
+    // ------------------------------
+
+    private static File tempDir() throws IOException {
+        File dir = File.createTempFile("chunks", "");
+        assertTrue(dir.delete());
+        return dir;
+    }
+
+    private static void deleteAll(File file) {
+        File[] children = file.listFiles();
+        if (children != null) for (File child : children) deleteAll(child);
+        file.delete();
+    }
+
+    private static List<String> rects(RectangleIndex index) {
+        List<String> out = new ArrayList<>();
+        for (int i = 0; i < index.size(); i++) {
+            out.add(index.getX(i) + "," + index.getY(i) + "," + index.getWidth(i) + "," + index.getHeight(i));
+        }
+        Collections.sort(out);
+        return out;
+    }
+
+    private static List<String> spawns(float[] spawns) {
+        List<String> out = new ArrayList<>();
+        for (int i = 0; i + 2 < spawns.length; i += 3) out.add(spawns[i] + "," + spawns[i + 1] + "," + spawns[i + 2]);
+        Collections.sort(out);
+        return out;
+    }
+
+    private static void assertGridEquals(String name, SolidityGrid expected, SolidityGrid actual) {
+        assertEquals(name, expected.countSolid(), actual.countSolid());
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++) {
+                assertEquals(name + " at " + x + ", " + y, expected.isSolid(x, y), actual.isSolid(x, y));
+            }
+        }
+    }
+}
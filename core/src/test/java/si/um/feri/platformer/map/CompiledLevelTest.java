@@ -0,0 +1,319 @@
+package si.um.feri.platformer.map;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.XmlReader;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+
+import si.um.feri.platformer.ecs.EntityFactory;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Writes {@link CompiledLevel}s and reads them back: the real level must come back the same
+ * as {@link TmxLevelLoader} reads it from the TMX, and a small hand-built level covers the
+ * sections MyMap.tmx leaves empty. Runs with {@code assets} as the working directory (see
+ * core/build.gradle).
+ */
+public class CompiledLevelTest {
+
+    private static final String MAP_PATH = "tiled/MyMap.tmx";
+
+    // ------------------------------
+    // The real level
+    // ------------------------------
+
+    @Test
+    public void roundTripMatchesTmxLoader() throws IOException {
+        FileHandle tmx = new FileHandle(new File(MAP_PATH));
+        LevelData expected = TmxLevelLoader.load(tmx);
+        CompiledLevel compiled = TmxLevelLoader.compile(tmx);
+        CompiledLevel read = roundTrip(compiled);
+
+        assertEquals(expected.getWidthTiles(), read.getWidthTiles());
+        assertEquals(expected.getHeightTiles(), read.getHeightTiles());
+        assertEquals(expected.getTileWidthPx(), read.getTileWidthPx());
+        assertEquals(expected.getTileHeightPx(), read.getTileHeightPx());
+
+        assertTrue("the level has solid tiles", expected.getSolidity().countSolid() > 0);
+        assertTrue("the level has coins", expected.getCoins().countSolid() > 0);
+        assertGridEquals("solidity", expected.getSolidity(), read.getSolidity());
+        assertGridEquals("coins", expected.getCoins(), read.getCoins());
+        assertShapesEqual(expected.getShapes(), read.getLevelData().getShapes());
+
+        IntArray rects = new IntArray();
+        CollisionGeometryBuilder.mergeRectangles(expected.getSolidity(), rects);
+        assertArrayEquals(rects.toArray(), read.getCollisionRects().toArray());
+
+        RectangleIndex expectedDamage = expected.getDamageIndex();
+        RectangleIndex readDamage = read.getLevelData().getDamageIndex();
+        assertTrue("the level has damage rectangles", expectedDamage.size() > 0);
+        assertEquals(expectedDamage.size(), readDamage.size());
+        for (int i = 0; i < expectedDamage.size(); i++) {
+            assertEquals(expectedDamage.getX(i), readDamage.getX(i), 0f);
+            assertEquals(expectedDamage.getY(i), readDamage.getY(i), 0f);
+            assertEquals(expectedDamage.getWidth(i), readDamage.getWidth(i), 0f);
+            assertEquals(expectedDamage.getHeight(i), readDamage.getHeight(i), 0f);
+        }
+        assertDamageQueriesEqual(expected, expectedDamage, readDamage);
+
+        float mapHeightPx = expected.getHeightTiles() * expected.getTileHeightPx();
+        assertLightsEqual(TmxLevelLoader.readLights(new XmlReader().parse(tmx), mapHeightPx), read.getLights());
+        assertArrayEquals(expected.getSpawns(), read.getSpawns(), 0f);
+
+        assertLayersEqual(compiled.getLayers(), read.getLayers());
+        assertTilesetsEqual(compiled.getTilesets(), read.getTilesets());
+    }
+
+    // ------------------------------
+    // Sections MyMap.tmx leaves empty
+    // ------------------------------
+
+    @Test
+    public void roundTripKeepsShapesFlagsLightsAndSpawns() throws IOException {
+        // wider than one 64-bit word per row
+        int width = 70;
+        int height = 3;
+
+        CompiledLevel.Tileset tileset = new CompiledLevel.Tileset();
+        tileset.name = "Tileset";
+        tileset.image = "1 Tiles/Tileset.png";
+        tileset.firstGid = 1;
+        tileset.tileWidth = 32;
+        tileset.tileHeight = 32;
+        tileset.margin = 1;
+        tileset.spacing = 2;
+        tileset.columns = 10;
+        tileset.tileCount = 60;
+        tileset.propertyNames = new String[]{"sprite.GraveRobberNew", "ünïcode"};
+        tileset.propertyValues = new String[]{"0,192,48,48", "ž"};
+
+        CompiledLevel.TileLayer solid = layer("Foreground", CompiledLevel.ROLE_SOLID, width, height);
+        CompiledLevel.TileLayer coin = layer("Coin", CompiledLevel.ROLE_COIN, width, height);
+        coin.opacity = 0.5f;
+        coin.visible = false;
+        // a tile flipped every way keeps its flags
+        solid.gids[3] = 0xE0000000 | 5;
+
+        SolidityGrid solidity = new SolidityGrid(width, height);
+        SolidityGrid coins = new SolidityGrid(width, height);
+        TileShapes shapes = new TileShapes(width, height);
+        for (int x = 0; x < width; x++) solidity.set(x, 0, x % 7 != 3);
+        solidity.set(69, 2, true);
+        coins.set(64, 1, true);
+        shapes.set(3, 0, TileShapes.SLOPE_UP);
+        shapes.set(68, 2, TileShapes.ONE_WAY);
+        IntArray rects = new IntArray();
+        CollisionGeometryBuilder.mergeRectangles(solidity, rects);
+
+        Array<CompiledLevel.Light> lights = new Array<>();
+        CompiledLevel.Light plain = new CompiledLevel.Light();
+        plain.x = 10f;
+        plain.y = 20f;
+        plain.width = 32f;
+        plain.height = 16f;
+        lights.add(plain);
+        CompiledLevel.Light torch = new CompiledLevel.Light();
+        torch.x = 100f;
+        torch.distance = 6.5f;
+        torch.color = new Color(1f, 0.6f, 0.2f, 1f);
+        torch.flicker = true;
+        lights.add(torch);
+
+        float[] damage = {1f, 0.5f, 2f, 0.25f};
+        float[] spawns = {EntityFactory.ENEMY, 12.5f, 1f, EntityFactory.PICKUP, 60f, 2f};
+
+        Array<CompiledLevel.TileLayer> layers = new Array<>();
+        layers.add(solid);
+        layers.add(coin);
+        Array<CompiledLevel.Tileset> tilesets = new Array<>();
+        tilesets.add(tileset);
+        CompiledLevel level = new CompiledLevel(width, height, 32, 32, layers, tilesets,
+            solidity, coins, rects, damage, lights, spawns, shapes);
+        CompiledLevel read = roundTrip(level);
+
+        assertGridEquals("solidity", solidity, read.getSolidity());
+        assertGridEquals("coins", coins, read.getCoins());
+        assertShapesEqual(shapes, read.getLevelData().getShapes());
+        assertArrayEquals(rects.toArray(), read.getCollisionRects().toArray());
+        assertArrayEquals(damage, read.getDamageRects(), 0f);
+        assertEquals(1, read.getLevelData().getDamageIndex().size());
+        assertLightsEqual(lights, read.getLights());
+        assertArrayEquals(spawns, read.getSpawns(), 0f);
+        assertLayersEqual(layers, read.getLayers());
+        assertTilesetsEqual(tilesets, read.getTilesets());
+    }
+
+    @Test
+    public void editingCopiedTerrainLeavesCachedLevelDataAlone() {
+        CompiledLevel compiled = TmxLevelLoader.compile(new FileHandle(new File(MAP_PATH)));
+        LevelData shared = compiled.getLevelData();
+        int solidBefore = shared.getSolidity().countSolid();
+        int tx = 0, ty = 0;
+        while (!shared.getSolidity().isSolid(tx, ty)) {
+            if (++tx == shared.getWidthTiles()) { tx = 0; ty++; }
+        }
+
+        // what MapManager.setForegroundCell does to a level's own copy
+        LevelData level = compiled.getLevelData().copyTerrain();
+        assertNotSame(shared.getSolidity(), level.getSolidity());
+        assertSame(shared.getCoins(), level.getCoins());
+        level.getSolidity().set(tx, ty, false);
+        level.getShapes().set(tx, ty, TileShapes.ONE_WAY);
+        level.getSolidity().set(tx, ty + 1, true);
+
+        assertSame(shared, compiled.getLevelData());
+        assertTrue(shared.getSolidity().isSolid(tx, ty));
+        assertEquals(TileShapes.NONE, shared.getShapes().get(tx, ty));
+        assertEquals(solidBefore, shared.getSolidity().countSolid());
+        assertEquals(solidBefore, compiled.getSolidity().countSolid());
+        assertFalse(level.getSolidity().isSolid(tx, ty));
+        assertEquals(TileShapes.ONE_WAY, level.getShapes().get(tx, ty));
+    }
+
+    @Test
+    public void rejectsBadMagicAndVersion() throws IOException {
+        assertRejected(0x12345678, 3, "Not a compiled level");
+        assertRejected(0x504C564C, 99, "has version 99");
+    }
+
+    // ------------------------------
+    // Helpers
+    // ------------------------------
+
+    private static CompiledLevel roundTrip(CompiledLevel level) throws IOException {
+        File file = File.createTempFile("level", "." + CompiledLevel.EXTENSION);
+        try {
+            level.write(new FileHandle(file));
+            return CompiledLevel.read(new FileHandle(file));
+        } finally {
+            file.delete();
+        }
+    }
+
+    private static void assertRejected(int magic, int version, String message) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(magic);
+        out.writeInt(version);
+        out.writeInt(0);
+
+        File file = File.createTempFile("level", "." + CompiledLevel.EXTENSION);
+        try {
+            new FileHandle(file).writeBytes(bytes.toByteArray(), false);
+            CompiledLevel.read(new FileHandle(file));
+            fail("read a file with magic " + Integer.toHexString(magic) + " and version " + version);
+        } catch (GdxRuntimeException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains(message));
+        } finally {
+            file.delete();
+        }
+    }
+
+    private static CompiledLevel.TileLayer layer(String name, int role, int width, int height) {
+        CompiledLevel.TileLayer layer = new CompiledLevel.TileLayer();
+        layer.name = name;
+        layer.role = role;
+        layer.gids = new int[width * height];
+        for (int i = 0; i < layer.gids.length; i++) layer.gids[i] = i % 5 == 0 ? 0 : 1 + i % 60;
+        return layer;
+    }
+
+    private static void assertGridEquals(String name, SolidityGrid expected, SolidityGrid actual) {
+        assertEquals(name, expected.getWidth(), actual.getWidth());
+        assertEquals(name, expected.getHeight(), actual.getHeight());
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++) {
+                assertEquals(name + " at " + x + ", " + y, expected.isSolid(x, y), actual.isSolid(x, y));
+            }
+        }
+        assertEquals(name, expected.countSolid(), actual.countSolid());
+    }
+
+    private static void assertShapesEqual(TileShapes expected, TileShapes actual) {
+        assertEquals(expected.getWidth(), actual.getWidth());
+        assertEquals(expected.getHeight(), actual.getHeight());
+        assertEquals(expected.isEmpty(), actual.isEmpty());
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++) {
+                assertEquals("shape at " + x + ", " + y, expected.get(x, y), actual.get(x, y));
+            }
+        }
+    }
+
+    /** Both indexes answer the same for a box at every tile of the level. */
+    private static void assertDamageQueriesEqual(LevelData level, RectangleIndex expected, RectangleIndex actual) {
+        IntArray expectedHits = new IntArray();
+        IntArray actualHits = new IntArray();
+        for (int y = 0; y < level.getHeightTiles(); y++) {
+            for (int x = 0; x < level.getWidthTiles(); x++) {
+                expected.query(x * level.getTileWidth(), y * level.getTileHeight(), 1.5f, 1.5f, expectedHits);
+                actual.query(x * level.getTileWidth(), y * level.getTileHeight(), 1.5f, 1.5f, actualHits);
+                assertArrayEquals("damage at " + x + ", " + y, expectedHits.toArray(), actualHits.toArray());
+            }
+        }
+    }
+
+    private static void assertLightsEqual(Array<CompiledLevel.Light> expected, Array<CompiledLevel.Light> actual) {
+        assertEquals(expected.size, actual.size);
+        for (int i = 0; i < expected.size; i++) {
+            CompiledLevel.Light e = expected.get(i);
+            CompiledLevel.Light a = actual.get(i);
+            assertEquals(e.x, a.x, 0f);
+            assertEquals(e.y, a.y, 0f);
+            assertEquals(e.width, a.width, 0f);
+            assertEquals(e.height, a.height, 0f);
+            if (Float.isNaN(e.distance)) assertTrue(Float.isNaN(a.distance));
+            else assertEquals(e.distance, a.distance, 0f);
+            assertEquals(e.color, a.color);
+            assertEquals(e.flicker, a.flicker);
+        }
+    }
+
+    private static void assertLayersEqual(Array<CompiledLevel.TileLayer> expected, Array<CompiledLevel.TileLayer> actual) {
+        assertEquals(expected.size, actual.size);
+        for (int i = 0; i < expected.size; i++) {
+            CompiledLevel.TileLayer e = expected.get(i);
+            CompiledLevel.TileLayer a = actual.get(i);
+            assertEquals(e.name, a.name);
+            assertEquals(e.name, e.role, a.role);
+            assertEquals(e.name, e.opacity, a.opacity, 0f);
+            assertEquals(e.name, e.visible, a.visible);
+            assertArrayEquals(e.name, e.gids, a.gids);
+        }
+    }
+
+    private static void assertTilesetsEqual(Array<CompiledLevel.Tileset> expected, Array<CompiledLevel.Tileset> actual) {
+        assertEquals(expected.size, actual.size);
+        for (int i = 0; i < expected.size; i++) {
+            CompiledLevel.Tileset e = expected.get(i);
+            CompiledLevel.Tileset a = actual.get(i);
+            assertEquals(e.name, a.name);
+            assertEquals(e.image, a.image);
+            assertEquals(e.firstGid, a.firstGid);
+            assertEquals(e.tileWidth, a.tileWidth);
+            assertEquals(e.tileHeight, a.tileHeight);
+            assertEquals(e.margin, a.margin);
+            assertEquals(e.spacing, a.spacing);
+            assertEquals(e.columns, a.columns);
+            assertEquals(e.tileCount, a.tileCount);
+            assertArrayEquals(e.propertyNames, a.propertyNames);
+            assertArrayEquals(e.propertyValues, a.propertyValues);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package si.um.feri.platformer.map;
+
+import com.badlogic.gdx.utils.IntArray;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compares {@link RectangleIndex} queries against testing every rectangle. Rectangles and
+ * queries span several cells and reach past the indexed bounds on every side, where both
+ * are clamped to the edge cells.
+ */
+public class RectangleIndexTest {
+
+    private static final float BOUNDS_W = 40f;
+    private static final float BOUNDS_H = 24f;
+    private static final float CELL = 4f;
+
+    @Test
+    public void matchesBruteForceOverRandomQueries() {
+        for (long seed = 1; seed <= 20; seed++) {
+            Random random = new Random(seed);
+            int count = random.nextInt(60);
+            float[] rects = new float[count * 4];
+            for (int i = 0; i < count; i++) randomBox(random, rects, i * 4);
+
+            RectangleIndex index = new RectangleIndex(rects, count, BOUNDS_W, BOUNDS_H, CELL);
+            IntArray found = new IntArray();
+            float[] query = new float[4];
+            for (int q = 0; q < 300; q++) {
+                randomBox(random, query, 0);
+                String at = "seed " + seed + ", query " + q;
+
+                int n = index.query(query[0], query[1], query[2], query[3], found);
+                assertEquals(at, n, found.size);
+                Set<Integer> reported = new HashSet<>();
+                for (int i = 0; i < n; i++) reported.add(found.get(i));
+                assertEquals(at + ": duplicates", n, reported.size());
+
+                Set<Integer> expected = bruteForce(rects, count, query);
+                assertEquals(at, expected, reported);
+                assertEquals(at, !expected.isEmpty(), index.overlapsAny(query[0], query[1], query[2], query[3]));
+            }
+        }
+    }
+
+    @Test
+    public void reportsRectangleCoveringWholeGridOnce() {
+        float[] rects = {-10f, -10f, BOUNDS_W + 20f, BOUNDS_H + 20f};
+        RectangleIndex index = new RectangleIndex(rects, 1, BOUNDS_W, BOUNDS_H, CELL);
+        IntArray found = new IntArray();
+
+        assertEquals(1, index.query(-5f, -5f, BOUNDS_W + 10f, BOUNDS_H + 10f, found));
+        assertEquals(0, found.get(0));
+        // entirely past the right edge, in the clamped column
+        assertEquals(1, index.query(BOUNDS_W + 2f, 3f, 1f, 1f, found));
+    }
+
+    @Test
+    public void doesNotCountTouchingEdges() {
+        float[] rects = {4f, 4f, 4f, 4f};
+        RectangleIndex index = new RectangleIndex(rects, 1, BOUNDS_W, BOUNDS_H, CELL);
+        IntArray found = new IntArray();
+
+        assertEquals(0, index.query(8f, 4f, 2f, 2f, found));
+        assertEquals(0, index.query(4f, 2f, 2f, 2f, found));
+        assertFalse(index.overlapsAny(0f, 0f, 4f, 4f));
+        assertTrue(index.overlapsAny(7.9f, 7.9f, 1f, 1f));
+    }
+
+    /** A box from a quarter cell to a few cells in size, sometimes past the bounds. */
+    private static void randomBox(Random random, float[] out, int at) {
+        boolean large = random.nextInt(4) == 0;
+        out[at] = random.nextFloat() * (BOUNDS_W + 16f) - 8f;
+        out[at + 1] = random.nextFloat() * (BOUNDS_H + 16f) - 8f;
+        out[at + 2] = 1f + random.nextFloat() * (large ? 14f : 3f);
+        out[at + 3] = 1f + random.nextFloat() * (large ? 10f : 3f);
+    }
+
+    private static Set<Integer> bruteForce(float[] rects, int count, float[] q) {
+        Set<Integer> ids = new HashSet<>();
+        for (int i = 0; i < count; i++) {
+            float x = rects[i * 4], y = rects[i * 4 + 1], w = rects[i * 4 + 2], h = rects[i * 4 + 3];
+            if (q[0] < x + w && q[0] + q[2] > x && q[1] < y + h && q[1] + q[3] > y) ids.add(i);
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,100 @@
+package si.um.feri.platformer.map;
+
+import com.badlogic.gdx.maps.tiled.TiledMapTileLayer;
+
+import org.junit.Test;
+
+import si.um.feri.platformer.input.ScriptedInputSource;
+import si.um.feri.platformer.simulation.GameSimulation;
+import si.um.feri.platformer.simulation.SimulationListener;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link TileLayerEdits} on an in-memory layer. A reload builds the next level from the same
+ * TiledMap, so whatever a session took off the layer has to be back once it is disposed.
+ */
+public class TileLayerEditsTest {
+
+    private static final int WIDTH = 20;
+    private static final int HEIGHT = 6;
+    private static final float STEP = 1f / 60f;
+
+    @Test
+    public void reloadAfterCollectingFindsEveryCoin() {
+        TiledMapTileLayer floor = layer();
+        for (int x = 0; x < WIDTH; x++) floor.setCell(x, 0, new TiledMapTileLayer.Cell());
+        TiledMapTileLayer coinLayer = layer();
+        TiledMapTileLayer.Cell first = new TiledMapTileLayer.Cell();
+        TiledMapTileLayer.Cell second = new TiledMapTileLayer.Cell();
+        coinLayer.setCell(4, 1, first);
+        coinLayer.setCell(7, 1, second);
+
+        // the first session mirrors collected coins into the layer, as MapManager does
+        TileLayerEdits edits = new TileLayerEdits(coinLayer);
+        GameSimulation session = session(floor, coinLayer, edits);
+        // lands first, then walks right along the floor
+        ScriptedInputSource walk = ScriptedInputSource.fromScript("-:60 R:300", false);
+        for (int i = 0; i < 360 && session.getStats().getCoinsCollected() < 2; i++) session.tick(walk, STEP);
+        assertEquals(2, session.getStats().getCoinsCollected());
+        assertNull(coinLayer.getCell(4, 1));
+        assertNull(coinLayer.getCell(7, 1));
+
+        // dispose, then the reloaded level reads the same layer
+        edits.revertAll();
+        assertEquals(0, edits.size());
+        assertSame(first, coinLayer.getCell(4, 1));
+        assertSame(second, coinLayer.getCell(7, 1));
+
+        GameSimulation reloaded = session(floor, coinLayer, new TileLayerEdits(coinLayer));
+        assertTrue(reloaded.getCoins().isSolid(4, 1));
+        assertTrue(reloaded.getCoins().isSolid(7, 1));
+        assertEquals(2, reloaded.getCoins().countSolid());
+    }
+
+    @Test
+    public void revertsSingleCellsToTheirFirstContent() {
+        TiledMapTileLayer layer = layer();
+        TiledMapTileLayer.Cell original = new TiledMapTileLayer.Cell();
+        layer.setCell(2, 3, original);
+        TileLayerEdits edits = new TileLayerEdits(layer);
+
+        // changed twice: the cell from before the first change comes back
+        edits.set(2, 3, null);
+        edits.set(2, 3, new TiledMapTileLayer.Cell());
+        // filling an empty cell reverts to empty
+        edits.set(5, 1, new TiledMapTileLayer.Cell());
+        assertEquals(2, edits.size());
+
+        assertTrue(edits.revert(2, 3));
+        assertSame(original, layer.getCell(2, 3));
+        assertFalse(edits.revert(2, 3));
+        assertFalse(edits.revert(0, 0));
+
+        edits.revertAll();
+        assertNull(layer.getCell(5, 1));
+        assertSame(original, layer.getCell(2, 3));
+        assertEquals(0, edits.size());
+    }
+
+    private static TiledMapTileLayer layer() {
+        return new TiledMapTileLayer(WIDTH, HEIGHT, 32, 32);
+    }
+
+    /** A session over grids read from the layers, like a TMX level's preprocessing. */
+    private static GameSimulation session(TiledMapTileLayer floor, TiledMapTileLayer coinLayer, final TileLayerEdits edits) {
+        RectangleIndex damage = new RectangleIndex(new float[0], 0, WIDTH, HEIGHT, LevelData.DAMAGE_INDEX_CELL_TILES);
+        LevelData level = new LevelData(WIDTH, HEIGHT, 32, 32,
+            SolidityGrid.fromLayer(floor), SolidityGrid.fromLayer(coinLayer), damage);
+        return new GameSimulation(level, new SimulationListener() {
+            @Override public void coinCollected(int tileX, int tileY) { edits.set(tileX, tileY, null); }
+            @Override public void pickupCollected(float x, float y) { }
+            @Override public void damageTaken() { }
+            @Override public void coinRestored(int tileX, int tileY, boolean present) { }
+        });
+    }
+}
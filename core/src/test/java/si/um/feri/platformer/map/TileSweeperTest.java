@@ -0,0 +1,205 @@
+package si.um.feri.platformer.map;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link TileSweeper} on small hand-built levels: one-unit tiles, a floor in row 0 (its top
+ * at y = 1) and a box the size of the player.
+ */
+public class TileSweeperTest {
+
+    private static final int WIDTH = 40;
+    private static final int HEIGHT = 20;
+
+    private static final float W = 0.875f;
+    private static final float H = 1.53f;
+    private static final float EPS = 1e-5f;
+
+    // per slide step while walking: a run step and gravity
+    private static final float STEP_X = 0.1f;
+    private static final float STEP_Y = -0.05f;
+
+    private final SolidityGrid solidity = new SolidityGrid(WIDTH, HEIGHT);
+    private final TileShapes shapes = new TileShapes(WIDTH, HEIGHT);
+    private final TileSweeper sweeper = new TileSweeper(solidity, shapes, 1f, 1f);
+    private final TileSweeper.Hit hit = new TileSweeper.Hit();
+
+    public TileSweeperTest() {
+        for (int x = 0; x < WIDTH; x++) solidity.set(x, 0, true);
+    }
+
+    // ------------------------------
+    // Solid tiles
+    // ------------------------------
+
+    @Test
+    public void landsOnFloorAtTimeOfImpact() {
+        assertTrue(sweeper.sweep(2f, 10f, W, H, 0f, -30f, hit));
+        assertEquals(0.3f, hit.time, EPS);
+        assertEquals(2f, hit.x, 0f);
+        assertEquals(1f, hit.y, 0f);
+        assertEquals(1f, hit.normalY, 0f);
+        assertEquals(0, hit.tileY);
+    }
+
+    @Test
+    public void stopsAtWallAtTimeOfImpact() {
+        column(30, 1, 6);
+
+        assertTrue(sweeper.sweep(25f, 1f, W, H, 10f, 0f, hit));
+        assertEquals((30f - W - 25f) / 10f, hit.time, EPS);
+        assertEquals(30f - W, hit.x, 0f);
+        assertEquals(1f, hit.y, 0f);
+        assertEquals(-1f, hit.normalX, 0f);
+        assertEquals(30, hit.tileX);
+
+        assertTrue(sweeper.sweep(35f, 1f, W, H, -10f, 0f, hit));
+        assertEquals(0.4f, hit.time, EPS);
+        assertEquals(31f, hit.x, 0f);
+        assertEquals(1f, hit.normalX, 0f);
+    }
+
+    @Test
+    public void doesNotTunnelThroughThinWallAtHighSpeed() {
+        column(20, 1, 3);
+
+        for (float dx : new float[]{5f, 12f, 19f}) {
+            assertTrue("dx " + dx, sweeper.sweep(15f, 1f, W, H, dx, 0f, hit));
+            assertEquals("dx " + dx, 20f - W, hit.x, 0f);
+        }
+        // and diagonally, falling onto the floor behind it
+        assertTrue(sweeper.sweep(15f, 3f, W, H, 12f, -1.5f, hit));
+        assertEquals(20f - W, hit.x, 0f);
+        assertEquals(-1f, hit.normalX, 0f);
+    }
+
+    @Test
+    public void slidesAlongFloorWithoutSnagging() {
+        assertFalse(sweeper.sweep(1f, 1f, W, H, 3f, 0f, hit));
+        assertEquals(4f, hit.x, 0f);
+
+        // standing on the floor, gravity gives a contact right away and the run goes on
+        sweeper.slide(1f, 1f, W, H, STEP_X, STEP_Y, hit);
+        assertTrue(hit.ground);
+        assertFalse(hit.wall);
+        assertEquals(1f + STEP_X, hit.x, EPS);
+        assertEquals(1f, hit.y, 0f);
+    }
+
+    // ------------------------------
+    // One-way platforms
+    // ------------------------------
+
+    @Test
+    public void landsOnOneWayPlatformFromAbove() {
+        oneWay(5, 6, 4);
+
+        assertTrue(sweeper.sweep(5.1f, 7f, W, H, 0f, -4f, hit));
+        assertEquals(5f, hit.y, 0f);
+        assertEquals(TileShapes.ONE_WAY, hit.shape);
+        assertEquals(1f, hit.normalY, 0f);
+    }
+
+    @Test
+    public void passesThroughOneWayPlatformFromBelowAndSide() {
+        oneWay(5, 6, 4);
+
+        // jumping up through it
+        assertFalse(sweeper.sweep(5.1f, 1f, W, H, 0f, 4.5f, hit));
+        assertEquals(5.5f, hit.y, 0f);
+        // falling back while the feet are still inside it does not snap onto it
+        assertFalse(sweeper.sweep(5.1f, 4.5f, W, H, 0f, -0.2f, hit));
+        // walking through it sideways
+        assertFalse(sweeper.sweep(3f, 4.2f, W, H, 5f, 0f, hit));
+    }
+
+    // ------------------------------
+    // Slopes
+    // ------------------------------
+
+    /** A hill: slope_up at 10, flat top at 11..13 (y = 2), slope_down at 14. */
+    private void hill() {
+        shapes.set(10, 1, TileShapes.SLOPE_UP);
+        for (int x = 11; x <= 13; x++) solidity.set(x, 1, true);
+        shapes.set(14, 1, TileShapes.SLOPE_DOWN);
+    }
+
+    @Test
+    public void walksOverHillRightward() {
+        hill();
+        float[] pos = {7.5f, 1f};
+
+        // up the rising slope onto the flat top
+        walk(pos, STEP_X, 12.5f);
+        assertEquals(2f, pos[1], 0f);
+
+        // over the top and down the falling slope back to the floor
+        walk(pos, STEP_X, 18f);
+        assertEquals(1f, pos[1], 0f);
+    }
+
+    @Test
+    public void walksOverHillLeftward() {
+        hill();
+        float[] pos = {17.5f, 1f};
+
+        walk(pos, -STEP_X, 11.5f);
+        assertEquals(2f, pos[1], 0f);
+
+        walk(pos, -STEP_X, 7f);
+        assertEquals(1f, pos[1], 0f);
+    }
+
+    @Test
+    public void stepsOffTheTopOfSlopeIntoFall() {
+        shapes.set(10, 1, TileShapes.SLOPE_UP); // nothing behind it
+
+        float[] pos = {7.5f, 1f};
+        float highest = 0f;
+        boolean fell = false;
+        while (pos[0] < 14f) {
+            sweeper.slide(pos[0], pos[1], W, H, STEP_X, STEP_Y, hit);
+            assertFalse("walked into a wall at x " + pos[0], hit.wall);
+            pos[0] = hit.x;
+            pos[1] = hit.y;
+            highest = Math.max(highest, pos[1]);
+            if (!hit.ground) fell = true;
+        }
+        assertEquals(2f, highest, EPS);
+        assertTrue(fell);
+        assertEquals(1f, pos[1], 0f);
+    }
+
+    // ------------------------------
+    // Helpers
+    // ------------------------------
+
+    /**
+     * Slides the box in steps of {@code dx} with gravity until it passes {@code untilX}. It
+     * must stay on the ground, never hit a wall and never sink into the floor.
+     */
+    private void walk(float[] pos, float dx, float untilX) {
+        for (int i = 0; i < 1000 && (dx > 0 ? pos[0] < untilX : pos[0] > untilX); i++) {
+            sweeper.slide(pos[0], pos[1], W, H, dx, STEP_Y, hit);
+            String at = "at x " + pos[0] + ", y " + pos[1];
+            assertTrue(at, hit.ground);
+            assertFalse(at, hit.wall);
+            assertEquals(at, pos[0] + dx, hit.x, EPS);
+            assertTrue(at, hit.y >= 1f && hit.y <= 2f);
+            pos[0] = hit.x;
+            pos[1] = hit.y;
+        }
+    }
+
+    private void column(int x, int y0, int y1) {
+        for (int y = y0; y <= y1; y++) solidity.set(x, y, true);
+    }
+
+    private void oneWay(int x0, int x1, int y) {
+        for (int x = x0; x <= x1; x++) shapes.set(x, y, TileShapes.ONE_WAY);
+    }
+}
@@ -0,0 +1,258 @@
+package si.um.feri.platformer.simulation;
+
+import com.badlogic.gdx.utils.IntArray;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import si.um.feri.platformer.ecs.EntityFactory;
+import si.um.feri.platformer.ecs.EntityStore;
+import si.um.feri.platformer.input.InputSource;
+import si.um.feri.platformer.input.PlayerInput;
+import si.um.feri.platformer.input.ScriptedInputSource;
+import si.um.feri.platformer.map.LevelData;
+import si.um.feri.platformer.map.RectangleIndex;
+import si.um.feri.platformer.map.SolidityGrid;
+import si.um.feri.platformer.map.TileShapes;
+import si.um.feri.platformer.systems.VisibilitySet;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Snapshots of a {@link GameSimulation} on a small level: a floor, enemies to the right and
+ * coins the player collects walking right from the start, (4, 1) then (7, 1) and (10, 1),
+ * or jumping right away, (4, 4) then (7, 1).
+ */
+public class GameSimulationTest {
+
+    private static final int WIDTH = 80;
+    private static final int HEIGHT = 12;
+    private static final float STEP = 1f / 60f;
+
+    // the player lands by tick 60, then walks or jumps right
+    private static final String WALK = "-:60 R:300";
+    private static final String JUMP = "-:60 RJ:1 R:300";
+
+    private static final InputSource IDLE = new InputSource() {
+        @Override
+        public void sample(PlayerInput out) {
+            out.clear();
+        }
+    };
+
+    @Test
+    public void restoreContinuesFarEntityStagger() {
+        GameSimulation sim = new GameSimulation(level(), SimulationListener.NONE);
+        // view on the left end: the enemies to the right are in the far tier
+        VisibilitySet visibility = new VisibilitySet(1f, 1f, WIDTH, HEIGHT, 16, 2f);
+        visibility.set(8f, 6f, 16f, 12f);
+        sim.getMovementSystem().setVisibility(visibility, 4);
+
+        // a tick count that is not a multiple of the interval
+        for (int i = 0; i < 7; i++) sim.tick(IDLE, STEP);
+        SimulationSnapshot snapshot = new SimulationSnapshot();
+        sim.save(snapshot);
+
+        for (int i = 0; i < 13; i++) sim.tick(IDLE, STEP);
+        float[] first = positions(sim.getEntities());
+
+        sim.restore(snapshot);
+        assertEquals(7, sim.getTick());
+        for (int i = 0; i < 13; i++) sim.tick(IDLE, STEP);
+        assertArrayEquals(first, positions(sim.getEntities()), 0f);
+    }
+
+    // ------------------------------
+    // Coins
+    // ------------------------------
+
+    @Test
+    public void restoreRollsBackCoinsCollectedAfterSave() {
+        RecordingListener listener = new RecordingListener();
+        GameSimulation sim = new GameSimulation(level(), listener);
+        SimulationSnapshot start = new SimulationSnapshot();
+        sim.save(start);
+
+        InputSource input = ScriptedInputSource.fromScript(WALK, false);
+        tickUntilCoins(sim, input, 1);
+        SimulationSnapshot snapshot = new SimulationSnapshot();
+        sim.save(snapshot);
+        State saved = new State(sim);
+        assertEquals(Arrays.asList("collected 4,1"), listener.events);
+
+        tickUntilCoins(sim, input, 2);
+        for (int i = 0; i < 10; i++) sim.tick(input, STEP);
+        // the rest of the run from the snapshot, to replay after restoring
+        InputSource rest = ScriptedInputSource.fromScript("R:" + (sim.getTick() - snapshot.getTick()), false);
+        State later = new State(sim);
+        listener.events.clear();
+
+        sim.restore(snapshot);
+        saved.assertMatches(sim);
+        assertEquals(Arrays.asList("restored 7,1 true"), listener.events);
+
+        // the same input from there plays out the same, collecting the coin again
+        listener.events.clear();
+        while (sim.getTick() < later.tick) sim.tick(rest, STEP);
+        later.assertMatches(sim);
+        assertEquals(Arrays.asList("collected 7,1"), listener.events);
+
+        // back to the start of the level: every coin returns, newest first
+        listener.events.clear();
+        sim.restore(start);
+        new State(new GameSimulation(level(), SimulationListener.NONE)).assertMatches(sim);
+        assertEquals(Arrays.asList("restored 7,1 true", "restored 4,1 true"), listener.events);
+    }
+
+    @Test
+    public void restoresSnapshotOfAnotherSession() {
+        LevelData level = level();
+
+        GameSimulation walker = new GameSimulation(level, SimulationListener.NONE);
+        InputSource walk = ScriptedInputSource.fromScript(WALK, false);
+        tickUntilCoins(walker, walk, 2);
+        SimulationSnapshot snapshot = new SimulationSnapshot();
+        walker.save(snapshot);
+        assertArrayEquals(new int[]{index(4, 1), index(7, 1)}, walker.getCollisionSystem().getCoinLog().toArray());
+
+        // a session that jumped over the first coin and has no log in common with it
+        RecordingListener listener = new RecordingListener();
+        GameSimulation jumper = new GameSimulation(level, listener);
+        tickUntilCoins(jumper, ScriptedInputSource.fromScript(JUMP, false), 2);
+        assertArrayEquals(new int[]{index(4, 4), index(7, 1)}, jumper.getCollisionSystem().getCoinLog().toArray());
+        listener.events.clear();
+
+        jumper.restore(snapshot);
+        new State(walker).assertMatches(jumper);
+        assertEquals(Arrays.asList("restored 7,1 true", "restored 4,4 true", "restored 4,1 false", "restored 7,1 false"),
+            listener.events);
+
+        // from there the fork runs exactly like the original
+        InputSource walkerInput = ScriptedInputSource.fromScript("R:120", false);
+        InputSource jumperInput = ScriptedInputSource.fromScript("R:120", false);
+        for (int i = 0; i < 120; i++) {
+            walker.tick(walkerInput, STEP);
+            jumper.tick(jumperInput, STEP);
+        }
+        assertEquals(3, walker.getStats().getCoinsCollected());
+        new State(walker).assertMatches(jumper);
+    }
+
+    /** A floor, a few coins near the start and a row of enemies, some in every phase of the stagger. */
+    private static LevelData level() {
+        SolidityGrid solidity = new SolidityGrid(WIDTH, HEIGHT);
+        for (int x = 0; x < WIDTH; x++) solidity.set(x, 0, true);
+        SolidityGrid coins = new SolidityGrid(WIDTH, HEIGHT);
+        coins.set(4, 1, true);
+        coins.set(7, 1, true);
+        coins.set(10, 1, true);
+        coins.set(4, 4, true);
+
+        float[] spawns = new float[3 * 12];
+        for (int i = 0; i < 12; i++) {
+            spawns[i * 3] = EntityFactory.ENEMY;
+            spawns[i * 3 + 1] = 30f + i * 4f;
+            spawns[i * 3 + 2] = 1f;
+        }
+        RectangleIndex damage = new RectangleIndex(new float[0], 0, WIDTH, HEIGHT, LevelData.DAMAGE_INDEX_CELL_TILES);
+        return new LevelData(WIDTH, HEIGHT, 32, 32, solidity, coins, damage, spawns,
+            new TileShapes(WIDTH, HEIGHT));
+    }
+
+    private static float[] positions(EntityStore entities) {
+        float[] out = new float[entities.size() * 2];
+        for (int slot = 0; slot < entities.size(); slot++) {
+            out[slot * 2] = entities.x[slot];
+            out[slot * 2 + 1] = entities.y[slot];
+        }
+        return out;
+    }
+
+    private static void tickUntilCoins(GameSimulation sim, InputSource input, int coins) {
+        for (int i = 0; i < 600 && sim.getStats().getCoinsCollected() < coins; i++) sim.tick(input, STEP);
+        assertEquals(coins, sim.getStats().getCoinsCollected());
+    }
+
+    private static int index(int tx, int ty) {
+        return tx + ty * WIDTH;
+    }
+
+    /** Listener calls as "collected x,y" and "restored x,y present". */
+    private static class RecordingListener implements SimulationListener {
+        final List<String> events = new ArrayList<>();
+
+        @Override
+        public void coinCollected(int tileX, int tileY) {
+            events.add("collected " + tileX + "," + tileY);
+        }
+
+        @Override
+        public void pickupCollected(float x, float y) {
+        }
+
+        @Override
+        public void damageTaken() {
+        }
+
+        @Override
+        public void coinRestored(int tileX, int tileY, boolean present) {
+            events.add("restored " + tileX + "," + tileY + " " + present);
+        }
+    }
+
+    /** Copy of everything a snapshot restores, compared field by field. */
+    private static class State {
+        final long tick;
+        final float x, y, prevX, prevY, velocityX, velocityY, airTime;
+        final boolean jumping;
+        final int health, score, coinsCollected;
+        final int[] coinLog;
+        final boolean[] coins = new boolean[WIDTH * HEIGHT];
+        final float[] entities;
+
+        State(GameSimulation sim) {
+            tick = sim.getTick();
+            x = sim.getPlayer().getX();
+            y = sim.getPlayer().getY();
+            prevX = sim.getPlayer().getPreviousX();
+            prevY = sim.getPlayer().getPreviousY();
+            velocityX = sim.getPlayer().getVelocityX();
+            velocityY = sim.getPlayer().getVelocityY();
+            airTime = sim.getPlayer().getAirTime();
+            jumping = sim.getPlayer().isJumping();
+            health = sim.getStats().getHealth();
+            score = sim.getStats().getScore();
+            coinsCollected = sim.getStats().getCoinsCollected();
+            IntArray log = sim.getCollisionSystem().getCoinLog();
+            coinLog = log.toArray();
+            for (int i = 0; i < coins.length; i++) coins[i] = sim.getCoins().isSolid(i % WIDTH, i / WIDTH);
+            entities = positions(sim.getEntities());
+        }
+
+        void assertMatches(GameSimulation sim) {
+            State actual = new State(sim);
+            assertEquals(tick, actual.tick);
+            assertEquals(x, actual.x, 0f);
+            assertEquals(y, actual.y, 0f);
+            assertEquals(prevX, actual.prevX, 0f);
+            assertEquals(prevY, actual.prevY, 0f);
+            assertEquals(velocityX, actual.velocityX, 0f);
+            assertEquals(velocityY, actual.velocityY, 0f);
+            assertEquals(airTime, actual.airTime, 0f);
+            assertEquals(jumping, actual.jumping);
+            assertEquals(health, actual.health);
+            assertEquals(score, actual.score);
+            assertEquals(coinsCollected, actual.coinsCollected);
+            assertArrayEquals(coinLog, actual.coinLog);
+            for (int i = 0; i < coins.length; i++) {
+                assertEquals("coin at " + i % WIDTH + ", " + i / WIDTH, coins[i], actual.coins[i]);
+            }
+            assertArrayEquals(entities, actual.entities, 0f);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package si.um.feri.platformer.simulation;
+
+import com.badlogic.gdx.files.FileHandle;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.io.File;
+
+import si.um.feri.platformer.input.InputSource;
+import si.um.feri.platformer.input.ScriptedInputSource;
+import si.um.feri.platformer.map.LevelData;
+import si.um.feri.platformer.map.TmxLevelLoader;
+import si.um.feri.platformer.profiling.AllocationMonitor;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Allocation regression check for the tick path: runs scripted sessions of the real level
+ * through {@link SimulationRunner} and fails if a round of ticks allocates more than the
+ * budget on average. Runs with {@code assets} as the working directory (see core/build.gradle).
+ */
+public class SimulationAllocationTest {
+
+    private static final String MAP_PATH = "tiled/MyMap.tmx";
+    private static final String SCRIPT = "R:90 RJ:1 R:40 -:10 L:30 LJ:1 L:20";
+
+    private static final float STEP = 1f / 60f;
+    private static final int SESSIONS = 4;
+    private static final int TICKS = 3600;
+    private static final int WARMUP_ROUNDS = 600;
+
+    // bytes per round of SESSIONS ticks; the steady state allocates nothing, this is slack
+    // for the counter query itself
+    private static final long BUDGET_BYTES = 256;
+
+    @Test
+    public void tickRoundsStayWithinAllocationBudget() {
+        AllocationMonitor monitor = new AllocationMonitor(BUDGET_BYTES, WARMUP_ROUNDS);
+        Assume.assumeTrue("JVM has no per-thread allocation counter", monitor.isSupported());
+
+        LevelData level = TmxLevelLoader.load(new FileHandle(new File(MAP_PATH)));
+        SimulationRunner.Result result = new SimulationRunner(level, STEP).run(SESSIONS, TICKS,
+            new SimulationRunner.InputFactory() {
+                @Override
+                public InputSource create(int session) {
+                    return ScriptedInputSource.fromScript(SCRIPT, true);
+                }
+            }, monitor);
+
+        assertTrue("sessions ended during warm-up: " + result, monitor.getMeasuredFrames() > 0);
+        assertTrue(monitor.summary(), monitor.isWithinBudget());
+    }
+}
@@ -0,0 +1,31 @@
+package si.um.feri.platformer.headless;
+
+import com.badlogic.gdx.backends.headless.HeadlessApplication;
+import com.badlogic.gdx.backends.headless.HeadlessApplicationConfiguration;
+
+/**
+ * Launches the simulation without a window or GL context.
+ * Arguments: {@code [mapPath] [sessions] [ticksPerSession] [inputScript] [threads]}.
+ * Exits with status 1 if the run fails, e.g. over the allocation budget.
+ */
+public class HeadlessLauncher {
+    public static void main(String[] args) throws InterruptedException {
+        HeadlessSimulationApp app = new HeadlessSimulationApp(args);
+        createApplication(app);
+
+        // the app runs on the backend's thread; only a failure ends the process early
+        int status = app.awaitExitStatus();
+        if (status != 0) System.exit(status);
+    }
+
+    private static HeadlessApplication createApplication(HeadlessSimulationApp app) {
+        return new HeadlessApplication(app, getDefaultConfiguration());
+    }
+
+    private static HeadlessApplicationConfiguration getDefaultConfiguration() {
+        HeadlessApplicationConfiguration configuration = new HeadlessApplicationConfiguration();
+        // all work happens in create(); the render loop only has to notice the exit request
+        configuration.updatesPerSecond = 60;
+        return configuration;
+    }
+}
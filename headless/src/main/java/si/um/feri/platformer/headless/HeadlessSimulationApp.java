@@ -0,0 +1,174 @@
+package si.um.feri.platformer.headless;
+
+import com.badlogic.gdx.ApplicationAdapter;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.TimeUtils;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+
+import si.um.feri.platformer.input.InputLog;
+import si.um.feri.platformer.input.InputSource;
+import si.um.feri.platformer.input.ReplayInputSource;
+import si.um.feri.platformer.input.ScriptedInputSource;
+import si.um.feri.platformer.map.ChunkedLevel;
+import si.um.feri.platformer.map.CompiledLevel;
+import si.um.feri.platformer.map.LevelData;
+import si.um.feri.platformer.map.TmxLevelLoader;
+import si.um.feri.platformer.profiling.AllocationMonitor;
+import si.um.feri.platformer.profiling.FrameProfiler;
+import si.um.feri.platformer.simulation.BatchRunner;
+import si.um.feri.platformer.simulation.SimulationRunner;
+
+/**
+ * Runs scripted sessions of a level through {@link SimulationRunner} as fast as possible,
+ * logs throughput and outcomes, then exits. With {@code -Dplatformer.allocBudget=<bytes>}
+ * each round of ticks is also checked against an allocation budget; a failed budget, like
+ * a run that throws, is reported through {@link #awaitExitStatus()} so the launcher can
+ * fail the process. With {@code -Dplatformer.profile=<file.csv|file.json>}
+ * every round is recorded by a {@link FrameProfiler} and written to that file.
+ *
+ * A fifth argument {@code threads} > 0 switches to {@link BatchRunner}: sessions run to
+ * completion in parallel on that many threads and the aggregated outcomes are logged.
+ * The allocation budget and the profile only apply to the single-threaded mode.
+ *
+ * A compiled level ({@code .lvl}) next to the map is loaded instead of the TMX unless
+ * {@code -Dplatformer.compiledLevel=false} is given; the load time is logged either way.
+ * A directory of chunks (see {@link ChunkedLevel}) is loaded as the level they make up.
+ *
+ * With {@code -Dplatformer.replayInput=<file.inp>} every session plays that recording (made
+ * by the game with {@code -Dplatformer.recordInput}), looping, instead of the input script.
+ */
+public class HeadlessSimulationApp extends ApplicationAdapter {
+
+    private static final String TAG = "Headless";
+
+    private static final String DEFAULT_MAP = "tiled/MyMap.tmx";
+    private static final int DEFAULT_SESSIONS = 16;
+    private static final int DEFAULT_TICKS = 36000; // ten minutes at 60 Hz
+    private static final String DEFAULT_SCRIPT = "R:90 RJ:1 R:40 -:10 L:30 LJ:1 L:20";
+
+    private static final float STEP = 1f / 60f;
+    private static final int ALLOC_WARMUP_ROUNDS = 600;
+
+    private final String mapPath;
+    private final int sessions;
+    private final int ticks;
+    private final String script;
+    private final int threads;
+
+    private final CountDownLatch finished = new CountDownLatch(1);
+    private volatile boolean failed = true; // until the run gets through
+
+    public HeadlessSimulationApp(String[] args) {
+        mapPath = args.length > 0 ? args[0] : DEFAULT_MAP;
+        sessions = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_SESSIONS;
+        ticks = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_TICKS;
+        script = args.length > 3 ? args[3] : DEFAULT_SCRIPT;
+        threads = args.length > 4 ? Integer.parseInt(args[4]) : 0;
+    }
+
+    @Override
+    public void create() {
+        try {
+            failed = !run();
+        } catch (RuntimeException e) {
+            Gdx.app.error(TAG, "Run failed", e);
+        } finally {
+            finished.countDown();
+            Gdx.app.exit();
+        }
+    }
+
+    /**
+     * Blocks until the run in {@link #create()} is over; 0 if it passed, 1 if it went over
+     * the allocation budget or threw.
+     */
+    public int awaitExitStatus() throws InterruptedException {
+        finished.await();
+        return failed ? 1 : 0;
+    }
+
+    /** Runs the sessions; false if they went over the allocation budget. */
+    private boolean run() {
+        LevelData level = loadLevel();
+        final InputLog replay = loadReplay();
+        SimulationRunner.InputFactory inputs = new SimulationRunner.InputFactory() {
+            @Override
+            public InputSource create(int session) {
+                if (replay != null) return new ReplayInputSource(replay, true);
+                return ScriptedInputSource.fromScript(script, true);
+            }
+        };
+
+        if (threads > 0) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            BatchRunner.Result result = new BatchRunner(level, STEP, ticks).run(sessions, inputs, pool);
+            pool.shutdown();
+
+            Gdx.app.log(TAG, mapPath + ": " + result);
+            return true;
+        }
+
+        AllocationMonitor monitor = null;
+        long allocBudget = Long.getLong("platformer.allocBudget", -1L);
+        if (allocBudget >= 0) monitor = new AllocationMonitor(allocBudget, ALLOC_WARMUP_ROUNDS);
+
+        SimulationRunner runner = new SimulationRunner(level, STEP);
+        String profilePath = System.getProperty("platformer.profile");
+        FrameProfiler profiler = profilePath != null ? new FrameProfiler(FrameProfiler.DEFAULT_CAPACITY * 8) : null;
+
+        SimulationRunner.Result result = runner.run(sessions, ticks, inputs, monitor, profiler);
+
+        Gdx.app.log(TAG, mapPath + ": " + result);
+
+        if (profiler != null) {
+            profiler.export(Gdx.files.local(profilePath));
+            Gdx.app.log(TAG, "Wrote profile of the last " + profiler.getSampleCount() + " rounds to " + profilePath);
+        }
+
+        if (monitor == null) return true;
+        if (monitor.isWithinBudget()) {
+            Gdx.app.log(TAG, "Allocations: " + monitor.summary());
+            return true;
+        }
+        Gdx.app.error(TAG, "Allocations: " + monitor.summary());
+        return false;
+    }
+
+    private LevelData loadLevel() {
+        long start = TimeUtils.nanoTime();
+        FileHandle file = Gdx.files.internal(mapPath);
+        if (file.isDirectory()) {
+            LevelData level = ChunkedLevel.open(file).getLevelData();
+            Gdx.app.log(TAG, "Loaded chunks of " + file.path()
+                + " in " + TimeUtils.nanosToMillis(TimeUtils.timeSinceNanos(start)) + " ms");
+            return level;
+        }
+
+        FileHandle compiled = file.extension().equals(CompiledLevel.EXTENSION) ? file : null;
+        if (compiled == null && !"false".equals(System.getProperty("platformer.compiledLevel"))) {
+            compiled = CompiledLevel.siblingOf(file);
+        }
+        LevelData level = compiled != null
+            ? CompiledLevel.read(compiled).getLevelData()
+            : TmxLevelLoader.load(file);
+
+        Gdx.app.log(TAG, "Loaded " + (compiled != null ? compiled.path() : file.path())
+            + " in " + TimeUtils.nanosToMillis(TimeUtils.timeSinceNanos(start)) + " ms");
+        return level;
+    }
+
+    private InputLog loadReplay() {
+        String replayPath = System.getProperty("platformer.replayInput");
+        if (replayPath == null) return null;
+
+        InputLog log = InputLog.read(Gdx.files.local(replayPath));
+        if (log.getTicksPerSecond() != Math.round(1f / STEP)) {
+            Gdx.app.error(TAG, replayPath + " was recorded at " + log.getTicksPerSecond() + " Hz, sessions step at " + Math.round(1f / STEP) + " Hz");
+        }
+        Gdx.app.log(TAG, "Replaying " + replayPath + " (" + log + ")");
+        return log;
+    }
+}
@@ -0,0 +1,70 @@
+package si.um.feri.platformer.headless;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.Array;
+
+import java.io.File;
+import java.util.concurrent.ForkJoinPool;
+
+import si.um.feri.platformer.map.ChunkedLevel;
+import si.um.feri.platformer.map.CompiledLevel;
+import si.um.feri.platformer.map.LevelPipeline;
+
+/**
+ * Build-time tool behind the {@code compileLevels} task: compiles each TMX map given on the
+ * command line into a {@link CompiledLevel} ({@code <map>.lvl} next to it). Needs no
+ * libGDX application or GL context.
+ *
+ * Maps and the stages within each map run in parallel through a {@link LevelPipeline};
+ * -Dplatformer.compileThreads sets the pool size (default: one per core).
+ *
+ * -Dplatformer.chunkSize=N also splits each level into NxN-tile chunks in a
+ * {@code <map>_chunks} directory next to it (see {@link ChunkedLevel}), which the game
+ * streams with -Dplatformer.chunkedLevel; the map size must be a multiple of N.
+ */
+public class LevelCompiler {
+
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            System.err.println("Usage: LevelCompiler <map.tmx>...");
+            System.exit(2);
+        }
+
+        int threads = Integer.getInteger("platformer.compileThreads", Runtime.getRuntime().availableProcessors());
+        int chunkSize = Integer.getInteger("platformer.chunkSize", 0);
+        ForkJoinPool pool = new ForkJoinPool(Math.max(1, threads));
+        LevelPipeline pipeline = new LevelPipeline(pool);
+
+        Array<FileHandle> maps = new Array<>(args.length);
+        for (String path : args) maps.add(new FileHandle(new File(path)));
+
+        Array<CompiledLevel> levels;
+        try {
+            levels = pipeline.compileAll(maps);
+        } finally {
+            pool.shutdown();
+        }
+
+        for (int i = 0; i < maps.size; i++) {
+            FileHandle tmx = maps.get(i);
+            FileHandle out = tmx.sibling(tmx.nameWithoutExtension() + "." + CompiledLevel.EXTENSION);
+            CompiledLevel level = levels.get(i);
+            level.write(out);
+
+            System.out.println("LevelCompiler: " + tmx.name() + " -> " + out.name()
+                + " (" + level.getWidthTiles() + "x" + level.getHeightTiles() + " tiles, "
+                + level.getLayers().size + " layers, "
+                + level.getCollisionRects().size / 4 + " collision rects, "
+                + out.length() + " bytes)");
+
+            if (chunkSize > 0) {
+                FileHandle dir = tmx.sibling(tmx.nameWithoutExtension() + "_chunks");
+                ChunkedLevel chunked = ChunkedLevel.split(level, out, chunkSize, chunkSize, dir);
+                System.out.println("LevelCompiler: " + tmx.name() + " -> " + dir.name() + "/ ("
+                    + chunked.getChunksX() + "x" + chunked.getChunksY() + " chunks of "
+                    + chunkSize + "x" + chunkSize + " tiles)");
+            }
+        }
+        System.out.println("LevelCompiler: threads=" + pool.getParallelism() + " " + pipeline.getTimings());
+    }
+}
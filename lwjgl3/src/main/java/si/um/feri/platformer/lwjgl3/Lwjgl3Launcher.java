@@ -8,11 +8,15 @@ import si.um.feri.platformer.PlatformerGame;
 public class Lwjgl3Launcher {
     public static void main(String[] args) {
         if (StartupHelper.startNewJvmIfRequired()) return; // This handles macOS support and helps on Windows.
-        createApplication();
+        PlatformerGame game = new PlatformerGame();
+        createApplication(game);
+
+        // returns once the window has closed; the allocation check doubles as a CI gate
+        if (game.isAllocationBudgetExceeded()) System.exit(1);
     }
 
-    private static Lwjgl3Application createApplication() {
-        return new Lwjgl3Application(new PlatformerGame(), getDefaultConfiguration());
+    private static Lwjgl3Application createApplication(PlatformerGame game) {
+        return new Lwjgl3Application(game, getDefaultConfiguration());
     }
 
     private static Lwjgl3ApplicationConfiguration getDefaultConfiguration() {